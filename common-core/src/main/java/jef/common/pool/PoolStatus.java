@@ -30,7 +30,7 @@ public final class PoolStatus {
 	 * 
 	 * @return
 	 */
-	int getMaxSize(){
+	public int getMaxSize(){
 		return maxSize;
 	}
 
@@ -39,7 +39,7 @@ public final class PoolStatus {
 	 * 
 	 * @return
 	 */
-	int getCurrentSize(){
+	public int getCurrentSize(){
 		return currentSize;
 	}
 	
@@ -47,7 +47,7 @@ public final class PoolStatus {
 	 * 得到连接池的最小数量
 	 * @return
 	 */
-	int getMinSize(){
+	public int getMinSize(){
 		return minSize;
 	}
 
@@ -56,7 +56,7 @@ public final class PoolStatus {
 	 * 
 	 * @return
 	 */
-	int getUsedCount(){
+	public int getUsedCount(){
 		return used;
 	}
 
@@ -65,7 +65,7 @@ public final class PoolStatus {
 	 * 
 	 * @return
 	 */
-	int getFreeCount(){
+	public int getFreeCount(){
 		return free;
 	}
 
@@ -70,6 +70,7 @@ public class CloneUtils {
 		BEAN_CLONERS.put(java.sql.Date.class, Cloner.SQL_DATE);
 		BEAN_CLONERS.put(java.sql.Time.class, Cloner.TIME);
 		BEAN_CLONERS.put(java.sql.Timestamp.class, Cloner.TIMESTAMP);
+		BEAN_CLONERS.put(ThreadLocal.class, Cloner.THREAD_LOCAL);
 	}
 
 	/**
@@ -104,6 +105,8 @@ public class CloneUtils {
 			cloner = new Cloner._OtherCollection(clz);
 		} else if (Map.class.isAssignableFrom(clz)) {// 按未知Map类型处理
 			cloner = new Cloner._OtherMap(clz);
+		} else if (DeepCloneable.class.isAssignableFrom(clz)) {// 按字段处理
+			cloner = new Cloner._Fields(clz);
 		} else {// 按自定义Bean处理
 			cloner = new BeanCloner(BeanCopier.create(clz, clz, true));
 		}
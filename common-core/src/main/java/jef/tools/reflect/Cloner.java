@@ -1,6 +1,7 @@
 package jef.tools.reflect;
 
 import java.lang.reflect.Array;
+import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.sql.Time;
 import java.sql.Timestamp;
@@ -52,6 +53,16 @@ abstract class Cloner {
 		}
 	};
 
+	/**
+	 * ThreadLocal中的值属于各个线程，不复制，克隆得到一个新的ThreadLocal
+	 */
+	static final Cloner THREAD_LOCAL = new Cloner() {
+		@Override
+		public Object clone(Object object, int restLevel) {
+			return new ThreadLocal<Object>();
+		}
+	};
+
 	static final Cloner _ArrayList = new Cloner() {
 		@SuppressWarnings("unchecked")
 		@Override
@@ -175,4 +186,44 @@ abstract class Cloner {
 
 	}
 
+	/**
+	 * 按字段克隆，用于{@link DeepCloneable}的类。
+	 * 这些类（如SQL语法树的节点）的字段不一定都有getter/setter，也不一定有空构造，因此不经过BeanCopier，而是直接复制所有非静态字段。
+	 */
+	static final class _Fields extends Cloner {
+		private final Class<?> clz;
+		private final Field[] fields;
+
+		_Fields(Class<?> clz) {
+			List<Field> list = new ArrayList<Field>();
+			for (Class<?> c = clz; c != Object.class; c = c.getSuperclass()) {
+				for (Field f : c.getDeclaredFields()) {
+					if (Modifier.isStatic(f.getModifiers())) {
+						continue;
+					}
+					f.setAccessible(true);
+					list.add(f);
+				}
+			}
+			this.clz = clz;
+			this.fields = list.toArray(new Field[list.size()]);
+		}
+
+		@Override
+		public Object clone(Object object, int restLevel) {
+			Object result = UnsafeUtils.newInstance(clz);
+			try {
+				for (Field field : fields) {
+					Object value = field.get(object);
+					if (!field.getType().isPrimitive()) {
+						value = restLevel > 0 ? CloneUtils._clone(value, restLevel - 1) : value;
+					}
+					field.set(result, value);
+				}
+			} catch (IllegalAccessException e) {
+				throw new IllegalStateException(e);
+			}
+			return result;
+		}
+	}
 }
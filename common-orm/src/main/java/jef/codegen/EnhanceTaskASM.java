@@ -11,7 +11,6 @@ import javax.persistence.ManyToOne;
 import javax.persistence.OneToMany;
 import javax.persistence.OneToOne;
 
-import jef.accelerator.asm.ASMUtils;
 import jef.accelerator.asm.Attribute;
 import jef.accelerator.asm.ClassReader;
 import jef.accelerator.asm.ClassVisitor;
@@ -199,14 +198,14 @@ public class EnhanceTaskASM {
 				if (fieldName.length() == 0 || types.length != 1)
 					return mv;
 				if (enumFields.contains(fieldName) && nonStaticFields.contains(fieldName)) {
-					return new SetterVisitor(mv, fieldName, typeName, types[0]);
+					return new SetterVisitor(mv, fieldName, typeName);
 				}else if(lobAndRefFields.contains(fieldName)) {
 					return new SetterOfClearLazyload(mv, fieldName, typeName);
 				}else{
 					String altFieldName="is"+StringUtils.capitalize(fieldName);
 		//特定情况，当boolean类型并且field名称是isXXX，setter是setXXX()
 					 if(enumFields.contains(altFieldName)){
-						 return new SetterVisitor(mv, altFieldName, typeName, types[0]);
+						 return new SetterVisitor(mv, altFieldName, typeName);
 					 }
 				}
 				return mv;
@@ -316,29 +315,26 @@ public class EnhanceTaskASM {
 	// public void setBinaryData_x(byte[]);
 	// Code:
 	// 0: aload_0
-	// 1: getfield #125; //Field _recordUpdate:Z
-	// 4: ifeq 16
-	// 7: aload_0
-	// 8: getstatic #128; //Field
+	// 1: aload_1
+	// 2: putfield #121; //Field binaryData:[B
+	// 5: aload_0
+	// 6: getfield #125; //Field _recordUpdate:Z
+	// 9: ifeq 19
+	// 12: aload_0
+	// 13: getstatic #128; //Field
 	// jef/orm/onetable/model/TestEntity$Field.binaryData:Ljef/orm/onetable/model/TestEntity$Field;
-	// 11: aload_1
-	// 13: invokevirtual #133; //Method
-	// prepareUpdate:(Ljef/database/Field;Ljava/lang/Object;)V
-	// 16: aload_0
-	// 17: aload_1
-	// 18: putfield #121; //Field binaryData:[B
-	// 21: return
+	// 16: invokevirtual #133; //Method
+	// markUpdate:(Ljef/database/Field;)V
+	// 19: return
 
 	static class SetterVisitor extends MethodVisitor implements Opcodes {
 		private String name;
 		private String typeName;
-		private Type paramType;
 
-		public SetterVisitor(MethodVisitor mv, String name, String typeName, Type paramType) {
+		public SetterVisitor(MethodVisitor mv, String name, String typeName) {
 			super(Opcodes.ASM5,mv);
 			this.name = name;
 			this.typeName = typeName;
-			this.paramType = paramType;
 		}
 
 		// 去除本地变量表。否则生成的类用jd-gui反编译时，添加的代码段无法正常反编译
@@ -346,30 +342,26 @@ public class EnhanceTaskASM {
 		public void visitLocalVariable(String name, String desc, String signature, Label start, Label end, int index) {
 		}
 
-		public void visitCode() {
-			mv.visitIntInsn(ALOAD,0);
-			mv.visitFieldInsn(GETFIELD, typeName, "_recordUpdate", "Z");
-			Label norecord = new Label();
-			mv.visitJumpInsn(IFEQ, norecord);
-
-			mv.visitIntInsn(ALOAD,0);
-			mv.visitFieldInsn(GETSTATIC, typeName + "$Field", name, "L" + typeName + "$Field;");
-
-			if (paramType.isPrimitive()) {
-				mv.visitVarInsn(ASMUtils.getLoadIns(paramType), 1);
-				ASMUtils.doWrap(mv, paramType);
-			} else {
-				mv.visitIntInsn(ALOAD,1);
+		// 赋值完成后标记字段已修改，更新值在生成SQL时从对象中读取，不必装箱
+		@Override
+		public void visitInsn(int opcode) {
+			if (opcode == RETURN) {
+				mv.visitIntInsn(ALOAD,0);
+				mv.visitFieldInsn(GETFIELD, typeName, "_recordUpdate", "Z");
+				Label norecord = new Label();
+				mv.visitJumpInsn(IFEQ, norecord);
+
+				mv.visitIntInsn(ALOAD,0);
+				mv.visitFieldInsn(GETSTATIC, typeName + "$Field", name, "L" + typeName + "$Field;");
+				mv.visitMethodInsn(INVOKEVIRTUAL, typeName, "markUpdate", "(Ljef/database/Field;)V",false);
+				mv.visitLabel(norecord);
 			}
-			mv.visitMethodInsn(INVOKEVIRTUAL, typeName, "prepareUpdate", "(Ljef/database/Field;Ljava/lang/Object;)V",false);
-			mv.visitLabel(norecord);
-			super.visitCode();
-
+			super.visitInsn(opcode);
 		}
 
 		@Override
 		public void visitMaxs(int maxStack, int maxLocals) {
-			mv.visitMaxs(4, maxLocals);
+			mv.visitMaxs(Math.max(maxStack, 2), maxLocals);
 		}
 	}
 
@@ -20,11 +20,16 @@ import java.io.IOException;
 import java.io.PrintStream;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import jef.accelerator.asm.ClassReader;
+import jef.database.meta.EntityIndex;
 import jef.tools.ClassScanner;
 import jef.tools.IOUtils;
 import jef.tools.StringUtils;
@@ -34,6 +39,7 @@ import jef.tools.resource.IResource;
 /**
  * JEF中的Entity静态增强任务类 <h3>作用</h3> 这个类中提供了{@link #enhance(String...)}
  * 方法，可以对当前classpath下的Entity类进行字节码增强。
+ * 同时在每个classpath根目录下写入实体索引{@link EntityIndex#RESOURCE}，记录处理过的类的父类和增强状态，供运行时扫描实体和检查增强使用。
  * 
  * 
  * @author jiyi
@@ -45,6 +51,8 @@ public class EntityEnhancer {
 	private List<URL> roots;
 	PrintStream out = System.out;
 	private EnhanceTaskASM enhancer;
+	// 本次增强处理过的类，按classpath根目录分组
+	private final Map<File, Map<String, EntityIndex.Entry>> index = new HashMap<File, Map<String, EntityIndex.Entry>>();
 	private static final Logger log = LoggerFactory.getLogger(EntityEnhancer.class);
 
 	public void setOut(PrintStream out) {
@@ -105,6 +113,7 @@ public class EntityEnhancer {
 				}
 			}
 		}
+		writeIndex();
 		out.println(n + " classes enhanced.");
 	}
 
@@ -119,7 +128,9 @@ public class EntityEnhancer {
 			throw new IllegalArgumentException("not found " + className);
 		}
 		try {
-			return enhance(IOUtils.urlToFile(url), className);
+			boolean result = enhance(IOUtils.urlToFile(url), className);
+			writeIndex();
+			return result;
 		} catch (Exception e) {
 			throw new RuntimeException(e);
 		}
@@ -128,7 +139,9 @@ public class EntityEnhancer {
 	private boolean enhance(File f, String cls) throws IOException, Exception {
 		EnhanceTaskASM enhancer = new EnhanceTaskASM(null);
 		File sub = new File(f.getParentFile(), StringUtils.substringAfterLastIfExist(cls, ".").concat("$Field.class"));
-		byte[] result = enhancer.doEnhance(IOUtils.toByteArray(f), (sub.exists() ? IOUtils.toByteArray(sub) : null));
+		byte[] data = IOUtils.toByteArray(f);
+		byte[] result = enhancer.doEnhance(data, (sub.exists() ? IOUtils.toByteArray(sub) : null));
+		addIndex(f, data, result);
 		if (result != null) {
 			if (result.length == 0) {
 				out.println(cls + " is already enhanced.");
@@ -147,7 +160,9 @@ public class EntityEnhancer {
 		if (!f.exists()) {
 			return false;
 		}
-		byte[] result = enhancer.doEnhance(IOUtils.toByteArray(f), (sub.exists() ? IOUtils.toByteArray(sub) : null));
+		byte[] data = IOUtils.toByteArray(f);
+		byte[] result = enhancer.doEnhance(data, (sub.exists() ? IOUtils.toByteArray(sub) : null));
+		addIndex(f, data, result);
 		if (result != null) {
 			if (result.length == 0) {
 				out.println(cls + " is already enhanced.");
@@ -160,6 +175,38 @@ public class EntityEnhancer {
 		return false;
 	}
 
+	/*
+	 * 记录类的父类和增强后的文件长度。classpath根目录由文件路径去掉类名得到
+	 */
+	private void addIndex(File f, byte[] data, byte[] result) {
+		ClassReader reader = new ClassReader(data);
+		String name = reader.getClassName();
+		String path = f.getAbsolutePath().replace('\\', '/');
+		if (!path.endsWith(name.concat(".class"))) {
+			return;
+		}
+		File root = new File(path.substring(0, path.length() - name.length() - 6));
+		Map<String, EntityIndex.Entry> entries = index.get(root);
+		if (entries == null) {
+			entries = new TreeMap<String, EntityIndex.Entry>();
+			index.put(root, entries);
+		}
+		boolean entity = result != null;
+		long length = entity && result.length > 0 ? result.length : data.length;
+		entries.put(name, new EntityIndex.Entry(name, reader.getSuperName(), length, entity));
+	}
+
+	private void writeIndex() {
+		for (Map.Entry<File, Map<String, EntityIndex.Entry>> e : index.entrySet()) {
+			try {
+				EntityIndex.write(e.getKey(), e.getValue());
+			} catch (IOException ex) {
+				log.error("Write entity index error: {}", e.getKey(), ex);
+			}
+		}
+		index.clear();
+	}
+
 	/**
 	 * 设置类名Pattern
 	 * 
@@ -0,0 +1,253 @@
+package jef.database;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import jef.database.meta.ITableMetadata;
+import jef.database.meta.MetaHolder;
+import jef.database.query.ConditionQuery;
+import jef.database.query.TypedQuery;
+import jef.database.support.LimitedExecutor;
+import jef.database.wrapper.executor.ExecutorRegistry;
+import jef.tools.JefConfiguration;
+import jef.tools.PageLimit;
+
+/**
+ * 异步操作接口，通过{@link DbClient#async()}获得。<br>
+ * 各方法立即返回{@link CompletableFuture}，数据库操作在执行器中进行，操作抛出的异常通过CompletableFuture返回。
+ * <ul>
+ * <li>执行器可以通过{@link DbClientBuilder#setAsyncExecutor(Executor)}指定，例如在JDK 21以上使用虚拟线程
+ * {@code Executors.newVirtualThreadPerTaskExecutor()}。
+ * 未指定时使用DbClient为异步操作单独创建的线程池，其队列不限长度，提交操作不会阻塞或改由调用线程执行，DbClient关闭时一起关闭。</li>
+ * <li>每个数据源同时执行的操作数不超过{@link ORMConfig#getAsyncMaxConcurrency()}，超出的操作排队等待，不占用线程。</li>
+ * </ul>
+ * 异步操作使用单独的{@link ExecutorRegistry}，而不是{@link DbClient#getExecutorRegistry()}：
+ * 异步操作内部的分库查询等并行任务还要在后者中排队，如果共用同一组并发限制，占满限制的异步操作会等待自己无法开始的子任务。
+ * <p>
+ * 异步操作总是在DbClient上以非事务方式执行。
+ *
+ * <pre>
+ * <tt>
+ * CompletableFuture&lt;List&lt;Foo&gt;&gt; f1 = db.async().select(query);
+ * CompletableFuture&lt;Bar&gt; f2 = db.async().load(Bar.class, 1);
+ * CompletableFuture.allOf(f1, f2).join();
+ * </tt>
+ * </pre>
+ */
+public class AsyncSession {
+	private final DbClient db;
+	/**
+	 * 各数据源的限流执行器
+	 */
+	private final ExecutorRegistry executors;
+
+	AsyncSession(DbClient db, Executor executor) {
+		this.db = db;
+		int limit = ORMConfig.getInstance().getAsyncMaxConcurrency();
+		if (executor == null) {
+			// 线程数不超过各数据源的并发数之和
+			int perSource = limit > 0 ? limit : JefConfiguration.getInt(DbCfg.DB_CONNECTION_POOL_MAX, 50);
+			this.executors = new ExecutorRegistry(perSource * Math.max(1, db.getAllDatasourceNames().size()), limit);
+		} else {
+			this.executors = new ExecutorRegistry(executor, limit);
+		}
+	}
+
+	/*
+	 * 关闭自己创建的线程池，指定的执行器由调用者管理
+	 */
+	void close() {
+		executors.close();
+	}
+
+	/**
+	 * 异步查询
+	 *
+	 * @param obj
+	 *            查询请求
+	 * @return 查询结果
+	 * @see Session#select(IQueryableEntity)
+	 */
+	public <T extends IQueryableEntity> CompletableFuture<List<T>> select(final T obj) {
+		return submit(dsOf(obj), () -> db.select(obj));
+	}
+
+	/**
+	 * 异步查询
+	 *
+	 * @param query
+	 *            查询请求
+	 * @return 查询结果
+	 * @see Session#select(TypedQuery)
+	 */
+	public <T> CompletableFuture<List<T>> select(final TypedQuery<T> query) {
+		return submit(dsOf(query.getMeta()), () -> db.select(query));
+	}
+
+	/**
+	 * 异步查询
+	 *
+	 * @param query
+	 *            查询请求
+	 * @param range
+	 *            结果范围，可以为null
+	 * @return 查询结果
+	 * @see Session#select(ConditionQuery, PageLimit)
+	 */
+	public <T> CompletableFuture<List<T>> select(final ConditionQuery query, final PageLimit range) {
+		ITableMetadata meta = query instanceof TypedQuery<?> ? ((TypedQuery<?>) query).getMeta() : null;
+		return submit(dsOf(meta), () -> db.<T> select(query, range));
+	}
+
+	/**
+	 * 异步按主键加载
+	 *
+	 * @param obj
+	 *            设置了主键的对象
+	 * @return 查询结果，没有记录时为null
+	 * @see Session#load(Object)
+	 */
+	public <T> CompletableFuture<T> load(final T obj) {
+		return submit(dsOf(obj), () -> db.load(obj));
+	}
+
+	/**
+	 * 异步按主键加载
+	 *
+	 * @param entityClass
+	 *            实体类
+	 * @param keys
+	 *            主键值
+	 * @return 查询结果，没有记录时为null
+	 * @see Session#load(Class, Serializable...)
+	 */
+	public <T> CompletableFuture<T> load(final Class<T> entityClass, final Serializable... keys) {
+		return submit(dsOf(MetaHolder.getMeta(entityClass)), () -> db.load(entityClass, keys));
+	}
+
+	/**
+	 * 异步按主键批量加载
+	 *
+	 * @param entityClass
+	 *            实体类
+	 * @param pkValues
+	 *            主键值
+	 * @return 查询结果
+	 * @see Session#batchLoad(Class, List)
+	 */
+	public <T> CompletableFuture<List<T>> batchLoad(final Class<T> entityClass, final List<? extends Serializable> pkValues) {
+		return submit(dsOf(MetaHolder.getMeta(entityClass)), () -> db.batchLoad(entityClass, pkValues));
+	}
+
+	/**
+	 * 异步插入
+	 *
+	 * @param obj
+	 *            要插入的对象
+	 * @return 插入完成后结束
+	 * @see Session#insert(Object)
+	 */
+	public CompletableFuture<Void> insert(final Object obj) {
+		return submit(dsOf(obj), () -> {
+			db.insert(obj);
+			return null;
+		});
+	}
+
+	/**
+	 * 异步批量插入
+	 *
+	 * @param entities
+	 *            要插入的对象
+	 * @return 插入完成后结束
+	 * @see Session#batchInsert(List)
+	 */
+	public <T> CompletableFuture<Void> batchInsert(final List<T> entities) {
+		return submit(entities.isEmpty() ? null : dsOf(entities.get(0)), () -> {
+			db.batchInsert(entities);
+			return null;
+		});
+	}
+
+	/**
+	 * 异步更新
+	 *
+	 * @param obj
+	 *            要更新的对象
+	 * @return 更新的记录数
+	 * @see Session#update(Object)
+	 */
+	public CompletableFuture<Integer> update(final Object obj) {
+		return submit(dsOf(obj), () -> db.update(obj));
+	}
+
+	/**
+	 * 异步执行查询语句
+	 *
+	 * @param query
+	 *            查询
+	 * @return 查询结果
+	 * @see NativeQuery#getResultList()
+	 */
+	public <X> CompletableFuture<List<X>> getResultList(final NativeQuery<X> query) {
+		return submit(query.getDb().getDbkey(), query::getResultList);
+	}
+
+	/**
+	 * 异步执行更新语句
+	 *
+	 * @param query
+	 *            语句
+	 * @return 影响的记录数
+	 * @see NativeQuery#executeUpdate()
+	 */
+	public CompletableFuture<Integer> executeUpdate(final NativeQuery<?> query) {
+		return submit(query.getDb().getDbkey(), query::executeUpdate);
+	}
+
+	/**
+	 * 在指定数据源的执行器中执行任意操作，同样受该数据源的并发数限制
+	 *
+	 * @param dbKey
+	 *            数据源名称，null表示默认数据源
+	 * @param task
+	 *            操作
+	 * @return 操作结果
+	 */
+	public <T> CompletableFuture<T> submit(String dbKey, final Callable<T> task) {
+		final CompletableFuture<T> future = new CompletableFuture<T>();
+		getExecutor(dbKey).execute(() -> {
+			try {
+				future.complete(task.call());
+			} catch (Throwable e) {
+				future.completeExceptionally(e);
+			}
+		});
+		return future;
+	}
+
+	/**
+	 * 得到数据源的执行器
+	 *
+	 * @param dbKey
+	 *            数据源名称，null表示默认数据源
+	 * @return 该数据源的限流执行器
+	 */
+	public LimitedExecutor getExecutor(String dbKey) {
+		return executors.getExecutor(dbKey);
+	}
+
+	/*
+	 * 对象所绑定的数据源
+	 */
+	private static String dsOf(Object obj) {
+		return obj == null ? null : dsOf(MetaHolder.getMeta(obj));
+	}
+
+	private static String dsOf(ITableMetadata meta) {
+		return meta == null ? null : meta.getBindDsName();
+	}
+}
@@ -19,14 +19,17 @@ import java.sql.BatchUpdateException;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import jef.common.PairSS;
 import jef.common.log.LogUtil;
 import jef.database.cache.Cache;
+import jef.database.dialect.DatabaseDialect;
 import jef.database.dialect.type.ColumnMapping;
 import jef.database.meta.ITableMetadata;
 import jef.database.meta.MetaHolder;
@@ -36,7 +39,12 @@ import jef.database.support.SqlLog;
 import jef.database.wrapper.clause.BindSql;
 import jef.database.wrapper.clause.InsertSqlClause;
 import jef.database.wrapper.clause.UpdateClause;
+import jef.database.wrapper.clause.UpsertSqlClause;
+import jef.database.wrapper.executor.DbTask;
 import jef.database.wrapper.variable.BindVariableContext;
+import jef.database.wrapper.variable.BinderCompiler;
+import jef.database.wrapper.variable.CompiledBinder;
+import jef.database.wrapper.variable.UpdateVairable;
 import jef.database.wrapper.variable.Variable;
 import jef.tools.Assert;
 import jef.tools.StringUtils;
@@ -76,9 +84,17 @@ public abstract class Batch<T extends IQueryableEntity> {
 	 */
 	private boolean groupForPartitionTable;
 	/**
-	 * 执行影响的总记录行数
+	 * 每次调用executeBatch的最大记录数，0表示每组只调用一次
 	 */
-	private int executeResult;
+	private int batchSize = ORMConfig.getInstance().getBatchSize();
+	/**
+	 * 是否允许在多个数据库上并行执行
+	 */
+	private boolean parallel = true;
+	/**
+	 * 最近一次执行的各组结果
+	 */
+	private List<GroupResult<T>> groupResults = Collections.emptyList();
 	/**
 	 * 极限模式，极限模式下，会使用数据库本地特性来尽可能加速操作。 极限模式下，禁用数据回写功能。
 	 */
@@ -195,6 +211,56 @@ public abstract class Batch<T extends IQueryableEntity> {
 		this.groupForPartitionTable = regroupForPartitionTable;
 	}
 
+	/**
+	 * 获得每次调用executeBatch的最大记录数
+	 * 
+	 * @return 每次调用executeBatch的最大记录数，0表示每组数据只调用一次
+	 */
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * 设置每次调用executeBatch的最大记录数。数据量很大时，分成多次提交可以减少驱动和数据库端的内存占用。
+	 * 
+	 * @param batchSize
+	 *            每次调用executeBatch的最大记录数，0表示每组数据只调用一次
+	 */
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * 是否允许在多个数据库上并行执行
+	 * 
+	 * @return 允许并行时返回true
+	 */
+	public boolean isParallel() {
+		return parallel;
+	}
+
+	/**
+	 * 设置是否允许在多个数据库上并行执行。<br>
+	 * 开启时，如果分组后涉及的数据库数量达到{@link ORMConfig#getParallelSelect()}
+	 * ，则每个数据库使用一个线程，在各自的连接上执行该库上的各组数据。同一个数据库上的各组数据仍然顺序执行。
+	 * 
+	 * @param parallel
+	 *            是否允许并行
+	 */
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+
+	/**
+	 * 获得最近一次执行时，每组(同一个数据库上的同一张表)的执行结果。<br>
+	 * 执行出错时，可以据此得知哪些组已经执行成功，哪些组失败或未执行。
+	 * 
+	 * @return 每组的执行结果
+	 */
+	public List<GroupResult<T>> getGroupResults() {
+		return groupResults;
+	}
+
 	/**
 	 * 提交并执行批数据。 注意Batch对应的SQL语句是固定的。因此此处传入的对象只会影响参数中的绑定变量和SQL语句中的表名。对where条件、
 	 * Update中的set子句不会构成影响。
@@ -203,57 +269,94 @@ public abstract class Batch<T extends IQueryableEntity> {
 	 */
 	public int execute(List<T> objs) throws SQLException {
 		if (objs.isEmpty()) {
+			groupResults = Collections.emptyList();
 			return 0;
 		}
 		boolean debugMode = ORMConfig.getInstance().isDebugMode();
-		String tablename = null;
-
-		try {
-			if (this.groupForPartitionTable && forceTableName == null) {// 需要分组
-				callVeryBefore(objs);
-				int total = 0;
-				Map<PairSS, List<T>> data = doGroup(objs);
-				for (Map.Entry<PairSS, List<T>> entry : data.entrySet()) {
-					long start = System.currentTimeMillis();
-					PairSS target = entry.getKey();
-					String dbName = parent.getTransactionId(target.first);
-					tablename = target.second;
-					List<T> groupObj = entry.getValue();
-					long dbAccess = innerCommit(groupObj, target.first, tablename, dbName);
-					total += executeResult;
-					if (debugMode) {
-						LogUtil.info(StringUtils.concat(this.getClass().getSimpleName(), " Group executed:", String.valueOf(groupObj.size()), ". affect ", String.valueOf(executeResult), " record(s) on [" + entry.getKey() + "]\t Time cost([ParseSQL]:",
-								String.valueOf(parseTime / 1000), "us, [DbAccess]:", String.valueOf(dbAccess - start), "ms) |", dbName));
+		List<GroupResult<T>> groups;
+		callVeryBefore(objs);
+		if (this.groupForPartitionTable && forceTableName == null) {// 需要分组
+			groups = doGroup(objs);
+		} else {// 不分组
+			String site = null;
+			String tablename;
+			if (forceTableName != null) {
+				tablename = forceTableName;
+			} else {
+				PartitionResult pr = getTableName(objs.get(0));
+				site = forcrSite != null ? forcrSite : pr.getDatabase();
+				tablename = pr.getAsOneTable();
+			}
+			groups = Collections.singletonList(new GroupResult<T>(site, tablename, objs));
+		}
+		this.groupResults = groups;
+
+		Map<String, List<GroupResult<T>>> sites = groupBySite(groups);
+		if (parallel && sites.size() > 1 && sites.size() >= ORMConfig.getInstance().getParallelSelect()) {
+			List<DbTask> tasks = new ArrayList<DbTask>(sites.size());
+			for (Map.Entry<String, List<GroupResult<T>>> entry : sites.entrySet()) {
+				final List<GroupResult<T>> siteGroups = entry.getValue();
+				tasks.add(new DbTask(entry.getKey()) {
+					public void execute() throws SQLException {
+						for (GroupResult<T> group : siteGroups) {
+							commitGroup(group);
+						}
 					}
-				}
-				if (debugMode) {
-					LogUtil.info(StringUtils.concat(this.getClass().getSimpleName(), " Batch executed:", String.valueOf(objs.size()), ". affect ", String.valueOf(total), " record(s) and ", String.valueOf(data.size()), " tables. |  @",
-							String.valueOf(Thread.currentThread().getId())));
-				}
-			} else {// 不分组
-				long start = System.currentTimeMillis();
-				T obj = objs.get(0);
-				String site = null;
-				callVeryBefore(objs);
-				if (forceTableName != null) {
-					tablename = forceTableName;
-				} else {
-					PartitionResult pr = getTableName(obj);
-					site = forcrSite != null ? forcrSite : pr.getDatabase();
-					tablename = pr.getAsOneTable();
-				}
-				String dbName = parent.getTransactionId(null);
-				long dbAccess = innerCommit(objs, site, tablename, dbName);
-				if (debugMode) {
-					LogUtil.info(StringUtils.concat(this.getClass().getSimpleName(), " Batch executed total:", String.valueOf(objs.size()), ". affect ", String.valueOf(executeResult), " record(s)\t Time cost([ParseSQL]:", String.valueOf(parseTime / 1000), "us, [DbAccess]:",
-							String.valueOf(dbAccess - start), "ms) |", dbName));
-				}
+				});
 			}
+			DbUtils.parallelExecute(parent.getExecutorRegistry(), tasks);
+		} else {
+			for (GroupResult<T> group : groups) {
+				commitGroup(group);
+			}
+		}
+		int total = 0;
+		for (GroupResult<T> group : groups) {
+			total += group.affected;
+		}
+		if (debugMode && groups.size() > 1) {
+			LogUtil.info(StringUtils.concat(this.getClass().getSimpleName(), " Batch executed:", String.valueOf(objs.size()), ". affect ", String.valueOf(total), " record(s) and ", String.valueOf(groups.size()), " tables on ",
+					String.valueOf(sites.size()), " database(s). |  @", String.valueOf(Thread.currentThread().getId())));
+		}
+		return total;
+	}
+
+	/*
+	 * 执行一组数据，记录结果
+	 */
+	private void commitGroup(GroupResult<T> group) throws SQLException {
+		long start = System.currentTimeMillis();
+		String dbName = parent.getTransactionId(group.database);
+		try {
+			group.affected = innerCommit(group.objects, group.database, group.table, dbName);
 		} catch (SQLException e) {
-			DebugUtil.setSqlState(e, tablename);
+			DebugUtil.setSqlState(e, group.table);
+			group.error = e;
 			throw e;
+		} finally {
+			group.cost = System.currentTimeMillis() - start;
+			group.executed = true;
+		}
+		if (ORMConfig.getInstance().isDebugMode()) {
+			LogUtil.info(StringUtils.concat(this.getClass().getSimpleName(), " Group executed:", String.valueOf(group.objects.size()), ". affect ", String.valueOf(group.affected), " record(s) on [" + group.database + "-" + group.table + "]\t Time cost([ParseSQL]:",
+					String.valueOf(parseTime / 1000), "us, [DbAccess]:", String.valueOf(group.cost), "ms) |", dbName));
 		}
-		return executeResult;
+	}
+
+	/*
+	 * 按数据库将各组归类，同一数据库上的各组需要在同一个连接上顺序执行
+	 */
+	private Map<String, List<GroupResult<T>>> groupBySite(List<GroupResult<T>> groups) {
+		Map<String, List<GroupResult<T>>> result = new LinkedHashMap<String, List<GroupResult<T>>>();
+		for (GroupResult<T> group : groups) {
+			List<GroupResult<T>> list = result.get(group.database);
+			if (list == null) {
+				list = new ArrayList<GroupResult<T>>();
+				result.put(group.database, list);
+			}
+			list.add(group);
+		}
+		return result;
 	}
 
 //	protected PartitionResult getTableName(T obj) {
@@ -264,7 +367,7 @@ public abstract class Batch<T extends IQueryableEntity> {
 		return DbUtils.toTableName(obj, null, obj.getQuery(), parent.getPartitionSupport());
 	}
 
-	protected long innerCommit(List<T> objs, String site, String tablename, String dbName) throws SQLException {
+	protected int innerCommit(List<T> objs, String site, String tablename, String dbName) throws SQLException {
 		OperateTarget db = parent.selectTarget(site);
 		String sql = toSql(DbUtils.escapeColumn(db.getProfile(), tablename));
 		if (ORMConfig.getInstance().isDebugMode())
@@ -282,30 +385,48 @@ public abstract class Batch<T extends IQueryableEntity> {
 	/*
 	 * 按计算的表名进行分组
 	 * 
-	 * @return 返回的Map中，key为计算出的表名(数据源名称加上-表名)，value为该表上的操作对象
+	 * @return 返回每张表(数据源名称加上表名)上的操作对象
 	 */
-	private Map<PairSS, List<T>> doGroup(List<T> objs) {
-		Map<PairSS, List<T>> result = new HashMap<PairSS, List<T>>();
+	private List<GroupResult<T>> doGroup(List<T> objs) {
+		Map<PairSS, GroupResult<T>> result = new LinkedHashMap<PairSS, GroupResult<T>>();
 		for (T obj : objs) {
 			PartitionResult partitionResult = getTableName(obj);
 			if (this.forcrSite != null) {
 				partitionResult.setDatabase(forcrSite);
 			}
 			PairSS tablename = new PairSS(partitionResult.getDatabase(), partitionResult.getAsOneTable());
-			List<T> list = result.get(tablename);
-			if (list == null) {
-				list = new ArrayList<T>();
-				result.put(tablename, list);
+			GroupResult<T> group = result.get(tablename);
+			if (group == null) {
+				group = new GroupResult<T>(tablename.first, tablename.second, new ArrayList<T>());
+				result.put(tablename, group);
 			}
-			list.add(obj);
+			group.objects.add(obj);
 		}
-		return result;
+		return new ArrayList<GroupResult<T>>(result.values());
 	}
 
 	/*
-	 * 提交每批数据，返回本次数据库完成后的时间
+	 * 提交一组数据，超过批大小时分多次调用executeBatch。返回影响的记录数
 	 */
-	protected long doCommit(PreparedStatement psmt, OperateTarget db, List<T> listValue) throws SQLException {
+	protected int doCommit(PreparedStatement psmt, OperateTarget db, List<T> listValue) throws SQLException {
+		int size = batchSize;
+		if (size <= 0 || listValue.size() <= size) {
+			return doCommit0(psmt, db, listValue);
+		}
+		int total = 0;
+		boolean noInfo = false;
+		for (int i = 0; i < listValue.size(); i += size) {
+			int count = doCommit0(psmt, db, listValue.subList(i, Math.min(i + size, listValue.size())));
+			if (count < 0) {
+				noInfo = true;
+			} else {
+				total += count;
+			}
+		}
+		return noInfo ? Statement.SUCCESS_NO_INFO : total;
+	}
+
+	private int doCommit0(PreparedStatement psmt, OperateTarget db, List<T> listValue) throws SQLException {
 		callEventListenerBefore(listValue);
 		processJdbcParams(psmt, listValue, db);
 		int[] result;
@@ -354,10 +475,8 @@ public abstract class Batch<T extends IQueryableEntity> {
 				total += i;
 			}
 		}
-		this.executeResult = total;
-		long dbAccess = System.currentTimeMillis();
 		callEventListenerAfter(listValue);
-		return dbAccess;
+		return total;
 	}
 
 	/*
@@ -377,6 +496,25 @@ public abstract class Batch<T extends IQueryableEntity> {
 
 	protected abstract void processJdbcParams(PreparedStatement psmt, List<T> listValue, OperateTarget db) throws SQLException;
 
+	/*
+	 * 得到按第一个对象的类型生成的参数绑定类，未开启或不能生成时返回null。
+	 * 输出参数日志时需要逐个字段取值，不使用生成的类。
+	 */
+	static CompiledBinder getBinder(List<?> listValue, List<ColumnMapping> columns, SqlLog log) {
+		if (log.isDebug() || !ORMConfig.getInstance().isCompileBatchBinder() || listValue.isEmpty() || listValue.get(0) == null) {
+			return null;
+		}
+		return BinderCompiler.get(listValue.get(0).getClass(), columns);
+	}
+
+	static void bind(CompiledBinder binder, Object bean, PreparedStatement psmt, ColumnMapping[] columns, DatabaseDialect profile) throws SQLException {
+		try {
+			binder.bind(bean, psmt, columns, profile);
+		} catch (ClassCastException e) {
+			throw new SQLException("The query param type error, type=" + bean.getClass().getName() + ":" + e.getMessage());
+		}
+	}
+
 	/**
 	 * 根据传入的表名，计算针对该表的SQL语句
 	 * 
@@ -451,9 +589,18 @@ public abstract class Batch<T extends IQueryableEntity> {
 			int len = listValue.size();
 			SqlLog log = ORMConfig.getInstance().newLogger(this.extreme);
 			int maxLog = ORMConfig.getInstance().getMaxBatchLog();
+			CompiledBinder binder = getBinder(listValue, writeFields, log);
+			ColumnMapping[] columns = binder == null ? null : writeFields.toArray(new ColumnMapping[writeFields.size()]);
+			Class<?> binderType = binder == null ? null : listValue.get(0).getClass();
+			DatabaseDialect profile = db.getProfile();
 			for (int i = 0; i < len; i++) {
 				T t = listValue.get(i);
 				Assert.notNull(t,"Batch list must not contain null element.");
+				if (t.getClass() == binderType) {
+					bind(binder, t, psmt, columns, profile);
+					psmt.addBatch();
+					continue;
+				}
 				BindVariableContext context = new BindVariableContext(psmt, db.getProfile(), log.append("Batch Parameters: ", i + 1).append('/').append(len));
 				context.setInsertVariables(t, writeFields);
 				psmt.addBatch();
@@ -467,7 +614,7 @@ public abstract class Batch<T extends IQueryableEntity> {
 			}
 		}
 
-		protected long innerCommit(List<T> objs, String site, String tablename, String dbName) throws SQLException {
+		protected int innerCommit(List<T> objs, String site, String tablename, String dbName) throws SQLException {
 			OperateTarget db = parent.selectTarget(site);
 			if (extreme) {
 				db.getProfile().toExtremeInsert(insertPart);
@@ -477,8 +624,7 @@ public abstract class Batch<T extends IQueryableEntity> {
 				LogUtil.show(sql + " | " + dbName);
 			PreparedStatement p = insertPart.getCallback().doPrepareStatement(db, sql);
 			try {
-				long dbAccess = doCommit(p, db, objs);
-				return dbAccess;
+				return doCommit(p, db, objs);
 			} finally {
 				p.close();
 				db.releaseConnection();
@@ -499,6 +645,107 @@ public abstract class Batch<T extends IQueryableEntity> {
 		}
 	}
 
+	static final class Upsert<T extends IQueryableEntity> extends Batch<T> {
+		/**
+		 * SQL片段，合并语句。数据库不支持时为null
+		 */
+		private UpsertSqlClause upsertPart;
+		/**
+		 * 业务主键字段名，为null时使用主键
+		 */
+		private final String[] keys;
+
+		Upsert(Session parent, ITableMetadata meta, String[] keys) throws SQLException {
+			super(parent, meta);
+			this.keys = keys;
+		}
+
+		public void setUpsertPart(UpsertSqlClause upsertPart) {
+			this.upsertPart = upsertPart;
+		}
+
+		/**
+		 * 数据库不支持单条语句合并时，逐条先查询再插入或更新（此时固定的表名无效）
+		 */
+		@Override
+		public int execute(List<T> objs) throws SQLException {
+			if (upsertPart != null) {
+				return super.execute(objs);
+			}
+			int total = 0;
+			for (T t : objs) {
+				Assert.notNull(t, "Batch list must not contain null element.");
+				if (parent.merge0(t, keys) != t) {
+					total++;
+				}
+			}
+			return total;
+		}
+
+		@Override
+		protected String toSql(String tablename) {
+			return upsertPart.getSql(tablename);
+		}
+
+		@Override
+		protected void callEventListenerBefore(List<T> listValue) {
+		}
+
+		@Override
+		protected void callEventListenerAfter(List<T> listValue) {
+			for (T t : listValue) {
+				parent.onUpserted(t, upsertPart, forceTableName);
+				t.clearUpdate();
+			}
+		}
+
+		@Override
+		protected void processJdbcParams(PreparedStatement psmt, List<T> listValue, OperateTarget db) throws SQLException {
+			List<ColumnMapping> writeFields = upsertPart.getFields();
+			int len = listValue.size();
+			SqlLog log = ORMConfig.getInstance().newLogger(this.extreme);
+			int maxLog = ORMConfig.getInstance().getMaxBatchLog();
+			for (int i = 0; i < len; i++) {
+				T t = listValue.get(i);
+				Assert.notNull(t, "Batch list must not contain null element.");
+				BindVariableContext context = new BindVariableContext(psmt, db.getProfile(), log.append("Batch Parameters: ", i + 1).append('/').append(len));
+				context.setInsertVariables(t, writeFields);
+				psmt.addBatch();
+				if (log.isDebug()) {
+					log.output();
+					if (i + 1 == maxLog) {
+						log.directLog("Batch Parameters: After " + maxLog + "th are ignored to reduce the size of log file.");
+						log = SqlLog.DUMMY;
+					}
+				}
+			}
+		}
+
+		protected int innerCommit(List<T> objs, String site, String tablename, String dbName) throws SQLException {
+			OperateTarget db = parent.selectTarget(site);
+			String sql = toSql(tablename);
+			if (ORMConfig.getInstance().isDebugMode())
+				LogUtil.show(sql + " | " + dbName);
+			PreparedStatement p = db.prepareStatement(sql);
+			try {
+				return doCommit(p, db, objs);
+			} finally {
+				p.close();
+				db.releaseConnection();
+			}
+		}
+
+		@Override
+		protected PartitionResult getTableName(T obj) {
+			return DbUtils.toTableName(obj, null, null, parent.getPartitionSupport());
+		}
+
+		@Override
+		protected void callVeryBefore(List<T> objs) throws SQLException {
+			upsertPart.getInsertPart().getCallback().callBefore(objs);
+		}
+	}
+
 	static final class Update<T extends IQueryableEntity> extends Batch<T> {
 		/**
 		 * SQL片段，update部分(UPDATE语句使用)
@@ -549,17 +796,30 @@ public abstract class Batch<T extends IQueryableEntity> {
 		@Override
 		protected void processJdbcParams(PreparedStatement psmt, List<T> listValue, OperateTarget db) throws SQLException {
 			List<Variable> bindVar = wherePart.getBind();
+			List<String> updatedColumns = updatePart.getColumns();
 			int len = listValue.size();
 			SqlLog log = ORMConfig.getInstance().newLogger(this.extreme);
 			int maxLog = ORMConfig.getInstance().getMaxBatchLog();
+			List<ColumnMapping> writeFields = getUpdateColumns();
+			CompiledBinder binder = writeFields == null ? null : getBinder(listValue, writeFields, log);
+			ColumnMapping[] columns = binder == null ? null : writeFields.toArray(new ColumnMapping[writeFields.size()]);
+			Class<?> binderType = binder == null ? null : listValue.get(0).getClass();
+			DatabaseDialect profile = db.getProfile();
 			for (int i = 0; i < len; i++) {
 				T t = listValue.get(i);
 				Assert.notNull(t,"Batch list must not contain null element.");
-				BindVariableContext context = new BindVariableContext(psmt, db.getProfile(), log.append("Batch Parameters: ", i + 1).append('/').append(len));
-				List<Object> whereBind = context.setVariables(t.getQuery(), updatePart.getVariables(), bindVar);
+				BindVariableContext context = new BindVariableContext(psmt, profile, log.append("Batch Parameters: ", i + 1).append('/').append(len));
+				List<Object> whereBind;
+				// 显式指定了更新值(如表达式)的对象仍按字段逐个绑定
+				if (t.getClass() == binderType && ((DataObject) t).getPreparedValues().isEmpty()) {
+					bind(binder, t, psmt, columns, profile);
+					whereBind = context.setVariables(t.getQuery(), null, bindVar, columns.length);
+				} else {
+					whereBind = context.setVariables(t.getQuery(), updatePart.getVariables(), bindVar);
+				}
 				psmt.addBatch();
 				String baseTableName = forceTableName == null ? meta.getTableName(false) : forceTableName;
-				parent.getCache().onUpdate(baseTableName, wherePart.getSql(), whereBind);
+				parent.getCache().onUpdate(baseTableName, wherePart.getSql(), whereBind, updatedColumns);
 
 				if (log.isDebug()) {
 					log.output();
@@ -574,6 +834,28 @@ public abstract class Batch<T extends IQueryableEntity> {
 
 		}
 
+		/*
+		 * 更新的值都从对象的字段中取得时，返回这些字段，否则返回null
+		 */
+		private List<ColumnMapping> getUpdateColumns() {
+			if (!DataObject.class.isAssignableFrom(meta.getContainerType())) {
+				return null;
+			}
+			List<Variable> variables = updatePart.getVariables();
+			List<ColumnMapping> result = new ArrayList<ColumnMapping>(variables.size());
+			for (Variable v : variables) {
+				if (!(v instanceof UpdateVairable)) {
+					return null;
+				}
+				ColumnMapping column = meta.getColumnDef(((UpdateVairable) v).getField());
+				if (column == null) {
+					return null;
+				}
+				result.add(column);
+			}
+			return result;
+		}
+
 		@Override
 		protected void callVeryBefore(List<T> objs) throws SQLException {
 		}
@@ -650,4 +932,86 @@ public abstract class Batch<T extends IQueryableEntity> {
 		protected void callVeryBefore(List<T> objs) throws SQLException {
 		}
 	}
+
+	/**
+	 * 一组数据(同一个数据库上的同一张表)的执行结果
+	 * 
+	 * @param <T>
+	 */
+	public static final class GroupResult<T> {
+		private final String database;
+		private final String table;
+		private final List<T> objects;
+		private volatile boolean executed;
+		private volatile int affected;
+		private volatile SQLException error;
+		private volatile long cost;
+
+		GroupResult(String database, String table, List<T> objects) {
+			this.database = database;
+			this.table = table;
+			this.objects = objects;
+		}
+
+		/**
+		 * @return 数据源名称
+		 */
+		public String getDatabase() {
+			return database;
+		}
+
+		/**
+		 * @return 表名
+		 */
+		public String getTable() {
+			return table;
+		}
+
+		/**
+		 * @return 该组中的对象
+		 */
+		public List<T> getObjects() {
+			return objects;
+		}
+
+		/**
+		 * @return 是否已经执行过。同一数据库上前面的组出错时，后面的组不会执行
+		 */
+		public boolean isExecuted() {
+			return executed;
+		}
+
+		/**
+		 * @return 是否执行成功
+		 */
+		public boolean isSuccess() {
+			return executed && error == null;
+		}
+
+		/**
+		 * @return 影响的记录数
+		 */
+		public int getAffected() {
+			return affected;
+		}
+
+		/**
+		 * @return 执行出错时的异常
+		 */
+		public SQLException getError() {
+			return error;
+		}
+
+		/**
+		 * @return 执行耗时(毫秒)
+		 */
+		public long getCost() {
+			return cost;
+		}
+
+		@Override
+		public String toString() {
+			return StringUtils.concat(database, "-", table, ":", String.valueOf(objects.size()), (error == null ? "" : " ERROR"));
+		}
+	}
 }
@@ -1,9 +1,12 @@
 package jef.database;
 
+import java.math.BigDecimal;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -37,6 +40,10 @@ final class CascadeLoaderTask implements LazyLoadTask {
 	private List<AbstractRefField> refs;
 	private List<OrderField> orders;
 	private String keyOfJoinTable;
+	/**
+	 * 批量加载时一次处理的最多父对象数量，为0时逐个加载
+	 */
+	private int batchSize;
 	/**
 	 * 
 	 * @param entry
@@ -67,12 +74,19 @@ final class CascadeLoaderTask implements LazyLoadTask {
 		targetTableMeta = query.getMeta();
 
 		// 将预制的两个条件加入
+		boolean limited = false;
 		if (joinPath.getDescription() != null) {
 			JoinDescription desc = joinPath.getDescription();
 			if (desc.maxRows() > 0) {
 				query.setMaxResult(desc.maxRows());
+				limited = true;
 			}
 		}
+		// 限制了每个对象的子记录数，或者有多个关联键时，不能合并成一个in条件
+		if (!limited && joinPath.getJoinKeys().length == 1) {
+			int size = ref.getBatchSize();
+			this.batchSize = size > 1 ? size : 0;
+		}
 		if (StringUtils.isNotEmpty(joinPath.getOrderBy())) {
 			orders = new ArrayList<OrderField>();
 			OrderBy order = DbUtils.parseOrderBy(joinPath.getOrderBy());
@@ -102,27 +116,146 @@ final class CascadeLoaderTask implements LazyLoadTask {
 		BeanWrapper bean = BeanWrapper.wrap(obj);
 		if (DbUtils.appendRefCondition(bean, joinPath, query, currentFilter) == false)
 			return;
-		if(orders!=null){
-			for(OrderField f:orders){
-				query.addOrderBy(f.isAsc(), f.getField());
-			}
-		}
-		String isManyToMany=this.keyOfJoinTable;
+		addOrders();
 		@SuppressWarnings("unchecked")
 		List<IQueryableEntity> subs = db.innerSelect(finalQuery, null, filters, option);		
-		if(isManyToMany!=null) {
+		if(keyOfJoinTable!=null) {
 			List<? extends IQueryableEntity> old=subs;
 			subs=new ArrayList<IQueryableEntity>();
 			for(IQueryableEntity d: old) {
-				IQueryableEntity realObj=(IQueryableEntity) ((VarObject)d).get(isManyToMany);
-				if(realObj==null) {
-					LogUtil.warn("Missing right record connect to {}, where {}",this.targetTableMeta.getTableName(false),query);
-				}else {
+				IQueryableEntity realObj=toTarget(d);
+				if(realObj!=null) {
 					subs.add(realObj);
 				}
 			}
 		}
-		
+		fill(bean, subs);
+	}
+
+	/**
+	 * 批量加载一组对象的级联字段。
+	 * <p>
+	 * 将多个父对象的关联键合并为in条件查询，每次查询的父对象数量不超过批量大小和{@link ORMConfig#getMaxInConditions()}，
+	 * 查询结果按关联键分配回各个父对象。不能批量加载时逐个对象加载。
+	 * 
+	 * @param db
+	 *            Session
+	 * @param objs
+	 *            要加载的父对象
+	 * @throws SQLException
+	 */
+	public void process(Session db, List<?> objs) throws SQLException {
+		if (batchSize == 0 || objs.size() < 2) {
+			for (Object obj : objs) {
+				process(db, obj);
+			}
+			return;
+		}
+		if(!db.isOpen()){
+			throw new SQLException("try to load field "+refs.get(0).getName()+" but the session was already closed!");
+		}
+		LogUtil.debug("processing Cascadeload [{}] in batch of {}",this.refs.get(0).getReference(), objs.size());
+		int limit = batchSize;
+		int maxIn = ORMConfig.getInstance().getMaxInConditions();
+		if (maxIn > 0 && maxIn < limit) {
+			limit = maxIn;
+		}
+		String leftName = joinPath.getJoinKeys()[0].getLeft().name();
+		Map<Object, List<BeanWrapper>> parents = new LinkedHashMap<Object, List<BeanWrapper>>();
+		List<Object> values = new ArrayList<Object>();
+		for (Object obj : objs) {
+			BeanWrapper bean = BeanWrapper.wrap(obj);
+			Object value = bean.getPropertyValue(leftName);
+			if (value == null) {// 和逐个加载一致，关联键为空时不加载
+				continue;
+			}
+			Object key = normalize(value);
+			List<BeanWrapper> list = parents.get(key);
+			if (list == null) {
+				if (values.size() >= limit) {
+					processBatch(db, parents, values);
+					parents = new LinkedHashMap<Object, List<BeanWrapper>>();
+					values = new ArrayList<Object>();
+				}
+				list = new ArrayList<BeanWrapper>(2);
+				parents.put(key, list);
+				values.add(value);
+			}
+			list.add(bean);
+		}
+		if (!values.isEmpty()) {
+			processBatch(db, parents, values);
+		}
+	}
+
+	/*
+	 * 用一次in查询加载一批父对象，再按关联键分配子记录
+	 */
+	private void processBatch(Session db, Map<Object, List<BeanWrapper>> parents, List<Object> values) throws SQLException {
+		Field right = joinPath.getJoinKeys()[0].getRightAsField();
+		DbUtils.appendRefCondition(right, values, joinPath, query, currentFilter);
+		addOrders();
+		@SuppressWarnings("unchecked")
+		List<IQueryableEntity> records = db.innerSelect(finalQuery, null, filters, option);
+		Map<Object, List<IQueryableEntity>> children = new HashMap<Object, List<IQueryableEntity>>();
+		String rightName = right.name();
+		for (IQueryableEntity d : records) {
+			Object value = (d instanceof VarObject) ? ((VarObject) d).get(rightName) : BeanWrapper.wrap(d, BeanWrapper.FAST).getPropertyValue(rightName);
+			IQueryableEntity child = keyOfJoinTable == null ? d : toTarget(d);
+			if (value == null || child == null) {
+				continue;
+			}
+			Object key = normalize(value);
+			List<IQueryableEntity> list = children.get(key);
+			if (list == null) {
+				list = new ArrayList<IQueryableEntity>();
+				children.put(key, list);
+			}
+			list.add(child);
+		}
+		for (Map.Entry<Object, List<BeanWrapper>> entry : parents.entrySet()) {
+			List<IQueryableEntity> subs = children.get(entry.getKey());
+			for (BeanWrapper bean : entry.getValue()) {
+				// 每个父对象使用各自的集合
+				fill(bean, subs == null ? new ArrayList<IQueryableEntity>() : new ArrayList<IQueryableEntity>(subs));
+			}
+		}
+	}
+
+	private void addOrders() {
+		if(orders!=null){
+			for(OrderField f:orders){
+				query.addOrderBy(f.isAsc(), f.getField());
+			}
+		}
+	}
+
+	/*
+	 * 多对多关系中，从关系表的记录中取出目标对象
+	 */
+	private IQueryableEntity toTarget(IQueryableEntity d) {
+		IQueryableEntity realObj=(IQueryableEntity) ((VarObject)d).get(keyOfJoinTable);
+		if(realObj==null) {
+			LogUtil.warn("Missing right record connect to {}, where {}",this.targetTableMeta.getTableName(false),query);
+		}
+		return realObj;
+	}
+
+	/*
+	 * 关联键在两侧的类型可能不同(如int和long)，统一后作为分组的键
+	 */
+	private static Object normalize(Object value) {
+		if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+			return ((Number) value).longValue();
+		}
+		if (value instanceof Number) {
+			return new BigDecimal(value.toString()).stripTrailingZeros();
+		}
+		return value;
+	}
+
+	private void fill(BeanWrapper bean, List<IQueryableEntity> subs) throws SQLException {
+		Object obj = bean.getWrapped();
 		for (ISelectProvider reff : refs) { // 根据配置装填到对象中去
 			AbstractRefField refield = (AbstractRefField) reff;
 
@@ -142,10 +275,19 @@ final class CascadeLoaderTask implements LazyLoadTask {
 		}
 		// 反相关系
 		if (reverse != null) {
-			reverse.process(bean.getWrapped(), subs);
+			reverse.process(obj, subs);
 		}
 	}
 
+	/**
+	 * 批量加载时一次处理的最多父对象数量
+	 * 
+	 * @return 为0时表示不能批量加载
+	 */
+	int getBatchSize() {
+		return batchSize;
+	}
+
 	public Collection<String> getEffectFields() {
 		String[] str = new String[refs.size()];
 		for (int i = 0; i < refs.size(); i++) {
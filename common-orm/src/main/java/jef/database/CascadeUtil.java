@@ -652,9 +652,7 @@ final class CascadeUtil {
 		if (list.size() > 1000 || lazy(entry.getValue())) {// 不对超过1000个元素进行一对多填充//必须使用延迟加载
 			markTask(task, list, session);
 		} else {
-			for (T obj : list) {
-				task.process(session, obj);
-			}
+			task.process(session, list);
 		}
 	}
 
@@ -663,11 +661,16 @@ final class CascadeUtil {
 			return;
 		DataObject obj = (DataObject) objs.get(0);
 		if (obj.lazyload != null) {
-			obj.lazyload.getProcessor().register(task);
+			LazyLoadProcessor processor = obj.lazyload.getProcessor();
+			processor.register(task);
+			if (!processor.hasSiblings()) {
+				processor.setSiblings(objs);
+			}
 			return;
 		}
 
 		LazyLoadProcessor processor = new LazyLoadProcessor(task, session);
+		processor.setSiblings(objs);
 		for (Object o : objs) {
 			DataObject dobj = (DataObject) o;
 			dobj.lazyload = new LazyLoadContext(processor);
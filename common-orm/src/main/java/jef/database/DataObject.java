@@ -2,10 +2,17 @@ package jef.database;
 
 import java.io.Serializable;
 import java.sql.SQLException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.persistence.PersistenceException;
 import javax.xml.bind.annotation.XmlTransient;
@@ -37,10 +44,29 @@ public abstract class DataObject implements IQueryableEntity {
 	 */
 	private static final ConditionComparator cmp = new ConditionComparator();
 	
+	/*
+	 * 各个Field枚举类按名称排序后的枚举值，用于按与updateValueMap相同的顺序输出已修改的字段
+	 */
+	private static final Map<Class<?>, Field[]> sortedFields = new ConcurrentHashMap<Class<?>, Field[]>();
+	
 	private transient String _rowid;
 	
+	/*
+	 * 显式指定了更新值的字段(如prepareUpdate传入的表达式)。
+	 */
+	@JSONField(serialize=false)
+	private transient TreeMap<Field, Object> updateValueMap;
+	/*
+	 * 通过setter修改过的字段，按Field枚举的序号记录在位图中，更新值在生成SQL时再从对象中读取。
+	 * 同一字段不会同时出现在位图和updateValueMap中。
+	 */
+	@JSONField(serialize=false)
+	private transient long updateFlags;
+	/*
+	 * 位图对应的Field枚举类
+	 */
 	@JSONField(serialize=false)
-	private transient Map<Field, Object> updateValueMap;
+	private transient Class<?> updateFlagType;
 	@JSONField(serialize=false)
 	protected transient Query<?> query;
 	@JSONField(serialize=false)
@@ -88,6 +114,8 @@ public abstract class DataObject implements IQueryableEntity {
 	 * @see jef.database.IQueryableEntity#isUsed(jef.database.Field)
 	 */
 	public final boolean isUsed(Field field) {
+		if (isFlagged(field))
+			return true;
 		if (updateValueMap == null)
 			return false;
 		return updateValueMap.containsKey(field);
@@ -100,6 +128,8 @@ public abstract class DataObject implements IQueryableEntity {
 	 */
 	public final void clearUpdate() {
 		updateValueMap = null;
+		updateFlags = 0;
+		updateFlagType = null;
 	}
 
 	/*
@@ -109,6 +139,22 @@ public abstract class DataObject implements IQueryableEntity {
 	 */
 	@SuppressWarnings("unchecked")
 	public final Map<Field, Object> getUpdateValueMap() {
+		if (updateFlags != 0)
+			return new UpdateMapView();
+		if (updateValueMap == null)
+			return Collections.EMPTY_MAP;
+		return updateValueMap;
+	}
+
+	/**
+	 * 得到显式指定了更新值的字段，不包含通过setter修改、值仍在对象中的字段。
+	 * <p>
+	 * 生成SQL时对于不在此Map中的已修改字段，直接从对象中取值即可，不必构造完整的{@link #getUpdateValueMap()}。
+	 * 
+	 * @return 显式指定的更新值
+	 */
+	@SuppressWarnings("unchecked")
+	public final Map<Field, Object> getPreparedValues() {
 		if (updateValueMap == null)
 			return Collections.EMPTY_MAP;
 		return updateValueMap;
@@ -122,15 +168,11 @@ public abstract class DataObject implements IQueryableEntity {
 	 */
 	public void touchUsedFlag(Field field, boolean flag) {
 		if (flag) {
-			if (updateValueMap == null)
-				updateValueMap = new TreeMap<Field, Object>(cmp);
-			if (updateValueMap.containsKey(field)) {
-				return;
+			if (!isUsed(field)) {
+				markUpdate(field);
 			}
-			ITableMetadata meta = MetaHolder.getMeta(this);
-			BeanAccessor ba = meta.getContainerAccessor();
-			updateValueMap.put(field, ba.getProperty(this, field.name()));
 		} else {
+			clearFlag(field);
 			if (updateValueMap != null) {
 				updateValueMap.remove(field);
 			}
@@ -138,11 +180,56 @@ public abstract class DataObject implements IQueryableEntity {
 	}
 
 	public final void prepareUpdate(Field field, Object newValue) {
+		clearFlag(field);
 		if (updateValueMap == null)
 			updateValueMap = new TreeMap<Field, Object>(cmp);
 		updateValueMap.put(field, newValue);
 	}
 
+	/**
+	 * 标记字段已被修改，更新值在生成SQL时从对象中读取。增强后的setter方法在赋值后调用此方法。
+	 * <p>
+	 * 字段是序号小于64的Field枚举时记录在位图中，否则读取当前值记录到updateValueMap中。
+	 * 
+	 * @param field
+	 *            字段
+	 */
+	protected final void markUpdate(Field field) {
+		if (field instanceof Enum) {
+			Enum<?> e = (Enum<?>) field;
+			int ordinal = e.ordinal();
+			if (ordinal < 64 && (updateFlags == 0 || updateFlagType == e.getDeclaringClass())) {
+				updateFlagType = e.getDeclaringClass();
+				updateFlags |= 1L << ordinal;
+				if (updateValueMap != null) {
+					updateValueMap.remove(field);
+				}
+				return;
+			}
+		}
+		prepareUpdate(field, getFieldValue(field));
+	}
+
+	private boolean isFlagged(Field field) {
+		if (updateFlags == 0 || !(field instanceof Enum)) {
+			return false;
+		}
+		Enum<?> e = (Enum<?>) field;
+		return e.getDeclaringClass() == updateFlagType && e.ordinal() < 64 && (updateFlags & (1L << e.ordinal())) != 0;
+	}
+
+	private void clearFlag(Field field) {
+		if (isFlagged(field)) {
+			updateFlags &= ~(1L << ((Enum<?>) field).ordinal());
+		}
+	}
+
+	private Object getFieldValue(Field field) {
+		ITableMetadata meta = MetaHolder.getMeta(this);
+		BeanAccessor ba = meta.getContainerAccessor();
+		return ba.getProperty(this, field.name());
+	}
+
 
 	/**
 	 * @deprecated will be removed in ths next release.
@@ -157,7 +244,7 @@ public abstract class DataObject implements IQueryableEntity {
 	 * @see jef.database.query.UpdateAble#needUpdate()
 	 */
 	public final boolean needUpdate() {
-		return (updateValueMap != null) && this.updateValueMap.size() > 0;
+		return updateFlags != 0 || ((updateValueMap != null) && this.updateValueMap.size() > 0);
 	}
 
 	public String rowid() {
@@ -172,7 +259,7 @@ public abstract class DataObject implements IQueryableEntity {
 	 * 供子类hashCode（）方法调用，判断内嵌的hashCode方法是否可用
 	 */
 	protected final int getHashCode() {
-		return new HashCodeBuilder().append(query).append(_recordUpdate).append(updateValueMap).toHashCode();
+		return new HashCodeBuilder().append(query).append(_recordUpdate).append(needUpdate() ? getUpdateValueMap() : null).toHashCode();
 	}
 
 	protected final void beforeSet(String fieldname) {
@@ -207,7 +294,150 @@ public abstract class DataObject implements IQueryableEntity {
 			return false;
 		}
 		DataObject rhs = (DataObject) obj;
-		return new EqualsBuilder().append(this.query, rhs.query).append(_recordUpdate, rhs._recordUpdate).append(this.updateValueMap, rhs.updateValueMap).isEquals();
+		return new EqualsBuilder().append(this.query, rhs.query).append(_recordUpdate, rhs._recordUpdate).append(needUpdate() ? getUpdateValueMap() : null, rhs.needUpdate() ? rhs.getUpdateValueMap() : null).isEquals();
+	}
+
+	private static Field[] getSortedFields(Class<?> enumClass) {
+		Field[] fields = sortedFields.get(enumClass);
+		if (fields == null) {
+			Object[] constants = enumClass.getEnumConstants();
+			fields = new Field[constants.length];
+			for (int i = 0; i < constants.length; i++) {
+				fields[i] = (Field) constants[i];
+			}
+			Arrays.sort(fields, cmp);
+			sortedFields.put(enumClass, fields);
+		}
+		return fields;
+	}
+
+	/*
+	 * getUpdateValueMap()返回的视图，合并位图中的字段和updateValueMap，按字段名排序。
+	 * 位图中字段的值在访问时从对象中读取，对视图的修改直接作用于对象的更新状态。
+	 */
+	private final class UpdateMapView extends AbstractMap<Field, Object> {
+		@Override
+		public int size() {
+			return Long.bitCount(updateFlags) + (updateValueMap == null ? 0 : updateValueMap.size());
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return key instanceof Field && isUsed((Field) key);
+		}
+
+		@Override
+		public Object get(Object key) {
+			if (!(key instanceof Field)) {
+				return null;
+			}
+			Field field = (Field) key;
+			if (isFlagged(field)) {
+				return getFieldValue(field);
+			}
+			return updateValueMap == null ? null : updateValueMap.get(field);
+		}
+
+		@Override
+		public Object put(Field key, Object value) {
+			Object old = get(key);
+			prepareUpdate(key, value);
+			return old;
+		}
+
+		@Override
+		public Object remove(Object key) {
+			if (!(key instanceof Field)) {
+				return null;
+			}
+			Object old = get(key);
+			touchUsedFlag((Field) key, false);
+			return old;
+		}
+
+		@Override
+		public void clear() {
+			clearUpdate();
+		}
+
+		@Override
+		public Set<Map.Entry<Field, Object>> entrySet() {
+			return new AbstractSet<Map.Entry<Field, Object>>() {
+				@Override
+				public Iterator<Map.Entry<Field, Object>> iterator() {
+					return new UpdateIterator();
+				}
+
+				@Override
+				public int size() {
+					return UpdateMapView.this.size();
+				}
+			};
+		}
+	}
+
+	/*
+	 * 按字段名归并位图中的字段和updateValueMap中的条目
+	 */
+	private final class UpdateIterator implements Iterator<Map.Entry<Field, Object>> {
+		private final Field[] fields = updateFlags == 0 ? new Field[0] : getSortedFields(updateFlagType);
+		private int index = -1;
+		private Map.Entry<Field, Object> nextPrepared;
+		// 上次从updateValueMap中返回的字段。按该字段向后查找下一条，因此中途从updateValueMap中删除条目不影响迭代
+		private Field lastPrepared;
+		private Boolean lastFlagged;
+		private Field last;
+
+		UpdateIterator() {
+			advanceFlag();
+		}
+
+		private void advanceFlag() {
+			index++;
+			while (index < fields.length && !isFlagged(fields[index])) {
+				index++;
+			}
+		}
+
+		private Map.Entry<Field, Object> peekPrepared() {
+			if (nextPrepared == null && updateValueMap != null) {
+				nextPrepared = lastPrepared == null ? updateValueMap.firstEntry() : updateValueMap.higherEntry(lastPrepared);
+			}
+			return nextPrepared;
+		}
+
+		public boolean hasNext() {
+			return index < fields.length || peekPrepared() != null;
+		}
+
+		public Map.Entry<Field, Object> next() {
+			Map.Entry<Field, Object> e = peekPrepared();
+			if (index < fields.length && (e == null || cmp.compare(fields[index], e.getKey()) < 0)) {
+				last = fields[index];
+				lastFlagged = Boolean.TRUE;
+				advanceFlag();
+				return new AbstractMap.SimpleImmutableEntry<Field, Object>(last, getFieldValue(last));
+			}
+			if (e == null) {
+				throw new NoSuchElementException();
+			}
+			last = lastPrepared = e.getKey();
+			lastFlagged = Boolean.FALSE;
+			nextPrepared = null;
+			return e;
+		}
+
+		public void remove() {
+			if (lastFlagged == null) {
+				throw new IllegalStateException();
+			}
+			if (lastFlagged) {
+				clearFlag(last);
+			} else {
+				updateValueMap.remove(last);
+			}
+			lastFlagged = null;
+		}
 	}
 
 	private static class ConditionComparator implements Comparator<Field>, Serializable {
@@ -94,6 +94,11 @@ public enum DbCfg implements ConfigItem {
 	 * 在批量操作时日志中打印出的最多的参数组，默认5
 	 */
 	DB_MAX_BATCH_LOG,
+	/**
+	 * 批量操作时，每次调用JDBC executeBatch的最大记录数。缺省0，表示每组数据(同一张表)只调用一次。
+	 * 数据量很大时，分成多次提交可以减少驱动和数据库端的内存占用。
+	 */
+	DB_BATCH_SIZE,
 	/**
 	 * 自动转换表名(为旧版本保留，如果用户没有通过JPA配置对象与表名的关系，那么开启此选项后， userId -> USER_ID， 否则userId -> USERID
 	 */
@@ -128,6 +133,32 @@ public enum DbCfg implements ConfigItem {
 	 * 每个连接最小生存时间
 	 */
 	DB_CONNECTION_LIVE,	
+	/**
+	 * JEF内嵌连接池获取连接的最长等待时间，单位毫秒。默认5000
+	 */
+	DB_POOL_BORROW_TIMEOUT,
+	/**
+	 * JEF内嵌连接池是否使用公平模式，默认false。
+	 * 公平模式下，有线程在等待连接时，新来的线程不能直接获取空闲连接，而是排队按先后顺序获得
+	 */
+	DB_POOL_FAIR,
+	/**
+	 * JEF内嵌连接池是否使用高并发实现，默认false。
+	 * 高并发实现按线程缓存最近使用的连接，空闲连接通过无锁的方式获取，等待的线程通过直接移交的方式得到归还的连接。
+	 * 默认使用原先基于阻塞队列的实现，需要时设置为true开启
+	 */
+	DB_POOL_CONCURRENT,
+	/**
+	 * JEF内嵌连接池中，每个连接缓存的PreparedStatement最大个数，默认0表示不缓存。
+	 * 开启后相同SQL语句的PreparedStatement在连接上重复使用(按最近最少使用淘汰)，省去驱动和数据库重复解析语句的开销。
+	 * 适用于数据库端没有语句缓存的场景(如Derby、H2，以及未开启cachePrepStmts的MySQL)
+	 */
+	DB_STATEMENT_CACHE_SIZE,
+	/**
+	 * 异步操作({@link AsyncSession})时，每个数据源同时执行的最大操作数，超出的操作排队等待。
+	 * 默认与连接池最大连接数相同，配置为0表示不限制。
+	 */
+	DB_ASYNC_MAX_CONCURRENCY,
 	
 	
 	/////////////////默认连接的数据库配置////////////////
@@ -319,6 +350,12 @@ public enum DbCfg implements ConfigItem {
 	 * 默认为50;
 	 */
 	SEQUENCE_BATCH_SIZE,
+	/**
+	 * Sequence缓存中剩余的值少于该数量时，在后台线程中提前获取下一批，避免取值的线程在每批用完时等待数据库。
+	 * 
+	 * 默认为0，不预取;
+	 */
+	SEQUENCE_PREFETCH_THRESHOLD,
 	/**
 	 * 开启此选项后，允许自动创建数据库SEQUENCE (或模拟用的TABLE)。
 	 * 一般用在开发时和一些小型项目中，不适用于对用户权限有严格规范的专业项目中。
@@ -360,6 +397,30 @@ public enum DbCfg implements ConfigItem {
 	 * 如果设置为>0的数值表示启用二级缓存，每条缓存记录的最大生存时间等于指定的秒数。
 	 */
 	CACHE_GLOBAL_EXPIRE_TIME,
+	/**
+	 * 二级缓存的容量上限，缺省100000。所有表的缓存共享这一容量，超出时淘汰最近最少使用的查询结果。配置为0时不限制。
+	 * 容量的单位由{@link #CACHE_GLOBAL_WEIGH_BYTES}决定。
+	 */
+	CACHE_GLOBAL_MAX_WEIGHT,
+	/**
+	 * 二级缓存容量的计算单位。缺省false，按缓存的结果行数计算；设置为true时按估算的对象字节数计算。
+	 */
+	CACHE_GLOBAL_WEIGH_BYTES,
+	/**
+	 * 集群中二级缓存失效通知的传输方式，缺省为空，即二级缓存只在本节点有效。
+	 * 可配置为loopback（同一JVM内）、udp，或实现了jef.database.cache.cluster.InvalidationTransport接口的类名。
+	 * 启用后本节点的缓存失效操作会通知其他节点，使多个节点可以同时开启二级缓存。
+	 */
+	CACHE_CLUSTER_TRANSPORT,
+	/**
+	 * 集群缓存失效通知的地址。loopback时为频道名称；udp时为组播地址如{@code 239.255.27.1:45588}，
+	 * 或者以逗号分隔的单播地址列表，第一个为本节点监听的地址，其余为其他节点的地址。
+	 */
+	CACHE_CLUSTER_ADDRESS,
+	/**
+	 * 集群缓存失效通知合并发送的周期，单位毫秒，缺省20。在此期间的多次失效操作合并后一起发送。
+	 */
+	CACHE_CLUSTER_WINDOW,
 	/**
 	 * 允许为空的查询条件，默认false
 	 */
@@ -389,6 +450,12 @@ public enum DbCfg implements ConfigItem {
 	 * 延迟加载特性，默认启用(true)。关闭后可禁用延迟加载。这项配置对所有的级联操作生效
 	 */
 	DB_ENABLE_LAZY_LOAD,
+	/**
+	 * 级联加载对多关系时，一次批量加载的最多父对象数量。缺省100，配置为0或1时逐个对象加载。
+	 * 批量加载时将多个父对象的关联键合并为一个in条件查询，再将结果分配回各个父对象，避免N+1次查询。
+	 * 每个关系上也可以用{@link jef.database.annotation.JoinDescription#batchSize()}单独指定。
+	 */
+	DB_CASCADE_BATCH_SIZE,
 	/**
 	 * 延迟加载LOB特性，默认关闭(false)。关闭后可禁用延迟加载LOB。这项配置对对象中的BLOB和CLOB字段生效
 	 * FIXME 待完善
@@ -413,12 +480,23 @@ public enum DbCfg implements ConfigItem {
 	 * 当需要查询的数据库数量大于等于指定值时，启用多线程并行查询。(默认值3，即3个数据库或以上启用并行查询)
 	 */
 	PARTITION_PARALLEL,
+	/**
+	 * 多库并行操作时，每个任务的排队超时(毫秒)。任务按数据源排队，超时仍未开始执行的任务不再执行，操作抛出SQLTimeoutException。
+	 * 默认0，表示不限制。
+	 */
+	PARTITION_TASK_TIMEOUT,
 	/**
 	 * 当分库操作时，不得不进行内存排序和聚合计算时，该参数用于限制最大操作的行数，防止内存溢出。<br>
 	 * 一旦达到最大行数，该次操作将抛出异常。
 	 * 默认0，表示不限制。
 	 */
 	PARTITION_INMEMORY_MAXROWS,
+	/**
+	 * 分库操作需要在内存中去重、排序或分组聚合时，内存中最多缓存的行数(分组聚合时为分组数)。
+	 * 超过后将中间结果写入临时文件，最后从磁盘归并得到结果，此时不再受{@link #PARTITION_INMEMORY_MAXROWS}限制。<br>
+	 * 默认0，表示不写入磁盘。
+	 */
+	PARTITION_INMEMORY_SPILL_ROWS,
 	/**
 	 * 按需建表功能开关，默认开。<br>
 	 * 开启按需建表功能后，在分库分表下执行插入操作时，会自动创建需要的表。
@@ -441,6 +519,32 @@ public enum DbCfg implements ConfigItem {
 	 * 在一次in条件中允许出现的最多参数数量。缺省500。有部分批量查询接口，可以自动将传入的条件转为 in (?,?,?,..)这样的语句，该参数可用于控制in条件最大的元素个数。
 	 */
 	DB_MAX_IN_CONDITIONS,
+	/**
+	 * SQL解析结果缓存的最大语句数。缺省1000，配置为0时不缓存。
+	 * 相同的SQL语句只解析一次，之后使用缓存中语法树的拷贝，可以减少反复执行相同SQL时的解析开销。
+	 */
+	DB_PARSE_CACHE_SIZE,
+	/**
+	 * 是否为查询结果的拼装生成字节码，默认true。
+	 * 开启后按对象类型和查询的列布局生成拼装类并缓存，直接按类型从结果集取值并调用setter方法，不再逐个字段反射设值。
+	 */
+	DB_COMPILE_POPULATOR,
+	/**
+	 * 查询结果拼装计划缓存的最大条目数。缺省1000，配置为0时不缓存。
+	 * 按SQL语句、方言和结果类型缓存列描述以及各列的取值方式，列的数量、类型和名称与缓存时相同才复用，否则重新计算。
+	 */
+	DB_POPULATE_PLAN_CACHE_SIZE,
+	/**
+	 * 是否为批量插入和更新的参数绑定生成字节码，默认true。
+	 * 开启后按对象类型和语句的字段布局生成绑定类并缓存，直接读取字段（字段不可访问时经由字段访问器，不调用getter）并按类型调用setInt、setString等方法，不再逐个字段经过ColumnMapping绑定。
+	 */
+	DB_COMPILE_BATCH_BINDER,
+	/**
+	 * 是否使用构建时生成的实体索引(META-INF/jef-entities.idx)，默认true。
+	 * 索引由增强任务写入，记录每个类的父类和是否已增强，扫描实体和检查增强时不再逐个读取class文件。
+	 * 实体元数据仍在首次使用时通过反射构建，不受此项影响。
+	 */
+	DB_ENTITY_INDEX,
 	
 	/**
 	 * 启用数据初始化记录信息表 (AllowDataInitialize)
@@ -15,11 +15,13 @@ named * JEF - Copyright 2009-2010 Jiyi (mr.jiyi@gmail.com)
  */
 package jef.database;
 
+import java.io.IOException;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import javax.persistence.PersistenceException;
 import javax.sql.DataSource;
@@ -31,6 +33,8 @@ import jef.common.log.LogUtil;
 import jef.database.cache.Cache;
 import jef.database.cache.CacheDummy;
 import jef.database.cache.CacheImpl;
+import jef.database.cache.cluster.InvalidationBus;
+import jef.database.datasource.IRoutingDataSource;
 import jef.database.datasource.SimpleDataSource;
 import jef.database.dialect.AbstractDialect;
 import jef.database.dialect.DatabaseDialect;
@@ -49,6 +53,7 @@ import jef.database.support.DbOperatorListener;
 import jef.database.support.DbOperatorListenerContainer;
 import jef.database.support.DefaultDbOperListener;
 import jef.database.support.MetadataEventListener;
+import jef.database.wrapper.executor.ExecutorRegistry;
 import jef.tools.Assert;
 import jef.tools.JefConfiguration;
 import jef.tools.StringUtils;
@@ -94,6 +99,26 @@ public class DbClient extends Session implements SessionFactory {
 	 */
 	private Cache golbalCache;
 
+	/**
+	 * 集群缓存失效通知
+	 */
+	private InvalidationBus invalidationBus;
+
+	/**
+	 * 异步操作使用的执行器，为null时使用为异步操作单独创建的线程池
+	 */
+	private Executor asyncExecutor;
+
+	/**
+	 * 异步操作接口
+	 */
+	private volatile AsyncSession async;
+
+	/**
+	 * 并行访问各数据源的执行器
+	 */
+	private ExecutorRegistry executors;
+
 	/**
 	 * 启动一个事务。
 	 * 
@@ -250,6 +275,49 @@ public class DbClient extends Session implements SessionFactory {
 		return golbalCache;
 	}
 
+	/**
+	 * 得到全局缓存（二级缓存），未启用二级缓存时返回一个空实现
+	 * 
+	 * @return 全局缓存
+	 */
+	public Cache getGlobalCache() {
+		return golbalCache;
+	}
+
+	/**
+	 * 获得异步操作接口
+	 * 
+	 * @return 异步操作接口，操作在{@link #setAsyncExecutor(Executor)}指定的执行器中执行
+	 * @see AsyncSession
+	 */
+	public AsyncSession async() {
+		AsyncSession result = async;
+		if (result == null) {
+			synchronized (this) {
+				if ((result = async) == null) {
+					async = result = new AsyncSession(this, asyncExecutor);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * 设置异步操作使用的执行器，须在第一次调用{@link #async()}之前设置。
+	 * 执行器由调用者管理，DbClient关闭时不会关闭执行器。
+	 * 
+	 * @param executor
+	 *            执行器，例如{@code Executors.newVirtualThreadPerTaskExecutor()}。为null时使用为异步操作单独创建的线程池，DbClient关闭时一起关闭
+	 */
+	public synchronized void setAsyncExecutor(Executor executor) {
+		this.asyncExecutor = executor;
+		AsyncSession old = async;
+		this.async = null;
+		if (old != null) {
+			old.close();
+		}
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -329,6 +397,17 @@ public class DbClient extends Session implements SessionFactory {
 		this.ds = ds;
 		this.connPool = PoolService.getPool(ds, min, max, txType);
 		Assert.notNull(connPool);
+		if (ds instanceof IRoutingDataSource) {
+			IRoutingDataSource rds = (IRoutingDataSource) ds;
+			Collection<String> names = rds.getDataSourceNames();
+			// 线程数不超过各数据源的连接数之和
+			this.executors = new ExecutorRegistry(max * Math.max(1, names.size()), max);
+			for (String name : names) {
+				executors.register(name, rds.getDataSource(name), max);
+			}
+		} else {
+			this.executors = new ExecutorRegistry(max, max);
+		}
 		LogUtil.info("Init DB Connection: " + connPool.getInfo(null));
 		afterPoolReady();
 	}
@@ -348,7 +427,20 @@ public class DbClient extends Session implements SessionFactory {
 
 		// 设置全局缓存
 		if (ORMConfig.getInstance().getCacheLevel2() > 0) {
-			this.golbalCache = new CacheImpl(preProcessor, selectp, ORMConfig.getInstance().getCacheLevel2(), "GLOBAL");
+			ORMConfig config = ORMConfig.getInstance();
+			CacheImpl cache = new CacheImpl(preProcessor, selectp, config.getCacheLevel2(), "GLOBAL", config.getCacheLevel2MaxWeight(), config.isCacheLevel2WeighBytes());
+			String transport = JefConfiguration.get(DbCfg.CACHE_CLUSTER_TRANSPORT);
+			if (StringUtils.isNotEmpty(transport)) {
+				try {
+					invalidationBus = new InvalidationBus(cache, InvalidationBus.createTransport(transport, JefConfiguration.get(DbCfg.CACHE_CLUSTER_ADDRESS)),
+							JefConfiguration.getLong(DbCfg.CACHE_CLUSTER_WINDOW, 20));
+					cache.setInvalidationPublisher(invalidationBus);
+					LogUtil.info("Global cache invalidation enabled: " + invalidationBus);
+				} catch (IOException e) {
+					throw new SQLException("Global cache invalidation transport error: " + e.getMessage(), e);
+				}
+			}
+			this.golbalCache = cache;
 		} else {
 			this.golbalCache = CacheDummy.getInstance();
 		}
@@ -947,6 +1039,16 @@ public class DbClient extends Session implements SessionFactory {
 		return pm;
 	}
 
+	/**
+	 * 得到并行访问各数据源（如分库查询）时使用的执行器，可以从中获得各数据源的排队和执行情况，或调整并发数
+	 * 
+	 * @return 执行器
+	 */
+	@Override
+	public ExecutorRegistry getExecutorRegistry() {
+		return executors;
+	}
+
 	public void printPool() {
 		System.out.println(getPool().getStatus());
 	}
@@ -1004,6 +1106,17 @@ public class DbClient extends Session implements SessionFactory {
 			LogUtil.exception(e);
 		}
 		this.sequenceManager.close();
+		if (invalidationBus != null) {
+			invalidationBus.close();
+			invalidationBus = null;
+		}
+		if (executors != null) {
+			executors.close();
+		}
+		AsyncSession asyncSession = async;
+		if (asyncSession != null) {
+			asyncSession.close();
+		}
 		try {
 			connPool.close();
 			JefFacade.unregisteEmf((DbClient) this);
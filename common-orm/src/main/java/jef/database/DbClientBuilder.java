@@ -18,6 +18,7 @@ package jef.database;
 import java.io.File;
 import java.sql.SQLException;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 import javax.sql.DataSource;
 
@@ -187,6 +188,11 @@ public class DbClientBuilder {
 	 */
 	private String initDataExtension=JefConfiguration.get(DbCfg.INIT_DATA_EXTENSION, "txt");
 
+	/**
+	 * 异步操作使用的执行器
+	 */
+	private Executor asyncExecutor;
+
 	/**
 	 * 最终构造出来的对象实例
 	 */
@@ -639,6 +645,9 @@ public class DbClientBuilder {
 		if (namedQueryTable != null) {
 			sf.getDefault().setNamedQueryTablename(namedQueryTable);
 		}
+		if (asyncExecutor != null) {
+			sf.getDefault().setAsyncExecutor(asyncExecutor);
+		}
 
 		if (packagesToScan != null || annotatedClasses != null) {
 			QuerableEntityScanner qe = new QuerableEntityScanner();
@@ -787,6 +796,21 @@ public class DbClientBuilder {
 		return this;
 	}
 
+	/**
+	 * 设置异步操作({@link DbClient#async()})使用的执行器。
+	 * 在JDK 21以上可以使用{@code Executors.newVirtualThreadPerTaskExecutor()}，每个操作使用一个虚拟线程。
+	 * 执行器由调用者管理，DbClient关闭时不会关闭执行器。
+	 * 
+	 * @param asyncExecutor
+	 *            执行器，不设置时使用DbClient为异步操作单独创建的线程池
+	 * @return this
+	 * @see DbCfg#DB_ASYNC_MAX_CONCURRENCY
+	 */
+	public DbClientBuilder setAsyncExecutor(Executor asyncExecutor) {
+		this.asyncExecutor = asyncExecutor;
+		return this;
+	}
+
 	public static DbClientBuilder newBuilder() {
 		return new DbClientBuilder();
 	}
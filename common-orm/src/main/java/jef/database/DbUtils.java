@@ -43,12 +43,6 @@ import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy;
-import java.util.concurrent.TimeUnit;
 
 import javax.persistence.EntityExistsException;
 import javax.persistence.FetchType;
@@ -59,6 +53,7 @@ import javax.sql.DataSource;
 import jef.accelerator.bean.BeanAccessor;
 import jef.accelerator.bean.FastBeanWrapperImpl;
 import jef.common.log.LogUtil;
+import jef.database.Condition.Operator;
 import jef.database.Session.UpdateContext;
 import jef.database.annotation.Cascade;
 import jef.database.annotation.JoinType;
@@ -68,6 +63,7 @@ import jef.database.datasource.SimpleDataSource;
 import jef.database.dialect.DatabaseDialect;
 import jef.database.dialect.type.ColumnMapping;
 import jef.database.innerpool.PartitionSupport;
+import jef.database.jsqlparser.SqlParseCache;
 import jef.database.jsqlparser.parser.JpqlParser;
 import jef.database.jsqlparser.parser.ParseException;
 import jef.database.jsqlparser.parser.StSqlParser;
@@ -104,6 +100,7 @@ import jef.database.query.SqlContext;
 import jef.database.query.SqlExpression;
 import jef.database.routing.PartitionResult;
 import jef.database.wrapper.executor.DbTask;
+import jef.database.wrapper.executor.ExecutorRegistry;
 import jef.tools.ArrayUtils;
 import jef.tools.Assert;
 import jef.tools.JefConfiguration;
@@ -130,21 +127,6 @@ public final class DbUtils {
 
 	public static PartitionCalculator partitionUtil = new DefaultPartitionCalculator();
 
-	/**
-	 * 线程池。线程池有以下作用 1、在分库分表时使用线程 2、在JTA事务管理模式下，为了避免在JTA中执行DDL，因此不得不将代码在新的线程中执行。
-	 * 
-	 * 线程池策略： 1、平时最大线程数为CPU个数乘以2. 2、任务堆积最大256个
-	 * 3、超出256个堆积任务后，如果线程数还不到128个，则开启新线程消除堆积。如果已经达到，则让请求线程自行完成任务
-	 */
-	public static ExecutorService es;
-
-	static {
-		int processorCount = Runtime.getRuntime().availableProcessors();
-		es = new ThreadPoolExecutor(processorCount * 2, processorCount * 4, 60L, TimeUnit.SECONDS,
-				new LinkedBlockingQueue<Runnable>(processorCount * 4), Executors.defaultThreadFactory(),
-				new CallerRunsPolicy());
-	}
-
 	/**
 	 * 获取数据库加密的密钥,目前使用固定密钥
 	 * 
@@ -160,18 +142,26 @@ public final class DbUtils {
 	}
 
 	/**
-	 * 并行执行多个数据库任务
+	 * 并行执行多个数据库任务。<br>
+	 * 任务按所访问的数据源在各自的执行器中排队，见{@link ExecutorRegistry}。未设置截止时间的任务使用{@link ORMConfig#getPartitionTaskTimeout()}。
 	 * 
+	 * @param executors
+	 *            执行器，一般为{@link DbClient#getExecutorRegistry()}
 	 * @param tasks
 	 * @throws SQLException
 	 */
-	public static void parallelExecute(List<DbTask> tasks) throws SQLException {
+	public static void parallelExecute(ExecutorRegistry executors, List<DbTask> tasks) throws SQLException {
 		CountDownLatch latch = new CountDownLatch(tasks.size());
 		Queue<SQLException> exceptions = new ConcurrentLinkedQueue<SQLException>();
 		Queue<Throwable> throwables = new ConcurrentLinkedQueue<Throwable>();
+		long timeout = ORMConfig.getInstance().getPartitionTaskTimeout();
+		long deadline = timeout > 0 ? System.currentTimeMillis() + timeout : 0;
 		for (DbTask task : tasks) {
 			task.prepare(latch, exceptions, throwables);
-			DbUtils.es.execute(task);
+			if (task.getDeadline() == 0) {
+				task.setDeadline(deadline);
+			}
+			executors.getExecutor(task.getDatasource()).execute(task);
 		}
 		try {
 			latch.await();
@@ -400,8 +390,7 @@ public final class DbUtils {
 	 */
 	@SuppressWarnings("unchecked")
 	public static List<SelectItem> parseSelectItems(String sql) throws ParseException {
-		JpqlParser parser = new JpqlParser(new StringReader(sql));
-		return parser.SelectItemsList();
+		return SqlParseCache.getInstance().parse(SqlParseCache.Kind.JPQL_SELECT_ITEMS, sql);
 	}
 
 	public static ColumnDefinition parseColumnDef(String def) throws ParseException {
@@ -419,8 +408,7 @@ public final class DbUtils {
 	 * @throws ParseException
 	 */
 	public static Select parseSelect(String sql) throws ParseException {
-		JpqlParser parser = new JpqlParser(new StringReader(sql));
-		return parser.Select();
+		return SqlParseCache.getInstance().parse(SqlParseCache.Kind.JPQL_SELECT, sql);
 	}
 
 	/**
@@ -431,8 +419,7 @@ public final class DbUtils {
 	 * @throws ParseException
 	 */
 	public static Select parseNativeSelect(String sql) throws ParseException {
-		StSqlParser parser = new StSqlParser(new StringReader(sql));
-		return parser.Select();
+		return SqlParseCache.getInstance().parse(SqlParseCache.Kind.NATIVE_SELECT, sql);
 	}
 
 	/**
@@ -483,9 +470,8 @@ public final class DbUtils {
 	 * @throws ParseException
 	 */
 	public static jef.database.jsqlparser.visitor.Statement parseStatement(String sql) throws ParseException {
-		JpqlParser parser = new JpqlParser(new StringReader(sql));
 		try {
-			return parser.Statement();
+			return SqlParseCache.getInstance().parse(SqlParseCache.Kind.JPQL_STATEMENT, sql);
 		} catch (ParseException e) {
 			LogUtil.error("ErrorSQL:" + sql);
 			throw e;
@@ -1083,6 +1069,31 @@ public final class DbUtils {
 			if (value != null)
 				hasValue = true;
 		}
+		appendRefFilters(rs, query, filters);
+		return hasValue;
+	}
+
+	/**
+	 * 批量级联加载时，将多个父对象的关联键值合并为一个in条件
+	 * 
+	 * @param right
+	 *            关联的目标字段
+	 * @param values
+	 *            多个父对象的关联键值
+	 * @param rs
+	 *            连接路径
+	 * @param query
+	 *            目标查询
+	 * @param filters
+	 *            动态过滤条件
+	 */
+	protected static void appendRefCondition(Field right, List<Object> values, JoinPath rs, Query<?> query, List<Condition> filters) {
+		query.clearQuery();
+		query.addCondition(right, Operator.IN, values);
+		appendRefFilters(rs, query, filters);
+	}
+
+	private static void appendRefFilters(JoinPath rs, Query<?> query, List<Condition> filters) {
 		// 辅助过滤条件，不作为hasValue标记
 		for (JoinKey condition : rs.getJoinExpression()) {
 			Field f = condition.getLeft();
@@ -1106,7 +1117,6 @@ public final class DbUtils {
 			Query<?> bq = query;
 			bq.getConditions().addAll(filters);
 		}
-		return hasValue;
 	}
 
 	/**
@@ -41,14 +41,14 @@ public abstract class DeleteProcessor {
 			for (final PartitionResult site : sites) {
 				final OperateTarget target = session.selectTarget(site.getDatabase());
 				dbname = target.getTransactionId();
-				tasks.add(new DbTask() {
+				tasks.add(new DbTask(site.getDatabase()) {
 					@Override
 					public void execute() throws SQLException {
 						count.addAndGet(processDelete0(target, obj, where, site, log));
 					}
 				});
 			}
-			DbUtils.parallelExecute(tasks);
+			DbUtils.parallelExecute(session.getExecutorRegistry(), tasks);
 			total = count.get();
 		} else {
 			for (PartitionResult site : sites) {
@@ -14,10 +14,10 @@ import jef.database.meta.MetaHolder;
 import jef.database.routing.PartitionResult;
 import jef.database.support.SqlLog;
 import jef.database.wrapper.clause.InsertSqlClause;
+import jef.database.wrapper.clause.UpsertSqlClause;
 import jef.database.wrapper.processor.InsertStep.OracleRowidKeyCallback;
 import jef.database.wrapper.variable.BindVariableContext;
 import jef.tools.ArrayUtils;
-import jef.tools.StringUtils;
 
 abstract class InsertProcessor {
 	protected DbClient db;
@@ -40,6 +40,38 @@ abstract class InsertProcessor {
 
 	abstract InsertSqlClause toInsertSqlBatch(IQueryableEntity obj, String tableName, boolean dynamic, boolean extreme, PartitionResult pr) throws SQLException;
 
+	/**
+	 * generate a upsert SQL.
+	 * 
+	 * @param obj
+	 * @param tableName
+	 * @param dynamic
+	 * @param keys
+	 *            业务主键字段名，为null时使用主键
+	 * @param pr
+	 * @return 数据库不支持，或者无法用单条语句完成时返回null
+	 * @throws SQLException
+	 */
+	final UpsertSqlClause toUpsertSql(IQueryableEntity obj, String tableName, boolean dynamic, String[] keys, PartitionResult pr) throws SQLException {
+		DatabaseDialect profile = pr == null ? db.getProfile(null) : db.getProfile(pr.getDatabase());
+		if (profile.getUpsertHandler() == null) {
+			return null;
+		}
+		ITableMetadata meta = MetaHolder.getMeta(obj);
+		List<ColumnMapping> keyFields;
+		if (keys == null) {
+			keyFields = meta.getPKFields();
+		} else {
+			keyFields = new ArrayList<ColumnMapping>(keys.length);
+			for (String s : keys) {
+				keyFields.add(meta.getColumnDef(meta.getField(s)));
+			}
+		}
+		// 以极限模式生成插入语句，不需要回写数据库生成的值
+		InsertSqlClause insertPart = toInsertSqlBatch(obj, tableName, dynamic, true, pr);
+		return UpsertSqlClause.create(insertPart, keyFields, profile.getUpsertHandler());
+	}
+
 	/**
 	 * process insert operate
 	 * 
@@ -52,6 +84,19 @@ abstract class InsertProcessor {
 	 */
 	abstract void processInsert(OperateTarget db, IQueryableEntity obj, InsertSqlClause sqls, long start, long parse) throws SQLException;
 
+	/**
+	 * process upsert operate
+	 * 
+	 * @param db
+	 * @param obj
+	 * @param sqls
+	 * @param start
+	 * @param parse
+	 * @return 影响的记录数
+	 * @throws SQLException
+	 */
+	abstract int processUpsert(OperateTarget db, IQueryableEntity obj, UpsertSqlClause sqls, long start, long parse) throws SQLException;
+
 	/**
 	 * 构造
 	 * 
@@ -90,8 +135,7 @@ abstract class InsertProcessor {
 			if (profile.has(Feature.SELECT_ROW_NUM) && !extreme) {
 				result.getCallback().addProcessor(new OracleRowidKeyCallback());
 			}
-			result.setColumnsPart(StringUtils.join(cStr, ','));
-			result.setValuesPart(StringUtils.join(vStr, ','));
+			result.setColumns(cStr, vStr);
 			return result;
 		}
 
@@ -127,5 +171,38 @@ abstract class InsertProcessor {
 				db.releaseConnection();
 			}
 		}
+
+		@Override
+		int processUpsert(OperateTarget db, IQueryableEntity obj, UpsertSqlClause sqls, long start, long parse) throws SQLException {
+			SqlLog sb = ORMConfig.getInstance().newLogger();
+			String sql = sqls.getSql();
+			sb.ensureCapacity(sql.length() + 128);
+			sb.append(sql).append(db);
+			PreparedStatement psmt = null;
+			DatabaseDialect profile = db.getProfile();
+			try {
+				psmt = db.prepareStatement(sql);
+				BindVariableContext context = new BindVariableContext(psmt, profile, sb);
+				context.setInsertVariables(obj, sqls.getFields());
+				int count = psmt.executeUpdate();
+				sb.append("\nUpserted:", count).append("\tTime cost([ParseSQL]:", parse - start).append("ms, [DbAccess]:", System.currentTimeMillis() - parse).append("ms)").append(db);
+				return count;
+			} catch (SQLIntegrityConstraintViolationException e) {
+				throw e;
+			} catch (SQLException e) {
+				String s = profile.getViolatedConstraintNameExtracter().extractConstraintName(e);
+				if (s != null) {
+					throw new SQLIntegrityConstraintViolationException(s);
+				} else {
+					DbUtils.processError(e, ArrayUtils.toString(sqls.getInsertPart().getTable(), true), db);
+					throw e;
+				}
+			} finally {
+				sb.output();
+				if (psmt != null)
+					psmt.close();
+				db.releaseConnection();
+			}
+		}
 	}
 }
@@ -0,0 +1,341 @@
+package jef.database;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import jef.database.dialect.type.ColumnMapping;
+import jef.database.jsqlparser.expression.Column;
+import jef.database.jsqlparser.expression.TemplateExpression;
+import jef.database.jsqlparser.statement.select.OrderBy;
+import jef.database.jsqlparser.statement.select.OrderByElement;
+import jef.database.jsqlparser.statement.select.PlainSelect;
+import jef.database.jsqlparser.statement.select.Select;
+import jef.database.jsqlparser.statement.select.SelectExpressionItem;
+import jef.database.jsqlparser.statement.select.Union;
+import jef.database.jsqlparser.visitor.Expression;
+import jef.database.jsqlparser.visitor.SelectBody;
+import jef.database.jsqlparser.visitor.SelectItem;
+import jef.database.meta.ITableMetadata;
+import jef.tools.reflect.BeanWrapper;
+
+/**
+ * 键集（Seek）分页时对SQL语句的改写。<br>
+ * 按上一页最后一条记录的排序列值在原查询的WHERE中追加定位条件，排序引用的是列别名时换成别名对应的表达式，例如
+ *
+ * <pre>
+ * select A, B as b1 from X where (原条件) and (A &gt; ? or (A = ? and B &gt; ?)) order by A, b1
+ * </pre>
+ *
+ * 这样定位条件可以使用排序列上的索引。UNION查询，以及带有GROUP BY、HAVING、LIMIT/TOP的查询，
+ * 条件无法放进原查询的WHERE，此时将原查询去掉排序后作为子查询，在外层定位：
+ *
+ * <pre>
+ * select * from (原查询) t where (t.A &gt; ? or (t.A = ? and t.B &gt; ?)) order by t.A, t.B
+ * </pre>
+ *
+ * 这种写法数据库通常要先得到子查询的全部结果再过滤，后面的页不一定比OFFSET分页快。
+ * <p>
+ * 排序列必须出现在查询结果中，并且能唯一确定记录的顺序。每页多查一条记录用于检查，
+ * 页末的记录和下一条的排序列值相同时（定位条件会跳过后者）抛出{@link IllegalStateException}。
+ */
+final class KeysetQuery {
+	private static final String ALIAS = "t";
+
+	private final Select select;
+	/**
+	 * 定位条件放进WHERE时为原查询，否则为null
+	 */
+	private final PlainSelect plain;
+	/**
+	 * 定位条件放进WHERE时各排序列在原查询中的表达式
+	 */
+	private final Expression[] exprs;
+	private final String[] labels;
+	private final boolean[] asc;
+
+	private KeysetQuery(Select select, PlainSelect plain, Expression[] exprs, String[] labels, boolean[] asc) {
+		this.select = select;
+		this.plain = plain;
+		this.exprs = exprs;
+		this.labels = labels;
+		this.asc = asc;
+	}
+
+	/**
+	 * 从查询语句中取出排序列
+	 *
+	 * @param select
+	 *            查询语句，定位条件无法放进WHERE时会被修改（去掉排序）
+	 * @return
+	 * @throws UnsupportedOperationException
+	 *             语句没有排序，或者排序项不是查询结果中的列
+	 */
+	static KeysetQuery create(Select select) {
+		SelectBody body = select.getSelectBody();
+		OrderBy orderBy;
+		PlainSelect plain = null;
+		List<SelectItem> items = null;
+		if (body instanceof PlainSelect) {
+			PlainSelect ps = (PlainSelect) body;
+			orderBy = ps.getOrderBy();
+			items = ps.getSelectItems();
+			if (!ps.isGroupBy() && ps.getHaving() == null && ps.getLimit() == null && ps.getTop() == null) {
+				plain = ps;
+			}
+		} else if (body instanceof Union) {
+			orderBy = ((Union) body).getOrderBy();
+		} else {
+			throw new UnsupportedOperationException("Keyset paging is not supported on " + body);
+		}
+		if (orderBy == null || orderBy.getOrderByElements().isEmpty()) {
+			throw new UnsupportedOperationException("Keyset paging requires an ORDER BY clause: " + select);
+		}
+		List<OrderByElement> elements = orderBy.getOrderByElements();
+		Expression[] exprs = new Expression[elements.size()];
+		String[] labels = new String[elements.size()];
+		boolean[] asc = new boolean[elements.size()];
+		for (int i = 0; i < labels.length; i++) {
+			OrderByElement e = elements.get(i);
+			labels[i] = toLabel(e.getExpression(), items);
+			exprs[i] = toExpression(e.getExpression(), items);
+			asc[i] = e.isAsc();
+		}
+		if (plain == null) {
+			if (body instanceof PlainSelect) {
+				((PlainSelect) body).setOrderBy(null);
+			} else {
+				((Union) body).setOrderBy(null);
+			}
+		}
+		return new KeysetQuery(select, plain, exprs, labels, asc);
+	}
+
+	/*
+	 * 排序项在原查询中的表达式，是列别名时换成别名对应的表达式
+	 */
+	private static Expression toExpression(Expression exp, List<SelectItem> items) {
+		if (items != null) {
+			String text = exp.toString();
+			for (SelectItem item : items) {
+				if (item instanceof SelectExpressionItem) {
+					SelectExpressionItem si = (SelectExpressionItem) item;
+					if (text.equalsIgnoreCase(si.getAlias())) {
+						return si.getExpression();
+					}
+				}
+			}
+		}
+		return exp;
+	}
+
+	/*
+	 * 排序项在查询结果中的列名
+	 */
+	private static String toLabel(Expression exp, List<SelectItem> items) {
+		String text = exp.toString();
+		if (items != null) {
+			for (SelectItem item : items) {
+				if (item instanceof SelectExpressionItem) {
+					SelectExpressionItem si = (SelectExpressionItem) item;
+					String alias = si.getAlias();
+					if (alias != null && (alias.equalsIgnoreCase(text) || si.getExpression().toString().equalsIgnoreCase(text))) {
+						return alias;
+					}
+				}
+			}
+		}
+		if (exp instanceof Column) {
+			return ((Column) exp).getColumnName();
+		}
+		throw new UnsupportedOperationException("The ORDER BY item [" + text + "] must be a column of the result for keyset paging.");
+	}
+
+	/**
+	 * 返回查询语句
+	 *
+	 * @param placeholders
+	 *            定位条件中各排序列的值的写法，如?或:name。为null时不加定位条件，即查询第一页
+	 * @return
+	 */
+	String getSql(String[] placeholders) {
+		if (plain != null) {
+			if (placeholders == null) {
+				return select.toString();
+			}
+			// 在副本上替换条件，不修改原查询
+			PlainSelect ps = new PlainSelect(plain);
+			StringBuilder format = new StringBuilder();
+			appendSeek(format, null, placeholders, true);
+			Expression seek = new TemplateExpression(format.toString(), exprs);
+			ps.setWhere(plain.getWhere() == null ? seek : new TemplateExpression("(%s) and %s", plain.getWhere(), seek));
+			return ps.toString();
+		}
+		String innerSql = select.toString();
+		StringBuilder sb = new StringBuilder(innerSql.length() + 64);
+		sb.append("select * from (").append(innerSql).append(") ").append(ALIAS);
+		if (placeholders != null) {
+			sb.append(" where ");
+			appendSeek(sb, ALIAS + '.', placeholders, false);
+		}
+		sb.append(" order by ");
+		for (int i = 0; i < labels.length; i++) {
+			if (i > 0) {
+				sb.append(", ");
+			}
+			sb.append(ALIAS).append('.').append(labels[i]).append(asc[i] ? " asc" : " desc");
+		}
+		return sb.toString();
+	}
+
+	/*
+	 * (A > ? or (A = ? and B > ?))。template为true时排序列写成%1$s等，由TemplateExpression代入表达式
+	 */
+	private void appendSeek(StringBuilder sb, String prefix, String[] placeholders, boolean template) {
+		sb.append('(');
+		for (int i = 0; i < labels.length; i++) {
+			if (i > 0) {
+				sb.append(" or (");
+				for (int j = 0; j < i; j++) {
+					appendColumn(sb, prefix, j, template).append(" = ").append(placeholders[j]).append(" and ");
+				}
+			}
+			appendColumn(sb, prefix, i, template).append(asc[i] ? " > " : " < ").append(placeholders[i]);
+			if (i > 0) {
+				sb.append(')');
+			}
+		}
+		sb.append(')');
+	}
+
+	private StringBuilder appendColumn(StringBuilder sb, String prefix, int i, boolean template) {
+		if (template) {
+			return sb.append('%').append(i + 1).append("$s");
+		}
+		return sb.append(prefix).append(labels[i]);
+	}
+
+	/**
+	 * 定位条件中的占位符依次对应的排序列序号
+	 *
+	 * @return
+	 */
+	int[] getBindOrder() {
+		int[] result = new int[labels.length * (labels.length + 1) / 2];
+		int n = 0;
+		for (int i = 0; i < labels.length; i++) {
+			for (int j = 0; j <= i; j++) {
+				result[n++] = j;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * 排序列的个数
+	 *
+	 * @return
+	 */
+	int size() {
+		return labels.length;
+	}
+
+	/**
+	 * 读取一页结果中最后一条记录的排序列值。结果须比一页多查一条：多出的一条和本页最后一条的排序列值相同时，
+	 * 下一页的定位条件会把它跳过，说明排序不能唯一确定记录的顺序。
+	 *
+	 * @param rows
+	 *            查询结果，最多比一页多一条
+	 * @param limit
+	 *            每页记录数
+	 * @param meta
+	 *            结果的元模型，可以为null
+	 * @return 结果为空时返回null
+	 * @throws IllegalStateException
+	 *             排序列值在页末出现重复
+	 */
+	Object[] readLastKeys(List<?> rows, int limit, ITableMetadata meta) {
+		if (rows.size() > limit) {
+			Object[] keys = readKeys(rows.get(limit - 1), meta);
+			if (Arrays.equals(keys, readKeys(rows.get(limit), meta))) {
+				throw new IllegalStateException("The ORDER BY " + Arrays.toString(labels) + " is not unique, keyset paging would skip records with the same values " + Arrays.toString(keys) + ". Add the primary key to the ORDER BY.");
+			}
+			return keys;
+		}
+		return rows.isEmpty() ? null : readKeys(rows.get(rows.size() - 1), meta);
+	}
+
+	/**
+	 * 读取一条结果中各排序列的值
+	 *
+	 * @param row
+	 *            查询结果
+	 * @param meta
+	 *            结果的元模型，可以为null
+	 * @return
+	 */
+	private Object[] readKeys(Object row, ITableMetadata meta) {
+		Object[] keys = new Object[labels.length];
+		for (int i = 0; i < labels.length; i++) {
+			Object value = checkNotNull(getValue(row, labels[i], meta), labels[i]);
+			if (value.getClass() == Date.class) {
+				value = new Timestamp(((Date) value).getTime());
+			}
+			keys[i] = value;
+		}
+		return keys;
+	}
+
+	/**
+	 * 按列名从一条查询结果中取值，结果可以是Map、实体、VarObject、普通Bean或单列的值
+	 *
+	 * @param row
+	 * @param column
+	 *            列名，大小写不敏感
+	 * @param meta
+	 *            结果的元模型，可以为null
+	 * @return
+	 */
+	static Object getValue(Object row, String column, ITableMetadata meta) {
+		if (row instanceof Map) {
+			for (Map.Entry<?, ?> e : ((Map<?, ?>) row).entrySet()) {
+				if (column.equalsIgnoreCase(String.valueOf(e.getKey()))) {
+					return e.getValue();
+				}
+			}
+		} else if (meta != null && meta.getThisType().isInstance(row)) {
+			Field field = meta.getFieldByLowerColumn(column.toLowerCase());
+			ColumnMapping mapping = field == null ? meta.findField(column) : meta.getColumnDef(field);
+			if (mapping != null) {
+				return mapping.getFieldAccessor().get(row);
+			}
+		} else if (row != null && row.getClass().getName().startsWith("java.")) {
+			// 单列的查询结果
+			return row;
+		} else if (row != null) {
+			BeanWrapper bw = BeanWrapper.wrap(row);
+			for (String name : bw.getPropertyNames()) {
+				if (name.equalsIgnoreCase(column)) {
+					return bw.getPropertyValue(name);
+				}
+			}
+		}
+		throw new IllegalArgumentException("The ORDER BY column [" + column + "] is not found in the result " + (row == null ? null : row.getClass().getName()));
+	}
+
+	/**
+	 * 排序列的值为null时无法定位下一页
+	 *
+	 * @param value
+	 * @param column
+	 * @return
+	 */
+	static Object checkNotNull(Object value, String column) {
+		if (value == null) {
+			throw new IllegalStateException("The ORDER BY column [" + column + "] of the last record is null, keyset paging can not seek to the next page.");
+		}
+		return value;
+	}
+}
@@ -58,6 +58,27 @@ final class LazyLoadContext implements ILazyLoadContext {
 		return executed>=processor.size();
 	}
 
+	/**
+	 * 指定的任务是否尚未执行
+	 */
+	boolean isPending(int id) {
+		return loaded == null || !loaded.get(id);
+	}
+
+	/**
+	 * 标记指定的任务已经随其他对象批量执行
+	 * 
+	 * @return 如果全部延迟加载任务都执行完毕了，返回true
+	 */
+	boolean markLoaded(int id) {
+		if (loaded == null) {
+			loaded = new BitSet(processor.size());
+		}
+		loaded.set(id, true);
+		executed++;
+		return executed >= processor.size();
+	}
+
 	public LazyLoadProcessor getProcessor() {
 		return processor;
 	}
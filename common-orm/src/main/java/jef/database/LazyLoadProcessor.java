@@ -17,6 +17,10 @@ public final class LazyLoadProcessor {
 	private DbClient parent;
 	private final List<LazyLoadTask> tasks=new ArrayList<LazyLoadTask>();
 	private final Map<String,Integer> onFields=new HashMap<String,Integer>(8,0.6f);
+	/**
+	 * 共用该策略的同一批对象，用于将级联加载任务合并批量执行
+	 */
+	private List<WeakReference<DataObject>> siblings;
 	
 	public LazyLoadProcessor(LazyLoadTask task,Session session) {
 		this.session=new WeakReference<Session>(session);
@@ -44,7 +48,55 @@ public final class LazyLoadProcessor {
 			}
 		}
 		if(s==null)s=parent;
-		tasks.get(id).process(s, obj);
+		LazyLoadTask task=tasks.get(id);
+		if(siblings!=null && task instanceof CascadeLoaderTask && ((CascadeLoaderTask) task).getBatchSize()>1){
+			processBatch(s, (CascadeLoaderTask) task, obj, id);
+		}else{
+			task.process(s, obj);	
+		}
+	}
+	
+	/*
+	 * 将同一批对象中尚未加载该字段的其他对象一起加载
+	 */
+	private void processBatch(Session s, CascadeLoaderTask task, IQueryableEntity obj, int id) throws SQLException {
+		int max=task.getBatchSize();
+		List<DataObject> batch=new ArrayList<DataObject>();
+		batch.add((DataObject)obj);
+		for(WeakReference<DataObject> ref:siblings){
+			if(batch.size()>=max)break;
+			DataObject o=ref.get();
+			if(o==null || o==obj)continue;
+			ILazyLoadContext context=o.lazyload;
+			if(context instanceof LazyLoadContext && context.getProcessor()==this && ((LazyLoadContext) context).isPending(id)){
+				batch.add(o);
+			}
+		}
+		task.process(s, batch);
+		//当前对象由调用者标记，其他对象在此标记
+		for(int i=1;i<batch.size();i++){
+			DataObject o=batch.get(i);
+			ILazyLoadContext context=o.lazyload;
+			if(context!=null && ((LazyLoadContext) context).markLoaded(id)){
+				o.lazyload=null;
+			}
+		}
+	}
+	
+	/**
+	 * 记录共用该策略的同一批对象。此后级联加载任务执行时，会将这批对象中尚未加载的对象一起批量加载。
+	 * @param objs
+	 */
+	void setSiblings(List<?> objs){
+		List<WeakReference<DataObject>> list=new ArrayList<WeakReference<DataObject>>(objs.size());
+		for(Object o:objs){
+			list.add(new WeakReference<DataObject>((DataObject)o));
+		}
+		this.siblings=list;
+	}
+	
+	boolean hasSiblings(){
+		return siblings!=null;
 	}
 	
 	public void register(LazyLoadTask vsManyLoadTask) {
@@ -1361,6 +1361,27 @@ public class NativeQuery<X> implements javax.persistence.TypedQuery<X>, Paramete
 		return result;
 	}
 
+	/*
+	 * 以新的SQL语句构造查询，沿用当前查询的参数和其他设置。用于键集分页
+	 */
+	NativeQuery<X> derive(String sql) {
+		NativeQuery<X> result = new NativeQuery<X>(this.db, sql, this.resultTransformer, false);
+		result.nameParams.putAll(this.nameParams);
+		result.hint.putAll(this.hint);
+		result.fetchSize = this.fetchSize;
+		result.flushType = this.flushType;
+		result.lock = this.lock;
+		result.routing = this.routing;
+		return result;
+	}
+
+	/*
+	 * 原始的SQL语句，JPQL时返回null
+	 */
+	String getNativeSql() {
+		return config.getType() == NamedQueryConfig.TYPE_SQL ? config.getRawsql() : null;
+	}
+
 	/**
 	 * 通过更换ResultTransformer中的结果返回类型，将当前NativeQuery<X>转为NativeQuery<T> <br>
 	 * 注意这一操作不会创建新的NativeQuery对象，而是将当前对象的类型进行了转换。
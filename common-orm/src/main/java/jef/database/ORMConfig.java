@@ -58,6 +58,20 @@ public class ORMConfig implements ORMConfigMBean {
      */
     private int partitionInMemoryMaxRows;
 
+    /**
+     * 内存排序和聚合等计算超过此行数时写入临时文件，0表示不写入
+     */
+    private int partitionInMemorySpillRows;
+
+    /**
+     * 是否为结果拼装生成字节码
+     */
+    private boolean compilePopulator;
+    /**
+     * 是否为批量操作的参数绑定生成字节码
+     */
+    private boolean compileBatchBinder;
+
     /**
      * Lob等数据流映射到String时的编码
      */
@@ -157,6 +171,16 @@ public class ORMConfig implements ORMConfigMBean {
      */
     private int cacheLevel2;
 
+    /**
+     * 二级缓存的容量上限，为0时不限制
+     */
+    private long cacheLevel2MaxWeight;
+
+    /**
+     * 二级缓存容量是否按估算的字节数计算，否则按行数计算
+     */
+    private boolean cacheLevel2WeighBytes;
+
     /**
      * 定期检查连接
      */
@@ -184,6 +208,36 @@ public class ORMConfig implements ORMConfigMBean {
      */
     private int maxInConditions;
 
+    /**
+     * SQL解析结果缓存的最大语句数，0表示不缓存
+     */
+    private int parseCacheSize;
+
+    /**
+     * 查询结果拼装计划缓存的最大条目数，0表示不缓存
+     */
+    private int populatePlanCacheSize;
+
+    /**
+     * 级联加载时一次批量加载的最多父对象数量，0或1表示逐个加载
+     */
+    private int cascadeBatchSize;
+
+    /**
+     * 批量操作时每次调用executeBatch的最大记录数，0表示不限制
+     */
+    private int batchSize;
+
+    /**
+     * 内嵌连接池中每个连接缓存的PreparedStatement数量，0表示不缓存
+     */
+    private int statementCacheSize;
+
+    /**
+     * 异步操作时每个数据源同时执行的最大操作数，0表示不限制
+     */
+    private int asyncMaxConcurrency;
+
     private boolean jpaContinueCommitIfError;
 
     /**
@@ -191,6 +245,11 @@ public class ORMConfig implements ORMConfigMBean {
      */
     private int parallelSelect;
 
+    /**
+     * 多库并行操作时任务的排队超时(毫秒)，0表示不限制
+     */
+    private long partitionTaskTimeout;
+
     /**
      * 将自增实现的两种常用实现映射为AUTO
      */
@@ -233,6 +292,8 @@ public class ORMConfig implements ORMConfigMBean {
         enableLazyLob = JefConfiguration.getBoolean(DbCfg.DB_LOB_LAZY_LOAD, false);
         cacheLevel1 = JefConfiguration.getBoolean(DbCfg.CACHE_LEVEL_1, false);
         cacheLevel2 = JefConfiguration.getInt(DbCfg.CACHE_GLOBAL_EXPIRE_TIME, 0);
+        cacheLevel2MaxWeight = JefConfiguration.getLong(DbCfg.CACHE_GLOBAL_MAX_WEIGHT, 100000);
+        cacheLevel2WeighBytes = JefConfiguration.getBoolean(DbCfg.CACHE_GLOBAL_WEIGH_BYTES, false);
         cacheDebug = System.getProperty("cache.debug") != null;
         setFormatSQL(JefConfiguration.getBoolean(DbCfg.DB_FORMAT_SQL, false));
         heartBeatSleep = JefConfiguration.getLong(DbCfg.DB_HEARTBEAT, 120000);
@@ -242,9 +303,19 @@ public class ORMConfig implements ORMConfigMBean {
         filterAbsentTables = JefConfiguration.getBoolean(DbCfg.PARTITION_FILTER_ABSENT_TABLES, true);
         partitionCreateTableInneed = JefConfiguration.getBoolean(DbCfg.PARTITION_CREATE_TABLE_INNEED, true);
         partitionInMemoryMaxRows = JefConfiguration.getInt(DbCfg.PARTITION_INMEMORY_MAXROWS, 0);
+        partitionInMemorySpillRows = JefConfiguration.getInt(DbCfg.PARTITION_INMEMORY_SPILL_ROWS, 0);
         autoCreateSequence = JefConfiguration.getBoolean(DbCfg.AUTO_SEQUENCE_CREATION, true);
         maxInConditions = JefConfiguration.getInt(DbCfg.DB_MAX_IN_CONDITIONS, 500);
+        parseCacheSize = JefConfiguration.getInt(DbCfg.DB_PARSE_CACHE_SIZE, 1000);
+        compilePopulator = JefConfiguration.getBoolean(DbCfg.DB_COMPILE_POPULATOR, true);
+        compileBatchBinder = JefConfiguration.getBoolean(DbCfg.DB_COMPILE_BATCH_BINDER, true);
+        populatePlanCacheSize = JefConfiguration.getInt(DbCfg.DB_POPULATE_PLAN_CACHE_SIZE, 1000);
+        cascadeBatchSize = JefConfiguration.getInt(DbCfg.DB_CASCADE_BATCH_SIZE, 100);
+        batchSize = JefConfiguration.getInt(DbCfg.DB_BATCH_SIZE, 0);
+        statementCacheSize = JefConfiguration.getInt(DbCfg.DB_STATEMENT_CACHE_SIZE, 0);
+        asyncMaxConcurrency = JefConfiguration.getInt(DbCfg.DB_ASYNC_MAX_CONCURRENCY, JefConfiguration.getInt(DbCfg.DB_CONNECTION_POOL_MAX, 50));
         parallelSelect = JefConfiguration.getInt(DbCfg.PARTITION_PARALLEL, 3);
+        partitionTaskTimeout = JefConfiguration.getLong(DbCfg.PARTITION_TASK_TIMEOUT, 0);
         jpaContinueCommitIfError = JefConfiguration.getBoolean(DbCfg.DB_JPA_CONTINUE_COMMIT_IF_ERROR, false);
         generateBySequenceAndIdentityToAUTO = JefConfiguration.getBoolean(DbCfg.DB_AUTOINCREMENT_NATIVE, false);
 
@@ -279,6 +350,64 @@ public class ORMConfig implements ORMConfigMBean {
         this.maxInConditions = maxInConditions;
     }
 
+    public int getParseCacheSize() {
+        return parseCacheSize;
+    }
+
+    /**
+     * 设置SQL解析结果缓存的大小，需要在第一次解析SQL之前设置才能生效
+     * 
+     * @param parseCacheSize
+     */
+    public void setParseCacheSize(int parseCacheSize) {
+        this.parseCacheSize = parseCacheSize;
+    }
+
+    public int getPopulatePlanCacheSize() {
+        return populatePlanCacheSize;
+    }
+
+    /**
+     * 设置查询结果拼装计划缓存的大小，需要在第一次查询之前设置才能生效
+     * 
+     * @param populatePlanCacheSize
+     */
+    public void setPopulatePlanCacheSize(int populatePlanCacheSize) {
+        this.populatePlanCacheSize = populatePlanCacheSize;
+    }
+
+    public int getCascadeBatchSize() {
+        return cascadeBatchSize;
+    }
+
+    public void setCascadeBatchSize(int cascadeBatchSize) {
+        this.cascadeBatchSize = cascadeBatchSize;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    public void setStatementCacheSize(int statementCacheSize) {
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    public int getAsyncMaxConcurrency() {
+        return asyncMaxConcurrency;
+    }
+
+    public void setAsyncMaxConcurrency(int asyncMaxConcurrency) {
+        this.asyncMaxConcurrency = asyncMaxConcurrency;
+    }
+
     public boolean isAutoCreateSequence() {
         return autoCreateSequence;
     }
@@ -466,6 +595,14 @@ public class ORMConfig implements ORMConfigMBean {
         this.parallelSelect = parallelSelect;
     }
 
+    public long getPartitionTaskTimeout() {
+        return partitionTaskTimeout;
+    }
+
+    public void setPartitionTaskTimeout(long partitionTaskTimeout) {
+        this.partitionTaskTimeout = partitionTaskTimeout;
+    }
+
     public void setSingleSite(boolean singleSite) {
         this.singleSite = singleSite;
     }
@@ -608,6 +745,30 @@ public class ORMConfig implements ORMConfigMBean {
         this.partitionInMemoryMaxRows = partitionInMemoryMaxRows;
     }
 
+    public int getPartitionInMemorySpillRows() {
+        return partitionInMemorySpillRows;
+    }
+
+    public void setPartitionInMemorySpillRows(int partitionInMemorySpillRows) {
+        this.partitionInMemorySpillRows = partitionInMemorySpillRows;
+    }
+
+    public boolean isCompilePopulator() {
+        return compilePopulator;
+    }
+
+    public void setCompilePopulator(boolean compilePopulator) {
+        this.compilePopulator = compilePopulator;
+    }
+
+    public boolean isCompileBatchBinder() {
+        return compileBatchBinder;
+    }
+
+    public void setCompileBatchBinder(boolean compileBatchBinder) {
+        this.compileBatchBinder = compileBatchBinder;
+    }
+
     public boolean isJpaContinueCommitIfError() {
         return jpaContinueCommitIfError;
     }
@@ -684,4 +845,20 @@ public class ORMConfig implements ORMConfigMBean {
     public void setCacheLevel2(int cacheLevel2) {
         this.cacheLevel2 = cacheLevel2;
     }
+
+    public long getCacheLevel2MaxWeight() {
+        return cacheLevel2MaxWeight;
+    }
+
+    public void setCacheLevel2MaxWeight(long cacheLevel2MaxWeight) {
+        this.cacheLevel2MaxWeight = cacheLevel2MaxWeight;
+    }
+
+    public boolean isCacheLevel2WeighBytes() {
+        return cacheLevel2WeighBytes;
+    }
+
+    public void setCacheLevel2WeighBytes(boolean cacheLevel2WeighBytes) {
+        this.cacheLevel2WeighBytes = cacheLevel2WeighBytes;
+    }
 }
@@ -404,6 +404,138 @@ public interface ORMConfigMBean {
 	 */
 	void setPartitionInMemoryMaxRows(int partitionInMemoryMaxRows);
 
+	/**
+	 * 获得配置参数
+	 * @return {@link DbCfg#PARTITION_INMEMORY_SPILL_ROWS}
+	 */
+	int getPartitionInMemorySpillRows();
+
+	/**
+	 * 修改配置
+	 * @param partitionInMemorySpillRows {@link DbCfg#PARTITION_INMEMORY_SPILL_ROWS}
+	 */
+	void setPartitionInMemorySpillRows(int partitionInMemorySpillRows);
+
+	/**
+	 * 获得配置参数
+	 * @return {@link DbCfg#DB_COMPILE_POPULATOR}
+	 */
+	boolean isCompilePopulator();
+
+	/**
+	 * 修改配置
+	 * @param compilePopulator {@link DbCfg#DB_COMPILE_POPULATOR}
+	 */
+	void setCompilePopulator(boolean compilePopulator);
+
+	/**
+	 * 获得配置参数
+	 * @return {@link DbCfg#DB_COMPILE_BATCH_BINDER}
+	 */
+	boolean isCompileBatchBinder();
+
+	/**
+	 * 修改配置
+	 * @param compileBatchBinder {@link DbCfg#DB_COMPILE_BATCH_BINDER}
+	 */
+	void setCompileBatchBinder(boolean compileBatchBinder);
+
+	/**
+	 * 获得配置参数
+	 * @return {@link DbCfg#DB_PARSE_CACHE_SIZE}
+	 */
+	int getParseCacheSize();
+
+	/**
+	 * 获得配置参数
+	 * @return {@link DbCfg#DB_POPULATE_PLAN_CACHE_SIZE}
+	 */
+	int getPopulatePlanCacheSize();
+
+	/**
+	 * 获得配置参数
+	 * @return {@link DbCfg#DB_CASCADE_BATCH_SIZE}
+	 */
+	int getCascadeBatchSize();
+
+	/**
+	 * 修改配置
+	 * @param cascadeBatchSize {@link DbCfg#DB_CASCADE_BATCH_SIZE}
+	 */
+	void setCascadeBatchSize(int cascadeBatchSize);
+
+	/**
+	 * 获得配置参数
+	 * @return {@link DbCfg#DB_BATCH_SIZE}
+	 */
+	int getBatchSize();
+
+	/**
+	 * 修改配置
+	 * @param batchSize {@link DbCfg#DB_BATCH_SIZE}
+	 */
+	void setBatchSize(int batchSize);
+
+	/**
+	 * 获得配置参数
+	 * @return {@link DbCfg#DB_STATEMENT_CACHE_SIZE}
+	 */
+	int getStatementCacheSize();
+
+	/**
+	 * 修改配置，只对之后新建的连接生效
+	 * @param statementCacheSize {@link DbCfg#DB_STATEMENT_CACHE_SIZE}
+	 */
+	void setStatementCacheSize(int statementCacheSize);
+
+	/**
+	 * 获得配置参数
+	 * @return {@link DbCfg#DB_ASYNC_MAX_CONCURRENCY}
+	 */
+	int getAsyncMaxConcurrency();
+
+	/**
+	 * 修改配置，只对之后首次异步访问的数据源生效
+	 * @param asyncMaxConcurrency {@link DbCfg#DB_ASYNC_MAX_CONCURRENCY}
+	 */
+	void setAsyncMaxConcurrency(int asyncMaxConcurrency);
+
+	/**
+	 * 获得配置参数
+	 * @return {@link DbCfg#PARTITION_TASK_TIMEOUT}
+	 */
+	long getPartitionTaskTimeout();
+
+	/**
+	 * 修改配置
+	 * @param partitionTaskTimeout {@link DbCfg#PARTITION_TASK_TIMEOUT}
+	 */
+	void setPartitionTaskTimeout(long partitionTaskTimeout);
+
+	/**
+	 * 获得配置参数
+	 * @return {@link DbCfg#CACHE_GLOBAL_MAX_WEIGHT}
+	 */
+	long getCacheLevel2MaxWeight();
+
+	/**
+	 * 修改配置，只对之后创建的DbClient生效
+	 * @param cacheLevel2MaxWeight {@link DbCfg#CACHE_GLOBAL_MAX_WEIGHT}
+	 */
+	void setCacheLevel2MaxWeight(long cacheLevel2MaxWeight);
+
+	/**
+	 * 获得配置参数
+	 * @return {@link DbCfg#CACHE_GLOBAL_WEIGH_BYTES}
+	 */
+	boolean isCacheLevel2WeighBytes();
+
+	/**
+	 * 修改配置，只对之后创建的DbClient生效
+	 * @param cacheLevel2WeighBytes {@link DbCfg#CACHE_GLOBAL_WEIGH_BYTES}
+	 */
+	void setCacheLevel2WeighBytes(boolean cacheLevel2WeighBytes);
+
 	/**
 	 * 获得配置参数 
 	 * @return {@link DbCfg#DB_SET_ISOLATION}
@@ -1,6 +1,5 @@
 package jef.database;
 
-import java.io.StringReader;
 import java.lang.reflect.Type;
 import java.sql.CallableStatement;
 import java.sql.PreparedStatement;
@@ -30,8 +29,9 @@ import jef.database.jdbc.statement.ProcessablePreparedStatement;
 import jef.database.jdbc.statement.ProcessableStatement;
 import jef.database.jdbc.statement.ResultSetLaterProcess;
 import jef.database.jsqlparser.SqlFunctionlocalization;
+import jef.database.jsqlparser.SqlParseCache;
 import jef.database.jsqlparser.parser.ParseException;
-import jef.database.jsqlparser.parser.StSqlParser;
+import jef.database.jsqlparser.statement.select.PlainSelect;
 import jef.database.jsqlparser.visitor.SelectItem;
 import jef.database.meta.DbProperty;
 import jef.database.meta.ITableMetadata;
@@ -42,7 +42,9 @@ import jef.database.routing.sql.InMemoryOperateProvider;
 import jef.database.support.SqlLog;
 import jef.database.wrapper.ResultIterator;
 import jef.database.wrapper.clause.BindSql;
+import jef.database.wrapper.executor.ExecutorRegistry;
 import jef.database.wrapper.populator.AbstractResultSetTransformer;
+import jef.database.wrapper.populator.PopulatePlanCache;
 import jef.database.wrapper.populator.ResultSetExtractor;
 import jef.database.wrapper.populator.Transformer;
 import jef.database.wrapper.variable.BindVariableContext;
@@ -339,15 +341,15 @@ public class OperateTarget implements SqlTemplate, JDBCTarget {
 			rst.apply(st);
 			rs = st.executeQuery();
 			long dbAccessed = System.currentTimeMillis();
-			if (lazy != null && lazy.hasInMemoryOperate()) {
+			boolean inMemory = lazy != null && lazy.hasInMemoryOperate();
+			if (inMemory) {
 				rs = ResultSetContainer.toInMemoryProcessorResultSet(lazy, new ResultSetHolder(this, st, rs));
 			}
-			T t;
-			if (rst.autoClose()) {
-				t = rst.transformer(new ResultSetImpl(rs, getProfile()));
-			} else {
-				t = rst.transformer(new ResultSetWrapper(this, st, rs));
+			ResultSetImpl irs = rst.autoClose() ? new ResultSetImpl(rs, getProfile()) : new ResultSetWrapper(this, st, rs);
+			if (!inMemory) {
+				irs.setPlanKey(planKeyOf(sql, rst));
 			}
+			T t = rst.transformer(irs);
 			// if(session.isRoutingDataSource()){
 			rst.appendLog(sb, t);
 			sb.append("\tTime cost([DbAccess]:", dbAccessed - start).append("ms, [Populate]:", System.currentTimeMillis() - dbAccessed).append("ms")
@@ -367,6 +369,21 @@ public class OperateTarget implements SqlTemplate, JDBCTarget {
 		}
 	}
 
+	/*
+	 * 按SQL和结果类型计算拼装计划的缓存键，只有拼装为对象的查询才使用
+	 */
+	private PopulatePlanCache.Key planKeyOf(String sql, ResultSetExtractor<?> rst) {
+		Transformer t;
+		if (rst instanceof TransformerAdapter) {
+			t = ((TransformerAdapter<?>) rst).transformers;
+		} else if (rst instanceof TransformerIteratrAdapter) {
+			t = ((TransformerIteratrAdapter<?>) rst).transformers;
+		} else {
+			return null;
+		}
+		return PopulatePlanCache.getInstance().keyOf(sql, profile, t, false);
+	}
+
 	// ///////////////////////////////SqlTemplate /////////////////////////
 	public <T> NativeQuery<T> createNativeQuery(String sqlString, Class<T> clz) {
 		return new NativeQuery<T>(this, sqlString, new Transformer(clz), false);
@@ -568,10 +585,9 @@ public class OperateTarget implements SqlTemplate, JDBCTarget {
 
 	public <T> T getExpressionValue(String expression, Class<T> clz, Object... params) throws SQLException {
 		String sql = "select " + expression + " from dual";
-		StSqlParser parser = new StSqlParser(new StringReader(sql));
 		List<SelectItem> sts;
 		try {
-			sts = parser.PlainSelect().getSelectItems();
+			sts = SqlParseCache.getInstance().<PlainSelect> parse(SqlParseCache.Kind.NATIVE_PLAIN_SELECT, sql).getSelectItems();
 		} catch (ParseException e) {
 			throw new SQLException("ParseError:[" + sql + "] Detail:" + e.getMessage());
 		}
@@ -604,6 +620,10 @@ public class OperateTarget implements SqlTemplate, JDBCTarget {
 		return session.getPartitionSupport();
 	}
 
+	public ExecutorRegistry getExecutorRegistry() {
+		return session.getExecutorRegistry();
+	}
+
 	public OperateTarget getTarget(String database) {
 		if (StringUtils.equals(dbkey, database)) {
 			return this;
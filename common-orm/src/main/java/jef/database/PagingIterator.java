@@ -37,6 +37,7 @@ import jef.tools.PageInfo;
  * <li>setOffset(int) 可以设置当前记录读取从第几个开始，例如0表示从第一条记录开始，1表示从第二条开始.<br>
  * <li>getCurrentPage()可以获得当前的页号</li>
  * 每页的size可以在构造的时候传入。<br>
+ * <li>{@link #setKeyset(boolean)}可以改为键集（Seek）分页，适合按顺序遍历导出大量数据。</li>
  * </ul>
  * 
  * @author Administrator
@@ -59,6 +60,16 @@ public abstract class PagingIterator<T> implements Iterator<List<T>> {
 	 */
 	protected int lastPage = -1;
 
+	/**
+	 * 是否使用键集（Seek）分页
+	 */
+	private boolean keyset;
+
+	/**
+	 * 键集分页时，是否已经读到最后一页
+	 */
+	private boolean keysetEnd;
+
 	/*
 	 * TODO 用于报表或导出时，使用Oracle共享锁，阻止记录被插入和更改。
 	 * 关于数据导出时分页的一致性问题。 一个方法是加上共享锁，这样所有的写操作都会挂起。 * 还有一个方式是使用create table as
@@ -123,6 +134,9 @@ public abstract class PagingIterator<T> implements Iterator<List<T>> {
 	 * @return PagingIterator对象本身
 	 */
 	public PagingIterator<T> setOffset(int offset) {
+		if (keyset && offset > 0) {
+			throw new UnsupportedOperationException("Keyset paging can not skip records by offset.");
+		}
 		page.setOffset(offset);
 		return this;
 	}
@@ -135,6 +149,9 @@ public abstract class PagingIterator<T> implements Iterator<List<T>> {
 	 * @return PagingIterator对象本身
 	 */
 	public PagingIterator<T> setCurrentPage(int pageNum) {
+		if (keyset) {
+			throw new UnsupportedOperationException("Keyset paging can only move to the next page.");
+		}
 		int totalPage = this.getTotalPage();
 		if (pageNum > totalPage) {
 			pageNum = totalPage;
@@ -150,6 +167,9 @@ public abstract class PagingIterator<T> implements Iterator<List<T>> {
 	 * @return 查询结果
 	 */
 	public List<T> getRecordsInPage(int pageNum) {
+		if (keyset) {
+			throw new UnsupportedOperationException("Keyset paging can only move to the next page.");
+		}
 		calcPage();
 		int old=page.getCurrentPage();
 		page.setCurPage(pageNum);
@@ -167,6 +187,9 @@ public abstract class PagingIterator<T> implements Iterator<List<T>> {
 	 */
 	@SuppressWarnings("unchecked")
 	public List<T> next() {
+		if (keyset) {
+			return nextByKeyset();
+		}
 		calcPage();
 		try {
 			if (page.getCurrentRecordRange().getLimit() <= 0) {
@@ -182,6 +205,63 @@ public abstract class PagingIterator<T> implements Iterator<List<T>> {
 		}
 	}
 
+	/**
+	 * 设置是否使用键集（Seek）分页。须在第一次调用{@link #next()}之前设置。<br>
+	 * 键集分页记住上一页最后一条记录的排序列的值，下一页用这些值作为条件（如 ID &gt; ?）直接定位，
+	 * 而不是用OFFSET跳过前面的记录，因此翻到很后面的页时也不会变慢。键集分页不查询总记录数，只能按顺序向后翻页。
+	 * <p>
+	 * 排序列必须能唯一确定记录的顺序，且值不能为null。对象查询会自动在排序中加上主键；原生SQL的排序在页末出现重复值时抛出{@link IllegalStateException}。
+	 * 
+	 * @param keyset
+	 *            true使用键集分页，false使用OFFSET分页（默认）
+	 * @return PagingIterator对象本身
+	 */
+	public PagingIterator<T> setKeyset(boolean keyset) {
+		this.keyset = keyset;
+		this.keysetEnd = false;
+		return this;
+	}
+
+	/**
+	 * 是否使用键集（Seek）分页
+	 * 
+	 * @return
+	 */
+	public boolean isKeyset() {
+		return keyset;
+	}
+
+	/*
+	 * 键集分页的下一页。记录数不满一页时即为最后一页
+	 */
+	@SuppressWarnings("unchecked")
+	private List<T> nextByKeyset() {
+		if (keysetEnd) {
+			return Collections.EMPTY_LIST;
+		}
+		try {
+			List<T> result = doSeek(page.getRowsPerPage());
+			if (result.size() < page.getRowsPerPage()) {
+				keysetEnd = true;
+			}
+			return result;
+		} catch (SQLException e) {
+			throw DbUtils.toRuntimeException(e);
+		} finally {
+			page.gotoNext();
+		}
+	}
+
+	/**
+	 * 子类实现，键集分页时查询下一页
+	 * 
+	 * @param limit
+	 *            每页记录数
+	 * @return 上一页最后一条记录之后的记录，第一次调用时为第一页
+	 * @throws SQLException
+	 */
+	protected abstract List<T> doSeek(int limit) throws SQLException;
+
 	/**
 	 * 子类实现，完成查询
 	 * 
@@ -199,6 +279,9 @@ public abstract class PagingIterator<T> implements Iterator<List<T>> {
 	protected abstract long doCount() throws SQLException;
 
 	public boolean hasNext() {
+		if (keyset) {
+			return !keysetEnd;
+		}
 		calcPage();
 		if (lastPage > -1) {
 			return page.getCurrentPage() < lastPage;
@@ -1,14 +1,31 @@
 package jef.database;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 
+import jef.database.jsqlparser.parser.ParseException;
+import jef.database.jsqlparser.statement.select.Select;
+import jef.database.jsqlparser.visitor.Statement;
 import jef.tools.Assert;
 import jef.tools.PageInfo;
 import jef.tools.PageLimit;
 
 final class PagingIteratorNativeQImpl<T> extends PagingIterator<T>{
+	/**
+	 * 键集分页时定位条件中的参数名
+	 */
+	private static final String SEEK_PARAM = "keyset__";
 	private NativeQuery<T> nativeQuery;//3使用NativeQuery的情况
+	/**
+	 * 键集分页用的语句改写，和带定位条件的查询
+	 */
+	private KeysetQuery keysetQuery;
+	private NativeQuery<T> seekQuery;
+	/**
+	 * 键集分页时上一页最后一条记录的排序列值
+	 */
+	private Object[] lastKeys;
 
 	PagingIteratorNativeQImpl(NativeQuery<T> sql, int pageSize) {
 		this.nativeQuery=sql;
@@ -38,6 +55,52 @@ final class PagingIteratorNativeQImpl<T> extends PagingIterator<T>{
 		return result;
 	}
 	
+	/*
+	 * 键集分页：第一页用原查询，之后用带定位条件的查询
+	 */
+	@Override
+	protected List<T> doSeek(int limit) throws SQLException {
+		if (keysetQuery == null) {
+			String sql = nativeQuery.getNativeSql();
+			if (sql == null) {
+				throw new UnsupportedOperationException("Keyset paging is not supported on JPQL.");
+			}
+			try {
+				Statement st = DbUtils.parseStatement(sql);
+				if (!(st instanceof Select)) {
+					throw new UnsupportedOperationException("Keyset paging requires a select statement: " + sql);
+				}
+				keysetQuery = KeysetQuery.create((Select) st);
+			} catch (ParseException e) {
+				throw new SQLException("Parser error:" + sql);
+			}
+		}
+		NativeQuery<T> query = nativeQuery;
+		if (lastKeys != null) {
+			if (seekQuery == null) {
+				String[] placeholders = new String[keysetQuery.size()];
+				for (int i = 0; i < placeholders.length; i++) {
+					placeholders[i] = ":" + SEEK_PARAM + i;
+				}
+				seekQuery = nativeQuery.derive(keysetQuery.getSql(placeholders));
+			}
+			for (int i = 0; i < lastKeys.length; i++) {
+				seekQuery.setParameter(SEEK_PARAM + i, lastKeys[i]);
+			}
+			query = seekQuery;
+		}
+		// 多查一条，检查排序是否唯一
+		query.setRange(new PageLimit(0, limit + 1));
+		List<T> result = query.getResultList();
+		if (!result.isEmpty()) {
+			lastKeys = keysetQuery.readLastKeys(result, limit, transformer.getResultMeta());
+		}
+		if (result.size() > limit) {
+			result = new ArrayList<T>(result.subList(0, limit));
+		}
+		return result;
+	}
+
 	public NativeQuery<T> getQuery(){
 		return nativeQuery;
 	}
@@ -1,15 +1,20 @@
 package jef.database;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
+import jef.database.dialect.type.ColumnMapping;
 import jef.database.meta.AbstractRefField;
+import jef.database.meta.ITableMetadata;
 import jef.database.meta.Reference;
 import jef.database.query.ConditionQuery;
 import jef.database.query.JoinElement;
+import jef.database.query.OrderField;
 import jef.database.query.Query;
+import jef.database.query.QueryBuilder;
 import jef.database.wrapper.clause.CountClause;
 import jef.tools.ArrayUtils;
 import jef.tools.Assert;
@@ -19,6 +24,15 @@ import jef.tools.PageLimit;
 final public class PagingIteratorObjImpl<T> extends PagingIterator<T> {
 	private ConditionQuery queryObj; // 1 使用API查询的情况
 	private Session db;
+	/**
+	 * 键集分页的排序列
+	 */
+	private List<OrderField> seekOrder;
+	private List<ColumnMapping> seekColumns;
+	/**
+	 * 键集分页时上一页最后一条记录的排序列值
+	 */
+	private Object[] lastKeys;
 
 	/**
 	 * 是否外连接获取
@@ -110,6 +124,95 @@ final public class PagingIteratorObjImpl<T> extends PagingIterator<T> {
 		return result;
 	}
 
+	/*
+	 * 键集分页：在查询上临时加上定位条件，取出一页后移除
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@Override
+	protected List<T> doSeek(int limit) throws SQLException {
+		if (!(queryObj instanceof Query<?>)) {
+			throw new UnsupportedOperationException("Keyset paging is only supported on single table query.");
+		}
+		Query q = (Query) queryObj;
+		if (seekOrder == null) {
+			initSeekOrder(q);
+		}
+		Condition seek = null;
+		if (lastKeys != null) {
+			seek = toSeekCondition();
+			q.addCondition(seek);
+		}
+		List<T> result;
+		try {
+			result = db.typedSelect(q, new PageLimit(0, limit), QueryOption.createFrom(q));
+		} finally {
+			if (seek != null) {
+				q.getConditions().remove(seek);
+			}
+		}
+		if (!result.isEmpty()) {
+			Object last = result.get(result.size() - 1);
+			ITableMetadata meta = q.getMeta();
+			Object[] keys = new Object[seekColumns.size()];
+			for (int i = 0; i < keys.length; i++) {
+				ColumnMapping column = seekColumns.get(i);
+				Object value = meta.getThisType().isInstance(last) ? column.getFieldAccessor().get(last) : KeysetQuery.getValue(last, column.rawColumnName(), null);
+				keys[i] = KeysetQuery.checkNotNull(value, column.fieldName());
+			}
+			lastKeys = keys;
+		}
+		return result;
+	}
+
+	/*
+	 * 排序字段加上主键，保证顺序稳定。主键不在排序中时按正序追加到查询的排序中
+	 */
+	private void initSeekOrder(Query<?> q) {
+		ITableMetadata meta = q.getMeta();
+		List<OrderField> orders = new ArrayList<OrderField>(q.getOrderBy());
+		List<ColumnMapping> columns = new ArrayList<ColumnMapping>();
+		for (OrderField order : orders) {
+			ColumnMapping column = meta.getColumnDef(order.getField());
+			if (column == null) {
+				throw new UnsupportedOperationException("Keyset paging requires ORDER BY fields of " + meta.getName() + ", but got " + order.getField());
+			}
+			columns.add(column);
+		}
+		for (ColumnMapping pk : meta.getPKFields()) {
+			if (!columns.contains(pk)) {
+				q.addOrderBy(true, pk.field());
+				orders.add(new OrderField(pk.field(), true));
+				columns.add(pk);
+			}
+		}
+		if (orders.isEmpty()) {
+			throw new UnsupportedOperationException("Keyset paging requires an ORDER BY or a primary key of " + meta.getName());
+		}
+		this.seekOrder = orders;
+		this.seekColumns = columns;
+	}
+
+	/*
+	 * (A > ?) or (A = ? and B > ?) ...
+	 */
+	private Condition toSeekCondition() {
+		Condition[] ors = new Condition[seekOrder.size()];
+		for (int i = 0; i < ors.length; i++) {
+			OrderField order = seekOrder.get(i);
+			Condition c = order.isAsc() ? QueryBuilder.gt(order.getField(), lastKeys[i]) : QueryBuilder.lt(order.getField(), lastKeys[i]);
+			if (i > 0) {
+				Condition[] ands = new Condition[i + 1];
+				for (int j = 0; j < i; j++) {
+					ands[j] = QueryBuilder.eq(seekOrder.get(j).getField(), lastKeys[j]);
+				}
+				ands[i] = c;
+				c = QueryBuilder.and(ands);
+			}
+			ors[i] = c;
+		}
+		return ors.length == 1 ? ors[0] : QueryBuilder.or(ors);
+	}
+
 	@SuppressWarnings("unchecked")
 	@Override
 	protected long doCount() throws SQLException {
@@ -1,8 +1,11 @@
 package jef.database;
 
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import jef.common.log.LogUtil;
@@ -23,6 +26,14 @@ import jef.tools.PageLimit;
 final class PagingIteratorSqlImpl<T> extends PagingIterator<T> {
 	private String querySql; // 2 使用对象查询的情况
 	private OperateTarget db;
+	/**
+	 * 键集分页用的语句改写
+	 */
+	private KeysetQuery keysetQuery;
+	/**
+	 * 键集分页时上一页最后一条记录的排序列值
+	 */
+	private Object[] lastKeys;
 
 	/**
 	 * 获得返回结果拼装策略
@@ -109,4 +120,54 @@ final class PagingIteratorSqlImpl<T> extends PagingIterator<T> {
 		}
 		return list;
 	}
+
+	/*
+	 * 键集分页：按上一页最后一条记录的排序列值定位。多查一条，检查排序是否唯一
+	 */
+	@Override
+	protected List<T> doSeek(int limit) throws SQLException {
+		if (keysetQuery == null) {
+			try {
+				keysetQuery = KeysetQuery.create(DbUtils.parseNativeSelect(querySql));
+			} catch (ParseException e) {
+				throw new SQLException("Parser error:" + querySql);
+			}
+		}
+		String[] placeholders = null;
+		if (lastKeys != null) {
+			placeholders = new String[keysetQuery.size()];
+			Arrays.fill(placeholders, "?");
+		}
+		BindSql sql = db.getProfile().getLimitHandler().toPageSQL(keysetQuery.getSql(placeholders), new PageLimit(0, limit + 1));
+		boolean debug = ORMConfig.getInstance().isDebugMode();
+		if (debug)
+			LogUtil.info(sql.getSql());
+		PreparedStatement st = null;
+		ResultSet rs = null;
+		List<T> list;
+		try {
+			st = db.prepareStatement(sql.getSql(), sql.getRsLaterProcessor(), false);
+			if (lastKeys != null) {
+				int[] binds = keysetQuery.getBindOrder();
+				for (int i = 0; i < binds.length; i++) {
+					st.setObject(i + 1, lastKeys[binds[i]]);
+				}
+			}
+			rs = st.executeQuery();
+			list = db.populateResultSet(new ResultSetImpl(rs, db.getProfile()), null, transformer);
+		} finally {
+			DbUtils.close(rs);
+			DbUtils.close(st);
+			db.releaseConnection();
+		}
+		if (debug)
+			LogUtil.show("Result Count:" + list.size());
+		if (!list.isEmpty()) {
+			lastKeys = keysetQuery.readLastKeys(list, limit, transformer.getResultMeta());
+		}
+		if (list.size() > limit) {
+			list = new ArrayList<T>(list.subList(0, limit));
+		}
+		return list;
+	}
 }
@@ -35,6 +35,7 @@ import jef.database.wrapper.clause.OrderClause;
 import jef.database.wrapper.clause.QueryClause;
 import jef.database.wrapper.clause.SelectPart;
 import jef.database.wrapper.executor.DbTask;
+import jef.database.wrapper.populator.PopulatePlanCache;
 import jef.database.wrapper.variable.BindVariableContext;
 import jef.http.client.support.CommentEntry;
 import jef.tools.ArrayUtils;
@@ -122,6 +123,9 @@ public abstract class SelectProcessor {
 				context.setVariables(queryObj, null, sql.getBind());
 				option.setSizeFor(psmt);
 				rs = psmt.executeQuery();
+				if (!sqlResult.isMultiDatabase()) {// 单个结果集，可以复用拼装计划
+					rs2.setPlanKey(PopulatePlanCache.getInstance().keyOf(sql.getSql(), db.getProfile(), queryObj.getResultTransformer(), DbUtils.getMappingProvider(queryObj) != null));
+				}
 				rs2.add(rs, psmt, db);
 			} catch (SQLException e) {
 				DbUtils.close(rs);
@@ -328,13 +332,13 @@ public abstract class SelectProcessor {
 				List<DbTask> tasks = new ArrayList<DbTask>();
 				for (final PartitionResult site : sql.getTables()) {
 					final SqlLog debug = ORMConfig.getInstance().newLogger();
-					tasks.add(new DbTask() {
+					tasks.add(new DbTask(site.getDatabase()) {
 						public void execute() throws SQLException {
 							processSelect0(session.selectTarget(site.getDatabase()), sql, site, queryObj, rs, option, debug);
 						}
 					});
 				}
-				DbUtils.parallelExecute(tasks);
+				DbUtils.parallelExecute(session.getExecutorRegistry(), tasks);
 			} else {
 				final SqlLog debug = ORMConfig.getInstance().newLogger();
 				for (PartitionResult site : sql.getTables()) {
@@ -357,7 +361,7 @@ public abstract class SelectProcessor {
 			for (final Map.Entry<String, List<BindSql>> sql : sqls.getSqls().entrySet()) {
 				final SqlLog debug = ORMConfig.getInstance().newLogger();
 				final OperateTarget target = session.selectTarget(sql.getKey());
-				tasks.add(new DbTask() {
+				tasks.add(new DbTask(sql.getKey()) {
 					@Override
 					public void execute() throws SQLException {
 						for (BindSql bs : sql.getValue()) {
@@ -366,7 +370,7 @@ public abstract class SelectProcessor {
 					}
 				});
 			}
-			DbUtils.parallelExecute(tasks);
+			DbUtils.parallelExecute(session.getExecutorRegistry(), tasks);
 			return total.get();
 		} else {
 			long total = 0;
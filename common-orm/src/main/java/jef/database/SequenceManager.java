@@ -349,7 +349,7 @@ public final class SequenceManager {
 		}
 
 		@Override
-		protected long getFirstAndPushOthers(int num, DbClient conn, String dbKey) throws SQLException {
+		protected void fetchRanges(int num, DbClient conn, String dbKey) throws SQLException {
 			DbMetaData meta = conn.getNoTransactionSession().getMetaData(dbKey);
 			if (last < 0) {
 				last = queryLast(meta);
@@ -362,10 +362,9 @@ public final class SequenceManager {
 				updated = conn.executeSql(update, nextVal, last);
 			}
 			long result = last + 1;
-			super.pushRange(last + 2, nextVal);
+			super.pushRange(result, nextVal);
 			last = nextVal;
 			LogUtil.info("Fetch Table-Sequence {} for column [{}.{}], from {} to {}.", config.name, this.rawTable, this.rawColumn, result, nextVal);
-			return result;
 		}
 
 		private long queryLast(DbMetaData conn) throws SQLException {
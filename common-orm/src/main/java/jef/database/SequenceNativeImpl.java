@@ -234,24 +234,29 @@ final class SequenceNativeImpl extends AbstractSequence {
 		}
 	}
 
-	protected long getFirstAndPushOthers(int size, DbClient conn, String dbKey) throws SQLException {
+	protected void fetchRanges(int size, DbClient conn, String dbKey) throws SQLException {
 		// 开始
 		long start = System.currentTimeMillis();
 		OperateTarget target = (OperateTarget) conn.getSqlTemplate(dbKey);
 		PreparedStatement ps = null;
-		long result = 0;
 		try {
 			ps = target.prepareStatement(selectSql);
 			//SQL Server的驱动很变态，如果设置MaxRows，在查询Sequence时就会报错。
 			//ps.setMaxRows(1);
-			long value = queryOnce(ps);
-			result = value; // 直接将选出的值作为sequence
-			// 向后取值（比如value=10, step=5, 那么实际有效的是10,11,12,13,14）
-			pushRange(value + 1, value + step - 1); // 从第二个值开始推送到缓存
+			// 每次取值得到[value, value+step-1]，多次取值连续时合并为一个区间
+			long from = queryOnce(ps);
+			long to = from + step - 1;
 			for (int i = 1; i < size; i++) {// 获取多次
-				value = queryOnce(ps);
-				pushRange(value, value + step - 1);
+				long value = queryOnce(ps);
+				if (value == to + 1) {
+					to = value + step - 1;
+				} else {
+					pushRange(from, to);
+					from = value;
+					to = value + step - 1;
+				}
 			}
+			pushRange(from, to);
 		} catch (SQLException e) {
 			DebugUtil.setSqlState(e, selectSql);
 			throw e;
@@ -263,7 +268,6 @@ final class SequenceNativeImpl extends AbstractSequence {
 			LogUtil.info(StringUtils.concat(selectSql, " (fetch size=", String.valueOf(size), ")\t[Cost:", String.valueOf(System.currentTimeMillis() - start),
 					"ms]|", target.getTransactionId()));
 		}
-		return result;
 	}
 
 	private long queryOnce(PreparedStatement ps) throws SQLException {
@@ -16,7 +16,6 @@
 package jef.database;
 
 import java.io.Serializable;
-import java.io.StringReader;
 import java.lang.reflect.Type;
 import java.sql.Connection;
 import java.sql.ResultSet;
@@ -56,8 +55,8 @@ import jef.database.jdbc.result.IResultSet;
 import jef.database.jdbc.result.ResultSetContainer;
 import jef.database.jdbc.result.ResultSetWrapper;
 import jef.database.jdbc.result.ResultSets;
+import jef.database.jsqlparser.SqlParseCache;
 import jef.database.jsqlparser.parser.ParseException;
-import jef.database.jsqlparser.parser.StSqlParser;
 import jef.database.meta.AbstractMetadata;
 import jef.database.meta.AbstractRefField;
 import jef.database.meta.EntityType;
@@ -86,6 +85,8 @@ import jef.database.wrapper.clause.InsertSqlClause;
 import jef.database.wrapper.clause.QueryClause;
 import jef.database.wrapper.clause.SqlBuilder;
 import jef.database.wrapper.clause.UpdateClause;
+import jef.database.wrapper.clause.UpsertSqlClause;
+import jef.database.wrapper.executor.ExecutorRegistry;
 import jef.database.wrapper.populator.AbstractResultSetTransformer;
 import jef.database.wrapper.populator.ResultPopulatorImpl;
 import jef.database.wrapper.populator.Transformer;
@@ -526,12 +527,90 @@ public abstract class Session {
 		}
 	}
 
+	/**
+	 * 合并记录——记录如果已经存在则更新，不存在则插入。（无级联操作）<br>
+	 * 在支持的数据库上用一条语句完成（MERGE INTO、ON DUPLICATE KEY UPDATE、ON CONFLICT等），只访问一次数据库，
+	 * 并发合并同一条记录时也不会因为主键冲突而失败。<br>
+	 * 数据库不支持，或者主键的值由框架自动生成时，按{@link #merge(Object)}的方式先查询再插入或更新。
+	 * 
+	 * @param entity
+	 *            要合并的记录数据
+	 * @return 影响的记录数。注意各数据库对合并语句返回的数值含义不同，例如MySQL在更新记录时返回2
+	 * @throws SQLException
+	 *             如果数据库操作错误，抛出。
+	 */
+	public int upsert(Object entity) throws SQLException {
+		return upsert(entity, null);
+	}
+
+	/**
+	 * 合并记录——记录如果已经存在则更新，不存在则插入。（无级联操作）
+	 * 
+	 * @param entity
+	 *            要合并的记录数据
+	 * @param keys
+	 *            业务主键字段名。使用单条语句合并时，数据库上这些列必须有主键或唯一约束
+	 * @return 影响的记录数
+	 * @throws SQLException
+	 *             如果数据库操作错误，抛出。
+	 * @see #upsert(Object)
+	 */
+	public int upsert(Object entity, String[] keys) throws SQLException {
+		if (keys != null && keys.length == 0) {
+			keys = null;
+		}
+		if (entity instanceof IQueryableEntity) {
+			return upsert0((IQueryableEntity) entity, keys);
+		} else {
+			ITableMetadata meta = MetaHolder.getMeta(entity.getClass());
+			return upsert0(meta.transfer(entity, false), keys);
+		}
+	}
+
+	private int upsert0(IQueryableEntity obj, String[] keys) throws SQLException {
+		long start = System.currentTimeMillis();
+		PartitionResult pr;
+		try {
+			pr = DbUtils.toTableName(obj, null, obj.hasQuery() ? obj.getQuery() : null, getPartitionSupport());
+		} catch (MultipleDatabaseOperateException e) {
+			pr = null;
+		}
+		UpsertSqlClause sqls = pr == null ? null : insertp.toUpsertSql(obj, null, ORMConfig.getInstance().isDynamicInsert(), keys, pr);
+		if (sqls == null) {
+			IQueryableEntity old = merge0(obj, keys);
+			return old == obj ? 0 : 1;
+		}
+		sqls.getInsertPart().getCallback().callBefore(Arrays.asList(obj));
+		long parse = System.currentTimeMillis();
+		int count = insertp.processUpsert(selectTarget(pr.getDatabase()), obj, sqls, start, parse);
+		obj.clearUpdate();
+		onUpserted(obj, sqls, null);
+		return count;
+	}
+
+	/*
+	 * 合并后清除缓存：记录可能被更新，也可能被插入
+	 */
+	final void onUpserted(IQueryableEntity obj, UpsertSqlClause sqls, String tableName) {
+		Cache cache = getCache();
+		if (cache.isDummy()) {
+			return;
+		}
+		List<Object> keyValues = new ArrayList<Object>(sqls.getKeyFields().size());
+		for (ColumnMapping key : sqls.getKeyFields()) {
+			keyValues.add(key.getFieldAccessor().get(obj));
+		}
+		String baseTableName = tableName == null ? MetaHolder.getMeta(obj).getTableName(false) : tableName;
+		cache.onUpdate(baseTableName, sqls.getKeyWhere(), keyValues, sqls.getUpdateColumns());
+		cache.onInsert(obj, tableName);
+	}
+
 	/**
 	 * @param entity
 	 * @return the old value.
 	 * @throws SQLException
 	 */
-	private final <T extends IQueryableEntity> T merge0(T entity, String[] keys) throws SQLException {
+	final <T extends IQueryableEntity> T merge0(T entity, String[] keys) throws SQLException {
 		@SuppressWarnings("unchecked")
 		Query<T> q = entity.getQuery();
 		q.setCascade(false);
@@ -2652,6 +2731,77 @@ public abstract class Session {
 		return batch;
 	}
 
+	/**
+	 * 执行批量合并操作，记录如果已经存在则更新，不存在则插入。
+	 * 
+	 * @param entities
+	 *            要合并的对象
+	 * @return 影响的记录数
+	 * @throws SQLException
+	 *             如果数据库操作错误，抛出。
+	 * @see #upsert(Object)
+	 */
+	public final <T> int batchUpsert(List<T> entities) throws SQLException {
+		return batchUpsert(entities, null);
+	}
+
+	/**
+	 * 执行批量合并操作，记录如果已经存在则更新，不存在则插入。<br>
+	 * 在支持的数据库上每条记录用一条合并语句完成，并使用JDBC批量执行；否则逐条按{@link #merge(Object, String[])}的方式处理。
+	 * 
+	 * @param entities
+	 *            要合并的对象
+	 * @param keys
+	 *            业务主键字段名，传入null时使用主键
+	 * @return 影响的记录数
+	 * @throws SQLException
+	 *             如果数据库操作错误，抛出。
+	 */
+	@SuppressWarnings("unchecked")
+	public final <T> int batchUpsert(List<T> entities, String[] keys) throws SQLException {
+		if (entities == null || entities.isEmpty())
+			return 0;
+		T t = entities.get(0);
+		if (t instanceof IQueryableEntity) {
+			List<IQueryableEntity> list = (List<IQueryableEntity>) entities;
+			return startBatchUpsert(list.get(0), null, keys).execute(list);
+		} else {
+			List<PojoWrapper> list = PojoWrapper.wrap(entities, false);
+			return startBatchUpsert(list.get(0), null, keys).execute(list);
+		}
+	}
+
+	/**
+	 * 获得一个Batch对象，这个batch对象上可以执行批量合并操作。<br>
+	 * 模板中插入的字段就是后续合并时插入和更新的字段（非dynamic模式，即所有字段）。
+	 * 
+	 * @param template
+	 *            批操作的模板
+	 * @param tableName
+	 *            强制指定表名，也就是说template当中的表名无效。（传入的表名支持Schema重定向）
+	 * @param keys
+	 *            业务主键字段名，传入null时使用主键
+	 * @return Batch操作句柄
+	 * @throws SQLException
+	 *             如果数据库操作错误，抛出。
+	 * @see Batch
+	 */
+	public final <T extends IQueryableEntity> Batch<T> startBatchUpsert(T template, String tableName, String[] keys) throws SQLException {
+		if (keys != null && keys.length == 0) {
+			keys = null;
+		}
+		long start = System.nanoTime();
+		ITableMetadata meta = MetaHolder.getMeta(template);
+		if (keys == null && meta.getPKFields().isEmpty()) {
+			throw new UnsupportedOperationException("The tables has no primark key, must assign compare keys.");
+		}
+		Batch.Upsert<T> b = new Batch.Upsert<T>(this, meta, keys);
+		b.setUpsertPart(insertp.toUpsertSql(template, tableName, false, keys, null));
+		b.setForceTableName(tableName);
+		b.parseTime = System.nanoTime() - start;
+		return b;
+	}
+
 	/**
 	 * 用传入的Query作为条件，将数据库中的记录更为为对象中的值
 	 * 
@@ -3013,9 +3163,8 @@ public abstract class Session {
 		if (getCache().isDummy())
 			return;
 		jef.database.jsqlparser.visitor.Statement st = null;
-		StSqlParser parser = new StSqlParser(new StringReader(sql));
 		try {
-			st = parser.Statement();
+			st = SqlParseCache.getInstance().parse(SqlParseCache.Kind.NATIVE_STATEMENT, sql);
 		} catch (ParseException e) {
 			// 解析错误就不管
 		}
@@ -3115,7 +3264,7 @@ public abstract class Session {
 		int count = updatep.processUpdate(this, obj, updateClause, whereClause, sites, parseCost);
 		if (count > 0) {
 			String tableName = myTableName == null ? query.getMeta().getTableName(false) : myTableName;
-			getCache().onUpdate(tableName, whereClause.getSql(), CacheImpl.toParamList(whereClause.getBind()));
+			getCache().onUpdate(tableName, whereClause.getSql(), CacheImpl.toParamList(whereClause.getBind()), updateClause.getColumns());
 		} else if (context.needVersionCondition()) {// 基于版本的乐观锁并发检测，记录没有成功更新
 			throw new OptimisticLockException("The row in database has been modified by others after the entity was loaded.", null, obj);
 		}
@@ -3230,6 +3379,8 @@ public abstract class Session {
 
 	abstract PartitionSupport getPartitionSupport();
 
+	abstract ExecutorRegistry getExecutorRegistry();
+
 	/**
 	 * @return 得到数据库当前的时间。此方法不是去数据库查询，而是直接使用时差进行计算。
 	 */
@@ -30,6 +30,7 @@ import jef.database.meta.ITableMetadata;
 import jef.database.meta.MetaHolder;
 import jef.database.support.DbOperatorListener;
 import jef.database.support.SavepointNotSupportedException;
+import jef.database.wrapper.executor.ExecutorRegistry;
 import jef.tools.StringUtils;
 
 import org.slf4j.Logger;
@@ -211,6 +212,11 @@ public abstract class Transaction extends Session implements TransactionalSessio
 		return parent.getPartitionSupport();
 	}
 
+	@Override
+	ExecutorRegistry getExecutorRegistry() {
+		return parent.getExecutorRegistry();
+	}
+
 	@Override
 	protected String getTransactionId(String dbkey) {
 		StringBuilder sb = new StringBuilder();
@@ -300,14 +300,14 @@ public abstract class UpdateProcessor {
 			for (final PartitionResult site : sites) {
 				final OperateTarget db = session.selectTarget(site.getDatabase());
 				dbName = db.getTransactionId();
-				tasks.add(new DbTask() {
+				tasks.add(new DbTask(site.getDatabase()) {
 					@Override
 					public void execute() throws SQLException {
 						count.addAndGet(processUpdate0(db, obj, updateClause, whereClause, site, log));
 					}
 				});
 			}
-			DbUtils.parallelExecute(tasks);
+			DbUtils.parallelExecute(session.getExecutorRegistry(), tasks);
 			total = count.get();
 		} else {
 			for (PartitionResult site : sites) {
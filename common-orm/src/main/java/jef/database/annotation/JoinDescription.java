@@ -35,4 +35,13 @@ public @interface JoinDescription {
 	 * @return
 	 */
 	int maxRows() default 0;
+
+	/**
+	 * 当对多连接时，一次批量加载的最多父对象数量。
+	 * <br>
+	 * 负数表示使用全局配置{@link jef.database.DbCfg#DB_CASCADE_BATCH_SIZE}，0或1表示逐个对象加载。
+	 * 设置了{@link #maxRows()}时总是逐个对象加载。
+	 * @return
+	 */
+	int batchSize() default -1;
 }
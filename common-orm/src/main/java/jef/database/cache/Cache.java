@@ -1,5 +1,6 @@
 package jef.database.cache;
 
+import java.util.Collection;
 import java.util.List;
 
 import jef.database.IQueryableEntity;
@@ -64,6 +65,15 @@ public interface Cache extends javax.persistence.Cache{
 	 * @param bind
 	 */
 	public void onUpdate(String table, String where, List<Object> bind);
+
+	/**
+	 * on object update, refresh cache. 只清除可能受影响的缓存
+	 * @param table
+	 * @param where
+	 * @param bind
+	 * @param columns 被更新的列，为null表示未知
+	 */
+	public void onUpdate(String table, String where, List<Object> bind, Collection<String> columns);
 	/**
 	 * is this cache a dummy cache( no cache)
 	 * @return
@@ -1,5 +1,6 @@
 package jef.database.cache;
 
+import java.util.Collection;
 import java.util.List;
 
 import jef.database.IQueryableEntity;
@@ -115,6 +116,13 @@ public final class CacheChain implements Cache{
 		}
 	}
 
+	@Override
+	public void onUpdate(String table, String where, List<Object> bind, Collection<String> columns) {
+		for(Cache c: chains) {
+			c.onUpdate(table, where, bind, columns);
+		}
+	}
+
 	@Override
 	public boolean isDummy() {
 		for(Cache c: chains) {
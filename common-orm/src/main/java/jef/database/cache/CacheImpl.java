@@ -1,27 +1,40 @@
 package jef.database.cache;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
+import jef.common.Pair;
 import jef.database.DbUtils;
 import jef.database.IQueryableEntity;
 import jef.database.ORMConfig;
 import jef.database.SelectProcessor;
 import jef.database.SqlProcessor;
+import jef.database.cache.cluster.InvalidationEvent;
+import jef.database.cache.cluster.InvalidationPublisher;
 import jef.database.dialect.DatabaseDialect;
+import jef.database.jsqlparser.expression.Column;
 import jef.database.jsqlparser.expression.JdbcParameter;
 import jef.database.jsqlparser.expression.JpqlParameter;
+import jef.database.jsqlparser.expression.LongValue;
+import jef.database.jsqlparser.expression.NullValue;
+import jef.database.jsqlparser.expression.StringValue;
 import jef.database.jsqlparser.expression.Table;
+import jef.database.jsqlparser.expression.operators.relational.ExpressionList;
 import jef.database.jsqlparser.statement.delete.Delete;
 import jef.database.jsqlparser.statement.insert.Insert;
 import jef.database.jsqlparser.statement.truncate.Truncate;
 import jef.database.jsqlparser.statement.update.Update;
+import jef.database.jsqlparser.visitor.Expression;
 import jef.database.jsqlparser.visitor.VisitorAdapter;
 import jef.database.meta.AbstractMetadata;
 import jef.database.meta.ITableMetadata;
@@ -64,6 +77,23 @@ public class CacheImpl implements Cache {
 	 * 缓存名称
 	 */
 	private String name;
+	/**
+	 * 有容量上限的共享存储，为null时每个维度单独存储（一级缓存）
+	 */
+	private final CacheStore store;
+	/**
+	 * 从数据库加载的次数和耗时（纳秒），即未命中后到结果放入缓存的时间
+	 */
+	private final AtomicLong loadCount = new AtomicLong();
+	private final AtomicLong loadTime = new AtomicLong();
+	/**
+	 * 当前线程最近一次未命中的缓存键和时间
+	 */
+	private final ThreadLocal<PendingLoad> pendingLoad;
+	/**
+	 * 集群中其他节点的缓存失效通知，为null时只作用于本地
+	 */
+	private volatile InvalidationPublisher publisher;
 
 	private DatabaseDialect profile;
 
@@ -93,6 +123,34 @@ public class CacheImpl implements Cache {
 		this.expireInterval = expireInterval;
 		this.name = name;
 		this.profile = preparedSqlProcessor.getProfile();
+		this.store = null;
+		this.pendingLoad = null;
+	}
+
+	/**
+	 * 构造有容量上限的缓存，所有表空间共享同一个容量，超出时淘汰最近最少使用的结果
+	 * 
+	 * @param sql
+	 *            SQL处理器
+	 * @param selectp
+	 *            查询处理器
+	 * @param expireInterval
+	 *            缓存过期时间，单位秒，为0时不过期
+	 * @param name
+	 *            缓存名称
+	 * @param maxWeight
+	 *            缓存总权重上限，为0时不限制
+	 * @param weighBytes
+	 *            true按估算的字节数计算权重，false按结果行数计算权重
+	 */
+	public CacheImpl(SqlProcessor sql, SelectProcessor selectp, int expireInterval, String name, long maxWeight, boolean weighBytes) {
+		this.preparedSqlProcessor = sql;
+		this.selectp = selectp;
+		this.expireInterval = expireInterval;
+		this.name = name;
+		this.profile = preparedSqlProcessor.getProfile();
+		this.store = new CacheStore(expireInterval, maxWeight, weighBytes);
+		this.pendingLoad = new ThreadLocal<PendingLoad>();
 	}
 
 	public boolean contains(Class cls, Object primaryKey) {
@@ -147,16 +205,33 @@ public class CacheImpl implements Cache {
 	public void evict(Class cls) {
 		AbstractMetadata meta = MetaHolder.getMeta(cls);
 		KeyDimension dim = meta.getPKDimension(profile);
+		InvalidationPublisher publisher = this.publisher;
+		if (publisher != null) {
+			publisher.publishClear(dim.getTableDefinition(), null);
+		}
 		Map<KeyDimension, DimCache> tableSpace = this.cache.get(dim.getTableDefinition());
+		if (tableSpace == null)
+			return;
 		for (DimCache cache : tableSpace.values()) {
 			cache.clear();
 		}
 	}
 
 	public void evictAll() {
+		InvalidationPublisher publisher = this.publisher;
+		if (publisher != null) {
+			publisher.publishClearAll();
+		}
+		clearAll();
+	}
+
+	private void clearAll() {
 		for (Map<KeyDimension, DimCache> space : cache.values()) {
 			space.clear();
 		}
+		if (store != null) {
+			store.clear();
+		}
 	}
 
 	/**
@@ -165,6 +240,10 @@ public class CacheImpl implements Cache {
 	 * @param key
 	 */
 	public void evict(CacheKey key) {
+		InvalidationPublisher publisher = this.publisher;
+		if (publisher != null) {
+			publisher.publishRemove(key.getStoreSpace(), key.getDimension(), key.getParams());
+		}
 		Map<KeyDimension, DimCache> tableCache = cache.get(key.getStoreSpace());
 		if (tableCache == null || tableCache.isEmpty())
 			return;
@@ -186,10 +265,13 @@ public class CacheImpl implements Cache {
 			Map<KeyDimension, DimCache> tableCache = getCreateTableCache(key.getStoreSpace());
 			dc = tableCache.get(key.getDimension());
 			if (dc == null) {
-				dc = expireInterval > 0 ? new DimCacheExpImpl(expireInterval) : new DimCacheImpl();
+				dc = newDimCache();
 				tableCache.put(key.getDimension(), dc);
 			}
 			dc.put(key.getParams(), ImmutableList.copyOf(result));
+			if (!key.getDimension().isMultiTable()) {
+				track(dc, key.getParams(), result);
+			}
 		}
 
 		if (key.getAffectedKey() != null) {
@@ -199,6 +281,14 @@ public class CacheImpl implements Cache {
 				tableCache.put(key.getDimension(), dc);
 			}
 		}
+		if (pendingLoad != null) {
+			PendingLoad pending = pendingLoad.get();
+			if (pending != null && pending.key == key) {
+				pendingLoad.remove();
+				loadCount.incrementAndGet();
+				loadTime.addAndGet(System.nanoTime() - pending.start);
+			}
+		}
 		if (config.cacheDebug) {
 			logger.info("{}-Cache Store:{}, Size={}", name, key, result.size());
 		}
@@ -209,29 +299,19 @@ public class CacheImpl implements Cache {
 			return null;
 		Map<KeyDimension, DimCache> tableCache = cache.get(key.getStoreSpace());
 		boolean debug = config.cacheDebug;
-		if (tableCache == null || tableCache.isEmpty()) {
+		DimCache dc = (tableCache == null || tableCache.isEmpty()) ? null : tableCache.get(key.getDimension());
+		List list = dc == null ? null : dc.load(key.getParams());
+		if (list == null) {
 			miss.getAndIncrement();
+			if (pendingLoad != null) {
+				pendingLoad.set(new PendingLoad(key, System.nanoTime()));
+			}
 			if (debug)
 				logger.info("{}-Cache  Miss: {}", name, key);
-			return null;
-		}
-
-		DimCache dc = tableCache.get(key.getDimension());
-		if (dc == null) {
-			miss.getAndIncrement();
+		} else {
+			hit.incrementAndGet();
 			if (debug)
-				logger.info("{}-Cache  Miss: {}", name, key);
-			return null;
-		}
-		List list = dc.load(key.getParams());
-		if (debug) {
-			if (list == null) {
-				miss.getAndIncrement();
-				logger.info("{}-Cache  Miss: {}", name, key);
-			} else {
-				hit.incrementAndGet();
 				logger.info("{}-Cache   Hit: {}", name, key);
-			}
 		}
 		return list;
 	}
@@ -250,27 +330,28 @@ public class CacheImpl implements Cache {
 		 * 采用方案1由于存入缓存的对象句柄依然在外部，意味着用户可以随意修改该对象用作其他用途，因此将这样的对象直接缓存下来是危险的。
 		 */
 		AbstractMetadata meta = MetaHolder.getMeta(obj);
-		KeyDimension dim = null;
-
+		String space;
 		if (!meta.getPKFields().isEmpty()) {
 			List<Serializable> pks = DbUtils.getPKValueSafe(obj);
 			if (pks == null)
 				return;
 
+			KeyDimension dim;
 			if (table != null) {
 				dim = meta.getPKDimension(profile).newKeyDimensionOf(table, profile);
 			} else {
 				dim = meta.getPKDimension(profile);
 			}
 			CacheKey pkCache = new SqlCacheKey(dim, pks);
-
-			Map<KeyDimension, DimCache> tableCache = getCreateTableCache(pkCache.getStoreSpace());
-			refreshCache(tableCache, pkCache, null);
+			publishRefresh(pkCache);
+			space = pkCache.getStoreSpace();
 		} else {
-			Map<KeyDimension, DimCache> tableCache = cache.get(meta.getTableName(false).toUpperCase());
-			if (tableCache != null)
-				refreshCacheExcept(tableCache, null);
+			space = meta.getTableName(false).toUpperCase();
+			publishClear(space, null);
 		}
+		Map<KeyDimension, DimCache> tableCache = cache.get(space);
+		if (tableCache != null)
+			onRowInserted(tableCache, RowPredicate.entityRow(obj, true));
 	}
 
 	public void evict(IQueryableEntity obj) {
@@ -280,7 +361,7 @@ public class CacheImpl implements Cache {
 		String baseTableName = meta.getTableName(false);
 
 		Map<KeyDimension, DimCache> tableCache = cache.get(baseTableName);
-		if (tableCache == null || tableCache.isEmpty())
+		if ((tableCache == null || tableCache.isEmpty()) && publisher == null)
 			return;
 
 		if (obj.hasQuery()) {
@@ -290,67 +371,169 @@ public class CacheImpl implements Cache {
 		}
 		BindSql sql = preparedSqlProcessor.toWhereClause(obj.getQuery(), new SqlContext(null, obj.getQuery()), null, null,false);
 		obj.clearQuery();
-		DimCache dc = tableCache.get(KeyDimension.forSingleTable(baseTableName, sql.getSql(), null, profile));
+		KeyDimension dim = KeyDimension.forSingleTable(baseTableName, sql.getSql(), null, profile);
+		List<Object> params = toParamList(sql.getBind());
+		InvalidationPublisher publisher = this.publisher;
+		if (publisher != null) {
+			publisher.publishRemove(baseTableName, dim, params);
+		}
+		DimCache dc = tableCache == null ? null : tableCache.get(dim);
 		if (dc == null)
 			return;
-		dc.remove(toParamList(sql.getBind()));
+		dc.remove(params);
 	}
 
 	public void onDelete(String table, String where, List<Object> object) {
 		CacheKey key = new SqlCacheKey(KeyDimension.forSingleTable(table, where, null, profile), object);
+		publishRefresh(key);
 		Map<KeyDimension, DimCache> tableCache = this.cache.get(key.getStoreSpace());
 		if (tableCache == null || tableCache.isEmpty()) {
 			return;
 		}
-		refreshCache(tableCache, key, null);
+		onRowsChanged(tableCache, key, false, null);
 	}
 
 	public void onUpdate(String table, String where, List<Object> object) {
+		onUpdate(table, where, object, null);
+	}
+
+	public void onUpdate(String table, String where, List<Object> object, Collection<String> columns) {
 		CacheKey key = new SqlCacheKey(KeyDimension.forSingleTable(table, where, null, profile), object);
+		publishRefresh(key);
 		Map<KeyDimension, DimCache> tableCache = this.cache.get(key.getStoreSpace());
 		if (tableCache == null || tableCache.isEmpty()) {
 			return;
 		}
-		refreshCache(tableCache, key, null);
+		onRowsChanged(tableCache, key, true, normalizeColumns(columns));
+	}
+
+	/**
+	 * 缓存刷新策略：插入一行后，清除各维度中插入的行可能满足条件的结果，其他结果不受影响。
+	 * 多表查询的维度无法判断，全部失效。
+	 * 
+	 * @param tableCache
+	 *            目标空间
+	 * @param row
+	 *            插入的行
+	 */
+	private void onRowInserted(Map<KeyDimension, DimCache> tableCache, RowPredicate.Row row) {
+		for (Map.Entry<KeyDimension, DimCache> e : tableCache.entrySet()) {
+			DimCache dc = e.getValue();
+			if (e.getKey().isMultiTable()) {
+				// 必须用此种方法，才能清除掉串门的缓存
+				dc.clear();
+				continue;
+			}
+			RowPredicate predicate = e.getKey().getPredicate();
+			for (List<?> params : dc.keys()) {
+				if (predicate.mayMatch(params, row)) {
+					dc.remove(params);
+				}
+			}
+		}
 	}
 
 	/**
-	 * 缓存刷新策略 同维度。key所指定的缓存更新或失效 异维度，全部失效
+	 * 缓存刷新策略：删除或更新若干行后，各维度中只清除以下结果，其他结果不受影响。
+	 * <ol>
+	 * <li>结果中包含被变更的行。按主键变更时通过依赖关系直接找到这些结果，否则逐行判断是否满足变更的条件。</li>
+	 * <li>更新时，维度的条件引用了被更新的列，并且与变更的条件可能同时成立（更新后的行可能满足维度的条件）。</li>
+	 * </ol>
+	 * 多表查询的维度无法判断，全部失效。
 	 * 
 	 * @param tableCache
 	 *            目标空间
 	 * @param key
-	 *            被保留的维度
-	 * @param obj
-	 *            在被保留维度中放入缓存的对象
+	 *            变更的条件和参数
+	 * @param update
+	 *            true为更新，false为删除
+	 * @param columns
+	 *            被更新的列，为null表示未知
 	 */
-	private void refreshCache(Map<KeyDimension, DimCache> tableCache, CacheKey key, IQueryableEntity obj) {
-		DimCache cache = tableCache.remove(key.getDimension());
-		for (DimCache other : tableCache.values()) {
-			// 其他维度一律失效。必须用此种方法，才能清除掉串门的缓存
-			other.clear();
-		}
-
-		if (cache == null) {
-			if (obj != null) {// 添加缓存
-				cache = expireInterval > 0 ? new DimCacheExpImpl(expireInterval) : new DimCacheImpl();
-				cache.put(key.getParams(), Arrays.asList(obj));
-				if (config.cacheDebug)
-					logger.info("{}-Cache Store: {}", name, key);
+	private void onRowsChanged(Map<KeyDimension, DimCache> tableCache, CacheKey key, boolean update, Collection<String> columns) {
+		RowPredicate where = key.getDimension().getPredicate();
+		List<?> whereParams = key.getParams();
+		for (Map.Entry<KeyDimension, DimCache> e : tableCache.entrySet()) {
+			DimCache dc = e.getValue();
+			if (e.getKey().isMultiTable()) {
+				// 必须用此种方法，才能清除掉串门的缓存
+				dc.clear();
+				continue;
 			}
-			// else{} 本来就没有，什么也不用做
-		} else {
-			if (obj != null) {// 更新缓存
-				cache.put(key.getParams(), Arrays.asList(obj));
-				if (config.cacheDebug)
-					logger.info("{}-Cache Store: {}", name, key);
-			} else { // 删除缓存
-				cache.remove(key.getParams());
+			Collection<List<?>> dependents = dc.getDependents(where, whereParams);
+			if (dependents != null) {
+				for (List<?> params : dependents) {
+					dc.remove(params);
+				}
+			} else {
+				for (List<?> params : dc.keys()) {
+					if (containsRow(dc.load(params), where, whereParams)) {
+						dc.remove(params);
+					}
+				}
+			}
+			if (update) {
+				RowPredicate predicate = e.getKey().getPredicate();
+				if (predicate.references(columns)) {
+					for (List<?> params : dc.keys()) {
+						if (predicate.mayIntersect(params, where, whereParams, columns)) {
+							dc.remove(params);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/*
+	 * 结果中是否可能包含满足条件的行，非实体对象的结果无法判断，视为包含
+	 */
+	private static boolean containsRow(List<?> rows, RowPredicate where, List<?> whereParams) {
+		if (rows == null) {
+			return false;
+		}
+		for (Object obj : rows) {
+			RowPredicate.Row row = RowPredicate.entityRow(obj, false);
+			if (row == null || where.mayMatch(whereParams, row)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * 记录结果中的行的主键
+	 */
+	private static void track(DimCache dc, List<?> params, List<?> rows) {
+		List<String> keyColumns = null;
+		List<List<?>> keys = new ArrayList<List<?>>(rows.size());
+		for (Object row : rows) {
+			if (!(row instanceof IQueryableEntity)) {
+				keys = null;
+				break;
+			}
+			if (keyColumns == null) {
+				keyColumns = RowPredicate.keyColumns(MetaHolder.getMeta(row));
+			}
+			List<?> key = keyColumns.isEmpty() ? null : RowPredicate.entityKey((IQueryableEntity) row, keyColumns);
+			if (key == null) {
+				keys = null;
+				break;
 			}
+			keys.add(key);
 		}
-		// 计算完成后，回写缓存
-		if (cache != null)
-			tableCache.put(key.getDimension(), cache);
+		dc.track(params, keyColumns, keys);
+	}
+
+	private static Collection<String> normalizeColumns(Collection<String> columns) {
+		if (columns == null) {
+			return null;
+		}
+		List<String> result = new ArrayList<String>(columns.size());
+		for (String column : columns) {
+			result.add(RowPredicate.normalizeColumn(column));
+		}
+		return result;
 	}
 
 	/**
@@ -374,6 +557,71 @@ public class CacheImpl implements Cache {
 		}
 	}
 
+	/**
+	 * 设置集群缓存失效的发布者。设置后本地缓存的失效操作都会通知其他节点。
+	 * 
+	 * @param publisher
+	 *            发布者，为null时只作用于本地
+	 */
+	public void setInvalidationPublisher(InvalidationPublisher publisher) {
+		this.publisher = publisher;
+	}
+
+	/**
+	 * 执行其他节点发来的失效事件，只作用于本地，不会再次发布
+	 * 
+	 * @param event
+	 *            失效事件
+	 */
+	public void applyInvalidation(InvalidationEvent event) {
+		if (config.cacheDebug) {
+			logger.info("{}-Cache Remote Invalidation: {}", name, event);
+		}
+		if (event.getSpace() == null) {
+			clearAll();
+			return;
+		}
+		Map<KeyDimension, DimCache> tableCache = this.cache.get(event.getSpace());
+		if (tableCache == null)
+			return;
+		if (event.isClearAll()) {
+			refreshCacheExcept(tableCache, null);
+			return;
+		}
+		for (Map.Entry<KeyDimension, ? extends Collection<List<?>>> e : event.getRemovals().entrySet()) {
+			DimCache dc = tableCache.get(e.getKey());
+			if (dc != null) {
+				for (List<?> params : e.getValue()) {
+					dc.remove(params);
+				}
+			}
+		}
+		if (event.isClearOthers()) {
+			refreshCacheExcept(tableCache, event.getKeep());
+		}
+	}
+
+	private void publishRefresh(CacheKey key) {
+		InvalidationPublisher publisher = this.publisher;
+		if (publisher != null) {
+			publisher.publishRefresh(key.getStoreSpace(), key.getDimension(), key.getParams());
+		}
+	}
+
+	private void publishClear(String space, KeyDimension except) {
+		InvalidationPublisher publisher = this.publisher;
+		if (publisher != null) {
+			publisher.publishClear(space, except);
+		}
+	}
+
+	private DimCache newDimCache() {
+		if (store != null) {
+			return store.newDimCache();
+		}
+		return expireInterval > 0 ? new DimCacheExpImpl(expireInterval) : new DimCacheImpl();
+	}
+
 	private Map<KeyDimension, DimCache> getCreateTableCache(String table) {
 		Map<KeyDimension, DimCache> tableCache = this.cache.get(table);
 		if (tableCache == null) {
@@ -390,6 +638,7 @@ public class CacheImpl implements Cache {
 	public void process(Truncate st, List<Object> list) {
 		Table t = st.getTable();
 		String tableName = t.getName().toUpperCase();
+		publishClear(tableName, null);
 		Map<KeyDimension, DimCache> tableCache = this.cache.get(tableName);
 		if (tableCache != null) {
 			refreshCacheExcept(tableCache, null);
@@ -401,44 +650,98 @@ public class CacheImpl implements Cache {
 			Table t = (Table) st.getTable();
 			KeyDimension dim = new KeyDimension(t, st.getWhere(), null);
 			CacheKey key = new SqlCacheKey(dim, list);
+			publishRefresh(key);
 			Map<KeyDimension, DimCache> tableCache = this.cache.get(key.getStoreSpace());
 
 			if (tableCache == null)
 				return;
-			// 删除了该表中的若干数据
-			// 该表相关缓存中，除了相同维度，且未被删除的数据之外，全部清除。
-			refreshCache(tableCache, key, null);
+			// 删除了该表中的若干数据，清除包含这些数据的缓存
+			onRowsChanged(tableCache, key, false, null);
 		}
 	}
 
 	public void process(Insert st, List<Object> list) {
 		if (st.getTable() instanceof Table) {
 			Table t = (Table) st.getTable();
-			Map<KeyDimension, DimCache> tableCache = this.cache.get(t.getName().toUpperCase());
-			if (tableCache == null)
+			String space = t.getName().toUpperCase();
+			Map<KeyDimension, DimCache> tableCache = this.cache.get(space);
+			if (tableCache == null && publisher == null)
 				return;
 
 			AbstractMetadata meta = MetaHolder.lookup(t.getSchemaName(), t.getName());
-			if (meta == null) {
-				refreshCacheExcept(tableCache, null);
+			KeyDimension key = meta == null ? null : meta.getPKDimension(profile);
+			publishClear(space, key);
+			if (tableCache != null)
+				onRowInserted(tableCache, toRow(st, list));
+		}
+	}
+
+	/*
+	 * 插入语句中的值，无法确定的值视为未知
+	 */
+	private static RowPredicate.Row toRow(Insert st, List<Object> list) {
+		if (!st.isUseValues() || st.getColumns() == null || !(st.getItemsList() instanceof ExpressionList)) {
+			return RowPredicate.UNKNOWN_ROW;
+		}
+		List<Expression> values = ((ExpressionList) st.getItemsList()).getExpressions();
+		if (values.size() != st.getColumns().size()) {
+			return RowPredicate.UNKNOWN_ROW;
+		}
+		Map<String, Object> row = new HashMap<String, Object>();
+		int index = 0;
+		for (int i = 0; i < values.size(); i++) {
+			Expression exp = values.get(i);
+			Object value;
+			if (exp instanceof JdbcParameter) {
+				if (list == null || index >= list.size()) {
+					return RowPredicate.UNKNOWN_ROW;
+				}
+				value = list.get(index++);
+			} else if (exp instanceof LongValue) {
+				value = ((LongValue) exp).getValue();
+			} else if (exp instanceof StringValue) {
+				value = ((StringValue) exp).getNotExcapedValue();
+			} else if (exp instanceof NullValue) {
+				value = null;
 			} else {
-				KeyDimension key = meta.getPKDimension(profile);
-				refreshCacheExcept(tableCache, key);
+				final AtomicInteger count = new AtomicInteger();
+				final AtomicBoolean named = new AtomicBoolean();
+				exp.accept(new VisitorAdapter() {
+					@Override
+					public void visit(JdbcParameter jdbcParameter) {
+						count.incrementAndGet();
+					}
+
+					@Override
+					public void visit(JpqlParameter parameter) {
+						named.set(true);
+					}
+				});
+				if (named.get()) {
+					// 命名参数可能绑定多个值，无法确定后续参数的位置
+					return RowPredicate.UNKNOWN_ROW;
+				}
+				index += count.get();
+				value = RowPredicate.UNKNOWN;
 			}
+			row.put(RowPredicate.normalizeColumn(st.getColumns().get(i).getColumnName()), value);
 		}
+		return RowPredicate.mapRow(row);
 	}
 
 	public void process(Update st, List<Object> list) {
 		if (st.getTable() instanceof Table) {
 			Table t = (Table) st.getTable();
+			String space = t.getName().toUpperCase();
 
-			Map<KeyDimension, DimCache> tableCache = this.cache.get(t.getName().toUpperCase());
-			if (tableCache == null)
+			Map<KeyDimension, DimCache> tableCache = this.cache.get(space);
+			if (tableCache == null && publisher == null)
 				return;
 
-			AbstractMetadata meta = MetaHolder.lookup(t.getSchemaName(), t.getName());
-			if (meta == null) {
-				refreshCacheExcept(tableCache, null);
+			if (st.getWhere() == null) {
+				publishClear(space, null);
+				if (tableCache != null)
+					refreshCacheExcept(tableCache, null);
 				return;
 			}
 
@@ -456,7 +759,14 @@ public class CacheImpl implements Cache {
 				}
 			});
 			CacheKey key = new SqlCacheKey(dim, list.subList(list.size() - count.get(), list.size()));
-			refreshCache(tableCache, key, null);
+			publishRefresh(key);
+			if (tableCache != null) {
+				List<String> columns = new ArrayList<String>(st.getSets().size());
+				for (Pair<Column, Expression> set : st.getSets()) {
+					columns.add(set.first.getColumnName());
+				}
+				onRowsChanged(tableCache, key, true, normalizeColumns(columns));
+			}
 		}
 	}
 
@@ -477,6 +787,80 @@ public class CacheImpl implements Cache {
 		return miss.get();
 	}
 
+	/**
+	 * 因超出容量被淘汰的结果数
+	 * 
+	 * @return 淘汰次数
+	 */
+	public long getEvictionCount() {
+		return store == null ? 0 : store.getEvictionCount();
+	}
+
+	/**
+	 * 未命中后从数据库加载并放入缓存的次数
+	 * 
+	 * @return 加载次数
+	 */
+	public long getLoadCount() {
+		return loadCount.get();
+	}
+
+	/**
+	 * 从数据库加载的总耗时，单位纳秒
+	 * 
+	 * @return 加载总耗时
+	 */
+	public long getTotalLoadTime() {
+		return loadTime.get();
+	}
+
+	/**
+	 * 当前缓存的结果数，一级缓存不统计，返回-1
+	 * 
+	 * @return 结果数
+	 */
+	public long size() {
+		return store == null ? -1 : store.size();
+	}
+
+	/**
+	 * 当前缓存的总权重（行数或估算的字节数），一级缓存不统计，返回-1
+	 * 
+	 * @return 总权重
+	 */
+	public long getWeight() {
+		return store == null ? -1 : store.getWeight();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder(name).append("-Cache hit:").append(hit.get()).append(" miss:").append(miss.get());
+		if (store != null) {
+			long loads = loadCount.get();
+			sb.append(" size:").append(store.size());
+			sb.append(" weight:").append(store.getWeight()).append('/').append(store.getMaxWeight() > 0 ? String.valueOf(store.getMaxWeight()) : "unlimited");
+			sb.append(store.isWeighBytes() ? " bytes" : " rows");
+			sb.append(" eviction:").append(store.getEvictionCount());
+			sb.append(" expiration:").append(store.getExpirationCount());
+			sb.append(" load:").append(loads);
+			sb.append(" avgLoadTime:").append(loads == 0 ? 0 : loadTime.get() / loads / 1000).append("us");
+		}
+		return sb.toString();
+	}
+
+	/*
+	 * 未命中时记录的缓存键和时间，用于统计加载耗时
+	 */
+	private static final class PendingLoad {
+		private final CacheKey key;
+		private final long start;
+
+		PendingLoad(CacheKey key, long start) {
+			this.key = key;
+			this.start = start;
+		}
+	}
+
 	@Override
 	public <T> T unwrap(Class<T> cls) {
 		return (T)this;
@@ -0,0 +1,253 @@
+package jef.database.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+
+/**
+ * 有容量上限的缓存存储。
+ * <p>
+ * 一个CacheImpl中所有表空间、所有维度的缓存数据都存放在同一个存储中，按总权重（结果行数或估算的字节数）限制大小，
+ * 超出时淘汰最近最少使用的结果。每个维度由{@link #newDimCache()}得到一个视图，维度之间互不影响。
+ * <p>
+ * 维度被清空时先切换代数，之前放入的结果立即不可见，然后再从存储中删除。这样即使清空时有并发的写入，
+ * 写入的旧结果也不会被读到，最多占用一些空间直到被淘汰。
+ *
+ * @author jiyi
+ *
+ */
+final class CacheStore {
+	/**
+	 * 单个结果超过总容量的这个比例时不缓存，避免一个大结果挤掉大量其他结果
+	 */
+	private static final int MAX_ENTRY_FRACTION = 8;
+
+	private final Cache<Key, Entry> cache;
+	private final long maxWeight;
+	private final boolean weighBytes;
+
+	private final AtomicLong weight = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	private final AtomicLong expirations = new AtomicLong();
+
+	/**
+	 * 构造
+	 *
+	 * @param expireSeconds
+	 *            缓存过期时间，单位秒，为0时不过期
+	 * @param maxWeight
+	 *            总权重上限，为0时不限制
+	 * @param weighBytes
+	 *            true按估算的字节数计算权重，false按结果行数计算权重
+	 */
+	CacheStore(int expireSeconds, long maxWeight, boolean weighBytes) {
+		this.maxWeight = maxWeight;
+		this.weighBytes = weighBytes;
+		CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder();
+		if (expireSeconds > 0) {
+			builder.expireAfterWrite(expireSeconds, TimeUnit.SECONDS);
+		}
+		if (maxWeight > 0) {
+			builder.maximumWeight(maxWeight).weigher(new Weigher<Key, Entry>() {
+				public int weigh(Key key, Entry value) {
+					return value.weight;
+				}
+			});
+		}
+		CacheBuilder<Key, Entry> typed = builder.removalListener(new RemovalListener<Key, Entry>() {
+			public void onRemoval(RemovalNotification<Key, Entry> notification) {
+				Entry entry = notification.getValue();
+				if (entry != null) {
+					weight.addAndGet(-entry.weight);
+				}
+				Key key = notification.getKey();
+				if (key != null && notification.getCause() != RemovalCause.REPLACED) {
+					key.dim.keys.remove(key);
+				}
+				if (notification.getCause() == RemovalCause.SIZE) {
+					evictions.incrementAndGet();
+				} else if (notification.getCause() == RemovalCause.EXPIRED) {
+					expirations.incrementAndGet();
+				}
+			}
+		});
+		this.cache = typed.build();
+	}
+
+	/**
+	 * 创建一个维度的缓存视图
+	 *
+	 * @return 维度缓存
+	 */
+	DimCache newDimCache() {
+		return new StoreDimCache();
+	}
+
+	/**
+	 * 清除全部缓存
+	 */
+	void clear() {
+		cache.invalidateAll();
+	}
+
+	/**
+	 * 当前缓存的结果数
+	 *
+	 * @return 结果数
+	 */
+	long size() {
+		return cache.size();
+	}
+
+	/**
+	 * 当前缓存的总权重
+	 *
+	 * @return 行数或估算的字节数
+	 */
+	long getWeight() {
+		return weight.get();
+	}
+
+	long getMaxWeight() {
+		return maxWeight;
+	}
+
+	boolean isWeighBytes() {
+		return weighBytes;
+	}
+
+	/**
+	 * 因超出容量被淘汰的结果数
+	 *
+	 * @return 淘汰次数
+	 */
+	long getEvictionCount() {
+		return evictions.get();
+	}
+
+	/**
+	 * 因过期被清除的结果数
+	 *
+	 * @return 过期次数
+	 */
+	long getExpirationCount() {
+		return expirations.get();
+	}
+
+	/*
+	 * 计算结果的权重
+	 */
+	private int weigh(List<?> value) {
+		long w = weighBytes ? SizeEstimator.estimate(value) : Math.max(1, value.size());
+		return (int) Math.min(w, Integer.MAX_VALUE);
+	}
+
+	/*
+	 * 缓存键，同一维度清空前后的代数不同
+	 */
+	private static final class Key {
+		private final StoreDimCache dim;
+		private final int generation;
+		private final List<?> params;
+
+		Key(StoreDimCache dim, int generation, List<?> params) {
+			this.dim = dim;
+			this.generation = generation;
+			this.params = params;
+		}
+
+		@Override
+		public int hashCode() {
+			return (System.identityHashCode(dim) * 31 + generation) * 31 + (params == null ? 0 : params.hashCode());
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj instanceof Key) {
+				Key o = (Key) obj;
+				return dim == o.dim && generation == o.generation && (params == null ? o.params == null : params.equals(o.params));
+			}
+			return false;
+		}
+	}
+
+	/*
+	 * 缓存值
+	 */
+	private static final class Entry {
+		private final List<?> value;
+		private final int weight;
+
+		Entry(List<?> value, int weight) {
+			this.value = value;
+			this.weight = weight;
+		}
+	}
+
+	/*
+	 * 存储中一个维度的视图
+	 */
+	private final class StoreDimCache extends DimCache {
+		private final AtomicInteger generation = new AtomicInteger();
+		private final Set<Key> keys = Collections.newSetFromMap(new ConcurrentHashMap<Key, Boolean>());
+
+		public List<?> load(List<?> params) {
+			Entry entry = cache.getIfPresent(new Key(this, generation.get(), params));
+			return entry == null ? null : entry.value;
+		}
+
+		public void remove(List<?> params) {
+			cache.invalidate(new Key(this, generation.get(), params));
+		}
+
+		public void put(List<?> params, List<?> obj) {
+			int w = weigh(obj);
+			if (maxWeight > 0 && w > maxWeight / MAX_ENTRY_FRACTION) {
+				return;
+			}
+			Key key = new Key(this, generation.get(), params);
+			keys.add(key);
+			weight.addAndGet(w);
+			cache.put(key, new Entry(obj, w));
+		}
+
+		@Override
+		public void clear() {
+			generation.incrementAndGet();
+			for (Key key : keys) {
+				cache.invalidate(key);
+			}
+			clearDependencies();
+		}
+
+		@Override
+		Collection<List<?>> keys() {
+			int current = generation.get();
+			List<List<?>> result = new ArrayList<List<?>>();
+			for (Key key : keys) {
+				if (key.generation == current) {
+					result.add(key.params);
+				}
+			}
+			return result;
+		}
+
+		@Override
+		public String toString() {
+			return "DimCache[" + keys.size() + "]";
+		}
+	}
+}
@@ -1,8 +1,27 @@
 package jef.database.cache;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public abstract class DimCache {
+	/**
+	 * 依赖关系中最多记录的主键数，超过后不再记录，按主键的变更改为逐行判断
+	 */
+	private static final int MAX_TRACKED_KEYS = 100000;
+
+	/*
+	 * 依赖关系：结果中包含的行的主键 -> 包含该行的结果的查询参数。
+	 * 结果被替换或淘汰后不删除，因此记录可能多于实际，但不会少于实际。
+	 */
+	private final Map<List<?>, Set<List<?>>> dependencies = new HashMap<List<?>, Set<List<?>>>();
+	private List<String> keyColumns;
+	private boolean tracking = true;
+
 	/**
 	 * 加载缓存
 	 * @param params
@@ -26,4 +45,67 @@ public abstract class DimCache {
 	 * 清除缓存
 	 */
 	public abstract void clear();
+
+	/**
+	 * 当前缓存的所有查询参数
+	 * @return 查询参数的快照
+	 */
+	abstract Collection<List<?>> keys();
+
+	/**
+	 * 记录结果中包含的行，放入缓存后调用
+	 * @param params     查询参数
+	 * @param keyColumns 主键列
+	 * @param rowKeys    结果中各行的主键，为null表示无法得到主键
+	 */
+	final synchronized void track(List<?> params, List<String> keyColumns, Collection<List<?>> rowKeys) {
+		if (!tracking) {
+			return;
+		}
+		if (rowKeys == null || (this.keyColumns != null && !this.keyColumns.equals(keyColumns))
+				|| dependencies.size() + rowKeys.size() > MAX_TRACKED_KEYS) {
+			tracking = false;
+			dependencies.clear();
+			return;
+		}
+		this.keyColumns = keyColumns;
+		for (List<?> key : rowKeys) {
+			Set<List<?>> set = dependencies.get(key);
+			if (set == null) {
+				set = new HashSet<List<?>>();
+				dependencies.put(key, set);
+			}
+			set.add(params);
+		}
+	}
+
+	/**
+	 * 得到包含指定行的结果
+	 * @param where  变更的条件
+	 * @param params 条件的参数
+	 * @return 可能包含被变更行的结果的查询参数。条件不是按主键，或者没有完整记录依赖关系时返回null
+	 */
+	final synchronized Collection<List<?>> getDependents(RowPredicate where, List<?> params) {
+		if (!tracking || keyColumns == null) {
+			return null;
+		}
+		List<?> key = where.pinnedKey(params, keyColumns);
+		if (key == null) {
+			return null;
+		}
+		Set<List<?>> set = dependencies.remove(key);
+		if (set == null) {
+			return Collections.emptySet();
+		}
+		return set;
+	}
+
+	/**
+	 * 清除依赖关系，清除缓存时调用
+	 */
+	final synchronized void clearDependencies() {
+		dependencies.clear();
+		keyColumns = null;
+		tracking = true;
+	}
 }
@@ -1,5 +1,7 @@
 package jef.database.cache;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
@@ -58,6 +60,12 @@ final class DimCacheExpImpl extends DimCache{
 	@Override
 	public void clear() {
 		sqlCache.invalidateAll();
+		clearDependencies();
+	}
+
+	@Override
+	Collection<List<?>> keys() {
+		return new ArrayList<List<?>>(sqlCache.asMap().keySet());
 	}
 	
 	
@@ -1,5 +1,7 @@
 package jef.database.cache;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -49,5 +51,11 @@ final class DimCacheImpl extends DimCache{
 	@Override
 	public void clear() {
 		sqlCache.clear();
+		clearDependencies();
+	}
+
+	@Override
+	Collection<List<?>> keys() {
+		return new ArrayList<List<?>>(sqlCache.keySet());
 	}
 }
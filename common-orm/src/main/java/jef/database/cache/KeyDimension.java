@@ -1,5 +1,6 @@
 package jef.database.cache;
 
+import java.io.Serializable;
 import java.util.List;
 
 import jef.common.PairSO;
@@ -12,7 +13,9 @@ import jef.database.jsqlparser.visitor.Expression;
 
 import org.apache.commons.lang.builder.HashCodeBuilder;
 
-public class KeyDimension {
+public class KeyDimension implements Serializable {
+	private static final long serialVersionUID = 1L;
+
 	protected String where;
 	protected String order;
 
@@ -27,6 +30,9 @@ public class KeyDimension {
 	// 唯一标识
 	protected int hashCode;
 
+	// 解析后的条件，用于判断数据变更影响的缓存
+	private transient volatile RowPredicate predicate;
+
 	public KeyDimension newKeyDimensionOf(String newTable, DatabaseDialect profile) {
 		KeyDimension result = new KeyDimension(newTable,profile, where, order);
 		return result;
@@ -120,6 +126,26 @@ public class KeyDimension {
 		return affectedTables;
 	}
 
+	/**
+	 * 是否为多表查询的维度
+	 * 
+	 * @return 多表查询时返回true
+	 */
+	public boolean isMultiTable() {
+		return affectedTables != null && affectedTables.size() > 1;
+	}
+
+	/*
+	 * 解析后的条件，第一次使用时解析
+	 */
+	RowPredicate getPredicate() {
+		RowPredicate p = predicate;
+		if (p == null) {
+			predicate = p = RowPredicate.parse(where);
+		}
+		return p;
+	}
+
 	/**
 	 * 构造
 	 * 
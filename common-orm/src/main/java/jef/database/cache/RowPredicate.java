@@ -0,0 +1,769 @@
+package jef.database.cache;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import jef.database.IQueryableEntity;
+import jef.database.dialect.type.ColumnMapping;
+import jef.database.jsqlparser.expression.BinaryExpression;
+import jef.database.jsqlparser.expression.Column;
+import jef.database.jsqlparser.expression.JdbcParameter;
+import jef.database.jsqlparser.expression.JpqlParameter;
+import jef.database.jsqlparser.expression.LongValue;
+import jef.database.jsqlparser.expression.Parenthesis;
+import jef.database.jsqlparser.expression.StringValue;
+import jef.database.jsqlparser.expression.operators.conditional.AndExpression;
+import jef.database.jsqlparser.expression.operators.relational.Between;
+import jef.database.jsqlparser.expression.operators.relational.EqualsTo;
+import jef.database.jsqlparser.expression.operators.relational.ExpressionList;
+import jef.database.jsqlparser.expression.operators.relational.GreaterThan;
+import jef.database.jsqlparser.expression.operators.relational.GreaterThanEquals;
+import jef.database.jsqlparser.expression.operators.relational.InExpression;
+import jef.database.jsqlparser.expression.operators.relational.IsNullExpression;
+import jef.database.jsqlparser.expression.operators.relational.MinorThan;
+import jef.database.jsqlparser.expression.operators.relational.MinorThanEquals;
+import jef.database.jsqlparser.parser.ParseException;
+import jef.database.jsqlparser.parser.StSqlParser;
+import jef.database.jsqlparser.parser.TokenMgrError;
+import jef.database.jsqlparser.visitor.Expression;
+import jef.database.jsqlparser.visitor.VisitorAdapter;
+import jef.database.meta.ITableMetadata;
+import jef.database.meta.MetaHolder;
+
+/**
+ * 查询条件的近似模型，用于判断一次数据变更可能影响哪些缓存结果。
+ * <p>
+ * 只分析where条件最外层用AND连接的简单条件，即列与参数（或常量）之间的 =、&lt;、&lt;=、&gt;、&gt;=、between、in和is
+ * null。其他条件（or、like、函数、子查询等）一律视为可能成立，因此模型所表示的范围总是不小于实际条件，
+ * 据此得出的“不受影响”的结论是可靠的。
+ * <p>
+ * 数值按大小比较；字符串只比较是否相等，并且忽略大小写和首尾空格，以兼容数据库的排序规则；其他类型都视为可能相等。
+ *
+ * @author jiyi
+ *
+ */
+final class RowPredicate {
+	/**
+	 * 值未知，与任何条件比较都可能成立
+	 */
+	static final Object UNKNOWN = new Object();
+
+	/**
+	 * 没有条件，所有行都满足
+	 */
+	static final RowPredicate ALL = new RowPredicate(Collections.<Term> emptyList(), Collections.<String> emptySet(), 0);
+
+	/**
+	 * 无法解析的条件，任何行都可能满足
+	 */
+	static final RowPredicate ANY = new RowPredicate(Collections.<Term> emptyList(), null, -1);
+
+	private static final int EQ = 0;
+	private static final int LT = 1;
+	private static final int LE = 2;
+	private static final int GT = 3;
+	private static final int GE = 4;
+	private static final int BETWEEN = 5;
+	private static final int IN = 6;
+	private static final int IS_NULL = 7;
+	private static final int NOT_NULL = 8;
+
+	/*
+	 * 最外层AND连接的可分析条件
+	 */
+	private final List<Term> terms;
+	/*
+	 * 条件中引用的全部列，为null表示未知
+	 */
+	private final Set<String> columns;
+	/*
+	 * 条件中的参数个数，为-1表示未知
+	 */
+	private final int paramCount;
+
+	private RowPredicate(List<Term> terms, Set<String> columns, int paramCount) {
+		this.terms = terms;
+		this.columns = columns;
+		this.paramCount = paramCount;
+	}
+
+	/**
+	 * 解析规范化后的where条件（不含where关键字）
+	 *
+	 * @param where
+	 *            条件
+	 * @return 条件模型，无法解析时返回{@link #ANY}
+	 */
+	static RowPredicate parse(String where) {
+		if (where == null || where.trim().length() == 0) {
+			return ALL;
+		}
+		Expression exp;
+		try {
+			exp = new StSqlParser(new StringReader("WHERE " + where)).WhereClause();
+		} catch (ParseException e) {
+			return ANY;
+		} catch (TokenMgrError e) {
+			return ANY;
+		}
+		return of(exp);
+	}
+
+	/**
+	 * 从条件表达式构造
+	 *
+	 * @param where
+	 *            条件，为null时表示没有条件
+	 * @return 条件模型
+	 */
+	static RowPredicate of(Expression where) {
+		if (where == null) {
+			return ALL;
+		}
+		final Set<String> columns = new HashSet<String>();
+		final boolean[] named = new boolean[1];
+		where.accept(new VisitorAdapter() {
+			@Override
+			public void visit(Column tableColumn) {
+				columns.add(normalizeColumn(tableColumn.getColumnName()));
+			}
+
+			@Override
+			public void visit(JpqlParameter parameter) {
+				named[0] = true;
+			}
+		});
+		// 命名参数可能绑定多个值，无法确定参数的位置
+		if (named[0]) {
+			return ANY;
+		}
+		List<Term> terms = new ArrayList<Term>();
+		int count = collect(where, terms, 0);
+		return new RowPredicate(terms, columns, count);
+	}
+
+	/**
+	 * 规范化列名：去掉表别名和引号，转大写
+	 *
+	 * @param column
+	 *            列名
+	 * @return 规范化的列名
+	 */
+	static String normalizeColumn(String column) {
+		String s = column.trim();
+		int n = s.lastIndexOf('.');
+		if (n > -1) {
+			s = s.substring(n + 1);
+		}
+		if (s.length() > 1) {
+			char c = s.charAt(0);
+			if (c == '"' || c == '`' || c == '[') {
+				s = s.substring(1, s.length() - 1);
+			}
+		}
+		return s.toUpperCase();
+	}
+
+	/*
+	 * 收集最外层AND连接的条件，返回处理完后的参数序号
+	 */
+	private static int collect(Expression exp, List<Term> terms, int index) {
+		if (exp instanceof AndExpression && !((AndExpression) exp).isNot()) {
+			index = collect(((AndExpression) exp).getLeftExpression(), terms, index);
+			return collect(((AndExpression) exp).getRightExpression(), terms, index);
+		} else if (exp instanceof Parenthesis && !((Parenthesis) exp).isNot()) {
+			return collect(((Parenthesis) exp).getExpression(), terms, index);
+		}
+		int count = countParams(exp);
+		Term term = toTerm(exp, index);
+		if (term != null) {
+			terms.add(term);
+		}
+		return index + count;
+	}
+
+	private static int countParams(Expression exp) {
+		final int[] count = new int[1];
+		exp.accept(new VisitorAdapter() {
+			@Override
+			public void visit(JdbcParameter jdbcParameter) {
+				count[0]++;
+			}
+		});
+		return count[0];
+	}
+
+	/*
+	 * 将简单条件转换为Term，不能分析时返回null
+	 */
+	private static Term toTerm(Expression exp, int index) {
+		if (exp instanceof BinaryExpression) {
+			BinaryExpression b = (BinaryExpression) exp;
+			int op;
+			if (b instanceof EqualsTo) {
+				op = EQ;
+			} else if (b instanceof MinorThan) {
+				op = LT;
+			} else if (b instanceof MinorThanEquals) {
+				op = LE;
+			} else if (b instanceof GreaterThan) {
+				op = GT;
+			} else if (b instanceof GreaterThanEquals) {
+				op = GE;
+			} else {
+				return null;
+			}
+			if (b.isNot()) {
+				return null;
+			}
+			Expression left = b.getLeftExpression();
+			Expression right = b.getRightExpression();
+			if (left instanceof Column) {
+				Object v = toOperand(right, index);
+				return v == null ? null : new Term((Column) left, op, v);
+			} else if (right instanceof Column) {
+				Object v = toOperand(left, index);
+				return v == null ? null : new Term((Column) right, reverse(op), v);
+			}
+			return null;
+		} else if (exp instanceof Between) {
+			Between b = (Between) exp;
+			if (b.isNot() || !(b.getLeftExpression() instanceof Column)) {
+				return null;
+			}
+			Object start = toOperand(b.getBetweenExpressionStart(), index);
+			if (start == null) {
+				return null;
+			}
+			Object end = toOperand(b.getBetweenExpressionEnd(), start instanceof Param ? index + 1 : index);
+			return end == null ? null : new Term((Column) b.getLeftExpression(), BETWEEN, start, end);
+		} else if (exp instanceof InExpression) {
+			InExpression in = (InExpression) exp;
+			if (in.isNot() || in.getLeftExpression() == null || in.getLeftExpression().size() != 1
+					|| !(in.getLeftExpression().get(0) instanceof Column) || !(in.getItemsList() instanceof ExpressionList)) {
+				return null;
+			}
+			List<Expression> items = ((ExpressionList) in.getItemsList()).getExpressions();
+			Object[] values = new Object[items.size()];
+			int n = index;
+			for (int i = 0; i < values.length; i++) {
+				Object v = toOperand(items.get(i), n);
+				if (v == null) {
+					return null;
+				}
+				if (v instanceof Param) {
+					n++;
+				}
+				values[i] = v;
+			}
+			return new Term((Column) in.getLeftExpression().get(0), IN, values);
+		} else if (exp instanceof IsNullExpression) {
+			IsNullExpression isNull = (IsNullExpression) exp;
+			if (!(isNull.getLeftExpression() instanceof Column)) {
+				return null;
+			}
+			return new Term((Column) isNull.getLeftExpression(), isNull.isNot() ? NOT_NULL : IS_NULL);
+		}
+		return null;
+	}
+
+	/*
+	 * 参数或常量，其他表达式返回null
+	 */
+	private static Object toOperand(Expression exp, int index) {
+		if (exp instanceof JdbcParameter) {
+			return new Param(index);
+		} else if (exp instanceof LongValue) {
+			return ((LongValue) exp).getValue();
+		} else if (exp instanceof StringValue) {
+			return ((StringValue) exp).getNotExcapedValue();
+		}
+		return null;
+	}
+
+	private static int reverse(int op) {
+		switch (op) {
+		case LT:
+			return GT;
+		case LE:
+			return GE;
+		case GT:
+			return LT;
+		case GE:
+			return LE;
+		default:
+			return op;
+		}
+	}
+
+	/**
+	 * 判断一行数据是否可能满足条件
+	 *
+	 * @param params
+	 *            条件的参数
+	 * @param row
+	 *            行数据
+	 * @return false表示一定不满足
+	 */
+	boolean mayMatch(List<?> params, Row row) {
+		if (!isBound(params)) {
+			return true;
+		}
+		for (Term t : terms) {
+			if (!t.mayMatch(params, row.get(t.column))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 判断条件是否引用了指定的列
+	 *
+	 * @param changed
+	 *            列名，为null表示任意列
+	 * @return 可能引用时返回true
+	 */
+	boolean references(Collection<String> changed) {
+		if (columns == null) {
+			return true;
+		}
+		if (columns.isEmpty()) {
+			return false;
+		}
+		if (changed == null) {
+			return true;
+		}
+		for (String c : changed) {
+			if (columns.contains(c)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 判断两个条件是否可能同时成立
+	 *
+	 * @param params
+	 *            本条件的参数
+	 * @param other
+	 *            另一个条件
+	 * @param otherParams
+	 *            另一个条件的参数
+	 * @param ignored
+	 *            另一个条件中不参与判断的列（例如已经被更新的列），为null表示全部不参与判断
+	 * @return false表示一定不会同时成立
+	 */
+	boolean mayIntersect(List<?> params, RowPredicate other, List<?> otherParams, Collection<String> ignored) {
+		if (ignored == null || !isBound(params) || !other.isBound(otherParams)) {
+			return true;
+		}
+		for (Term t1 : terms) {
+			for (Term t2 : other.terms) {
+				if (t1.column.equals(t2.column) && !ignored.contains(t2.column) && !t1.mayIntersect(params, t2, otherParams)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 如果条件用等值确定了全部主键列，返回规范化的主键值
+	 *
+	 * @param params
+	 *            条件的参数
+	 * @param keyColumns
+	 *            主键列
+	 * @return 主键值，不能确定时返回null
+	 */
+	List<?> pinnedKey(List<?> params, List<String> keyColumns) {
+		if (!isBound(params) || keyColumns == null || keyColumns.isEmpty()) {
+			return null;
+		}
+		Object[] key = new Object[keyColumns.size()];
+		for (int i = 0; i < key.length; i++) {
+			String column = keyColumns.get(i);
+			for (Term t : terms) {
+				if (t.column.equals(column) && (t.op == EQ || (t.op == IN && t.operands.length == 1))) {
+					key[i] = normalizeKey(t.value(0, params));
+					break;
+				}
+			}
+			if (key[i] == null) {
+				return null;
+			}
+		}
+		return Arrays.asList(key);
+	}
+
+	private boolean isBound(List<?> params) {
+		if (paramCount < 0) {
+			return false;
+		}
+		return paramCount == (params == null ? 0 : params.size());
+	}
+
+	@Override
+	public String toString() {
+		return columns == null ? "ANY" : terms.toString();
+	}
+
+	/**
+	 * 行数据
+	 */
+	interface Row {
+		/**
+		 * 得到列的值
+		 *
+		 * @param column
+		 *            规范化的列名
+		 * @return 值，未知时返回{@link RowPredicate#UNKNOWN}
+		 */
+		Object get(String column);
+	}
+
+	/**
+	 * 所有值都未知的行
+	 */
+	static final Row UNKNOWN_ROW = new Row() {
+		public Object get(String column) {
+			return UNKNOWN;
+		}
+	};
+
+	/**
+	 * 以列名为key的行数据，不存在的列视为未知
+	 *
+	 * @param values
+	 *            规范化的列名和值
+	 * @return 行
+	 */
+	static Row mapRow(final Map<String, Object> values) {
+		return new Row() {
+			public Object get(String column) {
+				return values.containsKey(column) ? values.get(column) : UNKNOWN;
+			}
+		};
+	}
+
+	/**
+	 * 实体对象对应的行数据，不是实体时返回null
+	 *
+	 * @param obj
+	 *            实体
+	 * @param inserted
+	 *            true表示刚插入的对象，此时为null的字段可能由数据库填充了默认值，视为未知
+	 * @return 行
+	 */
+	static Row entityRow(final Object obj, final boolean inserted) {
+		if (!(obj instanceof IQueryableEntity)) {
+			return null;
+		}
+		final Map<String, ColumnMapping> columns = getColumns(MetaHolder.getMeta(obj));
+		return new Row() {
+			public Object get(String column) {
+				ColumnMapping mapping = columns.get(column);
+				if (mapping == null || mapping.isLob()) {
+					return UNKNOWN;
+				}
+				Object v = mapping.getFieldAccessor().get(obj);
+				return v == null && inserted ? UNKNOWN : v;
+			}
+		};
+	}
+
+	/**
+	 * 实体对象规范化的主键值，无法得到时返回null
+	 *
+	 * @param obj
+	 *            实体
+	 * @param keyColumns
+	 *            主键列
+	 * @return 主键值
+	 */
+	static List<?> entityKey(IQueryableEntity obj, List<String> keyColumns) {
+		Map<String, ColumnMapping> columns = getColumns(MetaHolder.getMeta(obj));
+		Object[] key = new Object[keyColumns.size()];
+		for (int i = 0; i < key.length; i++) {
+			ColumnMapping mapping = columns.get(keyColumns.get(i));
+			if (mapping == null || (key[i] = normalizeKey(mapping.getFieldAccessor().get(obj))) == null) {
+				return null;
+			}
+		}
+		return Arrays.asList(key);
+	}
+
+	/**
+	 * 实体的主键列名
+	 *
+	 * @param meta
+	 *            元数据
+	 * @return 规范化的主键列名
+	 */
+	static List<String> keyColumns(ITableMetadata meta) {
+		List<ColumnMapping> pks = meta.getPKFields();
+		List<String> result = new ArrayList<String>(pks.size());
+		for (ColumnMapping pk : pks) {
+			result.add(pk.upperColumnName());
+		}
+		return result;
+	}
+
+	private static final Map<ITableMetadata, Map<String, ColumnMapping>> COLUMNS = new ConcurrentHashMap<ITableMetadata, Map<String, ColumnMapping>>();
+
+	private static Map<String, ColumnMapping> getColumns(ITableMetadata meta) {
+		Map<String, ColumnMapping> columns = COLUMNS.get(meta);
+		if (columns == null) {
+			columns = new HashMap<String, ColumnMapping>();
+			for (ColumnMapping c : meta.getColumns()) {
+				columns.put(c.upperColumnName(), c);
+			}
+			COLUMNS.put(meta, columns);
+		}
+		return columns;
+	}
+
+	/*
+	 * 主键值规范化，使不同类型的数值、不同大小写的字符串能够匹配。不能规范化时返回null
+	 */
+	private static Object normalizeKey(Object v) {
+		if (v instanceof String || v instanceof Character) {
+			return v.toString().trim().toUpperCase();
+		}
+		BigDecimal d = toDecimal(v);
+		return d == null ? null : d.stripTrailingZeros();
+	}
+
+	/*
+	 * 整数和BigDecimal转换为BigDecimal，浮点数等其他类型返回null
+	 */
+	private static BigDecimal toDecimal(Object v) {
+		if (v instanceof BigDecimal) {
+			return (BigDecimal) v;
+		} else if (v instanceof BigInteger) {
+			return new BigDecimal((BigInteger) v);
+		} else if (v instanceof Long || v instanceof Integer || v instanceof Short || v instanceof Byte) {
+			return BigDecimal.valueOf(((Number) v).longValue());
+		}
+		return null;
+	}
+
+	/*
+	 * 比较大小，不能比较时返回null
+	 */
+	private static Integer compare(Object a, Object b) {
+		BigDecimal d1 = toDecimal(a);
+		BigDecimal d2 = toDecimal(b);
+		if (d1 == null || d2 == null) {
+			return null;
+		}
+		return d1.compareTo(d2);
+	}
+
+	/*
+	 * 判断两个值是否可能相等，null与任何值都不相等（SQL语义）
+	 */
+	private static boolean mayEqual(Object a, Object b) {
+		if (a == null || b == null) {
+			return false;
+		}
+		Integer c = compare(a, b);
+		if (c != null) {
+			return c == 0;
+		}
+		if ((a instanceof String || a instanceof Character) && (b instanceof String || b instanceof Character)) {
+			return a.toString().trim().equalsIgnoreCase(b.toString().trim());
+		}
+		if (a instanceof Boolean && b instanceof Boolean) {
+			return a.equals(b);
+		}
+		if (a instanceof Enum && b instanceof Enum) {
+			return ((Enum<?>) a).getDeclaringClass() != ((Enum<?>) b).getDeclaringClass() || a == b;
+		}
+		if (a instanceof Enum && b instanceof String) {
+			return ((Enum<?>) a).name().equalsIgnoreCase(((String) b).trim());
+		}
+		if (b instanceof Enum && a instanceof String) {
+			return ((Enum<?>) b).name().equalsIgnoreCase(((String) a).trim());
+		}
+		return true;
+	}
+
+	/*
+	 * 位置参数
+	 */
+	private static final class Param {
+		private final int index;
+
+		Param(int index) {
+			this.index = index;
+		}
+
+		@Override
+		public String toString() {
+			return "?" + index;
+		}
+	}
+
+	/*
+	 * 一个简单条件
+	 */
+	private static final class Term {
+		private final String column;
+		private final int op;
+		private final Object[] operands;
+
+		Term(Column column, int op, Object... operands) {
+			this.column = normalizeColumn(column.getColumnName());
+			this.op = op;
+			this.operands = operands;
+		}
+
+		Object value(int i, List<?> params) {
+			Object o = operands[i];
+			return o instanceof Param ? params.get(((Param) o).index) : o;
+		}
+
+		/*
+		 * 判断列的值是否可能满足条件
+		 */
+		boolean mayMatch(List<?> params, Object v) {
+			if (v == UNKNOWN) {
+				return true;
+			}
+			switch (op) {
+			case IS_NULL:
+				return v == null;
+			case NOT_NULL:
+				return v != null;
+			case EQ:
+				return mayEqual(v, value(0, params));
+			case IN:
+				if (v == null) {
+					return false;
+				}
+				for (int i = 0; i < operands.length; i++) {
+					if (mayEqual(v, value(i, params))) {
+						return true;
+					}
+				}
+				return false;
+			case BETWEEN:
+				return v != null && mayCompare(v, value(0, params), GE) && mayCompare(v, value(1, params), LE);
+			default:
+				return v != null && mayCompare(v, value(0, params), op);
+			}
+		}
+
+		/*
+		 * 判断两个条件是否可能同时成立
+		 */
+		boolean mayIntersect(List<?> params, Term other, List<?> otherParams) {
+			if (isValueSet()) {
+				return other.mayMatchAny(otherParams, this, params);
+			} else if (other.isValueSet()) {
+				return mayMatchAny(params, other, otherParams);
+			}
+			// 两个范围条件，任意一个下界大于另一个的上界时不会同时成立
+			List<Object[]> lower = new ArrayList<Object[]>(2);
+			List<Object[]> upper = new ArrayList<Object[]>(2);
+			bounds(params, lower, upper);
+			other.bounds(otherParams, lower, upper);
+			for (Object[] l : lower) {
+				for (Object[] u : upper) {
+					Integer c = compare(l[0], u[0]);
+					if (c != null && (c > 0 || (c == 0 && (l[1] == Boolean.FALSE || u[1] == Boolean.FALSE)))) {
+						return false;
+					}
+				}
+			}
+			return true;
+		}
+
+		/*
+		 * 等值、in和is null条件的取值是有限个值
+		 */
+		private boolean isValueSet() {
+			return op == EQ || op == IN || op == IS_NULL;
+		}
+
+		/*
+		 * 本条件是否可能被值集合条件中的某个值满足
+		 */
+		private boolean mayMatchAny(List<?> params, Term valueSet, List<?> valueParams) {
+			if (valueSet.op == IS_NULL) {
+				return mayMatch(params, null);
+			}
+			for (int i = 0; i < valueSet.operands.length; i++) {
+				Object v = valueSet.value(i, valueParams);
+				if (v != null && mayMatch(params, v)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/*
+		 * 范围条件的上下界，数组的第二个元素表示是否包含边界
+		 */
+		private void bounds(List<?> params, List<Object[]> lower, List<Object[]> upper) {
+			switch (op) {
+			case LT:
+				upper.add(new Object[] { value(0, params), Boolean.FALSE });
+				break;
+			case LE:
+				upper.add(new Object[] { value(0, params), Boolean.TRUE });
+				break;
+			case GT:
+				lower.add(new Object[] { value(0, params), Boolean.FALSE });
+				break;
+			case GE:
+				lower.add(new Object[] { value(0, params), Boolean.TRUE });
+				break;
+			case BETWEEN:
+				lower.add(new Object[] { value(0, params), Boolean.TRUE });
+				upper.add(new Object[] { value(1, params), Boolean.TRUE });
+				break;
+			default:
+			}
+		}
+
+		private static boolean mayCompare(Object v, Object bound, int op) {
+			if (bound == null) {
+				return false;
+			}
+			Integer c = compare(v, bound);
+			if (c == null) {
+				return true;
+			}
+			switch (op) {
+			case LT:
+				return c < 0;
+			case LE:
+				return c <= 0;
+			case GT:
+				return c > 0;
+			default:
+				return c >= 0;
+			}
+		}
+
+		@Override
+		public String toString() {
+			return column + ":" + op + Arrays.toString(operands);
+		}
+	}
+}
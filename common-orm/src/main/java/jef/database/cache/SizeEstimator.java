@@ -0,0 +1,142 @@
+package jef.database.cache;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import jef.accelerator.bean.BeanAccessor;
+import jef.accelerator.bean.FastBeanWrapperImpl;
+import jef.database.IQueryableEntity;
+import jef.database.dialect.type.ColumnMapping;
+import jef.database.meta.ITableMetadata;
+import jef.database.meta.MetaHolder;
+import jef.tools.reflect.Property;
+
+/**
+ * 估算缓存结果占用的堆内存字节数。
+ * <p>
+ * 只抽样结果中的若干行，按抽样的平均值推算整个结果，因此只是一个近似值，用于控制缓存总量。
+ * 读取实体的字段时不经过getter，以免触发延迟加载；LOB字段不读取，按固定大小估算。
+ *
+ * @author jiyi
+ *
+ */
+final class SizeEstimator {
+	private static final int MAX_SAMPLES = 8;
+	private static final int HEADER = 16;
+	private static final int REF = 8;
+	private static final int LIST_OVERHEAD = 64;
+	private static final int ENTITY_OVERHEAD = 64;
+	private static final int LOB_SIZE = 256;
+
+	private SizeEstimator() {
+	}
+
+	/**
+	 * 估算一个查询结果的大小
+	 *
+	 * @param rows
+	 *            查询结果
+	 * @return 估算的字节数
+	 */
+	static long estimate(List<?> rows) {
+		int size = rows.size();
+		if (size == 0) {
+			return LIST_OVERHEAD;
+		}
+		int samples = Math.min(size, MAX_SAMPLES);
+		int step = size / samples;
+		long total = 0;
+		for (int i = 0; i < samples; i++) {
+			total += sizeOfRow(rows.get(i * step));
+		}
+		return LIST_OVERHEAD + (long) REF * size + total * size / samples;
+	}
+
+	private static long sizeOfRow(Object row) {
+		if (row == null) {
+			return 0;
+		}
+		if (row instanceof Object[]) {
+			Object[] array = (Object[]) row;
+			long s = HEADER + (long) REF * array.length;
+			for (Object o : array) {
+				s += sizeOfRow(o);
+			}
+			return s;
+		}
+		if (row instanceof Map) {
+			Map<?, ?> map = (Map<?, ?>) row;
+			long s = 48 + 32L * map.size();
+			for (Map.Entry<?, ?> e : map.entrySet()) {
+				s += sizeOfValue(e.getKey()) + sizeOfValue(e.getValue());
+			}
+			return s;
+		}
+		if (row instanceof IQueryableEntity) {
+			ITableMetadata meta = MetaHolder.getMeta(row);
+			long s = HEADER + ENTITY_OVERHEAD;
+			Collection<ColumnMapping> columns = meta.getColumns();
+			for (ColumnMapping column : columns) {
+				s += REF;
+				if (column.isLob()) {
+					s += LOB_SIZE;
+				} else {
+					s += sizeOfValue(column.getFieldAccessor().get(row));
+				}
+			}
+			return s;
+		}
+		long s = sizeOfSimple(row);
+		if (s >= 0) {
+			return s;
+		}
+		BeanAccessor ba = FastBeanWrapperImpl.getAccessorFor(row.getClass());
+		s = HEADER;
+		for (Property p : ba.getProperties()) {
+			s += REF;
+			if (p.isReadable()) {
+				s += sizeOfValue(p.get(row));
+			}
+		}
+		return s;
+	}
+
+	/*
+	 * 基本类型的值，非基本类型返回-1
+	 */
+	private static long sizeOfSimple(Object v) {
+		if (v instanceof String) {
+			return 40 + 2L * ((String) v).length();
+		} else if (v instanceof Long || v instanceof Double) {
+			return 24;
+		} else if (v instanceof Number || v instanceof Boolean || v instanceof Character) {
+			if (v instanceof BigDecimal) {
+				return 40 + ((BigDecimal) v).unscaledValue().bitLength() / 8 + 16;
+			} else if (v instanceof BigInteger) {
+				return 40 + ((BigInteger) v).bitLength() / 8;
+			}
+			return 16;
+		} else if (v instanceof Date) {
+			return 32;
+		} else if (v instanceof byte[]) {
+			return HEADER + ((byte[]) v).length;
+		} else if (v instanceof char[]) {
+			return HEADER + 2L * ((char[]) v).length;
+		} else if (v instanceof Enum) {
+			return 0;
+		}
+		return -1;
+	}
+
+	private static long sizeOfValue(Object v) {
+		if (v == null) {
+			return 0;
+		}
+		long s = sizeOfSimple(v);
+		return s >= 0 ? s : HEADER;
+	}
+}
@@ -0,0 +1,272 @@
+package jef.database.cache.cluster;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jef.database.cache.CacheImpl;
+import jef.database.cache.KeyDimension;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 集群缓存失效总线。
+ * <p>
+ * 本地缓存的失效操作先按表空间合并，在一个很短的周期（{@link jef.database.DbCfg#CACHE_CLUSTER_WINDOW}）后统一发送，
+ * 这样批量更新时不会对每条记录都发送一次消息。收到其他节点的消息时，对本地缓存执行相同的失效操作。
+ * <p>
+ * 注意：失效消息是异步发送的，其他节点在发送周期和网络延迟之内仍可能读到旧数据。
+ *
+ * @author jiyi
+ *
+ */
+public final class InvalidationBus implements InvalidationPublisher, InvalidationTransport.Receiver {
+	private static final Logger log = LoggerFactory.getLogger(InvalidationBus.class);
+
+	private final String nodeId = UUID.randomUUID().toString();
+	private final CacheImpl cache;
+	private final InvalidationTransport transport;
+	private final long window;
+	private final ScheduledExecutorService timer;
+
+	private Map<String, InvalidationEvent> pending = new LinkedHashMap<String, InvalidationEvent>();
+	private boolean pendingClearAll;
+	private boolean scheduled;
+
+	private final AtomicLong sent = new AtomicLong();
+	private final AtomicLong received = new AtomicLong();
+	private final AtomicLong errors = new AtomicLong();
+
+	private final Runnable flushTask = new Runnable() {
+		public void run() {
+			flush();
+		}
+	};
+
+	/**
+	 * 构造
+	 *
+	 * @param cache
+	 *            本地的二级缓存，收到的失效事件作用于此缓存
+	 * @param transport
+	 *            消息传输方式
+	 * @param windowMillis
+	 *            合并发送的周期，单位毫秒，为0时每次操作立即发送
+	 * @throws IOException
+	 *             传输方式启动失败
+	 */
+	public InvalidationBus(CacheImpl cache, InvalidationTransport transport, long windowMillis) throws IOException {
+		this.cache = cache;
+		this.transport = transport;
+		this.window = windowMillis;
+		if (windowMillis > 0) {
+			this.timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "cache-invalidation-bus");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		} else {
+			this.timer = null;
+		}
+		transport.start(this);
+	}
+
+	/**
+	 * 按配置创建传输方式
+	 *
+	 * @param type
+	 *            loopback、udp或实现了{@link InvalidationTransport}的类名
+	 * @param address
+	 *            地址，含义由传输方式决定
+	 * @return 传输方式
+	 * @throws IOException
+	 */
+	public static InvalidationTransport createTransport(String type, String address) throws IOException {
+		if ("loopback".equalsIgnoreCase(type)) {
+			return new LoopbackTransport(address);
+		} else if ("udp".equalsIgnoreCase(type)) {
+			return new UdpTransport(address);
+		}
+		try {
+			Class<?> clz = Class.forName(type);
+			try {
+				return (InvalidationTransport) clz.getConstructor(String.class).newInstance(address);
+			} catch (NoSuchMethodException e) {
+				return (InvalidationTransport) clz.newInstance();
+			}
+		} catch (Exception e) {
+			throw new IOException("Can not create cache invalidation transport " + type, e);
+		}
+	}
+
+	public void publishClearAll() {
+		synchronized (this) {
+			pendingClearAll = true;
+			pending.clear();
+		}
+		schedule();
+	}
+
+	public void publishClear(String space, KeyDimension except) {
+		synchronized (this) {
+			if (pendingClearAll)
+				return;
+			getPending(space).clearExcept(except);
+		}
+		schedule();
+	}
+
+	public void publishRefresh(String space, KeyDimension dim, List<?> params) {
+		synchronized (this) {
+			if (pendingClearAll)
+				return;
+			InvalidationEvent event = getPending(space);
+			event.clearExcept(InvalidationEvent.isTransferable(params) ? dim : null);
+			event.remove(dim, params);
+		}
+		schedule();
+	}
+
+	public void publishRemove(String space, KeyDimension dim, List<?> params) {
+		synchronized (this) {
+			if (pendingClearAll)
+				return;
+			InvalidationEvent event = getPending(space);
+			if (InvalidationEvent.isTransferable(params)) {
+				event.remove(dim, params);
+			} else {
+				event.clearExcept(null);
+			}
+		}
+		schedule();
+	}
+
+	/**
+	 * 立即发送所有未发送的事件
+	 */
+	public void flush() {
+		List<InvalidationEvent> events;
+		synchronized (this) {
+			scheduled = false;
+			if (pendingClearAll) {
+				events = new ArrayList<InvalidationEvent>(1);
+				events.add(InvalidationEvent.clearSpace(null));
+				pendingClearAll = false;
+				pending.clear();
+			} else if (pending.isEmpty()) {
+				return;
+			} else {
+				events = new ArrayList<InvalidationEvent>(pending.values());
+				pending = new LinkedHashMap<String, InvalidationEvent>();
+			}
+		}
+		try {
+			transport.send(new InvalidationMessage(nodeId, events));
+			sent.incrementAndGet();
+		} catch (IOException e) {
+			errors.incrementAndGet();
+			log.warn("Cache invalidation send error: {}", e.getMessage());
+		}
+	}
+
+	public void onMessage(InvalidationMessage message) {
+		if (nodeId.equals(message.getSender())) {
+			return;
+		}
+		received.incrementAndGet();
+		for (InvalidationEvent event : message.getEvents()) {
+			cache.applyInvalidation(event);
+		}
+	}
+
+	/**
+	 * 发送剩余的事件，并关闭传输
+	 */
+	public void close() {
+		if (timer != null) {
+			timer.shutdownNow();
+		}
+		flush();
+		transport.close();
+	}
+
+	/**
+	 * 本节点标识
+	 *
+	 * @return 节点标识
+	 */
+	public String getNodeId() {
+		return nodeId;
+	}
+
+	/**
+	 * 已发送的消息数
+	 *
+	 * @return 发送次数
+	 */
+	public long getSentCount() {
+		return sent.get();
+	}
+
+	/**
+	 * 收到的其他节点的消息数
+	 *
+	 * @return 接收次数
+	 */
+	public long getReceivedCount() {
+		return received.get();
+	}
+
+	/**
+	 * 发送失败的次数
+	 *
+	 * @return 失败次数
+	 */
+	public long getErrorCount() {
+		return errors.get();
+	}
+
+	@Override
+	public String toString() {
+		return "InvalidationBus " + nodeId + " sent:" + sent.get() + " received:" + received.get() + " error:" + errors.get();
+	}
+
+	private InvalidationEvent getPending(String space) {
+		InvalidationEvent event = pending.get(space);
+		if (event == null) {
+			event = new InvalidationEvent(space);
+			pending.put(space, event);
+		}
+		return event;
+	}
+
+	private void schedule() {
+		if (timer == null) {
+			flush();
+			return;
+		}
+		synchronized (this) {
+			if (scheduled) {
+				return;
+			}
+			scheduled = true;
+		}
+		try {
+			timer.schedule(flushTask, window, TimeUnit.MILLISECONDS);
+		} catch (RuntimeException e) {
+			// 已关闭
+			flush();
+		}
+	}
+}
@@ -0,0 +1,210 @@
+package jef.database.cache.cluster;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import jef.database.cache.KeyDimension;
+
+/**
+ * 一个表空间上合并后的缓存失效事件。
+ * <p>
+ * 同一个表空间在一个发送周期内的多次失效操作被合并为一个事件，合并后的效果与按顺序执行这些操作相同：
+ * <ul>
+ * <li>清除指定维度中的若干结果（{@link #getRemovals()}）</li>
+ * <li>清除除了保留维度之外的所有维度（{@link #isClearOthers()}、{@link #getKeep()}）</li>
+ * <li>清除整个表空间（{@link #isClearAll()}）</li>
+ * </ul>
+ * 表空间为null时表示清除全部缓存。
+ *
+ * @author jiyi
+ *
+ */
+public final class InvalidationEvent implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * 单个维度中记录的待清除结果超过此数量时，直接清除整个表空间
+	 */
+	static final int MAX_REMOVALS = 256;
+
+	private final String space;
+	private boolean clearAll;
+	private boolean clearOthers;
+	private KeyDimension keep;
+	private Map<KeyDimension, Set<List<?>>> removals;
+
+	InvalidationEvent(String space) {
+		this.space = space;
+		this.clearAll = space == null;
+	}
+
+	/**
+	 * 构造清除整个表空间的事件
+	 *
+	 * @param space
+	 *            表空间，为null时表示清除全部缓存
+	 * @return 事件
+	 */
+	public static InvalidationEvent clearSpace(String space) {
+		InvalidationEvent e = new InvalidationEvent(space);
+		e.clearAll = true;
+		return e;
+	}
+
+	/*
+	 * 合并操作：清除维度中的一个结果
+	 */
+	void remove(KeyDimension dim, List<?> params) {
+		if (clearAll || (clearOthers && !dim.equals(keep))) {
+			return;
+		}
+		if (removals == null) {
+			removals = new HashMap<KeyDimension, Set<List<?>>>();
+		}
+		Set<List<?>> set = removals.get(dim);
+		if (set == null) {
+			set = new LinkedHashSet<List<?>>();
+			removals.put(dim, set);
+		}
+		set.add(params == null ? null : new ArrayList<Object>(params));
+		if (set.size() > MAX_REMOVALS) {
+			setClearAll();
+		}
+	}
+
+	/*
+	 * 合并操作：清除除了指定维度之外的所有维度，维度为null时清除整个表空间
+	 */
+	void clearExcept(KeyDimension dim) {
+		if (clearAll) {
+			return;
+		}
+		if (dim == null) {
+			setClearAll();
+		} else if (!clearOthers) {
+			clearOthers = true;
+			keep = dim;
+			if (removals != null) {
+				for (Iterator<KeyDimension> iter = removals.keySet().iterator(); iter.hasNext();) {
+					if (!dim.equals(iter.next())) {
+						iter.remove();
+					}
+				}
+			}
+		} else if (!keep.equals(dim)) {
+			setClearAll();
+		}
+	}
+
+	/**
+	 * 判断查询参数能否发送给其他节点。只允许基本的JDK类型，接收方也只接受这些类型。
+	 *
+	 * @param params
+	 *            查询参数
+	 * @return 能发送时返回true
+	 */
+	static boolean isTransferable(List<?> params) {
+		if (params == null) {
+			return true;
+		}
+		for (Object o : params) {
+			if (o != null && !isTransferableValue(o)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isTransferableValue(Object o) {
+		if (o instanceof String || o instanceof Boolean || o instanceof Character || o instanceof java.util.Date) {
+			return o.getClass().getName().startsWith("java.");
+		}
+		if (o instanceof Number) {
+			String name = o.getClass().getName();
+			return name.startsWith("java.lang.") || name.startsWith("java.math.");
+		}
+		return o instanceof byte[];
+	}
+
+	private void setClearAll() {
+		clearAll = true;
+		clearOthers = false;
+		keep = null;
+		removals = null;
+	}
+
+	/**
+	 * 表空间，为null时表示全部缓存
+	 *
+	 * @return 表空间
+	 */
+	public String getSpace() {
+		return space;
+	}
+
+	/**
+	 * 是否清除整个表空间
+	 *
+	 * @return true表示清除整个表空间
+	 */
+	public boolean isClearAll() {
+		return clearAll;
+	}
+
+	/**
+	 * 是否清除除保留维度之外的所有维度
+	 *
+	 * @return true表示清除其他维度
+	 */
+	public boolean isClearOthers() {
+		return clearOthers;
+	}
+
+	/**
+	 * 清除其他维度时被保留的维度
+	 *
+	 * @return 保留的维度
+	 */
+	public KeyDimension getKeep() {
+		return keep;
+	}
+
+	/**
+	 * 各个维度中需要清除的结果（以查询参数标识）
+	 *
+	 * @return 维度和查询参数
+	 */
+	public Map<KeyDimension, ? extends Collection<List<?>>> getRemovals() {
+		if (removals == null) {
+			return Collections.emptyMap();
+		}
+		return removals;
+	}
+
+	@Override
+	public String toString() {
+		if (space == null) {
+			return "[ALL]";
+		}
+		StringBuilder sb = new StringBuilder("[").append(space).append(']');
+		if (clearAll) {
+			sb.append(" clear");
+		} else {
+			if (clearOthers) {
+				sb.append(" keep ").append(keep);
+			}
+			if (removals != null) {
+				sb.append(" remove ").append(removals);
+			}
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,47 @@
+package jef.database.cache.cluster;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 一次发送的缓存失效消息，包含一个发送周期内合并后的所有事件
+ *
+ * @author jiyi
+ *
+ */
+public final class InvalidationMessage implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private final String sender;
+	private final List<InvalidationEvent> events;
+
+	public InvalidationMessage(String sender, List<InvalidationEvent> events) {
+		this.sender = sender;
+		// 统一为ArrayList，接收方只允许反序列化这些类型
+		this.events = events instanceof ArrayList ? events : new ArrayList<InvalidationEvent>(events);
+	}
+
+	/**
+	 * 发送节点的标识
+	 *
+	 * @return 节点标识
+	 */
+	public String getSender() {
+		return sender;
+	}
+
+	/**
+	 * 失效事件
+	 *
+	 * @return 事件列表
+	 */
+	public List<InvalidationEvent> getEvents() {
+		return events;
+	}
+
+	@Override
+	public String toString() {
+		return sender + events;
+	}
+}
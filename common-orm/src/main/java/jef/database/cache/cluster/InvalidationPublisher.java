@@ -0,0 +1,55 @@
+package jef.database.cache.cluster;
+
+import java.util.List;
+
+import jef.database.cache.KeyDimension;
+
+/**
+ * 缓存失效的发布者。
+ * <p>
+ * 二级缓存在本地执行失效操作时调用发布者，由发布者将失效操作通知集群中的其他节点，其他节点对本地缓存执行相同的失效操作。
+ * 调用发生在数据库操作的线程中，实现类不应阻塞。
+ *
+ * @author jiyi
+ * @see InvalidationBus
+ */
+public interface InvalidationPublisher {
+	/**
+	 * 清除全部缓存
+	 */
+	void publishClearAll();
+
+	/**
+	 * 清除表空间中除指定维度之外的所有维度
+	 *
+	 * @param space
+	 *            表空间
+	 * @param except
+	 *            保留的维度，为null时清除整个表空间
+	 */
+	void publishClear(String space, KeyDimension except);
+
+	/**
+	 * 清除维度中的一个结果，同时清除表空间中的其他维度
+	 *
+	 * @param space
+	 *            表空间
+	 * @param dim
+	 *            维度
+	 * @param params
+	 *            查询参数
+	 */
+	void publishRefresh(String space, KeyDimension dim, List<?> params);
+
+	/**
+	 * 只清除维度中的一个结果
+	 *
+	 * @param space
+	 *            表空间
+	 * @param dim
+	 *            维度
+	 * @param params
+	 *            查询参数
+	 */
+	void publishRemove(String space, KeyDimension dim, List<?> params);
+}
@@ -0,0 +1,51 @@
+package jef.database.cache.cluster;
+
+import java.io.IOException;
+
+/**
+ * 缓存失效消息的传输方式。
+ * <p>
+ * 内置的实现有同一JVM内的{@link LoopbackTransport}和基于UDP的{@link UdpTransport}，
+ * 也可以自行实现此接口接入其他消息中间件，通过{@link jef.database.DbCfg#CACHE_CLUSTER_TRANSPORT}配置类名。
+ * 实现类需要有一个以字符串（{@link jef.database.DbCfg#CACHE_CLUSTER_ADDRESS}的配置值）为参数的构造方法，或者无参构造方法。
+ *
+ * @author jiyi
+ *
+ */
+public interface InvalidationTransport {
+	/**
+	 * 开始接收消息
+	 *
+	 * @param receiver
+	 *            收到其他节点的消息时回调
+	 * @throws IOException
+	 */
+	void start(Receiver receiver) throws IOException;
+
+	/**
+	 * 向集群中的其他节点发送消息
+	 *
+	 * @param message
+	 *            消息
+	 * @throws IOException
+	 */
+	void send(InvalidationMessage message) throws IOException;
+
+	/**
+	 * 停止接收并释放资源
+	 */
+	void close();
+
+	/**
+	 * 消息接收者
+	 */
+	interface Receiver {
+		/**
+		 * 收到消息。发送者自己发出的消息可能也会被收到，由接收者按节点标识忽略。
+		 *
+		 * @param message
+		 *            消息
+		 */
+		void onMessage(InvalidationMessage message);
+	}
+}
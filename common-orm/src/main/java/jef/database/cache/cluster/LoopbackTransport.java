@@ -0,0 +1,63 @@
+package jef.database.cache.cluster;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 同一JVM内的传输方式，同一频道中的所有节点互相收到消息。用于测试，或者同一进程中有多个DbClient连接同一个数据库的场合。
+ *
+ * @author jiyi
+ *
+ */
+public final class LoopbackTransport implements InvalidationTransport {
+	private static final ConcurrentMap<String, List<LoopbackTransport>> CHANNELS = new ConcurrentHashMap<String, List<LoopbackTransport>>();
+
+	private final String channel;
+	private volatile Receiver receiver;
+
+	/**
+	 * 构造
+	 *
+	 * @param channel
+	 *            频道名称，为空时使用default
+	 */
+	public LoopbackTransport(String channel) {
+		this.channel = channel == null || channel.length() == 0 ? "default" : channel;
+	}
+
+	public void start(Receiver receiver) {
+		this.receiver = receiver;
+		List<LoopbackTransport> members = CHANNELS.get(channel);
+		if (members == null) {
+			List<LoopbackTransport> created = new CopyOnWriteArrayList<LoopbackTransport>();
+			members = CHANNELS.putIfAbsent(channel, created);
+			if (members == null) {
+				members = created;
+			}
+		}
+		members.add(this);
+	}
+
+	public void send(InvalidationMessage message) {
+		List<LoopbackTransport> members = CHANNELS.get(channel);
+		if (members == null) {
+			return;
+		}
+		for (LoopbackTransport member : members) {
+			Receiver r = member.receiver;
+			if (member != this && r != null) {
+				r.onMessage(message);
+			}
+		}
+	}
+
+	public void close() {
+		List<LoopbackTransport> members = CHANNELS.get(channel);
+		if (members != null) {
+			members.remove(this);
+		}
+		receiver = null;
+	}
+}
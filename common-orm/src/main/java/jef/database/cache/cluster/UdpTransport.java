@@ -0,0 +1,206 @@
+package jef.database.cache.cluster;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import jef.database.cache.KeyDimension;
+import jef.tools.StringUtils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 基于UDP的传输方式，不需要额外的消息中间件。地址有两种写法：
+ * <ul>
+ * <li>组播：{@code 239.255.27.1:45588}，所有加入同一组播地址的节点互相收到消息。</li>
+ * <li>单播：{@code 127.0.0.1:45601,127.0.0.1:45602,...}，第一个地址是本节点监听的地址，后面是其他节点的地址。
+ * 可用于不支持组播的网络，或在一台机器上测试。</li>
+ * </ul>
+ * 消息超过一个数据报的大小时拆分发送，单个事件仍然过大时改为清除整个表空间。
+ * 接收时只接受失效事件和基本的JDK类型，不会反序列化其他类。
+ *
+ * @author jiyi
+ *
+ */
+public final class UdpTransport implements InvalidationTransport {
+	private static final Logger log = LoggerFactory.getLogger(UdpTransport.class);
+
+	/**
+	 * 单个数据报的最大字节数
+	 */
+	static final int MAX_PACKET = 60000;
+
+	private final DatagramSocket socket;
+	private final List<SocketAddress> targets;
+	private volatile boolean closed;
+	private Thread listener;
+
+	/**
+	 * 构造
+	 *
+	 * @param address
+	 *            组播地址，或以逗号分隔的单播地址列表
+	 * @throws IOException
+	 */
+	public UdpTransport(String address) throws IOException {
+		String[] parts = StringUtils.split(address, ',');
+		if (parts.length == 0) {
+			throw new IllegalArgumentException("Invalid udp address: " + address);
+		}
+		InetSocketAddress first = parse(parts[0]);
+		if (first.getAddress().isMulticastAddress()) {
+			MulticastSocket ms = new MulticastSocket(first.getPort());
+			ms.setLoopbackMode(false);
+			ms.joinGroup(first.getAddress());
+			this.socket = ms;
+			this.targets = Collections.<SocketAddress> singletonList(first);
+		} else {
+			this.socket = new DatagramSocket(first);
+			List<SocketAddress> list = new ArrayList<SocketAddress>(parts.length - 1);
+			for (int i = 1; i < parts.length; i++) {
+				list.add(parse(parts[i]));
+			}
+			this.targets = list;
+		}
+	}
+
+	public void start(final Receiver receiver) {
+		listener = new Thread("cache-invalidation-udp") {
+			public void run() {
+				byte[] buf = new byte[65536];
+				while (!closed) {
+					DatagramPacket packet = new DatagramPacket(buf, buf.length);
+					try {
+						socket.receive(packet);
+						InvalidationMessage message = decode(packet.getData(), packet.getOffset(), packet.getLength());
+						receiver.onMessage(message);
+					} catch (IOException e) {
+						if (!closed) {
+							log.warn("Cache invalidation receive error: {}", e.getMessage());
+						}
+					} catch (RuntimeException e) {
+						log.error("Cache invalidation process error", e);
+					}
+				}
+			}
+		};
+		listener.setDaemon(true);
+		listener.start();
+	}
+
+	public void send(InvalidationMessage message) throws IOException {
+		byte[] data = encode(message);
+		if (data.length <= MAX_PACKET) {
+			for (SocketAddress target : targets) {
+				socket.send(new DatagramPacket(data, data.length, target));
+			}
+			return;
+		}
+		List<InvalidationEvent> events = message.getEvents();
+		if (events.size() > 1) {
+			int half = events.size() / 2;
+			send(new InvalidationMessage(message.getSender(), new ArrayList<InvalidationEvent>(events.subList(0, half))));
+			send(new InvalidationMessage(message.getSender(), new ArrayList<InvalidationEvent>(events.subList(half, events.size()))));
+		} else {
+			InvalidationEvent event = events.get(0);
+			send(new InvalidationMessage(message.getSender(), Collections.singletonList(InvalidationEvent.clearSpace(event.getSpace()))));
+		}
+	}
+
+	public void close() {
+		closed = true;
+		socket.close();
+	}
+
+	/**
+	 * 本地监听的端口
+	 *
+	 * @return 端口
+	 */
+	public int getLocalPort() {
+		return socket.getLocalPort();
+	}
+
+	static byte[] encode(InvalidationMessage message) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(message);
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	static InvalidationMessage decode(byte[] data, int offset, int length) throws IOException {
+		ObjectInputStream in = new SafeObjectInputStream(new ByteArrayInputStream(data, offset, length));
+		try {
+			return (InvalidationMessage) in.readObject();
+		} catch (ClassNotFoundException e) {
+			throw new IOException(e);
+		} catch (ClassCastException e) {
+			throw new IOException(e);
+		} finally {
+			in.close();
+		}
+	}
+
+	private static InetSocketAddress parse(String s) {
+		s = s.trim();
+		int n = s.lastIndexOf(':');
+		if (n < 0) {
+			throw new IllegalArgumentException("Invalid udp address, port required: " + s);
+		}
+		String host = s.substring(0, n);
+		int port = Integer.parseInt(s.substring(n + 1));
+		try {
+			return new InetSocketAddress(InetAddress.getByName(host), port);
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Invalid udp address: " + s, e);
+		}
+	}
+
+	/*
+	 * 只允许反序列化失效消息中会出现的类
+	 */
+	private static final class SafeObjectInputStream extends ObjectInputStream {
+		private static final Set<String> ALLOWED = new HashSet<String>(Arrays.asList(InvalidationMessage.class.getName(),
+				InvalidationEvent.class.getName(), KeyDimension.class.getName(), "java.lang.String", "java.lang.Number", "java.lang.Integer",
+				"java.lang.Long", "java.lang.Short", "java.lang.Byte", "java.lang.Double", "java.lang.Float", "java.lang.Boolean",
+				"java.lang.Character", "java.math.BigDecimal", "java.math.BigInteger", "java.util.Date", "java.sql.Date", "java.sql.Time",
+				"java.sql.Timestamp", "java.util.ArrayList", "java.util.Arrays$ArrayList", "java.util.Collections$SingletonList",
+				"java.util.HashMap", "java.util.HashSet", "java.util.LinkedHashSet", "[B"));
+
+		SafeObjectInputStream(InputStream in) throws IOException {
+			super(in);
+		}
+
+		@Override
+		protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+			String name = desc.getName();
+			if (!isAllowed(name)) {
+				throw new InvalidClassException(name, "not allowed in cache invalidation message");
+			}
+			return super.resolveClass(desc);
+		}
+
+		private static boolean isAllowed(String name) {
+			return ALLOWED.contains(name);
+		}
+	}
+}
@@ -15,6 +15,7 @@ import jef.database.DbFunction;
 import jef.database.DbMetaData;
 import jef.database.datasource.DataSourceInfo;
 import jef.database.dialect.handler.LimitHandler;
+import jef.database.dialect.handler.UpsertHandler;
 import jef.database.dialect.type.AColumnMapping;
 import jef.database.dialect.type.AutoIncrementMapping;
 import jef.database.dialect.type.ParserFactory;
@@ -243,6 +244,11 @@ public abstract class AbstractDelegatingDialect implements DatabaseDialect {
 		return dialect.getLimitHandler();
 	}
 
+	@Override
+	public UpsertHandler getUpsertHandler() {
+		return dialect.getUpsertHandler();
+	}
+
 	@Override
 	public String getColumnNameToUse(AColumnMapping name) {
 		return dialect.getColumnNameToUse(name);
@@ -32,6 +32,8 @@ import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import javax.persistence.GenerationType;
 import javax.persistence.PersistenceException;
@@ -46,6 +48,7 @@ import jef.database.datasource.DataSourceInfo;
 import jef.database.dialect.ColumnType.Varchar;
 import jef.database.dialect.type.AColumnMapping;
 import jef.database.dialect.type.AutoIncrementMapping;
+import jef.database.dialect.handler.UpsertHandler;
 import jef.database.dialect.type.ParserFactory;
 import jef.database.exception.ViolatedConstraintNameExtracter;
 import jef.database.jdbc.JDBCTarget;
@@ -94,6 +97,10 @@ public abstract class AbstractDialect implements DatabaseDialect {
 	 * 缺省的函数对象，所有数据库都支持的函数
 	 */
 	private static final List<FunctionMapping> DEFAULT_FUNCTIONS = new ArrayList<FunctionMapping>();
+	/**
+	 * 版本号中的主、次版本
+	 */
+	private static final Pattern VERSION = Pattern.compile("(\\d+)\\.(\\d+)");
 	/**
 	 * 数据库关键字
 	 */
@@ -708,6 +715,33 @@ public abstract class AbstractDialect implements DatabaseDialect {
 	public void toExtremeInsert(InsertSqlClause sql) {
 	}
 
+	public UpsertHandler getUpsertHandler() {
+		return null;
+	}
+
+	/**
+	 * 判断数据库的版本是否不低于指定版本
+	 * 
+	 * @param db
+	 * @param major
+	 * @param minor
+	 * @return 无法得到版本时返回false
+	 */
+	protected static boolean isVersionAtLeast(DbMetaData db, int major, int minor) {
+		String version;
+		try {
+			version = db.getDatabaseVersion();
+		} catch (SQLException e) {
+			return false;
+		}
+		Matcher m = VERSION.matcher(version == null ? "" : version);
+		if (!m.find()) {
+			return false;
+		}
+		int v = Integer.parseInt(m.group(1));
+		return v > major || (v == major && Integer.parseInt(m.group(2)) >= minor);
+	}
+
 	public void accept(DbMetaData dbMetadata) {
 		this.caseHandler = dbMetadata.getFeature().getDefaultCase();
 		String q = dbMetadata.getFeature().getQuoteChar();
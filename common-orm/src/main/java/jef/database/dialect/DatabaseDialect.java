@@ -29,6 +29,7 @@ import jef.database.DbFunction;
 import jef.database.DbMetaData;
 import jef.database.datasource.DataSourceInfo;
 import jef.database.dialect.handler.LimitHandler;
+import jef.database.dialect.handler.UpsertHandler;
 import jef.database.dialect.type.AColumnMapping;
 import jef.database.dialect.type.AutoIncrementMapping;
 import jef.database.dialect.type.ParserFactory;
@@ -173,6 +174,12 @@ public interface DatabaseDialect {
 	 */
 	LimitHandler getLimitHandler();
 
+	/**
+	 * 得到单条语句合并（Upsert）的生成器
+	 * @return 合并语句生成器。数据库不支持时返回null，此时合并操作按先查询再插入或更新的方式进行
+	 */
+	UpsertHandler getUpsertHandler();
+
 	/**
 	 * Oracle会将所有未加引号的数据库对象名称都按照大写对象名来处理，MySQL则对表名一律转小写，列名则保留原来的大小写。
 	 * 为了体现这一数据库策略的不同，这里处理大小写的问题。
@@ -33,7 +33,9 @@ import jef.common.log.LogUtil;
 import jef.database.ConnectInfo;
 import jef.database.DbMetaData;
 import jef.database.dialect.handler.DerbyLimitHandler;
+import jef.database.dialect.handler.DerbyUpsertHandler;
 import jef.database.dialect.handler.LimitHandler;
+import jef.database.dialect.handler.UpsertHandler;
 import jef.database.jdbc.result.IResultSet;
 import jef.database.jsqlparser.expression.LongValue;
 import jef.database.meta.DbProperty;
@@ -239,6 +241,8 @@ public class DerbyDialect extends AbstractDialect {
 		} catch (SQLException e) {
 			LogUtil.exception("Initlize user function error.",e);
 		}
+		// MERGE语句从10.11开始支持
+		upsert = isVersionAtLeast(db, 10, 11) ? new DerbyUpsertHandler() : null;
 	}
 
 	/**
@@ -272,6 +276,13 @@ public class DerbyDialect extends AbstractDialect {
 	public LimitHandler getLimitHandler() {
 		return limit;
 	}
+
+	private UpsertHandler upsert;
+
+	@Override
+	public UpsertHandler getUpsertHandler() {
+		return upsert;
+	}
 	
     private final SQLTemplates queryDslDialect = new DerbyTemplates();
 
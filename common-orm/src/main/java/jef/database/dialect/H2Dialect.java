@@ -7,8 +7,10 @@ import java.util.List;
 
 import jef.database.ConnectInfo;
 import jef.database.DbMetaData;
+import jef.database.dialect.handler.H2UpsertHandler;
 import jef.database.dialect.handler.LimitHandler;
 import jef.database.dialect.handler.LimitOffsetLimitHandler;
+import jef.database.dialect.handler.UpsertHandler;
 import jef.database.meta.DbProperty;
 import jef.database.meta.Feature;
 import jef.database.meta.object.SequenceInfo;
@@ -171,6 +173,13 @@ public class H2Dialect extends AbstractDialect {
 		return limit;
 	}
 
+	private final UpsertHandler upsert = new H2UpsertHandler();
+
+	@Override
+	public UpsertHandler getUpsertHandler() {
+		return upsert;
+	}
+
 	@Override
 	public void parseDbInfo(ConnectInfo connectInfo) {
 		JefStringReader reader = new JefStringReader(connectInfo.getUrl());
@@ -20,6 +20,8 @@ import jef.database.ORMConfig;
 import jef.database.dialect.ColumnType.Char;
 import jef.database.dialect.handler.LimitHandler;
 import jef.database.dialect.handler.LimitOffsetLimitHandler;
+import jef.database.dialect.handler.MergeUpsertHandler;
+import jef.database.dialect.handler.UpsertHandler;
 import jef.database.dialect.type.AutoIncrementMapping;
 import jef.database.exception.JDBCExceptionHelper;
 import jef.database.exception.TemplatedViolatedConstraintNameExtracter;
@@ -321,6 +323,13 @@ public class HsqlDbMemDialect extends AbstractDialect {
 		return limit;
 	}
 
+	private final UpsertHandler upsert = new MergeUpsertHandler();
+
+	@Override
+	public UpsertHandler getUpsertHandler() {
+		return upsert;
+	}
+
 	private static ViolatedConstraintNameExtracter EXTRACTER_18 = new TemplatedViolatedConstraintNameExtracter() {
 
 		/**
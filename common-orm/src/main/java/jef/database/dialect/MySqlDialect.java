@@ -29,6 +29,8 @@ import jef.database.annotation.DateGenerateType;
 import jef.database.dialect.ColumnType.AutoIncrement;
 import jef.database.dialect.handler.LimitHandler;
 import jef.database.dialect.handler.MySqlLimitHandler;
+import jef.database.dialect.handler.MySqlUpsertHandler;
+import jef.database.dialect.handler.UpsertHandler;
 import jef.database.exception.ViolatedConstraintNameExtracter;
 import jef.database.jdbc.result.IResultSet;
 import jef.database.jsqlparser.expression.BinaryExpression;
@@ -459,6 +461,13 @@ public class MySqlDialect extends AbstractDialect {
 		return limit;
 	}
 
+	private final UpsertHandler upsert = new MySqlUpsertHandler();
+
+	@Override
+	public UpsertHandler getUpsertHandler() {
+		return upsert;
+	}
+
 	@Override
 	public ViolatedConstraintNameExtracter getViolatedConstraintNameExtracter() {
 		return EXTRACTER;
@@ -40,6 +40,8 @@ import jef.database.dialect.ColumnType.AutoIncrement;
 import jef.database.dialect.ColumnType.Varchar;
 import jef.database.dialect.handler.LimitHandler;
 import jef.database.dialect.handler.OracleLimitHander;
+import jef.database.dialect.handler.OracleUpsertHandler;
+import jef.database.dialect.handler.UpsertHandler;
 import jef.database.exception.JDBCExceptionHelper;
 import jef.database.exception.TemplatedViolatedConstraintNameExtracter;
 import jef.database.exception.ViolatedConstraintNameExtracter;
@@ -521,6 +523,13 @@ public class OracleDialect extends AbstractDialect {
 		return limit;
 	}
 
+	private final UpsertHandler upsert = new OracleUpsertHandler();
+
+	@Override
+	public UpsertHandler getUpsertHandler() {
+		return upsert;
+	}
+
 	private static ViolatedConstraintNameExtracter EXTRACTER_8 = new TemplatedViolatedConstraintNameExtracter() {
 		/**
 		 * Extract the name of the violated constraint from the given
@@ -23,6 +23,8 @@ import jef.database.dialect.ColumnType.Clob;
 import jef.database.dialect.ColumnType.Varchar;
 import jef.database.dialect.handler.LimitHandler;
 import jef.database.dialect.handler.LimitOffsetLimitHandler;
+import jef.database.dialect.handler.OnConflictUpsertHandler;
+import jef.database.dialect.handler.UpsertHandler;
 import jef.database.dialect.type.AutoIncrementMapping;
 import jef.database.exception.JDBCExceptionHelper;
 import jef.database.exception.TemplatedViolatedConstraintNameExtracter;
@@ -227,6 +229,8 @@ public class PostgreSql94Dialect extends AbstractDialect {
 		} catch (SQLException e) {
 			LogUtil.exception("Initlize user function error.", e);
 		}
+		// ON CONFLICT从9.5开始支持
+		upsert = isVersionAtLeast(db, 9, 5) ? new OnConflictUpsertHandler() : null;
 	}
 
 	public String getDriverClass(String url) {
@@ -573,6 +577,13 @@ public class PostgreSql94Dialect extends AbstractDialect {
 	public LimitHandler getLimitHandler() {
 		return limit;
 	}
+
+	private UpsertHandler upsert;
+
+	@Override
+	public UpsertHandler getUpsertHandler() {
+		return upsert;
+	}
 	
 	/**
 	 *  Postgres系统表 select * from pg_constraint
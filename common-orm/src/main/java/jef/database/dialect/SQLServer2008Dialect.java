@@ -10,6 +10,8 @@ import com.querydsl.sql.SQLServer2008Templates;
 import com.querydsl.sql.SQLTemplates;
 
 import jef.database.DbMetaData;
+import jef.database.dialect.handler.MergeUpsertHandler;
+import jef.database.dialect.handler.UpsertHandler;
 import jef.database.jdbc.result.IResultSet;
 import jef.database.meta.object.Constraint;
 import jef.database.meta.object.ConstraintType;
@@ -45,6 +47,13 @@ public class SQLServer2008Dialect extends SQLServer2005Dialect {
         return new SQLServer2008Templates();
     }
 
+	private final UpsertHandler upsert = new MergeUpsertHandler(true);
+
+	@Override
+	public UpsertHandler getUpsertHandler() {
+		return upsert;
+	}
+
 	@Override
 	public List<Constraint> getConstraintInfo(DbMetaData conn, String schema, String tablename, String constraintName)
 			throws SQLException {
@@ -20,9 +20,12 @@ import java.sql.SQLException;
 
 import jef.database.ConnectInfo;
 import jef.database.DbFunction;
+import jef.database.DbMetaData;
 import jef.database.dialect.ColumnType.AutoIncrement;
 import jef.database.dialect.handler.LimitHandler;
 import jef.database.dialect.handler.LimitOffsetLimitHandler;
+import jef.database.dialect.handler.OnConflictUpsertHandler;
+import jef.database.dialect.handler.UpsertHandler;
 import jef.database.exception.ViolatedConstraintNameExtracter;
 import jef.database.meta.DbProperty;
 import jef.database.meta.Feature;
@@ -224,6 +227,20 @@ public class SqliteDialect extends AbstractDialect {
 		return limit;
 	}
 
+	private UpsertHandler upsert;
+
+	@Override
+	public UpsertHandler getUpsertHandler() {
+		return upsert;
+	}
+
+	@Override
+	public void accept(DbMetaData db) {
+		super.accept(db);
+		// ON CONFLICT ... DO UPDATE从3.24开始支持
+		upsert = isVersionAtLeast(db, 3, 24) ? new OnConflictUpsertHandler() : null;
+	}
+
 	private static ViolatedConstraintNameExtracter EXTRACTER = new ViolatedConstraintNameExtracter() {
 		@Override
 		public String extractConstraintName(SQLException sqle) {
@@ -0,0 +1,49 @@
+package jef.database.dialect.handler;
+
+import java.util.List;
+
+/**
+ * Derby的MERGE INTO语法。Derby的源表只能是基表，因此以SYSIBM.SYSDUMMY1作为源表，各列的值直接写在条件、更新和插入部分
+ * 
+ * <pre>
+ * MERGE INTO table T USING SYSIBM.SYSDUMMY1 ON T.ID = ?
+ * WHEN MATCHED THEN UPDATE SET NAME = ?
+ * WHEN NOT MATCHED THEN INSERT (ID, NAME) VALUES (?, ?)
+ * </pre>
+ * 
+ * @author jiyi
+ *
+ */
+public class DerbyUpsertHandler implements UpsertHandler {
+
+	public String toUpsertSql(String table, List<String> columns, List<String> values, int[] keys, int[] updates, List<Integer> binds) {
+		StringBuilder sb = new StringBuilder(64 + columns.size() * 32);
+		sb.append("merge into ").append(table).append(" T using SYSIBM.SYSDUMMY1 on ");
+		for (int i = 0; i < keys.length; i++) {
+			if (i > 0)
+				sb.append(" and ");
+			sb.append("T.").append(columns.get(keys[i])).append('=').append(values.get(keys[i]));
+			binds.add(keys[i]);
+		}
+		if (updates.length > 0) {
+			sb.append(" when matched then update set ");
+			for (int i = 0; i < updates.length; i++) {
+				if (i > 0)
+					sb.append(',');
+				sb.append(columns.get(updates[i])).append('=').append(values.get(updates[i]));
+				binds.add(updates[i]);
+			}
+		}
+		sb.append(" when not matched then insert (");
+		MergeUpsertHandler.appendColumns(sb, columns, "");
+		sb.append(") values (");
+		for (int i = 0; i < values.size(); i++) {
+			if (i > 0)
+				sb.append(',');
+			sb.append(values.get(i));
+			binds.add(i);
+		}
+		sb.append(')');
+		return sb.toString();
+	}
+}
@@ -0,0 +1,68 @@
+package jef.database.dialect.handler;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * H2的MERGE INTO ... KEY语法。
+ * <p>
+ * 该语法在记录存在时会更新所有列，H2在1.4.197之前也不支持MERGE INTO ... USING。因此不在更新范围内的列(如创建时间、版本号)
+ * 在记录存在时取回原值，只在插入时使用新值
+ *
+ * <pre>
+ * MERGE INTO table (ID, NAME, CREATED) KEY (ID) VALUES (?, ?,
+ *   CASE WHEN EXISTS (SELECT 1 FROM table WHERE ID = ?) THEN (SELECT CREATED FROM table WHERE ID = ?) ELSE ? END)
+ * </pre>
+ *
+ * @author jiyi
+ *
+ */
+public class H2UpsertHandler implements UpsertHandler {
+
+	public String toUpsertSql(String table, List<String> columns, List<String> values, int[] keys, int[] updates, List<Integer> binds) {
+		boolean[] kept = new boolean[columns.size()];
+		Arrays.fill(kept, true);
+		for (int key : keys) {
+			kept[key] = false;
+		}
+		for (int update : updates) {
+			kept[update] = false;
+		}
+		StringBuilder sb = new StringBuilder(48 + columns.size() * 16);
+		sb.append("merge into ").append(table).append('(');
+		MergeUpsertHandler.appendColumns(sb, columns, "");
+		sb.append(") key(");
+		for (int i = 0; i < keys.length; i++) {
+			if (i > 0)
+				sb.append(',');
+			sb.append(columns.get(keys[i]));
+		}
+		sb.append(") values(");
+		for (int i = 0; i < values.size(); i++) {
+			if (i > 0)
+				sb.append(',');
+			if (kept[i]) {
+				sb.append("case when exists(select 1 from ").append(table);
+				appendKeyCondition(sb, columns, values, keys, binds);
+				sb.append(") then (select ").append(columns.get(i)).append(" from ").append(table);
+				appendKeyCondition(sb, columns, values, keys, binds);
+				sb.append(") else ").append(values.get(i)).append(" end");
+			} else {
+				sb.append(values.get(i));
+			}
+			binds.add(i);
+		}
+		sb.append(')');
+		return sb.toString();
+	}
+
+	private static void appendKeyCondition(StringBuilder sb, List<String> columns, List<String> values, int[] keys, List<Integer> binds) {
+		sb.append(" where ");
+		for (int i = 0; i < keys.length; i++) {
+			if (i > 0)
+				sb.append(" and ");
+			sb.append(columns.get(keys[i])).append('=').append(values.get(keys[i]));
+			binds.add(keys[i]);
+		}
+	}
+}
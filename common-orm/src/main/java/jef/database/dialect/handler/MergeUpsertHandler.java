@@ -0,0 +1,86 @@
+package jef.database.dialect.handler;
+
+import java.util.List;
+
+/**
+ * 标准的MERGE INTO语法，以VALUES构造的单行作为源表
+ * 
+ * <pre>
+ * MERGE INTO table T USING (VALUES (?, ?)) AS S (ID, NAME) ON T.ID = S.ID
+ * WHEN MATCHED THEN UPDATE SET NAME = S.NAME
+ * WHEN NOT MATCHED THEN INSERT (ID, NAME) VALUES (S.ID, S.NAME)
+ * </pre>
+ * 
+ * @author jiyi
+ *
+ */
+public class MergeUpsertHandler implements UpsertHandler {
+	/**
+	 * 语句是否要以分号结束(SQLServer)
+	 */
+	private final boolean terminated;
+
+	public MergeUpsertHandler() {
+		this(false);
+	}
+
+	public MergeUpsertHandler(boolean terminated) {
+		this.terminated = terminated;
+	}
+
+	public String toUpsertSql(String table, List<String> columns, List<String> values, int[] keys, int[] updates, List<Integer> binds) {
+		StringBuilder sb = new StringBuilder(64 + columns.size() * 32);
+		sb.append("merge into ").append(table).append(" T using ");
+		appendSource(sb, columns, values, binds);
+		sb.append(" on (");
+		for (int i = 0; i < keys.length; i++) {
+			if (i > 0)
+				sb.append(" and ");
+			String column = columns.get(keys[i]);
+			sb.append("T.").append(column).append("=S.").append(column);
+		}
+		sb.append(')');
+		if (updates.length > 0) {
+			sb.append(" when matched then update set ");
+			for (int i = 0; i < updates.length; i++) {
+				if (i > 0)
+					sb.append(',');
+				String column = columns.get(updates[i]);
+				sb.append(column).append("=S.").append(column);
+			}
+		}
+		sb.append(" when not matched then insert (");
+		appendColumns(sb, columns, "");
+		sb.append(") values (");
+		appendColumns(sb, columns, "S.");
+		sb.append(')');
+		if (terminated) {
+			sb.append(';');
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * 生成源表，别名为S，列名与目标表相同
+	 */
+	protected void appendSource(StringBuilder sb, List<String> columns, List<String> values, List<Integer> binds) {
+		sb.append("(values (");
+		for (int i = 0; i < values.size(); i++) {
+			if (i > 0)
+				sb.append(',');
+			sb.append(values.get(i));
+			binds.add(i);
+		}
+		sb.append(")) as S (");
+		appendColumns(sb, columns, "");
+		sb.append(')');
+	}
+
+	static void appendColumns(StringBuilder sb, List<String> columns, String prefix) {
+		for (int i = 0; i < columns.size(); i++) {
+			if (i > 0)
+				sb.append(',');
+			sb.append(prefix).append(columns.get(i));
+		}
+	}
+}
@@ -0,0 +1,35 @@
+package jef.database.dialect.handler;
+
+import java.util.List;
+
+/**
+ * MySQL/MariaDB的INSERT ... ON DUPLICATE KEY UPDATE语法。
+ * 注意MySQL按表上任意主键或唯一键判断冲突，而不是按指定的列。
+ * 
+ * <pre>
+ * INSERT INTO table(ID, NAME) VALUES (?, ?) ON DUPLICATE KEY UPDATE NAME = VALUES(NAME)
+ * </pre>
+ * 
+ * @author jiyi
+ *
+ */
+public class MySqlUpsertHandler implements UpsertHandler {
+
+	public String toUpsertSql(String table, List<String> columns, List<String> values, int[] keys, int[] updates, List<Integer> binds) {
+		StringBuilder sb = OnConflictUpsertHandler.appendInsert(table, columns, values, binds);
+		sb.append(" on duplicate key update ");
+		if (updates.length == 0) {
+			// 没有要更新的列，写一个不改变数据的赋值
+			String column = columns.get(keys[0]);
+			sb.append(column).append('=').append(column);
+		} else {
+			for (int i = 0; i < updates.length; i++) {
+				if (i > 0)
+					sb.append(',');
+				String column = columns.get(updates[i]);
+				sb.append(column).append("=values(").append(column).append(')');
+			}
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,56 @@
+package jef.database.dialect.handler;
+
+import java.util.List;
+
+/**
+ * PostgreSQL(9.5+)和SQLite(3.24+)的INSERT ... ON CONFLICT语法。冲突的列上必须有主键或唯一约束
+ * 
+ * <pre>
+ * INSERT INTO table(ID, NAME) VALUES (?, ?) ON CONFLICT (ID) DO UPDATE SET NAME = EXCLUDED.NAME
+ * </pre>
+ * 
+ * @author jiyi
+ *
+ */
+public class OnConflictUpsertHandler implements UpsertHandler {
+
+	public String toUpsertSql(String table, List<String> columns, List<String> values, int[] keys, int[] updates, List<Integer> binds) {
+		StringBuilder sb = appendInsert(table, columns, values, binds);
+		sb.append(" on conflict (");
+		for (int i = 0; i < keys.length; i++) {
+			if (i > 0)
+				sb.append(',');
+			sb.append(columns.get(keys[i]));
+		}
+		if (updates.length == 0) {
+			sb.append(") do nothing");
+		} else {
+			sb.append(") do update set ");
+			for (int i = 0; i < updates.length; i++) {
+				if (i > 0)
+					sb.append(',');
+				String column = columns.get(updates[i]);
+				sb.append(column).append("=excluded.").append(column);
+			}
+		}
+		return sb.toString();
+	}
+
+	/*
+	 * 普通的插入语句部分
+	 */
+	static StringBuilder appendInsert(String table, List<String> columns, List<String> values, List<Integer> binds) {
+		StringBuilder sb = new StringBuilder(64 + columns.size() * 24);
+		sb.append("insert into ").append(table).append('(');
+		MergeUpsertHandler.appendColumns(sb, columns, "");
+		sb.append(") values(");
+		for (int i = 0; i < values.size(); i++) {
+			if (i > 0)
+				sb.append(',');
+			sb.append(values.get(i));
+			binds.add(i);
+		}
+		sb.append(')');
+		return sb;
+	}
+}
@@ -0,0 +1,28 @@
+package jef.database.dialect.handler;
+
+import java.util.List;
+
+/**
+ * Oracle的MERGE INTO语法，以DUAL上的查询作为源表
+ * 
+ * <pre>
+ * MERGE INTO table T USING (SELECT ? ID, ? NAME FROM DUAL) S ON (T.ID = S.ID) ...
+ * </pre>
+ * 
+ * @author jiyi
+ *
+ */
+public class OracleUpsertHandler extends MergeUpsertHandler {
+
+	@Override
+	protected void appendSource(StringBuilder sb, List<String> columns, List<String> values, List<Integer> binds) {
+		sb.append("(select ");
+		for (int i = 0; i < values.size(); i++) {
+			if (i > 0)
+				sb.append(',');
+			sb.append(values.get(i)).append(' ').append(columns.get(i));
+			binds.add(i);
+		}
+		sb.append(" from dual) S");
+	}
+}
@@ -0,0 +1,30 @@
+package jef.database.dialect.handler;
+
+import java.util.List;
+
+/**
+ * UpsertHandler用于生成单条语句的合并操作：记录存在时更新，不存在时插入
+ * 
+ * @author jiyi
+ *
+ */
+public interface UpsertHandler {
+	/**
+	 * 生成合并语句
+	 * 
+	 * @param table
+	 *            表名（已转义）
+	 * @param columns
+	 *            插入的列（已转义）
+	 * @param values
+	 *            各列的值表达式，与columns一一对应
+	 * @param keys
+	 *            判断记录是否存在的列在columns中的序号
+	 * @param updates
+	 *            记录存在时要更新的列在columns中的序号，可能为空
+	 * @param binds
+	 *            输出参数。按在语句中出现的先后，记录每个值表达式在values中的序号
+	 * @return 合并语句
+	 */
+	String toUpsertSql(String table, List<String> columns, List<String> values, int[] keys, int[] updates, List<Integer> binds);
+}
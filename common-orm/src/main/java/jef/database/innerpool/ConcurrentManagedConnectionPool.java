@@ -0,0 +1,493 @@
+package jef.database.innerpool;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+import javax.persistence.PersistenceException;
+import javax.sql.DataSource;
+
+import jef.common.Callback;
+import jef.common.log.LogUtil;
+import jef.common.pool.PoolStatus;
+import jef.database.ConnectInfo;
+import jef.database.DbCfg;
+import jef.database.DbMetaData;
+import jef.database.dialect.DatabaseDialect;
+import jef.database.meta.Feature;
+import jef.tools.Assert;
+import jef.tools.JefConfiguration;
+
+import org.easyframe.enterprise.spring.TransactionMode;
+
+import com.google.common.collect.MapMaker;
+
+/**
+ * 高并发的连接池实现
+ *
+ * 与{@link SingleManagedConnectionPool}特性相同，但在高并发下减少了对共享状态的争用：
+ * <ul>
+ * <li>1、非事务操作以当前线程作为占用者，同一线程重入时直接从线程本地取得连接，不查找全局Map。</li>
+ * <li>2、每个线程优先取回自己上次归还的连接。</li>
+ * <li>3、所有连接保存在一个写时复制的列表中，每个连接用CAS修改状态(空闲/使用中)，获取空闲连接不需要加锁。</li>
+ * <li>4、没有空闲连接时，等待的线程通过{@link SynchronousQueue}直接得到其他线程归还的连接。</li>
+ * <li>5、等待时间和公平模式可配置，参见{@link DbCfg#DB_POOL_BORROW_TIMEOUT}和{@link DbCfg#DB_POOL_FAIR}。</li>
+ * </ul>
+ */
+final class ConcurrentManagedConnectionPool implements IManagedConnectionPool, DataSource, CheckablePool {
+	static final int STATE_FREE = 0;
+	static final int STATE_IN_USE = 1;
+	static final int STATE_RESERVED = -1;
+	static final int STATE_REMOVED = -2;
+
+	/**
+	 * 归还连接时尝试直接移交给等待线程的次数
+	 */
+	private static final int HANDOFF_TRIES = 16;
+	/**
+	 * 等待线程每次在移交队列上等待的最长时间(纳秒)，超时后重新查找空闲连接
+	 */
+	private static final long HANDOFF_WAIT = TimeUnit.MILLISECONDS.toNanos(10);
+
+	private final DataSource ds;
+	private volatile int max;
+	private volatile int min;
+	private final DbMetaData metadata;
+	private String testSQL;
+
+	/**
+	 * 获取连接的最长等待时间(纳秒)
+	 */
+	private final long borrowTimeout;
+	/**
+	 * 公平模式下，有线程等待时新来的线程不能插队
+	 */
+	private final boolean fair;
+
+	/**
+	 * 池中全部的连接(包括使用中的和空闲的)
+	 */
+	private final CopyOnWriteArrayList<SingleConnection> connections = new CopyOnWriteArrayList<SingleConnection>();
+	/**
+	 * 连接总数，包括正在创建中的连接
+	 */
+	private final AtomicInteger total = new AtomicInteger();
+	/**
+	 * 等待连接的线程数
+	 */
+	private final AtomicInteger waiters = new AtomicInteger();
+	/**
+	 * 将归还的连接直接移交给等待的线程
+	 */
+	private final SynchronousQueue<SingleConnection> handoff;
+	/**
+	 * 线程本地的连接记录
+	 */
+	private final ThreadLocal<Affinity> affinity = new ThreadLocal<Affinity>() {
+		@Override
+		protected Affinity initialValue() {
+			return new Affinity();
+		}
+	};
+	/**
+	 * 非线程的占用者(如事务)所使用的连接
+	 */
+	private final Map<Object, ReentrantConnection> txConnections = new MapMaker().concurrencyLevel(12).weakKeys().makeMap();
+
+	// 统计信息
+	private final LongAdder pollCount = new LongAdder();
+	private final LongAdder offerCount = new LongAdder();
+
+	ConcurrentManagedConnectionPool(DataSource ds, int min, int max) {
+		this(ds, min, max, JefConfiguration.getLong(DbCfg.DB_POOL_BORROW_TIMEOUT, 5000), JefConfiguration.getBoolean(DbCfg.DB_POOL_FAIR, false));
+	}
+
+	ConcurrentManagedConnectionPool(DataSource ds, int min, int max, long borrowTimeoutMillis, boolean fair) {
+		if (min > max)
+			min = max;
+		this.ds = ds;
+		this.min = min;
+		this.max = max;
+		this.borrowTimeout = TimeUnit.MILLISECONDS.toNanos(borrowTimeoutMillis);
+		this.fair = fair;
+		this.handoff = new SynchronousQueue<SingleConnection>(fair);
+		this.metadata = new DbMetaData(ds, this, null);
+		metadata.getProfile().accept(metadata);
+		PoolReleaseThread.getInstance().addPool(this);
+		PoolCheckThread.getInstance().addPool(this);
+	}
+
+	public String toString() {
+		return ds.toString() + getStatus().toString();
+	}
+
+	public DataSource getDatasource() {
+		return ds;
+	}
+
+	public PoolStatus getStatus() {
+		int size = 0;
+		int used = 0;
+		int free = 0;
+		for (SingleConnection conn : connections) {
+			size++;
+			int state = conn.getState();
+			if (state == STATE_IN_USE) {
+				used++;
+			} else if (state == STATE_FREE) {
+				free++;
+			}
+		}
+		// 检查中(保留状态)的连接既不算使用中也不算空闲
+		PoolStatus ps = new PoolStatus(max, min, size, used, free);
+		ps.setOfferCount(offerCount.sum());
+		ps.setPollCount(pollCount.sum());
+		return ps;
+	}
+
+	@SuppressWarnings("unchecked")
+	public Collection<String> getAllDatasourceNames() {
+		return Collections.EMPTY_SET;
+	}
+
+	public ReentrantConnection getConnection(Object transaction) throws SQLException {
+		pollCount.increment();
+		Affinity local = affinity.get();
+		boolean threadBound = transaction == Thread.currentThread();
+		// 重入
+		ReentrantConnection held = threadBound ? local.bound : txConnections.get(transaction);
+		if (held != null && (!threadBound || local.bound.getUser() == transaction)) {
+			held.addUsedByObject();
+			return held;
+		}
+		SingleConnection conn = borrow(local);
+		conn.setUsedByObject(transaction);
+		if (threadBound) {
+			local.bound = conn;
+		} else {
+			txConnections.put(transaction, conn);
+		}
+		return conn;
+	}
+
+	public ReentrantConnection poll() throws SQLException {
+		return getConnection(Thread.currentThread());
+	}
+
+	public void offer(ReentrantConnection c) {
+		offerCount.increment();
+		if (c == null) {
+			return;
+		}
+		Object o = c.popUsedByObject();
+		if (o == null) {
+			return;// 不是真正的归还
+		}
+		SingleConnection conn = (SingleConnection) c;
+		Affinity local = affinity.get();
+		if (local.bound == conn) {
+			local.bound = null;
+		} else {
+			ReentrantConnection conn1 = txConnections.remove(o);
+			// 以线程为占用者的连接也可能由其他线程归还，此时不在Map中
+			if (conn1 != conn && !(o instanceof Thread)) {
+				release(conn, local);
+				throw new IllegalStateException("The connection returned not match." + conn + "\t" + conn1);
+			}
+		}
+		release(conn, local);
+	}
+
+	/*
+	 * 获取一个空闲连接，依次尝试：本线程上次使用的连接、池中的空闲连接、创建新连接、等待其他线程归还。
+	 */
+	private SingleConnection borrow(Affinity local) throws SQLException {
+		if (!fair || waiters.get() == 0) {
+			SingleConnection conn = local.recent;
+			if (conn != null && conn.compareAndSetState(STATE_FREE, STATE_IN_USE)) {
+				return ensureOpen(conn);
+			}
+			conn = scan(local);
+			if (conn != null) {
+				return ensureOpen(conn);
+			}
+		}
+		SingleConnection conn = tryCreate(local);
+		if (conn != null) {
+			return conn;
+		}
+		waiters.incrementAndGet();
+		try {
+			long deadline = System.nanoTime() + borrowTimeout;
+			long remain = borrowTimeout;
+			do {
+				conn = scan(local);
+				if (conn == null) {
+					conn = tryCreate(local);
+					if (conn != null) {
+						return conn;
+					}
+					// 归还的线程只尝试有限次移交，因此分段等待，每段之后重新查找空闲连接
+					conn = handoff.poll(Math.min(remain, HANDOFF_WAIT), TimeUnit.NANOSECONDS);
+					if (conn != null && !conn.compareAndSetState(STATE_FREE, STATE_IN_USE)) {
+						conn = null;// 被其他线程抢先获得
+					}
+				}
+				if (conn != null) {
+					local.recent = conn;
+					return ensureOpen(conn);
+				}
+				remain = deadline - System.nanoTime();
+			} while (remain > 0);
+			throw new SQLException("No connection avaliable now." + getStatus());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException(e);
+		} finally {
+			waiters.decrementAndGet();
+		}
+	}
+
+	private SingleConnection scan(Affinity local) {
+		for (SingleConnection conn : connections) {
+			if (conn.compareAndSetState(STATE_FREE, STATE_IN_USE)) {
+				local.recent = conn;
+				return conn;
+			}
+		}
+		return null;
+	}
+
+	/*
+	 * 连接数未达上限时创建新连接，否则返回null
+	 */
+	private SingleConnection tryCreate(Affinity local) throws SQLException {
+		for (;;) {
+			int n = total.get();
+			if (n >= max) {
+				return null;
+			}
+			if (total.compareAndSet(n, n + 1)) {
+				break;
+			}
+		}
+		SingleConnection conn;
+		try {
+			conn = new SingleConnection(ds.getConnection(), this);
+		} catch (SQLException e) {
+			total.decrementAndGet();
+			throw e;
+		} catch (RuntimeException e) {
+			total.decrementAndGet();
+			throw e;
+		}
+		conn.setState(STATE_IN_USE);
+		connections.add(conn);
+		local.recent = conn;
+		return conn;
+	}
+
+	private SingleConnection ensureOpen(SingleConnection conn) throws SQLException {
+		try {
+			conn.ensureOpen();
+			return conn;
+		} catch (SQLException e) {
+			conn.setState(STATE_FREE);
+			throw e;
+		}
+	}
+
+	/*
+	 * 连接置为空闲。如果有线程在等待，尝试有限次直接移交给等待的线程。
+	 * 等待的线程可能正在创建连接或已经超时，此时不再等它，连接留在池中由其他线程取走。
+	 */
+	private void release(SingleConnection conn, Affinity local) {
+		conn.setState(STATE_FREE);
+		local.recent = conn;
+		for (int i = 0; i < HANDOFF_TRIES && waiters.get() > 0; i++) {
+			if (conn.getState() != STATE_FREE || handoff.offer(conn)) {
+				return;
+			}
+			Thread.yield();
+		}
+	}
+
+	private void remove(SingleConnection conn) {
+		if (connections.remove(conn)) {
+			total.decrementAndGet();
+		}
+		conn.closePhysical();
+	}
+
+	public void close() throws SQLException {
+		max = 0;
+		min = 0;
+		closeConnectionTillMin();
+		PoolReleaseThread.getInstance().removePool(this);
+		PoolService.logPoolStatic(getClass().getSimpleName(), pollCount.sum(), offerCount.sum());
+	}
+
+	public void closeConnectionTillMin() {
+		for (SingleConnection conn : connections) {
+			if (total.get() <= min) {
+				break;
+			}
+			if (conn.compareAndSetState(STATE_FREE, STATE_REMOVED)) {
+				remove(conn);
+			}
+		}
+	}
+
+	public DbMetaData getMetadata(String dbkey) {
+		return metadata;
+	}
+
+	public DatabaseDialect getProfile(String dbkey) {
+		return getProfile();
+	}
+
+	public ConnectInfo getInfo(String dbkey) {
+		return getMetadata(dbkey).getInfo();
+	}
+
+	public DatabaseDialect getProfile() {
+		return metadata.getProfile();
+	}
+
+	public boolean hasRemarkFeature(String dbkey) {
+		if (JefConfiguration.getBoolean(DbCfg.DB_NO_REMARK_CONNECTION, false) || this.min > 5) {
+			return false;
+		}
+		DatabaseDialect profile = getProfile();
+		return profile.has(Feature.REMARK_META_FETCH);
+	}
+
+	public void registeDbInitCallback(Callback<String, SQLException> callback) {
+		if (callback != null) {
+			try {
+				callback.call(null);
+			} catch (SQLException e) {
+				throw new PersistenceException(e);
+			}
+		}
+	}
+
+	public PrintWriter getLogWriter() throws SQLException {
+		throw new UnsupportedOperationException("getLogWriter");
+	}
+
+	public void setLogWriter(PrintWriter out) throws SQLException {
+		throw new UnsupportedOperationException("setLogWriter");
+	}
+
+	public void setLoginTimeout(int seconds) throws SQLException {
+		throw new UnsupportedOperationException("setLoginTimeout");
+	}
+
+	public int getLoginTimeout() throws SQLException {
+		return 0;
+	}
+
+	@SuppressWarnings("unchecked")
+	public <T> T unwrap(Class<T> iface) throws SQLException {
+		Assert.notNull(iface, "Interface argument must not be null");
+		if (!DataSource.class.equals(iface)) {
+			throw new SQLException("DataSource of type [" + getClass().getName() + "] can only be unwrapped as [javax.sql.DataSource], not as [" + iface.getName());
+		}
+		return (T) this;
+	}
+
+	public boolean isWrapperFor(Class<?> iface) throws SQLException {
+		return false;
+	}
+
+	public Connection getConnection() throws SQLException {
+		return getConnection(Thread.currentThread());
+	}
+
+	public Connection getConnection(String username, String password) throws SQLException {
+		return getConnection(Thread.currentThread());
+	}
+
+	public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+		return null;
+	}
+
+	public void notifyDbDisconnect() {
+		if (LogUtil.isDebugEnabled()) {
+			LogUtil.debug("Disconnected connection found, notify Checker thread.");
+		}
+		this.doCheck();
+	}
+
+	public boolean isRouting() {
+		return false;
+	}
+
+	public boolean isDummy() {
+		return false;
+	}
+
+	/*
+	 * 只检查空闲连接。检查期间连接被标记为保留状态，不会被其他线程取走。
+	 */
+	public synchronized void doCheck() {
+		List<SingleConnection> reserved = new ArrayList<SingleConnection>();
+		for (SingleConnection conn : connections) {
+			if (conn.compareAndSetState(STATE_FREE, STATE_RESERVED)) {
+				reserved.add(conn);
+			}
+		}
+		try {
+			int invalid = PoolService.doCheck(this.testSQL, reserved.iterator());
+			LogUtil.debug("Checked [{}]. total:{},  invalid:{}", this, reserved.size(), invalid);
+		} finally {
+			for (SingleConnection conn : reserved) {
+				conn.setState(STATE_FREE);
+			}
+		}
+	}
+
+	public boolean isMultipleRdbms() {
+		return false;
+	}
+
+	private TransactionMode txMode;
+
+	@Override
+	public IUserManagedPool setTransactionMode(TransactionMode txMode) {
+		this.txMode = txMode;
+		return this;
+	}
+
+	@Override
+	public TransactionMode getTransactionMode() {
+		return txMode;
+	}
+
+	/*
+	 * 线程本地的连接记录
+	 */
+	private static final class Affinity {
+		/**
+		 * 当前线程作为占用者正在使用的连接
+		 */
+		SingleConnection bound;
+		/**
+		 * 当前线程最近使用过的连接，下次优先尝试获取
+		 */
+		SingleConnection recent;
+	}
+}
@@ -40,7 +40,7 @@ public class PoolService {
 			IRoutingDataSource rds = (IRoutingDataSource) ds;
 			result= new RoutingDummyConnectionPool(rds);
 		} else if(ds instanceof DriverManagerDataSource||ds instanceof SimpleDataSource){
-            result= new SingleManagedConnectionPool(ds, min, max);
+            result= createManagedPool(ds, min, max);
         } else{ 
 			result= new SingleDummyConnectionPool(ds);
 		}
@@ -53,6 +53,16 @@ public class PoolService {
 		ds.setDriverClass(driverClass);
 		ds.setUser(user);
 		ds.setPassword(password);
+		return (DataSource)createManagedPool(ds, min, max);
+	}
+
+	/*
+	 * 按配置选择内嵌连接池的实现
+	 */
+	private static IManagedConnectionPool createManagedPool(DataSource ds, int min, int max) {
+		if (JefConfiguration.getBoolean(DbCfg.DB_POOL_CONCURRENT, false)) {
+			return new ConcurrentManagedConnectionPool(ds, min, max);
+		}
 		return new SingleManagedConnectionPool(ds, min, max);
 	}
 
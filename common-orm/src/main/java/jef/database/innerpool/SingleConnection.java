@@ -2,11 +2,14 @@ package jef.database.innerpool;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 import javax.sql.DataSource;
 
 import jef.database.DbUtils;
+import jef.database.ORMConfig;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,6 +32,16 @@ final class SingleConnection extends AbstractJDBCConnection implements Reentrant
 	 * Reentrant count of the lock.
 	 */
 	private volatile int count;
+	/**
+	 * PreparedStatement cache of the physical connection, null if disabled.
+	 */
+	private final StatementCache statements;
+	/**
+	 * State in the pool, used by {@link ConcurrentManagedConnectionPool}.
+	 */
+	private volatile int state;
+
+	private static final AtomicIntegerFieldUpdater<SingleConnection> STATE = AtomicIntegerFieldUpdater.newUpdater(SingleConnection.class, "state");
 
 	/**
 	 * 构造
@@ -40,9 +53,34 @@ final class SingleConnection extends AbstractJDBCConnection implements Reentrant
 	SingleConnection(Connection connection, IPool<ReentrantConnection> parent) {
 		this.conn = connection;
 		this.parent = parent;
+		int cacheSize = ORMConfig.getInstance().getStatementCacheSize();
+		this.statements = cacheSize > 0 ? new StatementCache(cacheSize) : null;
+	}
+
+	@Override
+	public PreparedStatement prepareStatement(String sql) throws SQLException {
+		if (statements == null) {
+			return conn.prepareStatement(sql);
+		}
+		return statements.prepareStatement(conn, sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+	}
+
+	@Override
+	public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+		if (statements == null) {
+			return conn.prepareStatement(sql, resultSetType, resultSetConcurrency);
+		}
+		return statements.prepareStatement(conn, sql, resultSetType, resultSetConcurrency);
+	}
+
+	StatementCache getStatementCache() {
+		return statements;
 	}
 
 	public void closePhysical() {
+		if (statements != null) {
+			statements.clear();
+		}
 		if (conn != null) {
 			DbUtils.closeConnection(conn);
 			conn = null;
@@ -57,8 +95,14 @@ final class SingleConnection extends AbstractJDBCConnection implements Reentrant
 	public void ensureOpen() throws SQLException {
 		if (conn != null && conn.isClosed()) {// 检测到关闭的连接后，提示全面检测
 			conn=null;
+			if (statements != null) {
+				statements.clear();
+			}
 		}
 		if (conn == null) {// 试图创建新连接
+			if (statements != null) {
+				statements.reopen();
+			}
 			long start = System.currentTimeMillis();
 			DataSource ds = parent.getDatasource();
 			conn = ds.getConnection();
@@ -117,4 +161,25 @@ final class SingleConnection extends AbstractJDBCConnection implements Reentrant
 	public boolean isUsed() {
 		return count > 0;
 	}
+
+	/**
+	 * The object which the connection is used by.
+	 */
+	Object getUser() {
+		return used;
+	}
+
+	/////////////////池内状态////////////////
+
+	int getState() {
+		return state;
+	}
+
+	void setState(int state) {
+		this.state = state;
+	}
+
+	boolean compareAndSetState(int expect, int update) {
+		return STATE.compareAndSet(this, expect, update);
+	}
 }
@@ -82,6 +82,11 @@ final class SingleManagedConnectionPool implements IManagedConnectionPool, DataS
 	private final AtomicLong pollCount = new AtomicLong();
 	private final AtomicLong offerCount = new AtomicLong();
 
+	/**
+	 * 获取连接的最长等待时间(纳秒)
+	 */
+	private final long borrowTimeout = TimeUnit.MILLISECONDS.toNanos(JefConfiguration.getLong(DbCfg.DB_POOL_BORROW_TIMEOUT, 5000));
+
 	SingleManagedConnectionPool(DataSource ds, int min, int max) {
 		if (min > max)
 			min = max;
@@ -128,7 +133,7 @@ final class SingleManagedConnectionPool implements IManagedConnectionPool, DataS
 					conn.setUsedByObject(transaction);
 				} else {
 					used.getAndIncrement(); // 提前计数，并发下为了严格阻止连接池超出上限，必须这样做
-					conn = freeConns.poll(5000000000L, TimeUnit.NANOSECONDS);// 5秒
+					conn = freeConns.poll(borrowTimeout, TimeUnit.NANOSECONDS);
 					if (conn == null) {
 						used.decrementAndGet();
 						throw new SQLException("No connection avaliable now." + getStatus());
@@ -0,0 +1,300 @@
+package jef.database.innerpool;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import jef.database.DbUtils;
+import jef.database.jdbc.statement.DelegatingPreparedStatement;
+
+/**
+ * 单个物理连接上的PreparedStatement缓存。
+ * <p>
+ * 按SQL语句和结果集类型/并发模式缓存，超过容量时按最近最少使用淘汰。
+ * 取出的语句在使用期间不在缓存中，因此同一连接上重入使用相同SQL时会创建新的语句；
+ * 调用者关闭语句时，语句被重置后放回缓存，而不是真正关闭。
+ * <p>
+ * 连接物理关闭时必须调用{@link #clear()}关闭所有缓存的语句。
+ *
+ * @author jiyi
+ *
+ */
+final class StatementCache {
+	private final int capacity;
+	private final LinkedHashMap<Key, CachedStatement> cache;
+	private boolean closed;
+
+	private long hits;
+	private long misses;
+
+	StatementCache(int capacity) {
+		this.capacity = capacity;
+		this.cache = new LinkedHashMap<Key, CachedStatement>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, CachedStatement> eldest) {
+				if (size() > StatementCache.this.capacity) {
+					eldest.getValue().closePhysical();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * 从缓存中取出语句，缓存中没有时在连接上创建
+	 *
+	 * @param conn
+	 *            物理连接
+	 * @param sql
+	 *            SQL语句
+	 * @param rsType
+	 *            结果集类型
+	 * @param concurType
+	 *            结果集并发模式
+	 * @return 关闭时会放回缓存的语句
+	 * @throws SQLException
+	 */
+	PreparedStatement prepareStatement(Connection conn, String sql, int rsType, int concurType) throws SQLException {
+		Key key = new Key(sql, rsType, concurType);
+		CachedStatement st;
+		synchronized (this) {
+			st = cache.remove(key);
+			if (st != null) {
+				hits++;
+			} else {
+				misses++;
+			}
+		}
+		if (st == null) {
+			PreparedStatement raw;
+			if (rsType == ResultSet.TYPE_FORWARD_ONLY && concurType == ResultSet.CONCUR_READ_ONLY) {
+				raw = conn.prepareStatement(sql);
+			} else {
+				raw = conn.prepareStatement(sql, rsType, concurType);
+			}
+			st = new CachedStatement(raw, key);
+		}
+		st.open();
+		return st;
+	}
+
+	/*
+	 * 语句被关闭时放回缓存。缓存已清空或已有同样的语句时直接关闭。
+	 */
+	private void release(CachedStatement st) {
+		if (!st.reset()) {
+			st.closePhysical();
+			return;
+		}
+		synchronized (this) {
+			if (!closed && !cache.containsKey(st.key)) {
+				cache.put(st.key, st);
+				return;
+			}
+		}
+		st.closePhysical();
+	}
+
+	/**
+	 * 关闭所有缓存中的语句。之后归还的语句都将被直接关闭。
+	 */
+	synchronized void clear() {
+		closed = true;
+		for (Iterator<CachedStatement> iter = cache.values().iterator(); iter.hasNext();) {
+			iter.next().closePhysical();
+			iter.remove();
+		}
+	}
+
+	/**
+	 * 物理连接重建后重新启用缓存
+	 */
+	synchronized void reopen() {
+		closed = false;
+	}
+
+	synchronized int size() {
+		return cache.size();
+	}
+
+	synchronized long getHitCount() {
+		return hits;
+	}
+
+	synchronized long getMissCount() {
+		return misses;
+	}
+
+	/*
+	 * 缓存键
+	 */
+	private static final class Key {
+		private final String sql;
+		private final int rsType;
+		private final int concurType;
+
+		Key(String sql, int rsType, int concurType) {
+			this.sql = sql;
+			this.rsType = rsType;
+			this.concurType = concurType;
+		}
+
+		@Override
+		public int hashCode() {
+			return (sql.hashCode() * 31 + rsType) * 31 + concurType;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj instanceof Key) {
+				Key o = (Key) obj;
+				return rsType == o.rsType && concurType == o.concurType && sql.equals(o.sql);
+			}
+			return false;
+		}
+	}
+
+	/*
+	 * 缓存中的语句。记录调用者修改过的语句属性，放回缓存前恢复为初始值。
+	 */
+	private final class CachedStatement extends DelegatingPreparedStatement {
+		private final Key key;
+		private volatile boolean inUse;
+		private boolean batched;
+		private boolean uncacheable;
+		private Integer maxRows;
+		private Integer fetchSize;
+		private Integer queryTimeout;
+		private Integer fetchDirection;
+		private Integer maxFieldSize;
+
+		CachedStatement(PreparedStatement s, Key key) {
+			super(s);
+			this.key = key;
+		}
+
+		void open() {
+			inUse = true;
+		}
+
+		@Override
+		public void close() throws SQLException {
+			if (inUse) {
+				inUse = false;
+				release(this);
+			}
+		}
+
+		@Override
+		public boolean isClosed() throws SQLException {
+			return !inUse || _stmt.isClosed();
+		}
+
+		@Override
+		public void addBatch() throws SQLException {
+			batched = true;
+			super.addBatch();
+		}
+
+		@Override
+		public void setMaxRows(int max) throws SQLException {
+			if (maxRows == null)
+				maxRows = _stmt.getMaxRows();
+			super.setMaxRows(max);
+		}
+
+		@Override
+		public void setFetchSize(int rows) throws SQLException {
+			if (fetchSize == null)
+				fetchSize = _stmt.getFetchSize();
+			super.setFetchSize(rows);
+		}
+
+		@Override
+		public void setQueryTimeout(int seconds) throws SQLException {
+			if (queryTimeout == null)
+				queryTimeout = _stmt.getQueryTimeout();
+			super.setQueryTimeout(seconds);
+		}
+
+		@Override
+		public void setFetchDirection(int direction) throws SQLException {
+			if (fetchDirection == null)
+				fetchDirection = _stmt.getFetchDirection();
+			super.setFetchDirection(direction);
+		}
+
+		@Override
+		public void setMaxFieldSize(int max) throws SQLException {
+			if (maxFieldSize == null)
+				maxFieldSize = _stmt.getMaxFieldSize();
+			super.setMaxFieldSize(max);
+		}
+
+		@Override
+		public void setCursorName(String name) throws SQLException {
+			// 游标名称无法恢复，设置过的语句不再缓存
+			uncacheable = true;
+			super.setCursorName(name);
+		}
+
+		/*
+		 * 重置语句状态，无法重置时返回false
+		 */
+		boolean reset() {
+			if (uncacheable) {
+				return false;
+			}
+			try {
+				if (_stmt.isClosed()) {
+					return false;
+				}
+				ResultSet rs = _stmt.getResultSet();
+				if (rs != null) {
+					rs.close();
+				}
+				((PreparedStatement) _stmt).clearParameters();
+				if (batched) {
+					_stmt.clearBatch();
+					batched = false;
+				}
+				_stmt.clearWarnings();
+				if (maxRows != null) {
+					_stmt.setMaxRows(maxRows);
+					maxRows = null;
+				}
+				if (fetchSize != null) {
+					_stmt.setFetchSize(fetchSize);
+					fetchSize = null;
+				}
+				if (queryTimeout != null) {
+					_stmt.setQueryTimeout(queryTimeout);
+					queryTimeout = null;
+				}
+				if (fetchDirection != null) {
+					_stmt.setFetchDirection(fetchDirection);
+					fetchDirection = null;
+				}
+				if (maxFieldSize != null) {
+					_stmt.setMaxFieldSize(maxFieldSize);
+					maxFieldSize = null;
+				}
+				return true;
+			} catch (SQLException e) {
+				return false;
+			}
+		}
+
+		void closePhysical() {
+			inUse = false;
+			DbUtils.close(_stmt);
+		}
+	}
+}
@@ -11,6 +11,7 @@ import jef.database.innerpool.PartitionSupport;
 import jef.database.jdbc.statement.ResultSetLaterProcess;
 import jef.database.routing.jdbc.UpdateReturn;
 import jef.database.routing.sql.InMemoryOperateProvider;
+import jef.database.wrapper.executor.ExecutorRegistry;
 import jef.database.wrapper.populator.ResultSetExtractor;
 
 public interface JDBCTarget {
@@ -49,6 +50,8 @@ public interface JDBCTarget {
 
 	PartitionSupport getPartitionSupport();
 
+	ExecutorRegistry getExecutorRegistry();
+
 	PreparedStatement prepareStatement(String first, ResultSetLaterProcess isReverse, boolean b)throws SQLException;
 
 	Statement createStatement() throws SQLException;
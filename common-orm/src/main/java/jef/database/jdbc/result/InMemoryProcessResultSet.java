@@ -28,13 +28,22 @@ import jef.database.DbUtils;
 import jef.database.ORMConfig;
 import jef.database.dialect.DatabaseDialect;
 import jef.database.jdbc.rowset.CachedRowSetImpl;
+import jef.database.jdbc.rowset.ColumnarRowStore;
+import jef.database.jdbc.rowset.Row;
 import jef.database.meta.Reference;
+import jef.database.wrapper.clause.ExternalSorter;
+import jef.database.wrapper.clause.GroupAggregator;
+import jef.database.wrapper.clause.InMemoryDistinct;
+import jef.database.wrapper.clause.InMemoryGroupByHaving;
+import jef.database.wrapper.clause.InMemoryOrderBy;
 import jef.database.wrapper.clause.InMemoryPaging;
 import jef.database.wrapper.clause.InMemoryProcessor;
 import jef.database.wrapper.populator.ColumnMeta;
 
 final class InMemoryProcessResultSet extends AbstractResultSet implements IResultSet{
 	private CachedRowSetImpl cache;
+	// 溢出到磁盘时的排序器，持有临时文件
+	private ExternalSorter sorter;
 	private ColumnMeta columns;
 	private DatabaseDialect dialect;
 	private List<ResultSetHolder> results;
@@ -56,24 +65,31 @@ final class InMemoryProcessResultSet extends AbstractResultSet implements IResul
 
 	public void process() throws SQLException {
 		boolean debug=ORMConfig.getInstance().isDebugMode();
-		cache=new CachedRowSetImpl(ORMConfig.getInstance().getPartitionInMemoryMaxRows());
-		InMemoryProcessor paging=null;
+		int maxRows=ORMConfig.getInstance().getPartitionInMemoryMaxRows();
+		int spillRows=ORMConfig.getInstance().getPartitionInMemorySpillRows();
+		cache=new CachedRowSetImpl(maxRows);
+		ResultSetMetaData meta=columns.getMeta();
 		long start=System.currentTimeMillis();
-		for(ResultSetHolder sh:results){
-			cache.populate(sh.rs);
-			sh.close(true);
+		long loaded;
+		InMemoryGroupByHaving group=null;
+		if(!processors.isEmpty() && processors.get(0) instanceof InMemoryGroupByHaving){
+			group=(InMemoryGroupByHaving)processors.get(0);
 		}
-		results.clear();
-		long loaded=System.currentTimeMillis();
-		for(InMemoryProcessor processor:processors){
-			if(processor instanceof InMemoryPaging){
-				paging=processor;
-				continue;
+		if(spillRows>0 && isSpillable(group)){
+			try{
+				loaded=processExternal(group, meta, spillRows);
+			}catch(SQLException e){
+				if(sorter!=null){
+					sorter.close();
+				}
+				throw e;
 			}
-			processor.process(cache);
+		}else{
+			loaded=processInMemory(group, meta, maxRows);
 		}
-		if(paging!=null){
-			paging.process(cache);
+		//为内存计算额外查询的列已被去除
+		if(cache.getMetaData().getColumnCount()!=columns.length()){
+			columns=new ColumnMeta(cache.getMetaData());
 		}
 		long end=System.currentTimeMillis();
 		if(debug){
@@ -85,10 +101,129 @@ final class InMemoryProcessResultSet extends AbstractResultSet implements IResul
 			}
 			sb.setLength(sb.length()-1);
 			sb.append(':').append(end-loaded).append("ms]");
+			if(sorter!=null && sorter.isSpilled()){
+				sb.append(" [SPILLED]");
+			}
 			LogUtil.show(sb.toString());
 		}
 		cache.refresh();
 	}
+
+	/*
+	 * 在内存中完成全部计算
+	 */
+	private long processInMemory(InMemoryGroupByHaving group, ResultSetMetaData meta, int maxRows) throws SQLException {
+		ColumnarRowStore rows;
+		InMemoryProcessor paging=null;
+		if(group!=null){
+			//分组是第一个任务时，在读取各个结果集时直接聚合，内存中只保留分组结果
+			GroupAggregator aggregator=group.newAggregator(meta.getColumnCount(), maxRows);
+			for(ResultSetHolder sh:results){
+				aggregator.add(sh.rs);
+				sh.close(true);
+			}
+			rows=new ColumnarRowStore(aggregator.getOutputColumnCount());
+			rows.replace(group.finish(aggregator), aggregator.getOutputColumnCount());
+		}else{
+			//按列存储，排序、去重等计算直接在列数据上进行
+			rows=new ColumnarRowStore(meta.getColumnCount());
+			for(ResultSetHolder sh:results){
+				rows.populate(sh.rs, maxRows);
+				sh.close(true);
+			}
+		}
+		results.clear();
+		long loaded=System.currentTimeMillis();
+		for(InMemoryProcessor processor:processors){
+			if(processor==group){
+				continue;
+			}
+			if(processor instanceof InMemoryPaging){
+				paging=processor;
+				continue;
+			}
+			processor.process(rows);
+		}
+		if(paging!=null){
+			paging.process(rows);
+		}
+		cache.initMetaData(meta, rows.getColumnCount());
+		cache.setRvh(rows.asRows());
+		return loaded;
+	}
+
+	/*
+	 * 分组、去重和排序，超过内存行数时中间结果写入临时文件
+	 */
+	private long processExternal(InMemoryGroupByHaving group, ResultSetMetaData meta, int spillRows) throws SQLException {
+		InMemoryOrderBy order=null;
+		boolean distinct=false;
+		for(InMemoryProcessor processor:processors){
+			if(processor instanceof InMemoryOrderBy){
+				order=(InMemoryOrderBy)processor;
+			}else if(processor instanceof InMemoryDistinct){
+				distinct=true;
+			}
+		}
+		int numCols;
+		if(group!=null){
+			GroupAggregator aggregator=group.newAggregator(meta.getColumnCount(), 0);
+			aggregator.setSpillGroups(spillRows);
+			numCols=aggregator.getOutputColumnCount();
+			sorter=new ExternalSorter(numCols, order, distinct, spillRows);
+			try{
+				for(ResultSetHolder sh:results){
+					aggregator.add(sh.rs);
+					sh.close(true);
+				}
+				drain(group, aggregator, sorter);
+			}finally{
+				aggregator.close();
+			}
+		}else{
+			numCols=meta.getColumnCount();
+			sorter=new ExternalSorter(numCols, order, distinct, spillRows);
+			for(ResultSetHolder sh:results){
+				sorter.populate(sh.rs);
+				sh.close(true);
+			}
+		}
+		results.clear();
+		long loaded=System.currentTimeMillis();
+		cache.initMetaData(meta, numCols);
+		cache.setRvh(sorter.finish());
+		return loaded;
+	}
+
+	/*
+	 * 输出内存中的分组，再逐个聚合溢出到磁盘的分区
+	 */
+	private static void drain(InMemoryGroupByHaving group, GroupAggregator aggregator, ExternalSorter sorter) throws SQLException {
+		for(Row row:group.finish(aggregator)){
+			sorter.add(row);
+		}
+		GroupAggregator partition;
+		while((partition=aggregator.nextPartition())!=null){
+			try{
+				drain(group, partition, sorter);
+			}finally{
+				partition.close();
+			}
+		}
+	}
+
+	/*
+	 * 只有分组(第一个任务)、去重和排序时可以溢出到磁盘
+	 */
+	private boolean isSpillable(InMemoryGroupByHaving group) {
+		for(InMemoryProcessor processor:processors){
+			if(processor!=group && !(processor instanceof InMemoryDistinct) && !(processor instanceof InMemoryOrderBy)){
+				return false;
+			}
+		}
+		return true;
+	}
+
 	/**
 	 * 添加内存记录处理器
 	 * @param processor 处理器
@@ -141,6 +276,9 @@ final class InMemoryProcessResultSet extends AbstractResultSet implements IResul
 		}
 		results.clear();
 		cache.close();
+		if(sorter!=null){
+			sorter.close();
+		}
 	}
 
 	public DatabaseDialect getProfile() {
@@ -18,9 +18,10 @@ package jef.database.jdbc.result;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.PriorityQueue;
 
 import javax.persistence.PersistenceException;
 
@@ -31,63 +32,70 @@ import jef.database.wrapper.clause.InMemoryOrderBy;
 import jef.database.wrapper.populator.ColumnMeta;
 
 /**
- * The is a resort implementation for results with Low Memory consume.
- * 使用王义林提供的新算法优化
- * 
- * @author Jiyi
- * 
+ * 多路归并排序结果集。
+ * <p>
+ * 每个分库的SQL中已经保留了ORDER BY，因此各个结果集本身是有序的。此处为每个结果集保留一个游标，
+ * 利用优先队列逐条输出，内存中只保留每个游标当前行的排序键值，不再将全部记录加载到内存中排序。
+ * <p>
+ * 分页由外层的{@link LimitOffsetResultSet}处理，取够offset+limit条后不再调用{@link #next()}，也就不再从数据库读取记录。
+ *
+ * @author jiyi
+ *
  */
-final class ReorderResultSet2 extends AbstractResultSet implements IResultSet {
+final class MergeSortResultSet extends AbstractResultSet implements IResultSet {
 	private ColumnMeta columns;
-
-	private final TreeMap<ResultSetHolder,Void> gettingResults;
 	private List<ResultSetHolder> allResults;
-	private ResultSetHolder activeRs;
+	private final PriorityQueue<Cursor> queue;
+	private final int[] orderFields;
+	private Cursor active;
+
+	// 级联过滤条件
+	private Map<Reference, List<Condition>> filters;
 
-	public ReorderResultSet2(List<ResultSetHolder> r, InMemoryOrderBy order, ColumnMeta columns,Map<Reference, List<Condition>> filters) {
+	/**
+	 * 构造
+	 *
+	 * @param r
+	 *            各个分库的结果集，每个结果集都已按相同规则排序
+	 * @param order
+	 *            排序规则
+	 * @param columns
+	 *            列元数据
+	 * @param filters
+	 *            级联过滤条件
+	 */
+	public MergeSortResultSet(List<ResultSetHolder> r, InMemoryOrderBy order, ColumnMeta columns, Map<Reference, List<Condition>> filters) {
 		this.allResults = r;
 		this.columns = columns;
-		this.filters=filters;
-		ResultSetCompartor orders = new ResultSetCompartor(order);
-		gettingResults = new TreeMap<ResultSetHolder,Void>(orders);
+		this.filters = filters;
+		this.orderFields = order.getOrderFields();
+		this.queue = new PriorityQueue<Cursor>(Math.max(r.size(), 1), new CursorComparator(order.getOrderAsc()));
 		try {
-			chain(r);
+			for (int i = 0; i < r.size(); i++) {
+				Cursor cursor = new Cursor(i, r.get(i), orderFields.length);
+				if (cursor.advance(orderFields)) {
+					queue.add(cursor);
+				}
+			}
 		} catch (SQLException e) {
 			throw new PersistenceException(e);
 		}
 	}
 
-	private void chain(List<ResultSetHolder> r) throws SQLException {
-		int len = r.size();
-		for (int i = 0; i < len; i++) {
-			ResultSetHolder re = r.get(i);
-			if (re.next()) {
-				this.gettingResults.put(re,null);
-			}
-		}
-	}
-
-	public int size() {
-		return allResults.size();
-	}
-
 	public ColumnMeta getColumns() {
 		return columns;
 	}
 
 	public boolean next() {
-		if (this.activeRs != null) {
-			// 加入后重新排序
-			if (this.activeRs.next()) {
-				gettingResults.put(activeRs,null);
+		try {
+			if (active != null && active.advance(orderFields)) {
+				queue.add(active);
 			}
+		} catch (SQLException e) {
+			throw new PersistenceException(e);
 		}
-		if(gettingResults.isEmpty()){
-			return false;
-		}else{
-			activeRs = gettingResults.pollFirstEntry().getKey();
-			return true;
-		}
+		active = queue.poll();
+		return active != null;
 	}
 
 	public void beforeFirst() throws SQLException {
@@ -103,21 +111,20 @@ final class ReorderResultSet2 extends AbstractResultSet implements IResultSet {
 	}
 
 	public DatabaseDialect getProfile() {
-		if(activeRs!=null){
-			return activeRs.getProfile();
-		}else{
+		if (active != null) {
+			return active.holder.getProfile();
+		} else {
 			return allResults.get(0).getProfile();
 		}
-
 	}
 
 	public boolean previous() throws SQLException {
-		throw new UnsupportedOperationException();
+		throw new UnsupportedOperationException("previous");
 	}
 
 	/**
 	 * 关闭全部连接和结果集
-	 * 
+	 *
 	 * @throws SQLException
 	 */
 	public void close() throws SQLException {
@@ -125,13 +132,14 @@ final class ReorderResultSet2 extends AbstractResultSet implements IResultSet {
 			rsx.close(true);
 		}
 		allResults.clear();
-		gettingResults.clear();
+		queue.clear();
+		active = null;
 		columns = null;
 	}
 
 	@Override
 	protected ResultSet get() {
-		return activeRs;
+		return active == null ? null : active.holder;
 	}
 
 	public boolean isClosed() throws SQLException {
@@ -143,7 +151,6 @@ final class ReorderResultSet2 extends AbstractResultSet implements IResultSet {
 		return columns.getMeta();
 	}
 
-
 	@Override
 	public boolean isFirst() throws SQLException {
 		throw new UnsupportedOperationException("isFirst");
@@ -168,10 +175,54 @@ final class ReorderResultSet2 extends AbstractResultSet implements IResultSet {
 	public boolean isAfterLast() throws SQLException {
 		throw new UnsupportedOperationException("isAfterLast");
 	}
-	
-	// 级联过滤条件
-	private Map<Reference, List<Condition>> filters;
+
 	public Map<Reference, List<Condition>> getFilters() {
 		return filters;
 	}
+
+	/*
+	 * 一个分库结果集上的游标，记录当前行的排序键值，避免比较时反复调用ResultSet.getObject()
+	 */
+	static final class Cursor {
+		final int index;
+		final ResultSetHolder holder;
+		final Object[] keys;
+
+		Cursor(int index, ResultSetHolder holder, int keySize) {
+			this.index = index;
+			this.holder = holder;
+			this.keys = new Object[keySize];
+		}
+
+		boolean advance(int[] orderFields) throws SQLException {
+			if (!holder.next()) {
+				return false;
+			}
+			for (int i = 0; i < orderFields.length; i++) {
+				keys[i] = holder.getObject(orderFields[i]);
+			}
+			return true;
+		}
+	}
+
+	/*
+	 * 排序键值相等时按结果集的顺序输出，保证归并结果稳定
+	 */
+	static final class CursorComparator implements Comparator<Cursor> {
+		private final boolean[] orderAsc;
+
+		CursorComparator(boolean[] orderAsc) {
+			this.orderAsc = orderAsc;
+		}
+
+		public int compare(Cursor o1, Cursor o2) {
+			for (int i = 0; i < orderAsc.length; i++) {
+				int r = InMemoryOrderBy.compareValue(o1.keys[i], o2.keys[i]);
+				if (r != 0) {
+					return orderAsc[i] ? r : -r;
+				}
+			}
+			return o1.index - o2.index;
+		}
+	}
 }
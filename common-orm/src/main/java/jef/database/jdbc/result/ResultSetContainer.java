@@ -42,6 +42,7 @@ import jef.database.wrapper.clause.InMemoryPaging;
 import jef.database.wrapper.clause.InMemoryProcessor;
 import jef.database.wrapper.clause.InMemoryStartWithConnectBy;
 import jef.database.wrapper.populator.ColumnMeta;
+import jef.database.wrapper.populator.PopulatePlanCache;
 
 /**
  * 查询时记录的结果集
@@ -61,6 +62,9 @@ public final class ResultSetContainer extends AbstractResultSet implements IResu
 
 	// 所有列的元数据记录
 	private ColumnMeta columns;
+	private ResultSetMetaData meta;
+	// 拼装计划的缓存键
+	private PopulatePlanCache.Key planKey;
 
 	protected final List<ResultSetHolder> results = new ArrayList<ResultSetHolder>(5);
 	// 是否缓存
@@ -78,6 +82,16 @@ public final class ResultSetContainer extends AbstractResultSet implements IResu
 		return columns;
 	}
 
+	/**
+	 * 设置拼装计划的缓存键，需要在添加结果集之前设置。只能用于单个结果集且没有内存计算的场合
+	 * 
+	 * @param planKey
+	 * @see PopulatePlanCache
+	 */
+	public void setPlanKey(PopulatePlanCache.Key planKey) {
+		this.planKey = planKey;
+	}
+
 	// 级联过滤条件
 	protected Map<Reference, List<Condition>> filters;
 
@@ -87,7 +101,7 @@ public final class ResultSetContainer extends AbstractResultSet implements IResu
 
 	@Override
 	public ResultSetMetaData getMetaData() throws SQLException {
-		return columns.getMeta();
+		return meta;
 	}
 
 	public static IResultSet toInMemoryProcessorResultSet(InMemoryOperateProvider context, ResultSetHolder... rs) {
@@ -232,7 +246,7 @@ public final class ResultSetContainer extends AbstractResultSet implements IResu
 	 * 
 	 * 
 	 * 1、a 有内存任务，使用内存处理并排序。
-	 *    b 无内存任务，有多个结果集且有排序任务，使用混合排序
+	 *    b 无内存任务，有多个结果集且有排序任务，使用多路归并排序（有分页时取够offset+limit条即停止）
 	 *    c 无内存任务，有多个结果集且无排序任务，使用当前对象作为结果集
 	 *    d 无内存内务，无多个结果集，退化为简单结果集
 	 * 2、有分页任务，包装为分页结果集
@@ -267,7 +281,8 @@ public final class ResultSetContainer extends AbstractResultSet implements IResu
 			rw.setFilters(filters);
 			result=rw;
 		}else if(inMemoryOrder!=null){
-			ReorderResultSet2 rw = new ReorderResultSet2(results, inMemoryOrder, columns, filters);
+			//多路归并，分页由下面的LimitOffsetResultSet处理，取够offset+limit条后不再读取
+			MergeSortResultSet rw = new MergeSortResultSet(results, inMemoryOrder, columns, filters);
 			result=rw;
 		}else{
 			this.filters=filters;
@@ -349,8 +364,8 @@ public final class ResultSetContainer extends AbstractResultSet implements IResu
 	}
 
 	private void initMetadata(ResultSet wrapped) throws SQLException {
-		ResultSetMetaData meta = wrapped.getMetaData();
-		this.columns = new ColumnMeta(meta);
+		this.meta = wrapped.getMetaData();
+		this.columns = PopulatePlanCache.getInstance().getColumns(planKey, meta);
 	}
 
 	private ResultSet tryCache(ResultSet set, DatabaseDialect profile) throws SQLException {
@@ -52,6 +52,7 @@ import jef.database.dialect.DatabaseDialect;
 import jef.database.meta.Reference;
 import jef.database.wrapper.populator.ColumnDescription;
 import jef.database.wrapper.populator.ColumnMeta;
+import jef.database.wrapper.populator.PopulatePlanCache;
 import jef.tools.IOUtils;
 import jef.tools.StringUtils;
 
@@ -64,6 +65,7 @@ public class ResultSetImpl implements IResultSet {
 	protected ResultSet rs;
 	protected DatabaseDialect profile;
 	private ColumnMeta columns;
+	private PopulatePlanCache.Key planKey;
 	private int total = -1; // -1表示尚未取得
 	private Map<Reference, List<Condition>> filters;
 	
@@ -96,10 +98,20 @@ public class ResultSetImpl implements IResultSet {
 		this.columns=columns;
 	}
 
+	/**
+	 * 设置拼装计划的缓存键，需要在第一次取列描述之前设置
+	 * 
+	 * @param planKey
+	 * @see PopulatePlanCache
+	 */
+	public void setPlanKey(PopulatePlanCache.Key planKey) {
+		this.planKey = planKey;
+	}
+
 	public ColumnMeta getColumns(){
 		if(columns==null){
 			try {
-				this.columns = new ColumnMeta(getMetaData());
+				this.columns = PopulatePlanCache.getInstance().getColumns(planKey, getMetaData());
 			} catch (SQLException e) {
 				throw new PersistenceException(e);
 			}
@@ -218,7 +218,8 @@ public class CachedRowSetImpl extends BaseRowSet implements RowSet, CachedRowSet
 		}
 		if(RowSetMD==null){
 			RowSetMD = new RowSetMetaDataImpl();
-			initMetaData(RowSetMD, data.getMetaData());	
+			ResultSetMetaData meta = data.getMetaData();
+			initMetaData(RowSetMD, meta, meta.getColumnCount());
 		}
 		
 		int numCols = RowSetMD.getColumnCount();
@@ -232,27 +233,7 @@ public class CachedRowSetImpl extends BaseRowSet implements RowSet, CachedRowSet
 			}
 			Row currentRow = new Row(numCols);
 			for (int i = 1; i <= numCols; i++) {
-				Object obj;
-				try {
-					obj = data.getObject(i);
-				} catch (SQLException e) {
-					// PG has bug on handle type MONEY, it attempts to
-					// convert money to double, even if it is a string with
-					// currency unit.
-					obj = data.getString(i);
-				}
-				if (obj instanceof Struct) {
-					obj = new SerialStruct((Struct) obj, null);
-				} else if (obj instanceof SQLData) {
-					obj = new SerialStruct((SQLData) obj, null);
-				} else if (obj instanceof Blob) {
-					obj = new SerialBlob((Blob) obj);
-				} else if (obj instanceof Clob) {
-					obj = new SerialClob((Clob) obj);
-				} else if (obj instanceof java.sql.Array) {
-					obj = new SerialArray((java.sql.Array) obj, null);
-				}
-				((Row) currentRow).initColumnObject(i, obj);
+				((Row) currentRow).initColumnObject(i, readColumnValue(data, i));
 			}
 			rvh.add(currentRow);
 		}
@@ -262,6 +243,54 @@ public class CachedRowSetImpl extends BaseRowSet implements RowSet, CachedRowSet
 
 	}
 
+	/**
+	 * 从结果集当前行读取一列的值，LOB/Struct/Array等依赖连接的对象会被转换为可离线使用的序列化对象
+	 * 
+	 * @param data
+	 *            结果集
+	 * @param i
+	 *            列序号，从1开始
+	 * @return 列的值
+	 * @throws SQLException
+	 */
+	public static Object readColumnValue(ResultSet data, int i) throws SQLException {
+		Object obj;
+		try {
+			obj = data.getObject(i);
+		} catch (SQLException e) {
+			// PG has bug on handle type MONEY, it attempts to
+			// convert money to double, even if it is a string with
+			// currency unit.
+			obj = data.getString(i);
+		}
+		if (obj instanceof Struct) {
+			obj = new SerialStruct((Struct) obj, null);
+		} else if (obj instanceof SQLData) {
+			obj = new SerialStruct((SQLData) obj, null);
+		} else if (obj instanceof Blob) {
+			obj = new SerialBlob((Blob) obj);
+		} else if (obj instanceof Clob) {
+			obj = new SerialClob((Clob) obj);
+		} else if (obj instanceof java.sql.Array) {
+			obj = new SerialArray((java.sql.Array) obj, null);
+		}
+		return obj;
+	}
+
+	/**
+	 * 只初始化元数据而不读取记录，用于在内存中直接构造结果行的场合(例如分组聚合)
+	 * 
+	 * @param meta
+	 *            原始结果集的元数据
+	 * @param numCols
+	 *            保留的列数，超出部分的列(例如为了内存计算而额外查询的列)将被忽略
+	 * @throws SQLException
+	 */
+	public void initMetaData(ResultSetMetaData meta, int numCols) throws SQLException {
+		RowSetMD = new RowSetMetaDataImpl();
+		initMetaData(RowSetMD, meta, numCols);
+	}
+
 	/**
 	 * Initializes the given <code>RowSetMetaData</code> object with the values
 	 * in the given <code>ResultSetMetaData</code> object.
@@ -276,8 +305,7 @@ public class CachedRowSetImpl extends BaseRowSet implements RowSet, CachedRowSet
 	 * @throws SQLException
 	 *             if an error occurs
 	 */
-	private void initMetaData(RowSetMetaDataImpl md, ResultSetMetaData rsmd) throws SQLException {
-		int numCols = rsmd.getColumnCount();
+	private void initMetaData(RowSetMetaDataImpl md, ResultSetMetaData rsmd, int numCols) throws SQLException {
 
 		md.setColumnCount(numCols);
 		boolean isCaseSensitive = numCols > 0 ? rsmd.isCaseSensitive(1) : false;
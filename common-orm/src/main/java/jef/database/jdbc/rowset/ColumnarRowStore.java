@@ -0,0 +1,669 @@
+package jef.database.jdbc.rowset;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * 按列存储的内存结果集，用于分库分表后在内存中进行排序、分组、去重、分页等计算。<br>
+ * 每一列根据实际的值选择存储方式：
+ * <ul>
+ * <li>Long/Integer/Short/Byte 存为long[]</li>
+ * <li>Double/Float 存为double[]</li>
+ * <li>String 按字典编码存为int[]，不同值过多时改为直接存储</li>
+ * <li>其他类型存为Object[]</li>
+ * </ul>
+ * null值用位图记录。一列中出现不同类型的值时，该列改为Object[]存储。<br>
+ * 与每行一个{@link Row}的方式相比，不需要为每行每列创建包装对象，排序和去重时的比较和哈希计算也不需要装箱。
+ * 记录通过行号(从0开始)访问，{@link #asRows()}可以得到{@link Row}形式的视图。
+ */
+public final class ColumnarRowStore {
+	private static final int INITIAL_CAPACITY = 64;
+
+	/**
+	 * 字典大小超过此值，且超过行数的一半时，不再进行字典编码
+	 */
+	private static final int DICTIONARY_THRESHOLD = 1024;
+
+	private int numCols;
+	/**
+	 * 各列数据，null表示到目前为止该列全为null
+	 */
+	private Vector[] columns;
+	private int size;
+	private int capacity;
+
+	/**
+	 * 构造
+	 *
+	 * @param numCols
+	 *            列数
+	 */
+	public ColumnarRowStore(int numCols) {
+		reset(numCols);
+	}
+
+	private void reset(int numCols) {
+		this.numCols = numCols;
+		this.columns = new Vector[numCols];
+		this.size = 0;
+		this.capacity = 0;
+	}
+
+	/**
+	 * 读取结果集中所有记录
+	 *
+	 * @param rs
+	 *            结果集
+	 * @param max
+	 *            最多保存的记录数，0表示不限
+	 * @throws SQLException
+	 *             超过最大记录数时抛出
+	 */
+	public void populate(ResultSet rs, int max) throws SQLException {
+		if (max <= 0)
+			max = Integer.MAX_VALUE;
+		while (rs.next()) {
+			if (size >= max) {
+				throw new SQLException("The Inmemory operate reaches it max limit of " + max);
+			}
+			int row = newRow();
+			for (int i = 0; i < numCols; i++) {
+				set(row, i, CachedRowSetImpl.readColumnValue(rs, i + 1));
+			}
+		}
+	}
+
+	/**
+	 * 读取结果集的下一行记录
+	 *
+	 * @param rs
+	 *            结果集
+	 * @return 结果集没有更多记录时返回false
+	 * @throws SQLException
+	 */
+	public boolean fetch(ResultSet rs) throws SQLException {
+		if (!rs.next())
+			return false;
+		int row = newRow();
+		for (int i = 0; i < numCols; i++) {
+			set(row, i, CachedRowSetImpl.readColumnValue(rs, i + 1));
+		}
+		return true;
+	}
+
+	/**
+	 * 清除所有记录
+	 */
+	public void clear() {
+		reset(numCols);
+	}
+
+	/**
+	 * 添加一行记录
+	 *
+	 * @param source
+	 *            记录，只取前{@link #getColumnCount()}列
+	 */
+	public void add(Row source) {
+		int row = newRow();
+		for (int i = 0; i < numCols; i++) {
+			set(row, i, source.getArrayObject(i));
+		}
+	}
+
+	/**
+	 * 清除所有记录，以新的列数存放给出的记录
+	 *
+	 * @param rows
+	 *            记录
+	 * @param numCols
+	 *            列数
+	 */
+	public void replace(List<Row> rows, int numCols) {
+		reset(numCols);
+		for (Row row : rows) {
+			add(row);
+		}
+	}
+
+	private int newRow() {
+		if (size == capacity) {
+			capacity = capacity < INITIAL_CAPACITY ? INITIAL_CAPACITY : capacity + (capacity >> 1);
+			for (Vector v : columns) {
+				if (v != null)
+					v.ensure(capacity);
+			}
+		}
+		return size++;
+	}
+
+	private void set(int row, int col, Object value) {
+		Vector v = columns[col];
+		if (value == null) {
+			if (v != null)
+				v.nulls.set(row);
+			return;
+		}
+		if (v == null) {
+			v = Vector.create(value);
+			v.ensure(capacity);
+			v.nulls.set(0, row);
+			columns[col] = v;
+		} else if (!v.accept(value, row)) {
+			v = new ObjectVector(v, capacity, row);
+			columns[col] = v;
+		}
+		v.put(row, value);
+	}
+
+	/**
+	 * 记录数
+	 *
+	 * @return
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * 列数
+	 *
+	 * @return
+	 */
+	public int getColumnCount() {
+		return numCols;
+	}
+
+	/**
+	 * 得到值
+	 *
+	 * @param row
+	 *            行号，从0开始
+	 * @param col
+	 *            列序号，从0开始
+	 * @return
+	 */
+	public Object getValue(int row, int col) {
+		Vector v = columns[col];
+		if (v == null || v.nulls.get(row))
+			return null;
+		return v.value(row);
+	}
+
+	/**
+	 * 得到一行记录
+	 *
+	 * @param row
+	 *            行号，从0开始
+	 * @return 新创建的Row对象
+	 */
+	public Row getRow(int row) {
+		Row result = new Row(numCols);
+		for (int i = 0; i < numCols; i++) {
+			result.setArrayObject(i, getValue(row, i));
+		}
+		return result;
+	}
+
+	/**
+	 * 比较两行中一列的值，null值总是排在非null值之后(与{@code InMemoryOrderBy.compareValue}一致)
+	 *
+	 * @param a
+	 *            行号
+	 * @param b
+	 *            行号
+	 * @param col
+	 *            列序号，从0开始
+	 * @return
+	 */
+	public int compare(int a, int b, int col) {
+		Vector v = columns[col];
+		if (v == null)
+			return 0;
+		boolean nullA = v.nulls.get(a);
+		boolean nullB = v.nulls.get(b);
+		if (nullA || nullB) {
+			return nullA == nullB ? 0 : (nullA ? 1 : -1);
+		}
+		return v.compareValue(a, b);
+	}
+
+	/**
+	 * 两行记录是否相等
+	 *
+	 * @param a
+	 *            行号
+	 * @param b
+	 *            行号
+	 * @return
+	 */
+	public boolean equalsRow(int a, int b) {
+		for (Vector v : columns) {
+			if (v == null)
+				continue;
+			boolean nullA = v.nulls.get(a);
+			if (nullA != v.nulls.get(b))
+				return false;
+			if (!nullA && !v.equalValue(a, b))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * 计算一行记录的哈希值，值相等的行({@link #equalsRow(int, int)})哈希值相同
+	 *
+	 * @param row
+	 *            行号
+	 * @return
+	 */
+	public int hashRow(int row) {
+		int h = 1;
+		for (Vector v : columns) {
+			h = 31 * h + (v == null || v.nulls.get(row) ? 0 : v.hashValue(row));
+		}
+		return h;
+	}
+
+	/**
+	 * 按指定的列排序(稳定排序)
+	 *
+	 * @param cols
+	 *            排序列，从0开始
+	 * @param asc
+	 *            各列是否正序
+	 */
+	public void sort(int[] cols, boolean[] asc) {
+		int[] order = new int[size];
+		for (int i = 0; i < size; i++) {
+			order[i] = i;
+		}
+		mergeSort(order, new int[size], 0, size, cols, asc);
+		select(order, size);
+	}
+
+	private void mergeSort(int[] a, int[] tmp, int from, int to, int[] cols, boolean[] asc) {
+		if (to - from < 8) {
+			for (int i = from + 1; i < to; i++) {
+				int x = a[i];
+				int j = i;
+				while (j > from && compareRows(a[j - 1], x, cols, asc) > 0) {
+					a[j] = a[j - 1];
+					j--;
+				}
+				a[j] = x;
+			}
+			return;
+		}
+		int mid = (from + to) >>> 1;
+		mergeSort(a, tmp, from, mid, cols, asc);
+		mergeSort(a, tmp, mid, to, cols, asc);
+		if (compareRows(a[mid - 1], a[mid], cols, asc) <= 0)
+			return;
+		System.arraycopy(a, from, tmp, from, to - from);
+		int i = from, j = mid, k = from;
+		while (i < mid && j < to) {
+			a[k++] = compareRows(tmp[j], tmp[i], cols, asc) < 0 ? tmp[j++] : tmp[i++];
+		}
+		while (i < mid) {
+			a[k++] = tmp[i++];
+		}
+		while (j < to) {
+			a[k++] = tmp[j++];
+		}
+	}
+
+	private int compareRows(int a, int b, int[] cols, boolean[] asc) {
+		for (int i = 0; i < cols.length; i++) {
+			int r = compare(a, b, cols[i]);
+			if (r != 0)
+				return asc[i] ? r : -r;
+		}
+		return 0;
+	}
+
+	/**
+	 * 只保留指定的行，并按给出的顺序重新排列
+	 *
+	 * @param rows
+	 *            行号
+	 * @param count
+	 *            rows中的有效行数
+	 */
+	public void select(int[] rows, int count) {
+		int cap = Math.max(count, 1);
+		for (int i = 0; i < numCols; i++) {
+			Vector v = columns[i];
+			if (v != null)
+				columns[i] = v.gather(rows, count, cap);
+		}
+		size = count;
+		capacity = cap;
+	}
+
+	/**
+	 * 只保留指定范围内的行
+	 *
+	 * @param from
+	 *            起始行号(含)
+	 * @param to
+	 *            结束行号(不含)
+	 */
+	public void slice(int from, int to) {
+		int count = Math.max(to - from, 0);
+		int[] rows = new int[count];
+		for (int i = 0; i < count; i++) {
+			rows[i] = from + i;
+		}
+		select(rows, count);
+	}
+
+	/**
+	 * 得到以{@link Row}形式访问的只读视图，供{@link CachedRowSetImpl}作为结果集输出。
+	 * 视图中的Row对象在访问时才创建，连续访问同一行时返回同一个对象。
+	 *
+	 * @return
+	 */
+	public List<Row> asRows() {
+		return new RowView();
+	}
+
+	private final class RowView extends AbstractList<Row> implements RandomAccess {
+		private int current = -1;
+		private Row row;
+
+		@Override
+		public Row get(int index) {
+			if (index < 0 || index >= size)
+				throw new IndexOutOfBoundsException(String.valueOf(index));
+			if (index != current) {
+				row = getRow(index);
+				current = index;
+			}
+			return row;
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+
+	/*
+	 * 一列的数据
+	 */
+	static abstract class Vector {
+		final BitSet nulls = new BitSet();
+
+		static Vector create(Object value) {
+			if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+				return new LongVector(value.getClass());
+			} else if (value instanceof Double || value instanceof Float) {
+				return new DoubleVector(value.getClass());
+			} else if (value instanceof String) {
+				return new StringVector();
+			}
+			return new ObjectVector();
+		}
+
+		/**
+		 * 能否存放该值，不能时整列改为Object[]存储
+		 */
+		abstract boolean accept(Object value, int row);
+
+		abstract void ensure(int capacity);
+
+		abstract void put(int row, Object value);
+
+		abstract Object value(int row);
+
+		abstract int compareValue(int a, int b);
+
+		abstract boolean equalValue(int a, int b);
+
+		abstract int hashValue(int row);
+
+		abstract Vector gather(int[] rows, int count, int capacity);
+
+		final void gatherNulls(Vector target, int[] rows, int count) {
+			if (nulls.isEmpty())
+				return;
+			for (int i = 0; i < count; i++) {
+				if (nulls.get(rows[i]))
+					target.nulls.set(i);
+			}
+		}
+	}
+
+	static final class LongVector extends Vector {
+		private final Class<?> type;
+		private long[] values = new long[0];
+
+		LongVector(Class<?> type) {
+			this.type = type;
+		}
+
+		boolean accept(Object value, int row) {
+			return value.getClass() == type;
+		}
+
+		void ensure(int capacity) {
+			values = Arrays.copyOf(values, capacity);
+		}
+
+		void put(int row, Object value) {
+			values[row] = ((Number) value).longValue();
+		}
+
+		Object value(int row) {
+			long v = values[row];
+			if (type == Long.class)
+				return v;
+			if (type == Integer.class)
+				return (int) v;
+			if (type == Short.class)
+				return (short) v;
+			return (byte) v;
+		}
+
+		int compareValue(int a, int b) {
+			long x = values[a], y = values[b];
+			return x < y ? -1 : (x == y ? 0 : 1);
+		}
+
+		boolean equalValue(int a, int b) {
+			return values[a] == values[b];
+		}
+
+		int hashValue(int row) {
+			long v = values[row];
+			return (int) (v ^ (v >>> 32));
+		}
+
+		Vector gather(int[] rows, int count, int capacity) {
+			LongVector result = new LongVector(type);
+			result.values = new long[capacity];
+			for (int i = 0; i < count; i++) {
+				result.values[i] = values[rows[i]];
+			}
+			gatherNulls(result, rows, count);
+			return result;
+		}
+	}
+
+	static final class DoubleVector extends Vector {
+		private final Class<?> type;
+		private double[] values = new double[0];
+
+		DoubleVector(Class<?> type) {
+			this.type = type;
+		}
+
+		boolean accept(Object value, int row) {
+			return value.getClass() == type;
+		}
+
+		void ensure(int capacity) {
+			values = Arrays.copyOf(values, capacity);
+		}
+
+		void put(int row, Object value) {
+			values[row] = ((Number) value).doubleValue();
+		}
+
+		Object value(int row) {
+			double v = values[row];
+			return type == Double.class ? (Object) v : (Object) (float) v;
+		}
+
+		int compareValue(int a, int b) {
+			return Double.compare(values[a], values[b]);
+		}
+
+		boolean equalValue(int a, int b) {
+			return Double.compare(values[a], values[b]) == 0;
+		}
+
+		int hashValue(int row) {
+			long v = Double.doubleToLongBits(values[row]);
+			return (int) (v ^ (v >>> 32));
+		}
+
+		Vector gather(int[] rows, int count, int capacity) {
+			DoubleVector result = new DoubleVector(type);
+			result.values = new double[capacity];
+			for (int i = 0; i < count; i++) {
+				result.values[i] = values[rows[i]];
+			}
+			gatherNulls(result, rows, count);
+			return result;
+		}
+	}
+
+	/*
+	 * 字典编码的字符串列，相同的值只保存一份
+	 */
+	static final class StringVector extends Vector {
+		private List<String> dictionary = new ArrayList<String>();
+		private Map<String, Integer> codes = new HashMap<String, Integer>();
+		private int[] values = new int[0];
+
+		boolean accept(Object value, int row) {
+			if (!(value instanceof String))
+				return false;
+			int n = dictionary.size();
+			return n < DICTIONARY_THRESHOLD || n * 2 < row || codes.containsKey(value);
+		}
+
+		void ensure(int capacity) {
+			values = Arrays.copyOf(values, capacity);
+		}
+
+		void put(int row, Object value) {
+			Integer code = codes.get(value);
+			if (code == null) {
+				code = dictionary.size();
+				dictionary.add((String) value);
+				codes.put((String) value, code);
+			}
+			values[row] = code;
+		}
+
+		Object value(int row) {
+			return dictionary.get(values[row]);
+		}
+
+		int compareValue(int a, int b) {
+			int x = values[a], y = values[b];
+			return x == y ? 0 : dictionary.get(x).compareTo(dictionary.get(y));
+		}
+
+		boolean equalValue(int a, int b) {
+			return values[a] == values[b];
+		}
+
+		int hashValue(int row) {
+			return values[row];
+		}
+
+		Vector gather(int[] rows, int count, int capacity) {
+			StringVector result = new StringVector();
+			result.dictionary = dictionary;
+			result.codes = codes;
+			result.values = new int[capacity];
+			for (int i = 0; i < count; i++) {
+				result.values[i] = values[rows[i]];
+			}
+			gatherNulls(result, rows, count);
+			return result;
+		}
+	}
+
+	static final class ObjectVector extends Vector {
+		private Object[] values = new Object[0];
+
+		ObjectVector() {
+		}
+
+		/*
+		 * 从其他类型的列转换
+		 */
+		ObjectVector(Vector source, int capacity, int count) {
+			values = new Object[capacity];
+			for (int i = 0; i < count; i++) {
+				if (source.nulls.get(i)) {
+					nulls.set(i);
+				} else {
+					values[i] = source.value(i);
+				}
+			}
+		}
+
+		boolean accept(Object value, int row) {
+			return true;
+		}
+
+		void ensure(int capacity) {
+			values = Arrays.copyOf(values, capacity);
+		}
+
+		void put(int row, Object value) {
+			values[row] = value;
+		}
+
+		Object value(int row) {
+			return values[row];
+		}
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		int compareValue(int a, int b) {
+			return ((Comparable) values[a]).compareTo(values[b]);
+		}
+
+		boolean equalValue(int a, int b) {
+			return values[a].equals(values[b]);
+		}
+
+		int hashValue(int row) {
+			return values[row].hashCode();
+		}
+
+		Vector gather(int[] rows, int count, int capacity) {
+			ObjectVector result = new ObjectVector();
+			result.values = new Object[capacity];
+			for (int i = 0; i < count; i++) {
+				result.values[i] = values[rows[i]];
+			}
+			gatherNulls(result, rows, count);
+			return result;
+		}
+	}
+}
@@ -0,0 +1,206 @@
+package jef.database.jdbc.rowset;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 记录的二进制编码，用于将内存计算的中间结果写入临时文件。<br>
+ * 每个值以一个字节的类型标记开头，常见类型使用紧凑的定长或变长编码，其他可序列化对象使用Java序列化。
+ */
+final class RowCodec {
+	private static final int NULL = 0;
+	private static final int INT = 1;
+	private static final int LONG = 2;
+	private static final int SHORT = 3;
+	private static final int BYTE = 4;
+	private static final int DOUBLE = 5;
+	private static final int FLOAT = 6;
+	private static final int STRING = 7;
+	private static final int DECIMAL = 8;
+	private static final int BIGINT = 9;
+	private static final int TIMESTAMP = 10;
+	private static final int SQL_DATE = 11;
+	private static final int SQL_TIME = 12;
+	private static final int DATE = 13;
+	private static final int BOOLEAN = 14;
+	private static final int BYTES = 15;
+	private static final int SERIALIZED = 16;
+
+	private RowCodec() {
+	}
+
+	/**
+	 * 写入一行
+	 *
+	 * @param out
+	 *            输出
+	 * @param row
+	 *            记录
+	 * @param numCols
+	 *            列数
+	 * @throws IOException
+	 */
+	static void write(DataOutput out, Row row, int numCols) throws IOException {
+		for (int i = 0; i < numCols; i++) {
+			writeValue(out, row.getArrayObject(i));
+		}
+	}
+
+	/**
+	 * 读取一行
+	 *
+	 * @param in
+	 *            输入
+	 * @param numCols
+	 *            列数
+	 * @return 记录
+	 * @throws IOException
+	 */
+	static Row read(DataInput in, int numCols) throws IOException {
+		Row row = new Row(numCols);
+		for (int i = 0; i < numCols; i++) {
+			row.setArrayObject(i, readValue(in));
+		}
+		return row;
+	}
+
+	static void writeValue(DataOutput out, Object v) throws IOException {
+		if (v == null) {
+			out.writeByte(NULL);
+		} else if (v instanceof Integer) {
+			out.writeByte(INT);
+			out.writeInt((Integer) v);
+		} else if (v instanceof Long) {
+			out.writeByte(LONG);
+			out.writeLong((Long) v);
+		} else if (v instanceof String) {
+			out.writeByte(STRING);
+			writeBytes(out, ((String) v).getBytes(StandardCharsets.UTF_8));
+		} else if (v instanceof BigDecimal) {
+			BigDecimal d = (BigDecimal) v;
+			out.writeByte(DECIMAL);
+			out.writeInt(d.scale());
+			writeBytes(out, d.unscaledValue().toByteArray());
+		} else if (v instanceof Double) {
+			out.writeByte(DOUBLE);
+			out.writeDouble((Double) v);
+		} else if (v instanceof java.sql.Timestamp) {
+			java.sql.Timestamp t = (java.sql.Timestamp) v;
+			out.writeByte(TIMESTAMP);
+			out.writeLong(t.getTime());
+			out.writeInt(t.getNanos());
+		} else if (v instanceof java.sql.Date) {
+			out.writeByte(SQL_DATE);
+			out.writeLong(((java.util.Date) v).getTime());
+		} else if (v instanceof java.sql.Time) {
+			out.writeByte(SQL_TIME);
+			out.writeLong(((java.util.Date) v).getTime());
+		} else if (v.getClass() == java.util.Date.class) {
+			out.writeByte(DATE);
+			out.writeLong(((java.util.Date) v).getTime());
+		} else if (v instanceof Short) {
+			out.writeByte(SHORT);
+			out.writeShort((Short) v);
+		} else if (v instanceof Byte) {
+			out.writeByte(BYTE);
+			out.writeByte((Byte) v);
+		} else if (v instanceof Float) {
+			out.writeByte(FLOAT);
+			out.writeFloat((Float) v);
+		} else if (v instanceof Boolean) {
+			out.writeByte(BOOLEAN);
+			out.writeBoolean((Boolean) v);
+		} else if (v instanceof BigInteger) {
+			out.writeByte(BIGINT);
+			writeBytes(out, ((BigInteger) v).toByteArray());
+		} else if (v instanceof byte[]) {
+			out.writeByte(BYTES);
+			writeBytes(out, (byte[]) v);
+		} else if (v instanceof Serializable) {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			ObjectOutputStream oo = new ObjectOutputStream(bytes);
+			oo.writeObject(v);
+			oo.close();
+			out.writeByte(SERIALIZED);
+			writeBytes(out, bytes.toByteArray());
+		} else {
+			throw new NotSerializableException(v.getClass().getName());
+		}
+	}
+
+	static Object readValue(DataInput in) throws IOException {
+		int type = in.readByte();
+		switch (type) {
+		case NULL:
+			return null;
+		case INT:
+			return in.readInt();
+		case LONG:
+			return in.readLong();
+		case SHORT:
+			return in.readShort();
+		case BYTE:
+			return in.readByte();
+		case DOUBLE:
+			return in.readDouble();
+		case FLOAT:
+			return in.readFloat();
+		case STRING:
+			return new String(readBytes(in), StandardCharsets.UTF_8);
+		case DECIMAL: {
+			int scale = in.readInt();
+			return new BigDecimal(new BigInteger(readBytes(in)), scale);
+		}
+		case BIGINT:
+			return new BigInteger(readBytes(in));
+		case TIMESTAMP: {
+			java.sql.Timestamp t = new java.sql.Timestamp(in.readLong());
+			t.setNanos(in.readInt());
+			return t;
+		}
+		case SQL_DATE:
+			return new java.sql.Date(in.readLong());
+		case SQL_TIME:
+			return new java.sql.Time(in.readLong());
+		case DATE:
+			return new java.util.Date(in.readLong());
+		case BOOLEAN:
+			return in.readBoolean();
+		case BYTES:
+			return readBytes(in);
+		case SERIALIZED: {
+			ObjectInputStream oi = new ObjectInputStream(new ByteArrayInputStream(readBytes(in)));
+			try {
+				return oi.readObject();
+			} catch (ClassNotFoundException e) {
+				throw new IOException(e);
+			} finally {
+				oi.close();
+			}
+		}
+		default:
+			throw new IOException("Unknown value type " + type);
+		}
+	}
+
+	private static void writeBytes(DataOutput out, byte[] data) throws IOException {
+		out.writeInt(data.length);
+		out.write(data);
+	}
+
+	private static byte[] readBytes(DataInput in) throws IOException {
+		byte[] data = new byte[in.readInt()];
+		in.readFully(data);
+		return data;
+	}
+}
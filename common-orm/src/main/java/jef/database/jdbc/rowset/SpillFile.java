@@ -0,0 +1,227 @@
+package jef.database.jdbc.rowset;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+import jef.database.DbUtils;
+import jef.tools.IOUtils;
+
+/**
+ * 存放记录的临时文件，用于内存计算的数据量超出限制时将中间结果写入磁盘。<br>
+ * 先用{@link #write(Row)}顺序写入，{@link #finishWrite()}之后可以多次用{@link #open()}顺序读取。
+ * {@link #close()}时关闭{@link #asRows()}视图中未读完的文件，并删除文件。
+ * 文件不注册{@link File#deleteOnExit()}，以免长期运行时不断累积待删除的文件名，使用者必须保证调用{@link #close()}。
+ */
+public final class SpillFile implements Closeable {
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final int numCols;
+	private File file;
+	private DataOutputStream out;
+	private int count;
+	// asRows()返回的视图，关闭时一并关闭其中打开的读取器
+	private final List<RowView> views = new ArrayList<RowView>(2);
+
+	/**
+	 * 创建临时文件
+	 *
+	 * @param numCols
+	 *            列数
+	 * @throws SQLException
+	 */
+	public SpillFile(int numCols) throws SQLException {
+		this.numCols = numCols;
+		try {
+			this.file = File.createTempFile("jef-spill", ".tmp");
+			this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+		} catch (IOException e) {
+			close();
+			throw new SQLException("Can not create spill file: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * 写入一行记录
+	 *
+	 * @param row
+	 *            记录
+	 * @throws SQLException
+	 */
+	public void write(Row row) throws SQLException {
+		try {
+			RowCodec.write(out, row, numCols);
+			count++;
+		} catch (IOException e) {
+			throw new SQLException("Write spill file " + file + " error: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * 结束写入
+	 *
+	 * @throws SQLException
+	 */
+	public void finishWrite() throws SQLException {
+		if (out == null)
+			return;
+		try {
+			out.close();
+		} catch (IOException e) {
+			throw new SQLException("Write spill file " + file + " error: " + e.getMessage(), e);
+		} finally {
+			out = null;
+		}
+	}
+
+	/**
+	 * 已写入的记录数
+	 *
+	 * @return
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * 列数
+	 *
+	 * @return
+	 */
+	public int getColumnCount() {
+		return numCols;
+	}
+
+	/**
+	 * 从头开始读取记录
+	 *
+	 * @return 读取器，用完后需要关闭
+	 * @throws SQLException
+	 */
+	public Reader open() throws SQLException {
+		if (file == null)
+			throw new SQLException("The spill file was closed.");
+		finishWrite();
+		try {
+			return new Reader(new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE)));
+		} catch (IOException e) {
+			throw new SQLException("Read spill file " + file + " error: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * 得到以{@link Row}形式访问的只读视图，供{@link CachedRowSetImpl}作为结果集输出。<br>
+	 * 视图只能顺序访问，访问之前的行时从文件头重新读取。
+	 *
+	 * @return
+	 */
+	public List<Row> asRows() {
+		RowView view = new RowView();
+		views.add(view);
+		return view;
+	}
+
+	public void close() {
+		for (RowView view : views) {
+			view.closeReader();
+		}
+		views.clear();
+		IOUtils.closeQuietly(out);
+		out = null;
+		if (file != null) {
+			file.delete();
+			file = null;
+		}
+	}
+
+	/**
+	 * 顺序读取临时文件中的记录
+	 */
+	public final class Reader implements Closeable {
+		private final DataInputStream in;
+		private int read;
+
+		Reader(DataInputStream in) {
+			this.in = in;
+		}
+
+		/**
+		 * 读取下一行
+		 *
+		 * @return 记录，没有更多记录时返回null
+		 * @throws SQLException
+		 */
+		public Row next() throws SQLException {
+			if (read >= count)
+				return null;
+			try {
+				Row row = RowCodec.read(in, numCols);
+				read++;
+				return row;
+			} catch (IOException e) {
+				throw new SQLException("Read spill file " + file + " error: " + e.getMessage(), e);
+			}
+		}
+
+		public void close() {
+			IOUtils.closeQuietly(in);
+		}
+	}
+
+	private final class RowView extends AbstractList<Row> {
+		private Reader reader;
+		private int current = -1;
+		private Row row;
+
+		@Override
+		public Row get(int index) {
+			if (index < 0 || index >= count)
+				throw new IndexOutOfBoundsException(String.valueOf(index));
+			if (index == current)
+				return row;
+			try {
+				if (index < current || reader == null) {
+					if (reader != null)
+						reader.close();
+					reader = open();
+					current = -1;
+				}
+				while (current < index) {
+					row = reader.next();
+					current++;
+				}
+				if (current == count - 1) {
+					reader.close();
+					reader = null;
+				}
+				return row;
+			} catch (SQLException e) {
+				throw DbUtils.toRuntimeException(e);
+			}
+		}
+
+		@Override
+		public int size() {
+			return count;
+		}
+
+		void closeReader() {
+			if (reader != null) {
+				reader.close();
+				reader = null;
+			}
+			current = -1;
+			row = null;
+		}
+	}
+}
@@ -1,7 +1,10 @@
 package jef.database.jmx;
 
 import jef.database.DbClient;
+import jef.database.cache.Cache;
+import jef.database.cache.CacheImpl;
 import jef.database.jpa.JefEntityManagerFactory;
+import jef.database.jsqlparser.SqlParseCache;
 
 import org.apache.commons.lang.StringUtils;
 
@@ -37,6 +40,38 @@ public class DbClientInfo implements DbClientInfoMBean {
 		return db.getInnerPoolStatics();
 	}
 
+	public String getSqlParseCacheInfo() {
+		return SqlParseCache.getInstance().toString();
+	}
+
+	public String getGlobalCacheInfo() {
+		CacheImpl cache = getGlobalCache();
+		return cache == null ? "GlobalCache disabled" : cache.toString();
+	}
+
+	public long getGlobalCacheHitCount() {
+		return db.getGlobalCache().getHitCount();
+	}
+
+	public long getGlobalCacheMissCount() {
+		return db.getGlobalCache().getMissCount();
+	}
+
+	public long getGlobalCacheEvictionCount() {
+		CacheImpl cache = getGlobalCache();
+		return cache == null ? 0 : cache.getEvictionCount();
+	}
+
+	public long getGlobalCacheWeight() {
+		CacheImpl cache = getGlobalCache();
+		return cache == null ? 0 : cache.getWeight();
+	}
+
+	private CacheImpl getGlobalCache() {
+		Cache cache = db.getGlobalCache();
+		return cache instanceof CacheImpl ? (CacheImpl) cache : null;
+	}
+
 	public void checkNamedQueryUpdate() {
 		db.checkNamedQueryUpdate();
 	}
@@ -11,6 +11,36 @@ public interface DbClientInfoMBean {
 	 * @return
 	 */
 	String getInnerConnectionPoolInfo();
+	/**
+	 * SQL解析缓存的命中、未命中和淘汰次数
+	 * @return
+	 */
+	String getSqlParseCacheInfo();
+	/**
+	 * 二级缓存的命中、未命中、淘汰次数，当前容量和平均加载耗时
+	 * @return
+	 */
+	String getGlobalCacheInfo();
+	/**
+	 * 二级缓存命中次数
+	 * @return
+	 */
+	long getGlobalCacheHitCount();
+	/**
+	 * 二级缓存未命中次数
+	 * @return
+	 */
+	long getGlobalCacheMissCount();
+	/**
+	 * 二级缓存因超出容量被淘汰的结果数
+	 * @return
+	 */
+	long getGlobalCacheEvictionCount();
+	/**
+	 * 二级缓存当前占用的容量（行数或估算的字节数）
+	 * @return
+	 */
+	long getGlobalCacheWeight();
 	/**
 	 * 当前EMF名称
 	 * @return
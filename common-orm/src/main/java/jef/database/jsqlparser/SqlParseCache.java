@@ -0,0 +1,237 @@
+/*
+ * JEF - Copyright 2009-2010 Jiyi (mr.jiyi@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jef.database.jsqlparser;
+
+import java.io.StringReader;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jef.database.ORMConfig;
+import jef.database.jsqlparser.parser.JpqlParser;
+import jef.database.jsqlparser.parser.ParseException;
+import jef.database.jsqlparser.parser.StSqlParser;
+import jef.tools.reflect.CloneUtils;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+/**
+ * SQL解析结果缓存。
+ * <p>
+ * JavaCC解析器每次解析都要重新扫描整个SQL，对于反复执行的相同SQL（如路由JDBC层中的PreparedStatement）开销很大。
+ * 此处按解析方式和SQL文本缓存解析得到的语法树。由于语法树在后续处理中会被访问者修改（改写函数、替换表名等），
+ * 缓存中的语法树不会直接交给调用者，每次命中时都用{@link CloneUtils#deepClone(Object)}返回一份深拷贝，因此调用者可以随意修改得到的对象。
+ * <p>
+ * 缓存大小由{@link jef.database.DbCfg#DB_PARSE_CACHE_SIZE}控制，为0时不缓存。解析失败的SQL不会被缓存。
+ *
+ * @author jiyi
+ *
+ */
+public final class SqlParseCache {
+	/**
+	 * 解析方式，不同方式得到的语法树不同，因此是缓存键的一部分
+	 */
+	public enum Kind {
+		/**
+		 * JPQL语句 {@link JpqlParser#Statement()}
+		 */
+		JPQL_STATEMENT {
+			Object parse(String sql) throws ParseException {
+				return new JpqlParser(new StringReader(sql)).Statement();
+			}
+		},
+		/**
+		 * JPQL查询 {@link JpqlParser#Select()}
+		 */
+		JPQL_SELECT {
+			Object parse(String sql) throws ParseException {
+				return new JpqlParser(new StringReader(sql)).Select();
+			}
+		},
+		/**
+		 * JPQL查询列 {@link JpqlParser#SelectItemsList()}
+		 */
+		JPQL_SELECT_ITEMS {
+			Object parse(String sql) throws ParseException {
+				return new JpqlParser(new StringReader(sql)).SelectItemsList();
+			}
+		},
+		/**
+		 * 原生SQL语句 {@link StSqlParser#Statement()}
+		 */
+		NATIVE_STATEMENT {
+			Object parse(String sql) throws ParseException {
+				return new StSqlParser(new StringReader(sql)).Statement();
+			}
+		},
+		/**
+		 * 原生SQL查询 {@link StSqlParser#Select()}
+		 */
+		NATIVE_SELECT {
+			Object parse(String sql) throws ParseException {
+				return new StSqlParser(new StringReader(sql)).Select();
+			}
+		},
+		/**
+		 * 原生SQL简单查询 {@link StSqlParser#PlainSelect()}
+		 */
+		NATIVE_PLAIN_SELECT {
+			Object parse(String sql) throws ParseException {
+				return new StSqlParser(new StringReader(sql)).PlainSelect();
+			}
+		};
+
+		abstract Object parse(String sql) throws ParseException;
+	}
+
+	private static volatile SqlParseCache instance;
+
+	private final Cache<Key, Object> cache;
+	/**
+	 * 缓存关闭时的解析次数
+	 */
+	private final AtomicLong uncached = new AtomicLong();
+
+	private SqlParseCache(int size) {
+		this.cache = size > 0 ? CacheBuilder.newBuilder().maximumSize(size).recordStats().<Key, Object> build() : null;
+	}
+
+	/**
+	 * 得到缓存实例，首次使用时按{@link ORMConfig#getParseCacheSize()}创建
+	 *
+	 * @return 缓存实例
+	 */
+	public static SqlParseCache getInstance() {
+		SqlParseCache c = instance;
+		if (c == null) {
+			synchronized (SqlParseCache.class) {
+				c = instance;
+				if (c == null) {
+					instance = c = new SqlParseCache(ORMConfig.getInstance().getParseCacheSize());
+				}
+			}
+		}
+		return c;
+	}
+
+	/**
+	 * 按指定的方式解析SQL
+	 *
+	 * @param kind
+	 *            解析方式
+	 * @param sql
+	 *            SQL语句
+	 * @return 解析结果，调用者可以自由修改
+	 * @throws ParseException
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T parse(Kind kind, String sql) throws ParseException {
+		if (cache == null) {
+			uncached.incrementAndGet();
+			return (T) kind.parse(sql);
+		}
+		Key key = new Key(kind, sql);
+		Object parsed = cache.getIfPresent(key);
+		if (parsed == null) {
+			parsed = kind.parse(sql);
+			cache.put(key, parsed);
+		}
+		return (T) CloneUtils.deepClone(parsed);
+	}
+
+	/**
+	 * 清空缓存
+	 */
+	public void clear() {
+		if (cache != null) {
+			cache.invalidateAll();
+		}
+	}
+
+	/**
+	 * 命中次数
+	 *
+	 * @return 命中次数
+	 */
+	public long getHitCount() {
+		return cache == null ? 0 : cache.stats().hitCount();
+	}
+
+	/**
+	 * 未命中次数（即实际解析的次数）
+	 *
+	 * @return 未命中次数
+	 */
+	public long getMissCount() {
+		return cache == null ? uncached.get() : cache.stats().missCount();
+	}
+
+	/**
+	 * 因超出容量被淘汰的次数
+	 *
+	 * @return 淘汰次数
+	 */
+	public long getEvictionCount() {
+		return cache == null ? 0 : cache.stats().evictionCount();
+	}
+
+	/**
+	 * 当前缓存的语句数
+	 *
+	 * @return 缓存的语句数
+	 */
+	public long size() {
+		return cache == null ? 0 : cache.size();
+	}
+
+	@Override
+	public String toString() {
+		if (cache == null) {
+			return "SqlParseCache disabled, parsed:" + uncached.get();
+		}
+		CacheStats stats = cache.stats();
+		return "SqlParseCache size:" + cache.size() + " hit:" + stats.hitCount() + " miss:" + stats.missCount() + " eviction:" + stats.evictionCount();
+	}
+
+	/*
+	 * 缓存键
+	 */
+	private static final class Key {
+		private final Kind kind;
+		private final String sql;
+		private final int hash;
+
+		Key(Kind kind, String sql) {
+			this.kind = kind;
+			this.sql = sql;
+			this.hash = sql.hashCode() * 31 + kind.ordinal();
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj instanceof Key) {
+				Key o = (Key) obj;
+				return kind == o.kind && sql.equals(o.sql);
+			}
+			return false;
+		}
+	}
+}
@@ -3,7 +3,10 @@ package jef.database.meta;
 import java.sql.SQLException;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.persistence.PersistenceException;
 
@@ -20,13 +23,39 @@ import jef.tools.StringUtils;
 
 /**
  * Sequence实现的抽象类
+ * <p>
+ * 缓存的值按区间保存，当前区间只用两个long记录[next, max]，取值时无锁、不产生装箱对象。
+ * 当前区间用完后，只有一个线程去数据库获取新的区间，其他线程等待其结果。
+ * 配置了{@link DbCfg#SEQUENCE_PREFETCH_THRESHOLD}时，剩余值低于该数量会在后台线程提前获取下一批。
  * 
  * @author jiyi
  * 
  */
 public abstract class AbstractSequence implements Sequence {
+	private static final Range EMPTY = new Range(1, 0);
+
 	private int cacheSize;
-	protected final Queue<Long> cache = new ConcurrentLinkedQueue<Long>(); 
+	/**
+	 * 低于该剩余数量时在后台预取下一批，0表示不预取
+	 */
+	private int prefetchThreshold;
+	/**
+	 * 当前正在分配的区间
+	 */
+	private volatile Range current = EMPTY;
+	/**
+	 * 已经获取、尚未开始分配的区间
+	 */
+	private final Queue<Range> ranges = new ConcurrentLinkedQueue<Range>();
+	/**
+	 * 归还的值
+	 */
+	private final Queue<Long> returned = new ConcurrentLinkedQueue<Long>();
+	/**
+	 * 获取新区间时的锁，保证同时只有一个线程访问数据库
+	 */
+	private final Object fetchLock = new Object();
+	private final AtomicBoolean prefetching = new AtomicBoolean();
 
 	// 需要初始化
 	protected String dbKey;
@@ -38,6 +67,7 @@ public abstract class AbstractSequence implements Sequence {
 		cacheSize = JefConfiguration.getInt(DbCfg.SEQUENCE_BATCH_SIZE, 50);
 		if (cacheSize < 1)
 			cacheSize = 1;
+		prefetchThreshold = JefConfiguration.getInt(DbCfg.SEQUENCE_PREFETCH_THRESHOLD, 0);
 		if (target != null) {
 			this.dbKey = target.getDbkey();
 			this.session = target.getSession().getNoTransactionSession();
@@ -67,14 +97,84 @@ public abstract class AbstractSequence implements Sequence {
 	 * @param key
 	 */
 	public void pushBack(long key) {
-		cache.add(key);
+		returned.add(key);
 	}
 
 	public long next() {
-		Long value = cache.poll();
-		if (value != null){
-			return value;
+		if (!returned.isEmpty()) {
+			Long value = returned.poll();
+			if (value != null) {
+				return value;
+			}
+		}
+		for (;;) {
+			Range r = current;
+			long value = r.next.getAndIncrement();
+			if (value <= r.max) {
+				if (prefetchThreshold > 0 && r.max - value < prefetchThreshold && ranges.isEmpty()) {
+					prefetch();
+				}
+				return value;
+			}
+			switchRange(r);
 		}
+	}
+
+	/*
+	 * 当前区间已经用完，换到下一个区间，没有可用区间时从数据库获取。
+	 */
+	private void switchRange(Range used) {
+		synchronized (fetchLock) {
+			if (current != used) {// 其他线程已经换过了
+				return;
+			}
+			Range r = ranges.poll();
+			if (r == null) {
+				fetch();
+				r = ranges.poll();
+			}
+			current = r;
+		}
+	}
+
+	/**
+	 * 后台预取使用的执行器。默认是DbClient中该数据源的执行器，预取和分库查询等任务一起受该数据源的并发数限制
+	 * 
+	 * @return 执行器，返回null时不预取
+	 */
+	protected Executor getPrefetchExecutor() {
+		return session == null ? null : session.getExecutorRegistry().getExecutor(dbKey);
+	}
+
+	/*
+	 * 在后台获取下一批值
+	 */
+	private void prefetch() {
+		Executor executor = getPrefetchExecutor();
+		if (executor == null || !prefetching.compareAndSet(false, true)) {
+			return;
+		}
+		executor.execute(new Runnable() {
+			public void run() {
+				try {
+					synchronized (fetchLock) {
+						if (ranges.isEmpty()) {
+							fetch();
+						}
+					}
+				} catch (RuntimeException e) {
+					LogUtil.warn("Sequence [" + getName() + "] prefetch error.", e);
+				} finally {
+					prefetching.set(false);
+				}
+			}
+		});
+	}
+
+	/*
+	 * 从数据库获取一批值，调用时需要持有fetchLock
+	 */
+	private void fetch() {
 		try {
 			if(!initSuccess){
 				if(tryInitCount.get()<3){
@@ -86,25 +186,32 @@ public abstract class AbstractSequence implements Sequence {
 					throw new PersistenceException("Sequence/Table ["+this.getName()+"] is not exist, and there will be no attemp to create it.");	
 				}
 			}
-			return getFirstAndPushOthers(cacheSize, session, dbKey);
+			fetchRanges(cacheSize, session, dbKey);
 		} catch (SQLException e) {
 			throw DbUtils.toRuntimeException(e);
 		}
+		if (ranges.isEmpty()) {
+			throw new PersistenceException("Sequence/Table [" + this.getName() + "] returns no value.");
+		}
 	}
 
 	public void clear() {
-		cache.clear();
+		synchronized (fetchLock) {
+			ranges.clear();
+			returned.clear();
+			current = EMPTY;
+		}
 	}
 
 	/**
+	 * 从数据库获取一批值，并通过{@link #pushRange(long, long)}加入缓存
 	 * 
 	 * @param size
 	 *            要生成的ID数量
 	 * @param conn
-	 * @return
 	 * @throws SQLException
 	 */
-	protected abstract long getFirstAndPushOthers(int size, DbClient client, String dbKey) throws SQLException;
+	protected abstract void fetchRanges(int size, DbClient client, String dbKey) throws SQLException;
 
 	/**
 	 * 将从from 到 value的值全部加入缓存(含头含尾)
@@ -113,11 +220,24 @@ public abstract class AbstractSequence implements Sequence {
 	 * @param value
 	 */
 	protected void pushRange(long from, long value) {
-		for (long i = from; i <= value; i++) {
-			cache.offer(i);
+		if (from <= value) {
+			ranges.offer(new Range(from, value));
 		}
 	}
 
+	/**
+	 * 预取的阈值
+	 * 
+	 * @return 低于该剩余数量时在后台预取下一批，0表示不预取
+	 */
+	public int getPrefetchThreshold() {
+		return prefetchThreshold;
+	}
+
+	public void setPrefetchThreshold(int prefetchThreshold) {
+		this.prefetchThreshold = prefetchThreshold;
+	}
+
 	public int getCacheSize() {
 		return cacheSize;
 	}
@@ -150,4 +270,17 @@ public abstract class AbstractSequence implements Sequence {
 		pushBack(next);
 		return maxInTable < next;
 	}
+
+	/*
+	 * 一段连续的值[next, max]
+	 */
+	private static final class Range {
+		private final AtomicLong next;
+		private final long max;
+
+		Range(long from, long max) {
+			this.next = new AtomicLong(from);
+			this.max = max;
+		}
+	}
 }
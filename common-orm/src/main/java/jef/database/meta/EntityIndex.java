@@ -0,0 +1,229 @@
+package jef.database.meta;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+
+import jef.common.log.LogUtil;
+import jef.database.DbCfg;
+import jef.tools.IOUtils;
+import jef.tools.JefConfiguration;
+import jef.tools.StringUtils;
+
+/**
+ * 构建时生成的实体类索引。
+ * <p>
+ * 由{@link jef.codegen.EntityEnhancer}在增强时写入classpath根目录下的{@link #RESOURCE}，每行记录一个类：
+ *
+ * <pre>
+ * 类名(内部名称) 父类名(内部名称) class文件长度 是否已增强(E/-)
+ * </pre>
+ *
+ * 运行时扫描实体和检查增强时先查索引，不再逐个读取class文件解析。
+ * 记录的文件长度和当前文件不一致（如IDE重新编译后未再增强）时视为不在索引中，回到读取class文件的方式。
+ * <p>
+ * 索引只省去扫描实体和检查增强时读取、解析class文件的开销。实体的元数据(表名、列、类型、主键等)仍在首次使用时由{@link MetaHolder}
+ * 通过反射和注解构建，这通常是启动时的主要开销，不受索引影响。
+ *
+ * @see MetaHolder
+ * @see jef.database.support.QuerableEntityScanner
+ */
+public final class EntityIndex {
+	/**
+	 * 索引文件在classpath中的位置
+	 */
+	public static final String RESOURCE = "META-INF/jef-entities.idx";
+
+	private static final EntityIndex EMPTY = new EntityIndex(new HashMap<String, Entry>());
+
+	// 按ClassLoader加载的索引。ClassLoader只被弱引用，卸载后索引随之回收
+	private static final Map<ClassLoader, EntityIndex> CACHE = new WeakHashMap<ClassLoader, EntityIndex>();
+
+	// key为class文件的完整URL
+	private final Map<String, Entry> entries;
+
+	private EntityIndex(Map<String, Entry> entries) {
+		this.entries = entries;
+	}
+
+	/**
+	 * 索引中的一个类
+	 */
+	public static final class Entry {
+		final String name;
+		final String superName;
+		final long length;
+		final boolean enhanced;
+
+		public Entry(String name, String superName, long length, boolean enhanced) {
+			this.name = name;
+			this.superName = superName;
+			this.length = length;
+			this.enhanced = enhanced;
+		}
+
+		/**
+		 * @return 类的内部名称，如jef/database/DataObject
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return 父类的内部名称
+		 */
+		public String getSuperName() {
+			return superName;
+		}
+
+		/**
+		 * @return 生成索引时该类是否已经增强
+		 */
+		public boolean isEnhanced() {
+			return enhanced;
+		}
+	}
+
+	/**
+	 * 获得ClassLoader下所有jar和目录中的索引。未开启{@link DbCfg#DB_ENTITY_INDEX}时返回空的索引。
+	 *
+	 * @param cl
+	 * @return
+	 */
+	public static EntityIndex get(ClassLoader cl) {
+		if (cl == null || !JefConfiguration.getBoolean(DbCfg.DB_ENTITY_INDEX, true)) {
+			return EMPTY;
+		}
+		EntityIndex index;
+		synchronized (CACHE) {
+			index = CACHE.get(cl);
+		}
+		if (index != null) {
+			return index;
+		}
+		// 在锁外读取索引文件，同时加载时以先放入的为准
+		index = new EntityIndex(load(cl));
+		synchronized (CACHE) {
+			EntityIndex old = CACHE.get(cl);
+			if (old != null) {
+				return old;
+			}
+			CACHE.put(cl, index);
+		}
+		return index;
+	}
+
+	/**
+	 * 清除已加载的索引，下次使用时重新读取
+	 */
+	static void clear() {
+		synchronized (CACHE) {
+			CACHE.clear();
+		}
+	}
+
+	/**
+	 * 查找class文件对应的索引记录
+	 *
+	 * @param classUrl
+	 *            class文件的URL
+	 * @return 不在索引中，或者class文件在生成索引后发生过变化时返回null
+	 */
+	public Entry lookup(URL classUrl) {
+		if (classUrl == null || entries.isEmpty()) {
+			return null;
+		}
+		Entry entry = entries.get(classUrl.toString());
+		if (entry == null) {
+			return null;
+		}
+		// jar中的文件和索引一同打包，只检查目录中的文件
+		if ("file".equals(classUrl.getProtocol()) && IOUtils.urlToFile(classUrl).length() != entry.length) {
+			return null;
+		}
+		return entry;
+	}
+
+	/**
+	 * 索引中的类的数量
+	 *
+	 * @return
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	private static Map<String, Entry> load(ClassLoader cl) {
+		Map<String, Entry> result = new HashMap<String, Entry>();
+		try {
+			for (Enumeration<URL> e = cl.getResources(RESOURCE); e.hasMoreElements();) {
+				URL url = e.nextElement();
+				String s = url.toString();
+				String root = s.substring(0, s.length() - RESOURCE.length());
+				for (Map.Entry<String, Entry> entry : read(url).entrySet()) {
+					String key = root.concat(entry.getKey()).concat(".class");
+					if (!result.containsKey(key)) {
+						result.put(key, entry.getValue());
+					}
+				}
+			}
+		} catch (IOException e) {
+			LogUtil.exception(e);
+		}
+		return result;
+	}
+
+	/**
+	 * 读取一个索引文件
+	 *
+	 * @param url
+	 * @return key为类的内部名称
+	 * @throws IOException
+	 */
+	static Map<String, Entry> read(URL url) throws IOException {
+		Map<String, Entry> result = new TreeMap<String, Entry>();
+		BufferedReader reader = IOUtils.getReader(url, "UTF-8");
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.length() == 0 || line.charAt(0) == '#') {
+					continue;
+				}
+				String[] args = StringUtils.split(line, ' ');
+				if (args.length < 4) {
+					continue;
+				}
+				result.put(args[0], new Entry(args[0], args[1], StringUtils.toLong(args[2], -1L), "E".equals(args[3])));
+			}
+		} finally {
+			reader.close();
+		}
+		return result;
+	}
+
+	/**
+	 * 将记录合并到classpath根目录下的索引文件中。已有的同名记录被替换。
+	 *
+	 * @param root
+	 *            classpath根目录
+	 * @param entries
+	 *            要写入的记录，key为类的内部名称
+	 * @throws IOException
+	 */
+	public static void write(File root, Map<String, Entry> entries) throws IOException {
+		File file = new File(root, RESOURCE);
+		Map<String, Entry> merged = file.exists() ? read(file.toURI().toURL()) : new TreeMap<String, Entry>();
+		merged.putAll(entries);
+		StringBuilder sb = new StringBuilder("# Generated by EntityEnhancer, do not edit.\n");
+		for (Entry e : merged.values()) {
+			sb.append(e.name).append(' ').append(e.superName).append(' ').append(e.length).append(' ').append(e.enhanced ? 'E' : '-').append('\n');
+		}
+		IOUtils.saveAsFile(file, sb.toString().getBytes("UTF-8"));
+	}
+}
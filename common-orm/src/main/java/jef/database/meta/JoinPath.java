@@ -44,6 +44,7 @@ public class JoinPath {
 	private JoinType type;
 	private JoinDescription description;
 	private OrderBy orderBy;
+	private int batchSize = -1;
 
 	/**
 	 * ManyToMany时三表连接
@@ -73,6 +74,28 @@ public class JoinPath {
 		this.orderBy = orderBy;
 	}
 
+	/**
+	 * 级联加载时一次批量加载的最多父对象数量
+	 * 
+	 * @return 负数表示使用全局配置，0或1表示逐个对象加载
+	 */
+	public int getBatchSize() {
+		if (batchSize < 0 && description != null) {
+			return description.batchSize();
+		}
+		return batchSize;
+	}
+
+	/**
+	 * 设置级联加载时一次批量加载的最多父对象数量，优先于{@link JoinDescription#batchSize()}
+	 * 
+	 * @param batchSize
+	 *            负数表示使用注解或全局配置，0或1表示逐个对象加载
+	 */
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
 	public JoinKey[] getJoinKeys() {
 		if (joinKeys == null)
 			return EMPTY;
@@ -26,6 +26,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.persistence.Column;
 import javax.persistence.JoinColumn;
@@ -122,12 +123,17 @@ public final class MetaHolder {
 	// 站点映射
 	static Map<String, String> SITE_MAPPING;
 
-	// 元数据池（包含标准Entity的元数据和POJO的元数据）
-	static final Map<Class<?>, AbstractMetadata> pool = new java.util.IdentityHashMap<Class<?>, AbstractMetadata>(32);
+	// 元数据池（包含标准Entity的元数据和POJO的元数据）。读取时不加锁，因此使用并发容器
+	static final Map<Class<?>, AbstractMetadata> pool = new java.util.concurrent.ConcurrentHashMap<Class<?>, AbstractMetadata>(32);
 	// 动态表元数据池
 	static final Map<String, TupleMetadata> dynPool = new java.util.HashMap<String, TupleMetadata>(32);
 	// 反向查找表
 	private static final Map<String, AbstractMetadata> inverseMapping = new HashMap<String, AbstractMetadata>();
+	// 每个类初始化时使用的锁，不同的类可以同时初始化
+	private static final ConcurrentHashMap<Class<?>, Object> initLocks = new ConcurrentHashMap<Class<?>, Object>(32);
+	// 处理实体间引用关系的锁。引用关系会初始化目标类，并修改关系表等共用的模型，因此逐个处理。
+	// 持有此锁时可以再获取类的锁，反之不行，以免死锁
+	private static final Object REFERENCE_LOCK = new Object();
 
 	private static Logger log = LoggerFactory.getLogger(MetaHolder.class);
 
@@ -393,35 +399,45 @@ public final class MetaHolder {
 	}
 
 	/**
-	 * 在获取类时，需要有一个标记快速判断该类是否经过增强（无论是动态增强还是静态增强）一旦发现没增强的类，就抛出异常�?
+	 * 在获取类时，需要有一个标记快速判断该类是否经过增强（无论是动态增强还是静态增强）一旦发现没增强的类，就抛出异常。
+	 * <p>
+	 * 每个类在各自的锁中初始化，不同的类可以同时初始化。引用关系和动态扩展的实体在{@link #REFERENCE_LOCK}中处理。
 	 * 
 	 * @param clz
 	 * @return
 	 */
-	private synchronized static AbstractMetadata initData(Class<?> clz) {
-		{
-			AbstractMetadata m1 = pool.get(clz);
-			if (m1 != null)
-				return m1; // 双重检查锁定
-		}
+	private static AbstractMetadata initData(Class<?> clz) {
 		if (IQueryableEntity.class.isAssignableFrom(clz)) {
 			// 计算动态扩展字段
 			DynamicTable dt = clz.getAnnotation(DynamicTable.class);
 			DynamicKeyValueExtension dkv = clz.getAnnotation(DynamicKeyValueExtension.class);
 			if (dt == null && dkv == null) {// 两种扩展方式只能出现一种
 				return initEntity(clz.asSubclass(IQueryableEntity.class));
-			} else if (dt != null) {
-				return initVarTemplate(clz.asSubclass(EntityExtensionSupport.class), dt);
-			} else if (dkv != null) {
-				return initVarEntity(clz.asSubclass(EntityExtensionSupport.class), dkv);
-			} else {
-				throw new UnsupportedOperationException("Not support @DynamicTable and @DynamicKeyValueExtension simultaneously.");
+			}
+			// 动态扩展的实体要注册扩展配置、处理引用关系，整个过程在引用关系的锁中完成
+			synchronized (REFERENCE_LOCK) {
+				AbstractMetadata m1 = pool.get(clz);
+				if (m1 != null)
+					return m1; // 双重检查锁定
+				if (dt != null && dkv != null) {
+					throw new UnsupportedOperationException("Not support @DynamicTable and @DynamicKeyValueExtension simultaneously.");
+				} else if (dt != null) {
+					return initVarTemplate(clz.asSubclass(EntityExtensionSupport.class), dt);
+				} else {
+					return initVarEntity(clz.asSubclass(EntityExtensionSupport.class), dkv);
+				}
 			}
 		} else {
-			return initPojo(clz);
+			synchronized (getInitLock(clz)) {
+				return initPojo(clz);
+			}
 		}
 	}
 
+	private static Object getInitLock(Class<?> clz) {
+		return initLocks.computeIfAbsent(clz, k -> new Object());
+	}
+
 	private static AbstractMetadata initVarTemplate(Class<? extends EntityExtensionSupport> clz, DynamicTable dt) {
 		ClassAnnotationProvider annos = config.getAnnotations(clz);
 		List<java.lang.reflect.Field> unprocessedField = new ArrayList<java.lang.reflect.Field>();
@@ -486,21 +502,35 @@ public final class MetaHolder {
 	}
 
 	private static AbstractMetadata initEntity(Class<? extends IQueryableEntity> clz) {
-		ClassAnnotationProvider annos = config.getAnnotations(clz);
+		ClassAnnotationProvider annos;
 		List<java.lang.reflect.Field> unprocessedField = new ArrayList<java.lang.reflect.Field>();
-		TableMetadata meta = internalProcess(clz, unprocessedField, annos);
-		// 加载分表策略
-		Assert.notNull(partitionLoader, "the Partition loader is null!");
-		meta.setPartition(partitionLoader.get(clz));
-
-		// 此时就将基本字段计算完成的元数据加入缓存，以免在多表关系处理时遭遇死循环
-		pool.put(clz, meta);
-		// 针对未处理的字段，当做外部引用关系处理
-		for (java.lang.reflect.Field f : unprocessedField) {
-			// 将这个字段作为外部引用处理
-			processReference(meta, annos.forField(f));
-			// 还有一种情况，即定义了Column注解，但不属于元模型的一个字段，用于辅助映射的。当结果拼装时有用
-			processColumnHelper(meta, annos.forField(f));
+		TableMetadata meta;
+		// 基本字段只涉及本类，在本类的锁中计算
+		synchronized (getInitLock(clz)) {
+			AbstractMetadata m1 = pool.get(clz);
+			if (m1 != null)
+				return m1; // 双重检查锁定
+			annos = config.getAnnotations(clz);
+			meta = internalProcess(clz, unprocessedField, annos);
+			// 加载分表策略
+			Assert.notNull(partitionLoader, "the Partition loader is null!");
+			meta.setPartition(partitionLoader.get(clz));
+
+			// 此时就将基本字段计算完成的元数据加入缓存，以免在多表关系处理时遭遇死循环
+			pool.put(clz, meta);
+		}
+		if (unprocessedField.isEmpty()) {
+			return meta;
+		}
+		// 引用关系会初始化目标类，释放本类的锁后再处理
+		synchronized (REFERENCE_LOCK) {
+			// 针对未处理的字段，当做外部引用关系处理
+			for (java.lang.reflect.Field f : unprocessedField) {
+				// 将这个字段作为外部引用处理
+				processReference(meta, annos.forField(f));
+				// 还有一种情况，即定义了Column注解，但不属于元模型的一个字段，用于辅助映射的。当结果拼装时有用
+				processColumnHelper(meta, annos.forField(f));
+			}
 		}
 		return meta;
 	}
@@ -564,6 +594,11 @@ public final class MetaHolder {
 			LogUtil.warn("The source of class " + type + " not found, skip enhanced-check.");
 			return;
 		}
+		// 构建时的索引中记录为已增强，且class文件此后未变化的，不必再读取解析
+		EntityIndex.Entry entry = EntityIndex.get(type.getClassLoader()).lookup(url);
+		if (entry != null && entry.isEnhanced()) {
+			return;
+		}
 		byte[] data;
 		try {
 			data = IOUtils.toByteArray(url);
@@ -1126,6 +1161,8 @@ public final class MetaHolder {
 
 	public static void clear() {
 		pool.clear();
+		initLocks.clear();
+		EntityIndex.clear();
 		dynPool.clear();
 		inverseMapping.clear();
 	}
@@ -20,6 +20,7 @@ import java.util.List;
 
 import com.google.common.base.Objects;
 
+import jef.database.ORMConfig;
 import jef.database.annotation.JoinType;
 import jef.database.query.ReferenceType;
 import jef.tools.Assert;
@@ -185,6 +186,16 @@ public class Reference{
 		return hint;
 	}
 
+	/**
+	 * 级联加载时一次批量加载的最多父对象数量
+	 * @return 连接路径上未指定时，使用全局配置{@link ORMConfig#getCascadeBatchSize()}
+	 */
+	public int getBatchSize(){
+		JoinPath path=toJoinPath();
+		int size=path==null?-1:path.getBatchSize();
+		return size<0?ORMConfig.getInstance().getCascadeBatchSize():size;
+	}
+
 	public void setHint(JoinPath hint) {
 //		Query<?> leftq=ReadOnlyQuery.getEmptyQuery(this.fromType);
 //		Query<?> rightq=ReadOnlyQuery.getEmptyQuery(this.targetType);
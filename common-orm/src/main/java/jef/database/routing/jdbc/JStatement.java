@@ -1,6 +1,5 @@
 package jef.database.routing.jdbc;
 
-import java.io.StringReader;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -11,10 +10,12 @@ import java.util.LinkedList;
 import java.util.List;
 
 import jef.database.DbUtils;
+import jef.database.TransactionalSession;
 import jef.database.innerpool.JConnection;
 import jef.database.jdbc.GenerateKeyReturnOper;
+import jef.database.jsqlparser.SqlParseCache;
 import jef.database.jsqlparser.parser.ParseException;
-import jef.database.jsqlparser.parser.StSqlParser;
+import jef.database.routing.sql.RoutingTemplate;
 
 import org.apache.commons.lang.ArrayUtils;
 import org.slf4j.Logger;
@@ -314,13 +315,7 @@ public class JStatement implements java.sql.Statement {
 	 * 
 	 */
 	protected ResultSet executeQueryInternal(String sql, List<ParameterContext> params) throws SQLException {
-		jef.database.jsqlparser.visitor.Statement st = parse(sql);
-		SQLExecutor executor;
-		if (st == null) {
-			executor = new SimpleSQLExecutor(conn.get().selectTarget(null), sql);
-		} else {
-			executor = new RoutingSQLExecutor(conn.get(), st);
-		}
+		SQLExecutor executor = createExecutor(sql);
 		executor.setFetchSize(this.fetchSize);
 		executor.setMaxResults(this.maxRows);
 		executor.setQueryTimeout(this.queryTimeout);
@@ -329,13 +324,7 @@ public class JStatement implements java.sql.Statement {
 	}
 
 	protected int[] executeBatchInternal(String sql, GenerateKeyReturnOper oper, List<List<ParameterContext>> params) throws SQLException {
-		jef.database.jsqlparser.visitor.Statement st = parse(sql);
-		SQLExecutor se;
-		if (st == null) { // 无法解析，直接运行
-			se = new SimpleSQLExecutor(conn.get().selectTarget(null), sql);
-		} else {
-			se = new RoutingSQLExecutor(conn.get(), st);
-		}
+		SQLExecutor se = createExecutor(sql);
 		if (queryTimeout > 0)
 			se.setQueryTimeout(queryTimeout);
 		BatchReturn br = se.executeBatch(oper, params);
@@ -344,13 +333,7 @@ public class JStatement implements java.sql.Statement {
 	}
 
 	protected int executeUpdateInternal(String sql, GenerateKeyReturnOper oper, List<ParameterContext> params) throws SQLException {
-		jef.database.jsqlparser.visitor.Statement st = parse(sql);
-		SQLExecutor se;
-		if (st == null) { // 无法解析，直接运行
-			se = new SimpleSQLExecutor(conn.get().selectTarget(null), sql);
-		} else {
-			se = new RoutingSQLExecutor(conn.get(), st);
-		}
+		SQLExecutor se = createExecutor(sql);
 		if (queryTimeout > 0)
 			se.setQueryTimeout(queryTimeout);
 		this.updateReturn = se.executeUpdate(oper, params);
@@ -390,10 +373,25 @@ public class JStatement implements java.sql.Statement {
 		}
 	}
 
+	/*
+	 * 已经有路由模板的SQL不再解析和本地化，直接使用模板中的语法树
+	 */
+	private SQLExecutor createExecutor(String sql) {
+		TransactionalSession session = conn.get();
+		RoutingTemplate template = RoutingTemplate.lookup(sql, session.selectTarget(null).getProfile());
+		if (template != null) {
+			return new RoutingSQLExecutor(session, template);
+		}
+		jef.database.jsqlparser.visitor.Statement st = parse(sql);
+		if (st == null) { // 无法解析，直接运行
+			return new SimpleSQLExecutor(session.selectTarget(null), sql);
+		}
+		return new RoutingSQLExecutor(session, sql, st);
+	}
+
 	protected jef.database.jsqlparser.visitor.Statement parse(String sql) {
-		StSqlParser parser = new StSqlParser(new StringReader(sql));
 		try {
-			return parser.Statement();
+			return SqlParseCache.getInstance().parse(SqlParseCache.Kind.NATIVE_STATEMENT, sql);
 		} catch (ParseException e) {
 			log.error("Parse Error: {}", sql);
 			return null;
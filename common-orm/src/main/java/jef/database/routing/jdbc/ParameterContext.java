@@ -58,6 +58,6 @@ public class ParameterContext {
 	}
 
 	public Object getValue() {
-		return args[1];
+		return args[0];
 	}
 }
@@ -21,6 +21,7 @@ import jef.database.query.DbTable;
 import jef.database.query.ParameterProvider;
 import jef.database.routing.sql.ExecuteablePlan;
 import jef.database.routing.sql.QueryablePlan;
+import jef.database.routing.sql.RoutingTemplate;
 import jef.database.routing.sql.SqlAnalyzer;
 import jef.database.routing.sql.SqlAndParameter;
 import jef.database.routing.sql.TableMetaCollector;
@@ -33,7 +34,14 @@ public class RoutingSQLExecutor implements SQLExecutor {
 	private int fetchSize = ORMConfig.getInstance().getGlobalFetchSize();
 	private int maxResult = 0;
 	private Statement st;
-	private SqlFunctionlocalization l;
+	/**
+	 * 本地化时移除、需要在内存中处理的分页和递归条件
+	 */
+	private RemovedDelayProcess delay;
+	/**
+	 * 预编译的路由模板，为null表示每次都分析语法树
+	 */
+	private RoutingTemplate template;
 
 	/**
 	 * 从SQL语句加上返回类型构造
@@ -49,8 +57,40 @@ public class RoutingSQLExecutor implements SQLExecutor {
 
 		this.db = db.selectTarget(null);
 		this.st = sql;
-		l = new SqlFunctionlocalization(this.db.getProfile(), this.db);
+		SqlFunctionlocalization l = new SqlFunctionlocalization(this.db.getProfile(), this.db);
 		sql.accept(l);
+		if (l.delayLimit != null || l.delayStartWith != null) {
+			this.delay = new RemovedDelayProcess(l.delayLimit, l.delayStartWith);
+		}
+	}
+
+	/**
+	 * 从SQL语句构造，同一个SQL的路由分析结果会被缓存并复用
+	 * 
+	 * @param db
+	 * @param rawSql
+	 *            原始SQL
+	 * @param sql
+	 *            解析后的语法树
+	 */
+	public RoutingSQLExecutor(TransactionalSession db, String rawSql, Statement sql) {
+		this(db, sql);
+		this.template = RoutingTemplate.get(rawSql, this.db.getProfile(), sql, delay);
+	}
+
+	/**
+	 * 从已缓存的路由模板构造，直接使用模板中已本地化的语法树
+	 * 
+	 * @param db
+	 * @param template
+	 *            路由模板
+	 * @see RoutingTemplate#lookup(String, jef.database.dialect.DatabaseDialect)
+	 */
+	public RoutingSQLExecutor(TransactionalSession db, RoutingTemplate template) {
+		this.db = db.selectTarget(null);
+		this.st = template.getStatement();
+		this.delay = template.getDelay();
+		this.template = template;
 	}
 
 	/**
@@ -80,15 +120,20 @@ public class RoutingSQLExecutor implements SQLExecutor {
 	 */
 	public ResultSet getResultSet(int type, int concurrency, int holder, List<ParameterContext> params) throws SQLException {
 		SqlAndParameter parse = getSqlAndParams(db, this, params);
-		QueryablePlan plan = SqlAnalyzer.getSelectExecutionPlan((Select) parse.statement, parse.getParamsMap(), parse.params, db);
+		QueryablePlan plan;
+		if (template == null) {
+			plan = SqlAnalyzer.getSelectExecutionPlan((Select) parse.statement, parse.getParamsMap(), parse.params, db);
+		} else {
+			plan = SqlAnalyzer.getSelectExecutionPlan(template, parse.params, db);
+		}
 		return plan.getResultSet(parse, maxResult, fetchSize);
 	}
 
 	private SqlAndParameter getSqlAndParams(JDBCTarget db2, RoutingSQLExecutor jQuery, List<ParameterContext> params) {
 		ContextProvider cp = new ContextProvider(params);
 		SqlAndParameter sp = new SqlAndParameter(st, SqlAnalyzer.asValue(params), cp);
-		if (l.delayLimit != null || l.delayStartWith != null) {
-			sp.setInMemoryClause(new RemovedDelayProcess(l.delayLimit, l.delayStartWith));
+		if (delay != null) {
+			sp.setInMemoryClause(new RemovedDelayProcess(delay.limit, delay.startWith));
 		}
 		return sp;
 	}
@@ -127,9 +172,13 @@ public class RoutingSQLExecutor implements SQLExecutor {
 	 */
 	public UpdateReturn executeUpdate(GenerateKeyReturnOper generateKeys, List<ParameterContext> params) throws SQLException {
 		SqlAndParameter parse = getSqlAndParams(db, this, params);
-		Statement sql = parse.statement;
 
-		ExecuteablePlan plan = SqlAnalyzer.getExecutionPlan(sql, parse.getParamsMap(), parse.params, db);
+		ExecuteablePlan plan;
+		if (template == null) {
+			plan = SqlAnalyzer.getExecutionPlan(parse.statement, parse.getParamsMap(), parse.params, db);
+		} else {
+			plan = SqlAnalyzer.getExecutionPlan(template, parse.params, db);
+		}
 		return plan.processUpdate(generateKeys);
 	}
 
@@ -161,41 +210,54 @@ public class RoutingSQLExecutor implements SQLExecutor {
 	// Batch的约束，每个语句必是单库单表查询
 	@Override
 	public BatchReturn executeBatch(GenerateKeyReturnOper generateKeys, List<List<ParameterContext>> params) throws SQLException {
-		TableMetaCollector collector = SqlAnalyzer.getTableMeta(st);
-		if (collector.get() == null) {// 无需路由
-			return processBatch(null, null, params, collector, generateKeys);
+		AbstractMetadata meta;
+		List<Table> modifications;
+		if (template == null) {
+			TableMetaCollector collector = SqlAnalyzer.getTableMeta(st);
+			meta = collector.get();
+			modifications = collector.getModificationPoints();
+		} else {
+			meta = template.getMeta();
+			modifications = template.getModifications();
+		}
+		if (meta == null) {// 无需路由
+			return processBatch(null, null, params, modifications, generateKeys);
 		}
 		// 先按路由结果分组
-		AbstractMetadata meta = collector.get();
 		if (meta.getPartition() == null) {
 			if (meta.getBindDsName() != null) {
 				DbTable dbTable = meta.getBaseTable(db.getProfile());
-				return processBatch(dbTable.getDbName(), null, params, collector, generateKeys);
+				return processBatch(dbTable.getDbName(), null, params, modifications, generateKeys);
 			} else {
-				return processBatch(null, null, params, collector, generateKeys);
+				return processBatch(null, null, params, modifications, generateKeys);
 			}
 		}
 		// 分库分表
-		Multimap<String, List<ParameterContext>> result = SqlAnalyzer.doGroup(meta, params, this.st, this.db);
+		Multimap<String, List<ParameterContext>> result;
+		if (template == null) {
+			result = SqlAnalyzer.doGroup(meta, params, this.st, this.db);
+		} else {
+			result = SqlAnalyzer.doGroup(template, params, this.db);
+		}
 		BatchReturn ur = new BatchReturn();
 		for (String s : result.keySet()) {
 			int index = s.indexOf('-');
 			String db = s.substring(0, index);
 			String table = s.substring(index + 1);
-			BatchReturn u = processBatch(db, table, params, collector, generateKeys);
+			BatchReturn u = processBatch(db, table, params, modifications, generateKeys);
 			ur.merge(u.getBatchResult(), u.getGeneratedKeys());
 		}
 		return ur;
 	}
 
-	private BatchReturn processBatch(String database, String table, Collection<List<ParameterContext>> params, TableMetaCollector collector, GenerateKeyReturnOper oper) throws SQLException {
+	private BatchReturn processBatch(String database, String table, Collection<List<ParameterContext>> params, List<Table> modifications, GenerateKeyReturnOper oper) throws SQLException {
 		JDBCTarget db;
 		if (database != null && !database.equals(this.db.getDbkey())) {
 			db = this.db.getTarget(database);
 		} else {
 			db = this.db;
 		}
-		String sql = getSql(table, collector);
+		String sql = getSql(table, modifications);
 		PreparedStatement st = null;
 		try {
 			st = oper.prepareStatement(db, sql);
@@ -214,14 +276,14 @@ public class RoutingSQLExecutor implements SQLExecutor {
 
 	}
 
-	private String getSql(String table, TableMetaCollector collector) {
+	private String getSql(String table, List<Table> modifications) {
 		if (table == null)
 			return this.st.toString();
-		for (Table t : collector.getModificationPoints()) {
+		for (Table t : modifications) {
 			t.setReplace(table);
 		}
 		String s = this.st.toString();
-		for (Table t : collector.getModificationPoints()) {
+		for (Table t : modifications) {
 			t.removeReplace();
 		}
 		return s;
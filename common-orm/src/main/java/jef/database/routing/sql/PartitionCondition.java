@@ -0,0 +1,549 @@
+package jef.database.routing.sql;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jef.common.Pair;
+import jef.database.Field;
+import jef.database.annotation.PartitionFunction;
+import jef.database.annotation.PartitionKey;
+import jef.database.jsqlparser.expression.BinaryExpression;
+import jef.database.jsqlparser.expression.Column;
+import jef.database.jsqlparser.expression.Parenthesis;
+import jef.database.jsqlparser.expression.operators.conditional.AndExpression;
+import jef.database.jsqlparser.expression.operators.conditional.OrExpression;
+import jef.database.jsqlparser.expression.operators.relational.Between;
+import jef.database.jsqlparser.expression.operators.relational.ExpressionList;
+import jef.database.jsqlparser.expression.operators.relational.InExpression;
+import jef.database.jsqlparser.statement.delete.Delete;
+import jef.database.jsqlparser.statement.insert.Insert;
+import jef.database.jsqlparser.statement.select.PlainSelect;
+import jef.database.jsqlparser.statement.select.SubSelect;
+import jef.database.jsqlparser.statement.update.Update;
+import jef.database.jsqlparser.visitor.Expression;
+import jef.database.jsqlparser.visitor.ExpressionType;
+import jef.database.jsqlparser.visitor.FromItem;
+import jef.database.jsqlparser.visitor.Notable;
+import jef.database.jsqlparser.visitor.SelectBody;
+import jef.database.jsqlparser.visitor.SqlValue;
+import jef.database.meta.ITableMetadata;
+import jef.database.query.ComplexDimension;
+import jef.database.query.Dimension;
+import jef.database.query.RangeDimension;
+import jef.database.query.RegexpDimension;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * 编译后的路由维度条件。
+ * <p>
+ * 从SQL语句中找出和分区字段相关的条件，记录下条件的结构和每个条件取值的来源（常量或第几个绑定变量）。
+ * 计算路由时只需要按照参数值逐个计算，不再遍历语法树。
+ *
+ * @author jiyi
+ *
+ */
+abstract class PartitionCondition {
+	/**
+	 * 没有任何路由维度
+	 */
+	static final PartitionCondition EMPTY = new PartitionCondition() {
+		@Override
+		Map<String, Dimension> eval(ParamSource params) {
+			return Collections.emptyMap();
+		}
+	};
+
+	/**
+	 * 按参数计算路由维度
+	 *
+	 * @param params
+	 *            参数
+	 * @return 分区字段和维度
+	 */
+	abstract Map<String, Dimension> eval(ParamSource params);
+
+	/**
+	 * 参数值的来源
+	 */
+	static abstract class ParamSource {
+		abstract Object get(Value value);
+
+		/**
+		 * 按语法树中的参数对象查找参数
+		 */
+		static ParamSource of(final Map<Expression, Object> params) {
+			return new ParamSource() {
+				Object get(Value value) {
+					return params.get(value.param);
+				}
+			};
+		}
+
+		/**
+		 * 按参数序号查找参数
+		 */
+		static ParamSource of(final List<Object> params) {
+			return new ParamSource() {
+				Object get(Value value) {
+					return params.get(value.index);
+				}
+			};
+		}
+	}
+
+	/**
+	 * 条件中的取值，常量或者绑定变量
+	 */
+	static final class Value {
+		final Object constant;
+		final Expression param;
+		/**
+		 * 绑定变量的序号，-1表示未知
+		 */
+		final int index;
+
+		Value(Object constant, Expression param, int index) {
+			this.constant = constant;
+			this.param = param;
+			this.index = index;
+		}
+
+		Object get(ParamSource source) {
+			return param == null ? constant : source.get(this);
+		}
+	}
+
+	/**
+	 * 编译器，对应分区字段和语法树中的条件
+	 */
+	static final class Compiler {
+		private final Map<String, String> columnToPartitionKey = new HashMap<String, String>();
+		private final Map<Expression, Integer> paramIndex;
+
+		/**
+		 * 构造
+		 *
+		 * @param meta
+		 *            表元数据
+		 * @param paramIndex
+		 *            语法树中的参数对象和参数序号的对应，为null表示只按参数对象查找参数
+		 */
+		Compiler(ITableMetadata meta, Map<Expression, Integer> paramIndex) {
+			this.paramIndex = paramIndex;
+			for (Map.Entry<PartitionKey, PartitionFunction> key : meta.getEffectPartitionKeys()) {
+				String field = key.getKey().field();
+				Field fld = meta.getField(field);
+				if (fld == null) {
+					throw new IllegalArgumentException("The partition field [" + field + "] is not a database column.");
+				}
+				String columnName = meta.getColumnDef(fld).upperColumnName();
+				columnToPartitionKey.put(columnName, key.getKey().field());
+			}
+		}
+
+		/*
+		 * 收集路由维度，从Insert语句
+		 */
+		PartitionCondition compile(Insert statement) {
+			List<Column> cols = statement.getColumns();
+			if (cols == null) {
+				throw new UnsupportedOperationException("the SQL must assign column names.");
+			}
+			if (statement.getItemsList() instanceof SubSelect) {
+				throw new UnsupportedOperationException("Can not support a subselect");
+			}
+			ExpressionList exp = (ExpressionList) statement.getItemsList();
+			List<String> fields = new ArrayList<String>();
+			List<Value> values = new ArrayList<Value>();
+			for (int i = 0; i < exp.size(); i++) {
+				String field = getPartitionField(cols.get(i));
+				if (field == null)
+					continue;
+				Value v = getAsValue(exp.get(i));
+				if (v == null) {
+					continue;
+				}
+				fields.add(field);
+				values.add(v);
+			}
+			return fields.isEmpty() ? EMPTY : new Assign(null, fields, values);
+		}
+
+		/*
+		 * 收集路由维度（从Delete语句）
+		 */
+		PartitionCondition compile(Delete statement) {
+			return statement.getWhere() == null ? EMPTY : compile(statement.getWhere());
+		}
+
+		/*
+		 * 收集路由维度 (从Update语句)，Where条件中没有的分区字段再从Set子句中获取
+		 */
+		PartitionCondition compile(Update sql) {
+			PartitionCondition where = sql.getWhere() == null ? EMPTY : compile(sql.getWhere());
+			List<String> fields = new ArrayList<String>();
+			List<Value> values = new ArrayList<Value>();
+			for (Pair<Column, Expression> set : sql.getSets()) {
+				String field = getPartitionField(set.first);
+				if (field == null)
+					continue;
+				Value v = getAsValue(set.second);
+				if (v != null) {
+					fields.add(field);
+					values.add(v);
+				}
+			}
+			return fields.isEmpty() ? where : new Assign(where, fields, values);
+		}
+
+		/*
+		 * 递归实现——收集路由维度
+		 */
+		PartitionCondition compile(SelectBody selectBody) {
+			if (selectBody instanceof PlainSelect) {
+				PlainSelect sql = (PlainSelect) selectBody;
+				PartitionCondition result = sql.getWhere() == null ? EMPTY : compile(sql.getWhere());
+				FromItem from = sql.getFromItem();
+				if (from instanceof SubSelect) {
+					result = And.of(result, compile(((SubSelect) from).getSelectBody()));
+				}
+				return result;
+			} else {
+				// Union 暂不支持
+				throw new UnsupportedOperationException();
+			}
+		}
+
+		PartitionCondition compile(Expression exp) {
+			Leaf leaf = null;
+			switch (exp.getType()) {
+			case and: {
+				AndExpression and = (AndExpression) exp;
+				return And.of(compile(and.getLeftExpression()), compile(and.getRightExpression()));
+			}
+			case or: {
+				OrExpression or = (OrExpression) exp;
+				return new Or(compile(or.getLeftExpression()), compile(or.getRightExpression()));
+			}
+			case parenthesis:
+				Parenthesis p = (Parenthesis) exp;
+				PartitionCondition in = compile(p.getExpression());
+				if (p.isNot() && in != EMPTY) {
+					return new Not(in);
+				}
+				return in;
+				// ////////////////////多维度运算结束/////////////
+			case between:
+				leaf = process((Between) exp);
+				break;
+			case eq:
+			case ge:
+			case gt:
+			case lt:
+			case le:
+			case like:
+			case ne:
+				leaf = process((BinaryExpression) exp);
+				break;
+			case in:
+				leaf = process((InExpression) exp);
+				break;
+			// /////////////////单维度运算结束////////////////
+			// 不处理的类型
+			case isnull:
+			case complex:
+			case arithmetic:
+			case param:
+			case value:
+			default:
+				break;
+			}
+			// 处理Not的场景
+			if (leaf != null && (exp instanceof Notable)) {
+				leaf.not = ((Notable) exp).isNot();
+				return leaf;
+			}
+			return EMPTY;
+		}
+
+		private Leaf process(InExpression exp) {
+			List<Expression> left = exp.getLeftExpression();
+			if (left == null || left.size() != 1 || left.get(0).getType() != ExpressionType.column) {
+				return null;
+			}
+			String field = getPartitionField((Column) left.get(0));
+			if (field == null || !(exp.getItemsList() instanceof ExpressionList))
+				return null;
+			List<Expression> exps = ((ExpressionList) exp.getItemsList()).getExpressions();
+			Value[] values = new Value[exps.size()];
+			for (int i = 0; i < values.length; i++) {
+				values[i] = getAsValue(exps.get(i));
+				if (values[i] == null)
+					return null;// in条件中有任意一个无法解析的表达式，则整个维度条件无效。
+			}
+			return new Leaf(field, ExpressionType.in, values);
+		}
+
+		private Leaf process(BinaryExpression exp) {
+			Column column = null;
+			Expression valueExp = null;
+			if (exp.getLeftExpression().getType() == ExpressionType.column) {
+				column = (Column) exp.getLeftExpression();
+				valueExp = exp.getRightExpression();
+			}
+			if (exp.getRightExpression().getType() == ExpressionType.column) {
+				column = (Column) exp.getRightExpression();
+				valueExp = exp.getLeftExpression();
+			}
+			String field = getPartitionField(column);
+			if (field != null) {
+				Value v = getAsValue(valueExp);
+				if (v != null) {
+					return new Leaf(field, exp.getType(), v);
+				}
+			}
+			return null;
+		}
+
+		private Leaf process(Between exp) {
+			if (exp.getLeftExpression().getType() == ExpressionType.column) {
+				String field = getPartitionField((Column) exp.getLeftExpression());
+				if (field == null)
+					return null;
+				Value min = getAsValue(exp.getBetweenExpressionStart());
+				Value max = getAsValue(exp.getBetweenExpressionEnd());
+				// 无效
+				if (min == null && max == null) {
+					return null;
+				}
+				return new Leaf(field, ExpressionType.between, min, max);
+			}
+			return null;
+		}
+
+		String getPartitionField(Column column) {
+			if (column == null)
+				return null;
+			return columnToPartitionKey.get(StringUtils.upperCase(column.getColumnName()));
+		}
+
+		/**
+		 * 返回null表示是无效条件
+		 *
+		 * @param exp
+		 * @return
+		 */
+		private Value getAsValue(Expression exp) {
+			if (exp.getType() == ExpressionType.value) {
+				return new Value(((SqlValue) exp).getValue(), null, -1);
+			} else if (exp.getType() == ExpressionType.param) {
+				Integer index = paramIndex == null ? null : paramIndex.get(exp);
+				return new Value(null, exp, index == null ? -1 : index.intValue());
+			}
+			return null;
+		}
+	}
+
+	/*
+	 * 单个字段上的条件
+	 */
+	static final class Leaf extends PartitionCondition {
+		private final String field;
+		private final ExpressionType type;
+		private final Value[] values;
+		private boolean not;
+
+		Leaf(String field, ExpressionType type, Value... values) {
+			this.field = field;
+			this.type = type;
+			this.values = values;
+		}
+
+		@SuppressWarnings("rawtypes")
+		@Override
+		Map<String, Dimension> eval(ParamSource params) {
+			Dimension d;
+			switch (type) {
+			case eq: {
+				Object v = values[0].get(params);
+				d = RangeDimension.create(v, v);
+				break;
+			}
+			case ne: {
+				Object v = values[0].get(params);
+				d = RangeDimension.create(v, v).mergeNot();
+				break;
+			}
+			case le:
+				d = RangeDimension.createCL(null, values[0].get(params));
+				break;
+			case lt:
+				d = RangeDimension.createCC(null, values[0].get(params));
+				break;
+			case gt:
+				d = RangeDimension.createCC(values[0].get(params), null);
+				break;
+			case ge:
+				d = RangeDimension.createLC(values[0].get(params), null);
+				break;
+			case like: {
+				String like = String.valueOf(values[0].get(params));
+				if (like.endsWith("%") && !like.startsWith("%")) {
+					d = new RegexpDimension(StringUtils.substringBefore(like, "%"));
+				} else {
+					return Collections.emptyMap();
+				}
+				break;
+			}
+			case between: {
+				Object min = values[0] == null ? null : values[0].get(params);
+				Object max = values[1] == null ? null : values[1].get(params);
+				d = RangeDimension.create(min, max);
+				break;
+			}
+			case in: {
+				List<Object> list = new ArrayList<Object>(values.length);
+				for (Value value : values) {
+					Object v = value.get(params);
+					if (v instanceof Object[]) {
+						list.addAll(Arrays.asList((Object[]) v));
+					} else {
+						list.add(v);
+					}
+				}
+				d = ComplexDimension.create((Comparable[]) list.toArray(new Comparable[list.size()]));
+				break;
+			}
+			default:
+				return Collections.emptyMap();
+			}
+			if (not) {
+				d = d.mergeNot();
+			}
+			return Collections.singletonMap(field, d);
+		}
+	}
+
+	/*
+	 * 与
+	 */
+	static final class And extends PartitionCondition {
+		private final PartitionCondition left;
+		private final PartitionCondition right;
+
+		private And(PartitionCondition left, PartitionCondition right) {
+			this.left = left;
+			this.right = right;
+		}
+
+		static PartitionCondition of(PartitionCondition left, PartitionCondition right) {
+			if (left == EMPTY) {
+				return right;
+			} else if (right == EMPTY) {
+				return left;
+			}
+			return new And(left, right);
+		}
+
+		@Override
+		Map<String, Dimension> eval(ParamSource params) {
+			return mergeAnd(left.eval(params), right.eval(params));
+		}
+	}
+
+	/*
+	 * 或
+	 */
+	static final class Or extends PartitionCondition {
+		private final PartitionCondition left;
+		private final PartitionCondition right;
+
+		Or(PartitionCondition left, PartitionCondition right) {
+			this.left = left;
+			this.right = right;
+		}
+
+		@Override
+		Map<String, Dimension> eval(ParamSource params) {
+			return mergeOr(left.eval(params), right.eval(params));
+		}
+	}
+
+	/*
+	 * 非
+	 */
+	static final class Not extends PartitionCondition {
+		private final PartitionCondition inner;
+
+		Not(PartitionCondition inner) {
+			this.inner = inner;
+		}
+
+		@Override
+		Map<String, Dimension> eval(ParamSource params) {
+			Map<String, Dimension> in = inner.eval(params);
+			Map<String, Dimension> result = new HashMap<String, Dimension>();
+			for (Map.Entry<String, Dimension> d : in.entrySet()) {
+				result.put(d.getKey(), d.getValue().mergeNot());
+			}
+			return result;
+		}
+	}
+
+	/*
+	 * Insert的值和Update的Set子句，条件中已经有的分区字段不再覆盖
+	 */
+	static final class Assign extends PartitionCondition {
+		private final PartitionCondition where;
+		private final String[] fields;
+		private final Value[] values;
+
+		Assign(PartitionCondition where, List<String> fields, List<Value> values) {
+			this.where = where;
+			this.fields = fields.toArray(new String[fields.size()]);
+			this.values = values.toArray(new Value[values.size()]);
+		}
+
+		@Override
+		Map<String, Dimension> eval(ParamSource params) {
+			Map<String, Dimension> result = where == null ? new HashMap<String, Dimension>() : new HashMap<String, Dimension>(where.eval(params));
+			for (int i = 0; i < fields.length; i++) {
+				if (where != null && result.get(fields[i]) != null) {
+					continue;
+				}
+				Object v = values[i].get(params);
+				result.put(fields[i], RangeDimension.create(v, v));
+			}
+			return result;
+		}
+	}
+
+	// 合并两次的维度，或
+	static Map<String, Dimension> mergeOr(Map<String, Dimension> left, Map<String, Dimension> right) {
+		Map<String, Dimension> m = new HashMap<String, Dimension>(left);
+		for (Map.Entry<String, Dimension> e : right.entrySet()) {
+			Dimension old = m.put(e.getKey(), e.getValue());
+			if (old != null) {
+				m.put(e.getKey(), e.getValue().mergeOr(old));
+			}
+		}
+		return m;
+	}
+
+	// 合并两次的维度，与
+	static Map<String, Dimension> mergeAnd(Map<String, Dimension> left, Map<String, Dimension> right) {
+		Map<String, Dimension> m = new HashMap<String, Dimension>(left);
+		for (Map.Entry<String, Dimension> e : right.entrySet()) {
+			Dimension old = m.put(e.getKey(), e.getValue());
+			if (old != null) {
+				m.put(e.getKey(), e.getValue().mergeAnd(old));
+			}
+		}
+		return m;
+	}
+}
@@ -0,0 +1,306 @@
+package jef.database.routing.sql;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import jef.database.DbUtils;
+import jef.database.ORMConfig;
+import jef.database.dialect.DatabaseDialect;
+import jef.database.innerpool.PartitionSupport;
+import jef.database.jsqlparser.RemovedDelayProcess;
+import jef.database.jsqlparser.expression.JdbcParameter;
+import jef.database.jsqlparser.expression.JpqlParameter;
+import jef.database.jsqlparser.expression.Table;
+import jef.database.jsqlparser.statement.delete.Delete;
+import jef.database.jsqlparser.statement.insert.Insert;
+import jef.database.jsqlparser.statement.select.Select;
+import jef.database.jsqlparser.statement.update.Update;
+import jef.database.jsqlparser.visitor.Expression;
+import jef.database.jsqlparser.visitor.Statement;
+import jef.database.jsqlparser.visitor.VisitorAdapter;
+import jef.database.meta.AbstractMetadata;
+import jef.database.query.Dimension;
+import jef.database.routing.PartitionResult;
+import jef.database.routing.sql.PartitionCondition.ParamSource;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * 预编译的路由模板。
+ * <p>
+ * 对同一个SQL语句只做一次分析：找出操作的表、分区字段相关的条件，以及每个条件取自第几个绑定变量。
+ * 之后每次执行时只需要按新的参数值计算分区函数，不再遍历语法树。
+ * <p>
+ * 模板同时保存编译时已经本地化的语法树、需要替换表名的位置以及被移到内存中处理的分页和递归条件。
+ * 该语法树在各次执行间共享，只读不写：表名替换是线程内的，多库分组时对AVG的改写在执行计划自己的拷贝上进行，
+ * 因此命中模板时不再解析和本地化SQL。
+ * <p>
+ * 只有参数全部是JDBC参数(?)的语句可以编译成模板，其他情况仍然按语法树逐次分析。
+ *
+ * @author jiyi
+ *
+ */
+public final class RoutingTemplate {
+	private static volatile Cache<Key, RoutingTemplate> cache;
+
+	/**
+	 * 表元数据，为null表示不需要路由
+	 */
+	private final AbstractMetadata meta;
+	/**
+	 * 路由维度条件，不分库分表时为null
+	 */
+	private final PartitionCondition condition;
+	/**
+	 * Insert语句只会路由到一张表
+	 */
+	private final boolean insert;
+	/**
+	 * 已本地化的语法树
+	 */
+	private final Statement statement;
+	/**
+	 * 语法树中需要替换表名的位置
+	 */
+	private final List<Table> modifications;
+	/**
+	 * 本地化时移除、需要在内存中处理的分页和递归条件，没有时为null
+	 */
+	private final RemovedDelayProcess delay;
+
+	private RoutingTemplate(AbstractMetadata meta, PartitionCondition condition, boolean insert, Statement statement, List<Table> modifications, RemovedDelayProcess delay) {
+		this.meta = meta;
+		this.condition = condition;
+		this.insert = insert;
+		this.statement = statement;
+		this.modifications = Collections.unmodifiableList(modifications);
+		this.delay = delay;
+	}
+
+	/**
+	 * 表元数据
+	 *
+	 * @return 表元数据，为null表示不需要路由
+	 */
+	public AbstractMetadata getMeta() {
+		return meta;
+	}
+
+	/**
+	 * 已本地化的语法树，各次执行共享，不可修改
+	 *
+	 * @return 语法树
+	 */
+	public Statement getStatement() {
+		return statement;
+	}
+
+	/**
+	 * 语法树中需要替换表名的位置
+	 *
+	 * @return 表名出现的位置
+	 */
+	public List<Table> getModifications() {
+		return modifications;
+	}
+
+	/**
+	 * 本地化时移除、需要在内存中处理的分页和递归条件
+	 *
+	 * @return 没有时返回null
+	 */
+	public RemovedDelayProcess getDelay() {
+		return delay;
+	}
+
+	/**
+	 * 是否需要分库分表计算
+	 *
+	 * @return 需要按参数计算路由时返回true
+	 */
+	public boolean isPartitioned() {
+		return condition != null;
+	}
+
+	/**
+	 * 按参数计算路由结果
+	 *
+	 * @param values
+	 *            按顺序排列的绑定变量值
+	 * @param support
+	 *            分区支持
+	 * @return 路由结果
+	 */
+	public PartitionResult[] route(List<Object> values, PartitionSupport support) {
+		Map<String, Dimension> val = SqlAnalyzer.fill(condition.eval(ParamSource.of(values)), meta);
+		if (insert) {
+			return new PartitionResult[] { DbUtils.partitionUtil.toTableName(meta, val, support) };
+		}
+		return DbUtils.partitionUtil.toTableNames(meta, val, support, ORMConfig.getInstance().isFilterAbsentTables());
+	}
+
+	/**
+	 * 按参数计算单个路由结果，用于Batch中对参数分组
+	 *
+	 * @param values
+	 *            按顺序排列的绑定变量值
+	 * @param support
+	 *            分区支持
+	 * @return 路由结果
+	 */
+	public PartitionResult routeOne(List<Object> values, PartitionSupport support) {
+		Map<String, Dimension> val = SqlAnalyzer.fill(condition.eval(ParamSource.of(values)), meta);
+		return DbUtils.partitionUtil.toTableName(meta, val, support);
+	}
+
+	/**
+	 * 查找已经缓存的路由模板
+	 *
+	 * @param sql
+	 *            SQL语句
+	 * @param profile
+	 *            数据库方言
+	 * @return 未缓存时返回null
+	 */
+	public static RoutingTemplate lookup(String sql, DatabaseDialect profile) {
+		Cache<Key, RoutingTemplate> c = getCache();
+		return c == null ? null : c.getIfPresent(new Key(sql, profile));
+	}
+
+	/**
+	 * 获得SQL语句的路由模板，按SQL和数据库方言缓存。
+	 *
+	 * @param sql
+	 *            SQL语句
+	 * @param profile
+	 *            数据库方言，语法树已经按该方言进行过函数本地化
+	 * @param st
+	 *            已经本地化的语法树，编译成模板后不能再修改
+	 * @param delay
+	 *            本地化时移除的分页和递归条件，没有时为null
+	 * @return 路由模板，语句无法编译成模板时返回null
+	 */
+	public static RoutingTemplate get(String sql, DatabaseDialect profile, Statement st, RemovedDelayProcess delay) {
+		Cache<Key, RoutingTemplate> c = getCache();
+		if (c == null) {
+			return compile(st, delay);
+		}
+		Key key = new Key(sql, profile);
+		RoutingTemplate template = c.getIfPresent(key);
+		if (template == null) {
+			template = compile(st, delay);
+			if (template != null) {
+				c.put(key, template);
+			}
+		}
+		return template;
+	}
+
+	static RoutingTemplate compile(Statement st) {
+		return compile(st, null);
+	}
+
+	/**
+	 * 编译路由模板
+	 *
+	 * @param st
+	 *            语法树
+	 * @param delay
+	 *            本地化时移除的分页和递归条件
+	 * @return 路由模板，语句无法编译成模板时返回null
+	 */
+	static RoutingTemplate compile(Statement st, RemovedDelayProcess delay) {
+		ParamIndexer indexer = new ParamIndexer();
+		st.accept(indexer);
+		if (!indexer.indexable) {
+			return null;
+		}
+		TableMetaCollector collector = SqlAnalyzer.getTableMeta(st);
+		AbstractMetadata meta = collector.get();
+		List<Table> modifications = collector.getModificationPoints();
+		if (meta == null || meta.getPartition() == null) {
+			return new RoutingTemplate(meta, null, false, st, modifications, delay);
+		}
+		PartitionCondition.Compiler compiler = new PartitionCondition.Compiler(meta, indexer.index);
+		try {
+			if (st instanceof Select) {
+				return new RoutingTemplate(meta, compiler.compile(((Select) st).getSelectBody()), false, st, modifications, delay);
+			} else if (st instanceof Insert) {
+				return new RoutingTemplate(meta, compiler.compile((Insert) st), true, st, modifications, delay);
+			} else if (st instanceof Update) {
+				return new RoutingTemplate(meta, compiler.compile((Update) st), false, st, modifications, delay);
+			} else if (st instanceof Delete) {
+				return new RoutingTemplate(meta, compiler.compile((Delete) st), false, st, modifications, delay);
+			}
+		} catch (UnsupportedOperationException e) {
+			// 不支持的语句仍然按原来的方式处理，由原处理逻辑抛出异常
+		}
+		return null;
+	}
+
+	private static Cache<Key, RoutingTemplate> getCache() {
+		Cache<Key, RoutingTemplate> c = cache;
+		if (c == null) {
+			int size = ORMConfig.getInstance().getParseCacheSize();
+			if (size <= 0) {
+				return null;
+			}
+			synchronized (RoutingTemplate.class) {
+				c = cache;
+				if (c == null) {
+					cache = c = CacheBuilder.newBuilder().maximumSize(size).<Key, RoutingTemplate> build();
+				}
+			}
+		}
+		return c;
+	}
+
+	/*
+	 * 按出现顺序记录每个参数的序号，和SqlAnalyzer.reverse()的顺序一致
+	 */
+	static final class ParamIndexer extends VisitorAdapter {
+		final Map<Expression, Integer> index = new IdentityHashMap<Expression, Integer>();
+		boolean indexable = true;
+
+		@Override
+		public void visit(JpqlParameter parameter) {
+			// JPQL参数的个数和绑定的值有关，无法预先确定序号
+			indexable = false;
+		}
+
+		@Override
+		public void visit(JdbcParameter jdbcParameter) {
+			index.put(jdbcParameter, index.size());
+		}
+	}
+
+	/*
+	 * 缓存键
+	 */
+	private static final class Key {
+		private final String sql;
+		private final DatabaseDialect profile;
+
+		Key(String sql, DatabaseDialect profile) {
+			this.sql = sql;
+			this.profile = profile;
+		}
+
+		@Override
+		public int hashCode() {
+			return sql.hashCode() * 31 + System.identityHashCode(profile);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj instanceof Key) {
+				Key o = (Key) obj;
+				return profile == o.profile && sql.equals(o.sql);
+			}
+			return false;
+		}
+	}
+}
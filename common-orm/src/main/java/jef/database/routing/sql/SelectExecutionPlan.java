@@ -3,6 +3,7 @@ package jef.database.routing.sql;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -19,6 +20,7 @@ import jef.database.jdbc.result.IResultSet;
 import jef.database.jdbc.result.ResultSetContainer;
 import jef.database.jdbc.statement.ResultSetLaterProcess;
 import jef.database.jsqlparser.SelectToCountWrapper;
+import jef.database.jsqlparser.expression.Function;
 import jef.database.jsqlparser.expression.Table;
 import jef.database.jsqlparser.statement.select.Distinct;
 import jef.database.jsqlparser.statement.select.Limit;
@@ -49,6 +51,7 @@ import jef.database.wrapper.populator.ResultSetExtractor;
 import jef.database.wrapper.variable.BindVariableContext;
 import jef.tools.PageLimit;
 import jef.tools.StringUtils;
+import jef.tools.reflect.CloneUtils;
 
 /**
  * 路由查询执行计划
@@ -57,11 +60,23 @@ import jef.tools.StringUtils;
  * 
  */
 public class SelectExecutionPlan extends AbstractExecutionPlan implements QueryablePlan, InMemoryOperateProvider {
+	/**
+	 * 多库分组时，AVG改写后额外查询的COUNT列的别名前缀
+	 */
+	private static final String AVG_COUNT_ALIAS = "JEF_AVG_CNT_";
+
 	/**
 	 * 输入的SQL上下文
 	 */
 	private StatementContext<PlainSelect> context;
 
+	/**
+	 * 生成分库SQL时使用的语法树和其中需要替换表名的位置。
+	 * 需要改写AVG时是context.statement的拷贝，改写只作用于拷贝，不修改可能被多个线程共享的原语法树(如路由模板中的)
+	 */
+	private PlainSelect sqlStatement;
+	private List<Table> sqlModifications;
+
 	/*
 	 * Select的路由处理是最复杂的—— //SQL操作(查询前) //表名改写 条件：全部 //noGroup
 	 * ——SQL尾部以及Select部分中的聚合函数去除 条件:多表(不区分是否多库) //noHaving——位于延迟的SQL尾部 条件:多库()
@@ -176,7 +191,8 @@ public class SelectExecutionPlan extends AbstractExecutionPlan implements Querya
 	}
 
 	/**
-	 * 为NativeQuery场景提供getCount()的实现
+	 * 为NativeQuery场景提供getCount()的实现。<br>
+	 * 指定了maxSize时只需要知道总数是否达到上限，累计数达到上限后不再查询其余的库。
 	 * 
 	 * @param site
 	 * @param session
@@ -184,7 +200,7 @@ public class SelectExecutionPlan extends AbstractExecutionPlan implements Querya
 	 * @throws SQLException
 	 */
 	@Override
-	public long getCount(SqlAndParameter parse, int maxSize, int fetchSize) throws SQLException {
+	public long getCount(SqlAndParameter parse, final int maxSize, int fetchSize) throws SQLException {
 		// 多库多表查询场合
 		long total = 0;
 		long start = System.currentTimeMillis();
@@ -196,13 +212,16 @@ public class SelectExecutionPlan extends AbstractExecutionPlan implements Querya
 				for (String table : site.getTablesEscaped(context.db.getDialectOf(site.getDatabase()))) {
 					sqls.add(getSql(table));
 				}
-				tasks.add(new DbTask() {
+				tasks.add(new DbTask(site.getDatabase()) {
 					public void execute() throws SQLException {
+						if (maxSize > 0 && counter.get() >= maxSize) {
+							return;
+						}
 						counter.addAndGet(getCount0(site, sqls));
 					}
 				});
 			}
-			DbUtils.parallelExecute(tasks);
+			DbUtils.parallelExecute(context.db.getExecutorRegistry(), tasks);
 			total = counter.get();
 		} else {
 			for (PartitionResult site : getSites()) {
@@ -211,6 +230,9 @@ public class SelectExecutionPlan extends AbstractExecutionPlan implements Querya
 					sqls.add(getSql(table));
 				}
 				total += getCount0(site, sqls);
+				if (maxSize > 0 && total >= maxSize) {
+					break;
+				}
 			}
 		}
 		total = (maxSize > 0 && maxSize < total) ? maxSize : total;
@@ -268,25 +290,27 @@ public class SelectExecutionPlan extends AbstractExecutionPlan implements Querya
 	}
 
 	private <T> T executeMultiQuery(boolean noOrder, final ResultSetExtractor<T> rst, final InMemoryOperateProvider sqlContext, PageLimit range) throws SQLException {
+		checkInMemoryGroup();
 		final ORMConfig config = ORMConfig.getInstance();
 		final ResultSetContainer mrs = new ResultSetContainer(config.isCacheResultset());
+		int pushDown = noOrder ? 0 : getPushDownRows(sqlContext, range);
 		if (getSites().length >= config.getParallelSelect()) {
 			// 并行查询
 			List<DbTask> tasks = new ArrayList<DbTask>();
 			for (final PartitionResult site : getSites()) {
-				final PairSO<List<Object>> sql = getSql(site, noOrder);
-				tasks.add(new DbTask() {
+				final PairSO<List<Object>> sql = getSql(site, noOrder, pushDown);
+				tasks.add(new DbTask(site.getDatabase()) {
 					@Override
 					public void execute() throws SQLException {
 						processQuery(context.db.getTarget(site.getDatabase()), sql, rst, mrs, sqlContext.getRsLaterProcessor(), config.newLogger());
 					}
 				});
 			}
-			DbUtils.parallelExecute(tasks);
+			DbUtils.parallelExecute(context.db.getExecutorRegistry(), tasks);
 		} else {
 			SqlLog sb = config.newLogger();
 			for (PartitionResult site : getSites()) {
-				PairSO<List<Object>> sql = getSql(site, noOrder);
+				PairSO<List<Object>> sql = getSql(site, noOrder, pushDown);
 				processQuery(context.db.getTarget(site.getDatabase()), sql, rst, mrs, sqlContext.getRsLaterProcessor(), sb);
 			}
 		}
@@ -434,6 +458,9 @@ public class SelectExecutionPlan extends AbstractExecutionPlan implements Querya
 	private InMemoryGroupByHaving generateGroupHavingProcess(List<SelectItem> selects, List<Expression> groupExps, ColumnMeta meta) {
 		List<GroupByItem> keys = new ArrayList<GroupByItem>();
 		List<GroupByItem> values = new ArrayList<GroupByItem>();
+		// 被改写为SUM的AVG函数，对应的COUNT列依次位于所有列的末尾
+		int avgCounts = 0;
+		boolean avgRewrited = isAvgRewritable();
 
 		// 解析出SQL修改句柄，当延迟操作group时，必然要将原先的分组函数去除，配合将groupBy去除
 
@@ -468,13 +495,104 @@ public class SelectExecutionPlan extends AbstractExecutionPlan implements Querya
 				} else {
 					type = GroupFunctionType.NORMAL;
 				}
-				values.add(new GroupByItem(i, type, alias));
+				GroupByItem value = new GroupByItem(i, type, alias);
+				if (avgRewrited && getMergeableAvg(e) != null) {
+					value.setCountIndex(selects.size() + avgCounts);
+					avgCounts++;
+				}
+				values.add(value);
 			}
 		}
 
 		// 解析出having
 
-		return new InMemoryGroupByHaving(keys, values);
+		InMemoryGroupByHaving process = new InMemoryGroupByHaving(keys, values);
+		process.setHiddenColumns(avgCounts);
+		return process;
+	}
+
+	/*
+	 * 多库分组时各库的聚合结果在内存中合并，有不能合并的函数时在查询各库之前拒绝
+	 */
+	private void checkInMemoryGroup() throws SQLFeatureNotSupportedException {
+		if (isMultiDatabase() && context.statement.isGroupBy()) {
+			processGroupBy(null).checkSupported();
+		}
+	}
+
+	/*
+	 * 多库分组查询时，各库的平均值无法直接合并。因此在分库SQL中将AVG(x)改写为SUM(x)，
+	 * 并在所有列的末尾追加COUNT(x)，合并时用总和除以总数得到准确的平均值。
+	 */
+	private boolean isAvgRewritable() {
+		PlainSelect st = context.statement;
+		return isMultiDatabase() && st.isGroupBy() && !(st instanceof SelectToCountWrapper);
+	}
+
+	/*
+	 * 如果查询列是可以改写为SUM/COUNT的AVG函数，返回该函数
+	 */
+	private static Function getMergeableAvg(SelectItem item) {
+		if (item.isAllColumns()) {
+			return null;
+		}
+		Expression exp = item.getAsSelectExpression().getExpression();
+		if (!(exp instanceof Function)) {
+			return null;
+		}
+		Function f = (Function) exp;
+		if (f.getGroupFunctionType() != GroupFunctionType.AVG || f.isDistinct() || f.isStatics() || f.getParamCount() != 1 || f.rewrite != null) {
+			return null;
+		}
+		return f;
+	}
+
+	/*
+	 * 准备生成分库SQL的语法树。有需要改写的AVG函数时复制一份语法树，在拷贝上改写
+	 */
+	private void prepareSqlStatement() {
+		if (sqlStatement != null) {
+			return;
+		}
+		if (isAvgRewritable() && hasMergeableAvg(context.statement.getSelectItems())) {
+			PlainSelect copy = CloneUtils.deepClone(context.statement);
+			Select select = new Select();
+			select.setSelectBody(copy);
+			sqlModifications = SqlAnalyzer.getTableMeta(select).getModificationPoints();
+			rewriteAvg(copy.getSelectItems());
+			sqlStatement = copy;
+		} else {
+			sqlStatement = context.statement;
+			sqlModifications = context.modifications;
+		}
+	}
+
+	private static boolean hasMergeableAvg(List<SelectItem> selects) {
+		for (SelectItem item : selects) {
+			if (getMergeableAvg(item) != null) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * 改写AVG函数，COUNT列按AVG出现的顺序追加到末尾。只能用于语法树的拷贝
+	 */
+	private static void rewriteAvg(List<SelectItem> selects) {
+		List<Function> avgs = new ArrayList<Function>(4);
+		for (SelectItem item : selects) {
+			Function f = getMergeableAvg(item);
+			if (f != null) {
+				avgs.add(f);
+			}
+		}
+		for (int i = 0; i < avgs.size(); i++) {
+			Function f = avgs.get(i);
+			List<Expression> params = f.getParameters().getExpressions();
+			f.rewrite = new Function("sum", params);
+			selects.add(new SelectExpressionItem(new Function("count", params), AVG_COUNT_ALIAS + i));
+		}
 	}
 
 	/*
@@ -498,33 +616,35 @@ public class SelectExecutionPlan extends AbstractExecutionPlan implements Querya
 	}
 
 	private void appendSql(StringBuilder sb, String table, boolean noGroup, boolean noHaving, boolean noOrder, boolean noLimit, boolean noDistinct) {
-		for (Table tb : context.modifications) {
+		for (Table tb : sqlModifications) {
 			tb.setReplace(table);
 		}
-		context.statement.appendTo(sb, noGroup, noHaving, noOrder, noLimit, noDistinct);
+		sqlStatement.appendTo(sb, noGroup, noHaving, noOrder, noLimit, noDistinct);
 		// 清理现场
-		for (Table tb : context.modifications) {
+		for (Table tb : sqlModifications) {
 			tb.removeReplace();
 		}
 	}
 
 	private ResultSet doMultiDatabaseQuery(final InMemoryOperateProvider parse, final int maxRows, final int fetchSize) throws SQLException {
+		checkInMemoryGroup();
 		final ResultSetContainer mrs = new ResultSetContainer(ORMConfig.getInstance().isCacheResultset());
+		int pushDown = getPushDownRows(parse, null);
 		if (sites.length > ORMConfig.getInstance().getParallelSelect()) {
 			List<DbTask> tasks = new ArrayList<DbTask>(sites.length);
 			for (final PartitionResult site : getSites()) {
-				final PairSO<List<Object>> sql = getSql(site, false);
-				tasks.add(new DbTask() {
+				final PairSO<List<Object>> sql = getSql(site, false, pushDown);
+				tasks.add(new DbTask(site.getDatabase()) {
 					public void execute() throws SQLException {
 						processQuery(context.db.getTarget(site.getDatabase()), sql, maxRows, fetchSize, mrs, parse.getRsLaterProcessor(), ORMConfig.getInstance().newLogger());
 					}
 				});
 			}
-			DbUtils.parallelExecute(tasks);
+			DbUtils.parallelExecute(context.db.getExecutorRegistry(), tasks);
 		} else {
 			SqlLog log = ORMConfig.getInstance().newLogger();
 			for (PartitionResult site : getSites()) {
-				processQuery(context.db.getTarget(site.getDatabase()), getSql(site, false), maxRows, fetchSize, mrs, parse.getRsLaterProcessor(), log);
+				processQuery(context.db.getTarget(site.getDatabase()), getSql(site, false, pushDown), maxRows, fetchSize, mrs, parse.getRsLaterProcessor(), log);
 			}
 		}
 		parepareInMemoryProcess(null, mrs);
@@ -623,11 +743,84 @@ public class SelectExecutionPlan extends AbstractExecutionPlan implements Querya
 	 * //Order——位于子查询的尾部 条件：多表(不区分) //limit延迟 条件：单库多表 //limit去除 条件：多库
 	 */
 	private PairSO<List<Object>> getSql(PartitionResult site, boolean noOrder) {
+		prepareSqlStatement();
+		return getSql0(site, noOrder);
+	}
+
+	/*
+	 * 得到一个数据库上操作的SQL语句，pushDown大于0时用该库方言的LimitHandler限制最多返回pushDown条记录
+	 */
+	private PairSO<List<Object>> getSql(PartitionResult site, boolean noOrder, int pushDown) {
+		PairSO<List<Object>> sql = getSql(site, noOrder);
+		if (pushDown <= 0) {
+			return sql;
+		}
+		boolean isUnion = site.tableSize() > 1 && !hasAnyGroupDistinctOrderLimit();
+		BindSql bs = context.db.getTarget(site.getDatabase()).getProfile().getLimitHandler().toPageSQL(sql.first, new PageLimit(0, pushDown), isUnion);
+		if (bs.getRsLaterProcessor() != null) {// 需要对结果集做后处理的方言不下推
+			return sql;
+		}
+		return new PairSO<List<Object>>(bs.getSql(), sql.second);
+	}
+
+	/*
+	 * 多库分页查询时，最终结果只需要排序后的前offset+rows条记录，因此每个库上(各自排序后)也只需要查出前offset+rows条，
+	 * 在内存中归并后再跳过offset条。
+	 * 分组、去重和递归查询需要全部记录参与计算，此时不能下推。
+	 * 
+	 * @return 每个库上最多需要查询的记录数，0表示不下推
+	 */
+	private int getPushDownRows(InMemoryOperateProvider provider, PageLimit range) {
+		if (!isMultiDatabase()) {
+			return 0;
+		}
+		PlainSelect st = context.statement;
+		if (st.getGroupByColumnReferences() != null && !st.getGroupByColumnReferences().isEmpty()) {
+			return 0;
+		}
+		if (st.getDistinct() != null) {
+			return 0;
+		}
+		long offset;
+		long rows;
+		// 与parepareInMemoryProcess的顺序一致，后设置的内存分页生效
+		SqlAndParameter parse = provider instanceof SqlAndParameter ? (SqlAndParameter) provider : null;
+		if (parse != null && parse.getStartWith() != null) {
+			return 0;
+		}
+		if (parse != null && parse.getLimit() != null) {
+			InMemoryPaging page = parse.parseLimit(parse.getLimit(), null);
+			if (page == null) {
+				return 0;
+			}
+			offset = page.getOffset();
+			rows = page.getLimit();
+		} else if (range != null) {
+			offset = range.getOffset();
+			rows = range.getLimit();
+		} else if (st.getLimit() != null && st.getLimit().isValid()) {
+			Limit limit = st.getLimit();
+			if (limit.getOffsetJdbcParameter() != null || limit.getRowCountJdbcParameter() != null) {
+				return 0;
+			}
+			offset = limit.getOffset();
+			rows = limit.getRowCount();
+		} else {
+			return 0;
+		}
+		long end = offset + rows;
+		if (rows <= 0 || end > Integer.MAX_VALUE) {
+			return 0;
+		}
+		return (int) end;
+	}
+
+	private PairSO<List<Object>> getSql0(PartitionResult site, boolean noOrder) {
 		List<String> tables = site.getTables();
 		boolean moreTable = tables.size() > 1; // 是否为多表
 		boolean moreDatabase = isMultiDatabase();// 是否为多库
 
-		PlainSelect st = context.statement;
+		PlainSelect st = sqlStatement;
 		if (moreTable) {
 			String tableAlias = st.getFromItem().getAlias();
 			StringBuilder sb = new StringBuilder(200);
@@ -60,10 +60,17 @@ public class SqlAndParameter implements InMemoryOperateProvider {
 		this.statement = st;
 		this.params = params;
 		this.rawParams = rawParams;
-		paramsMap = SqlAnalyzer.reverse(st, params); // 参数对应关系还原
 	}
 
+	/**
+	 * 参数和语法树中参数对象的对应关系，在第一次使用时计算
+	 * 
+	 * @return
+	 */
 	public Map<Expression, Object> getParamsMap() {
+		if (paramsMap == null) {
+			paramsMap = SqlAnalyzer.reverse(statement, params); // 参数对应关系还原
+		}
 		return paramsMap;
 	}
 
@@ -348,6 +355,15 @@ public class SqlAndParameter implements InMemoryOperateProvider {
 		return limit;
 	}
 
+	/**
+	 * 延迟到内存中计算的递归查询(start with ... connect by)，没有时返回null
+	 * 
+	 * @return
+	 */
+	public StartWithExpression getStartWith() {
+		return startWith;
+	}
+
 	public void setNewLimit(PageLimit range) {
 		if(range==null){
 			limit=null;
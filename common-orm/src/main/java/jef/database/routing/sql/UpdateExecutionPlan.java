@@ -37,13 +37,13 @@ public class UpdateExecutionPlan extends AbstractExecutionPlan implements Execut
 				for (String table : site.getTables()) {
 					sqls.add(getSql(table));
 				}
-				tasks.add(new DbTask() {
+				tasks.add(new DbTask(siteName) {
 					public void execute() throws SQLException {
 						counter.addAndGet(processUpdate0(siteName, sqls));
 					}
 				});
 			}
-			DbUtils.parallelExecute(tasks);
+			DbUtils.parallelExecute(context.db.getExecutorRegistry(), tasks);
 			total = counter.get();
 		} else {
 			for (PartitionResult site : getSites()) {
@@ -0,0 +1,204 @@
+package jef.database.support;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 限制并发数的执行器。<br>
+ * 任务交给底层执行器运行，同时运行的任务达到上限时在队列中等待，前面的任务结束后再依次提交。
+ * 等待中的任务不占用线程，因此底层执行器可以是每个任务一个虚拟线程的执行器。
+ * 底层执行器拒绝任务时，由提交任务的线程直接运行。
+ * <p>
+ * 同时统计排队等待时间和运行时间，可用于监控各执行器的拥塞情况。
+ */
+public final class LimitedExecutor implements Executor {
+	private final Executor executor;
+	private volatile int limit;
+	private final Queue<Entry> queue = new ConcurrentLinkedQueue<Entry>();
+	private final AtomicInteger running = new AtomicInteger();
+
+	private final AtomicLong completed = new AtomicLong();
+	private final AtomicLong waitNanos = new AtomicLong();
+	private final AtomicLong maxWaitNanos = new AtomicLong();
+	private final AtomicLong runNanos = new AtomicLong();
+	private final AtomicLong maxRunNanos = new AtomicLong();
+
+	/**
+	 * 构造
+	 *
+	 * @param executor
+	 *            底层执行器
+	 * @param limit
+	 *            同时运行的最大任务数，小于等于0时不限制
+	 */
+	public LimitedExecutor(Executor executor, int limit) {
+		this.executor = executor;
+		setLimit(limit);
+	}
+
+	@Override
+	public void execute(Runnable command) {
+		queue.offer(new Entry(command));
+		drain();
+	}
+
+	/*
+	 * 在并发数允许的范围内，将队列中的任务提交给底层执行器
+	 */
+	private void drain() {
+		for (;;) {
+			int n = running.get();
+			if (n >= limit || queue.isEmpty()) {
+				return;
+			}
+			if (!running.compareAndSet(n, n + 1)) {
+				continue;
+			}
+			final Entry task = queue.poll();
+			if (task == null) {
+				running.decrementAndGet();
+				continue;
+			}
+			Runnable wrapped = new Runnable() {
+				public void run() {
+					long start = System.nanoTime();
+					try {
+						task.command.run();
+					} finally {
+						long end = System.nanoTime();
+						record(start - task.queued, end - start);
+						running.decrementAndGet();
+						drain();
+					}
+				}
+			};
+			try {
+				executor.execute(wrapped);
+			} catch (RejectedExecutionException e) {
+				wrapped.run();
+			}
+		}
+	}
+
+	private void record(long wait, long run) {
+		completed.incrementAndGet();
+		waitNanos.addAndGet(wait);
+		runNanos.addAndGet(run);
+		updateMax(maxWaitNanos, wait);
+		updateMax(maxRunNanos, run);
+	}
+
+	private static void updateMax(AtomicLong max, long value) {
+		long current;
+		while (value > (current = max.get())) {
+			if (max.compareAndSet(current, value)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * 正在运行的任务数
+	 *
+	 * @return
+	 */
+	public int getRunning() {
+		return running.get();
+	}
+
+	/**
+	 * 排队等待的任务数
+	 *
+	 * @return
+	 */
+	public int getQueued() {
+		return queue.size();
+	}
+
+	/**
+	 * 同时运行的最大任务数
+	 *
+	 * @return
+	 */
+	public int getLimit() {
+		return limit;
+	}
+
+	/**
+	 * 修改同时运行的最大任务数，已经在运行的任务不受影响
+	 *
+	 * @param limit
+	 *            小于等于0时不限制
+	 */
+	public void setLimit(int limit) {
+		this.limit = limit > 0 ? limit : Integer.MAX_VALUE;
+		drain();
+	}
+
+	/**
+	 * 已运行完成的任务数
+	 *
+	 * @return
+	 */
+	public long getCompletedCount() {
+		return completed.get();
+	}
+
+	/**
+	 * 平均排队等待时间（毫秒）
+	 *
+	 * @return
+	 */
+	public double getAverageWaitMillis() {
+		long n = completed.get();
+		return n == 0 ? 0 : (double) waitNanos.get() / n / 1000000;
+	}
+
+	/**
+	 * 最长排队等待时间（毫秒）
+	 *
+	 * @return
+	 */
+	public long getMaxWaitMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get());
+	}
+
+	/**
+	 * 平均运行时间（毫秒）
+	 *
+	 * @return
+	 */
+	public double getAverageRunMillis() {
+		long n = completed.get();
+		return n == 0 ? 0 : (double) runNanos.get() / n / 1000000;
+	}
+
+	/**
+	 * 最长运行时间（毫秒）
+	 *
+	 * @return
+	 */
+	public long getMaxRunMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(maxRunNanos.get());
+	}
+
+	@Override
+	public String toString() {
+		return String.format("running:%d/%d queued:%d completed:%d wait(avg/max):%.1f/%dms run(avg/max):%.1f/%dms", running.get(), limit, queue.size(), completed.get(),
+				getAverageWaitMillis(), getMaxWaitMillis(), getAverageRunMillis(), getMaxRunMillis());
+	}
+
+	private static final class Entry {
+		final Runnable command;
+		final long queued = System.nanoTime();
+
+		Entry(Runnable command) {
+			this.command = command;
+		}
+	}
+}
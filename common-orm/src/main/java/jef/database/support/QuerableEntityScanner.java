@@ -21,6 +21,7 @@ import jef.database.dialect.type.AutoIncrementMapping.GenerationResolution;
 import jef.database.dialect.type.ColumnMapping;
 import jef.database.jpa.JefEntityManagerFactory;
 import jef.database.meta.ColumnModification;
+import jef.database.meta.EntityIndex;
 import jef.database.meta.ITableMetadata;
 import jef.database.meta.MetaHolder;
 import jef.database.meta.object.Column;
@@ -139,49 +140,65 @@ public class QuerableEntityScanner {
 		// 开始
 		ClassScanner cs = new ClassScanner();
 		IResource[] classes = cs.scan(packageNames);
+		EntityIndex index = EntityIndex.get(cl);
 
 		// 循环所有扫描到的类
 		for (IResource s : classes) {
 			try {
-				ClassReader cr = getClassInfo(cl, s);
-				if (cr == null)// NOT found class
-					continue;
+				String className;
+				String superName;
+				// 在构建时生成的索引中的类不必读取class文件
+				EntityIndex.Entry entry = index.lookup(s.getURL());
+				if (entry != null) {
+					className = entry.getName().replace('/', '.');
+					superName = entry.getSuperName();
+				} else {
+					ClassReader cr = getClassInfo(cl, s);
+					if (cr == null)// NOT found class
+						continue;
+					className = cr.getJavaClassName();
+					superName = cr.getSuperName();
+				}
 				// 根据父类判断
-				if (isEntiyClz(cl, parents, cr.getSuperName())) {
-					Class<?> clz = loadClass(cl, cr.getJavaClassName());
+				if (isEntiyClz(cl, index, parents, superName)) {
+					Class<?> clz = loadClass(cl, className);
 					if (clz != null) {
 						registeEntity0(clz);
 					}
 				}
-				;
 			} catch (IOException e) {
 				LogUtil.exception(e);
 			}
 		}
 	}
 
-	private boolean isEntiyClz(ClassLoader cl, String[] knownSuperNames, String superName) throws IOException {
+	private boolean isEntiyClz(ClassLoader cl, EntityIndex index, String[] knownSuperNames, String superName) throws IOException {
 		if ("java/lang/Object".equals(superName)) {
 			return false;
 		}
 		if (ArrayUtils.contains(knownSuperNames, superName)) {// 是实体
 			return true;
 		}
+		URL url = cl.getResource(superName.replace('.', '/') + ".class");
+		if (url == null) {
+			return false;
+		}
+		EntityIndex.Entry entry = index.lookup(url);
+		if (entry != null) {
+			return isEntiyClz(cl, index, knownSuperNames, entry.getSuperName());
+		}
 		// 读取类
-		ClassReader cr = getClassInfo(cl, superName);
+		ClassReader cr = getClassInfo(url);
 		if (cr == null) {
 			return false;
 		}
-		return isEntiyClz(cl, knownSuperNames, cr.getSuperName());
+		return isEntiyClz(cl, index, knownSuperNames, cr.getSuperName());
 	}
 
-	private ClassReader getClassInfo(ClassLoader cl, String s) throws IOException {
-		URL url = cl.getResource(s.replace('.', '/') + ".class");
-		if (url == null)
-			return null;
+	private ClassReader getClassInfo(URL url) throws IOException {
 		InputStream stream = url.openStream();
 		if (stream == null) {
-			LogUtil.error("The class content [" + s + "] not found!");
+			LogUtil.error("The class content [" + url + "] not found!");
 			return null;
 		}
 		return new ClassReader(stream, true);
@@ -0,0 +1,58 @@
+package jef.database.wrapper;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * 按(类, 布局签名)缓存为该类生成的代码，{@link jef.database.wrapper.populator.CompiledPopulator}和
+ * {@link jef.database.wrapper.variable.CompiledBinder}的生成器共用。
+ * <p>
+ * 缓存通过{@link ClassValue}挂在类上，类被卸载时缓存随之回收，不会因此持有类加载器。读取不加锁。
+ * 生成在锁外进行，多个线程同时生成同一布局时以先放入的为准，其余的丢弃。
+ * 不能生成的布局也会记录下来，之后直接返回null。
+ *
+ * @param <T>
+ *            生成的对象类型
+ */
+public final class CompiledCache<T> {
+	/**
+	 * 不能生成时缓存的标记
+	 */
+	private static final Object NONE = new Object();
+
+	private final ClassValue<ConcurrentMap<String, Object>> cache = new ClassValue<ConcurrentMap<String, Object>>() {
+		@Override
+		protected ConcurrentMap<String, Object> computeValue(Class<?> type) {
+			return new ConcurrentHashMap<String, Object>();
+		}
+	};
+
+	/**
+	 * 得到缓存的对象，没有时生成
+	 *
+	 * @param type
+	 *            类
+	 * @param signature
+	 *            布局签名
+	 * @param generator
+	 *            生成器，不能生成时返回null
+	 * @return 生成的对象，不能生成时返回null
+	 */
+	@SuppressWarnings("unchecked")
+	public T get(Class<?> type, String signature, Supplier<T> generator) {
+		ConcurrentMap<String, Object> map = cache.get(type);
+		Object result = map.get(signature);
+		if (result == null) {
+			result = generator.get();
+			if (result == null) {
+				result = NONE;
+			}
+			Object old = map.putIfAbsent(signature, result);
+			if (old != null) {
+				result = old;
+			}
+		}
+		return result == NONE ? null : (T) result;
+	}
+}
@@ -0,0 +1,250 @@
+package jef.database.wrapper.clause;
+
+import java.io.Closeable;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import jef.database.jdbc.rowset.ColumnarRowStore;
+import jef.database.jdbc.rowset.Row;
+import jef.database.jdbc.rowset.SpillFile;
+
+/**
+ * 可以溢出到磁盘的内存排序和去重。
+ * <p>
+ * 记录先缓存在{@link ColumnarRowStore}中，数量达到上限时排序(去重)后写入临时文件，形成一个有序的顺串；
+ * 全部读取完后对各个顺串进行多路归并，结果写入一个临时文件，按顺序读出。<br>
+ * 去重时以排序列加上其余全部列作为排序键，相同的记录在顺串和归并结果中总是相邻的。
+ * 没有发生溢出时，与直接在内存中处理的结果相同。
+ */
+public final class ExternalSorter implements Closeable {
+	/**
+	 * 一次归并的最大顺串数，超过时分多轮归并
+	 */
+	private static final int MAX_MERGE_WAYS = 64;
+
+	private final int numCols;
+	private final InMemoryOrderBy order;
+	private final boolean distinct;
+	private final int maxRowsInMemory;
+	/**
+	 * 排序键(从0开始)
+	 */
+	private final int[] keyCols;
+	private final boolean[] keyAsc;
+
+	private ColumnarRowStore buffer;
+	private List<SpillFile> runs = new ArrayList<SpillFile>();
+
+	/**
+	 * 构造
+	 *
+	 * @param numCols
+	 *            列数
+	 * @param order
+	 *            排序，可以为null
+	 * @param distinct
+	 *            是否去重
+	 * @param maxRowsInMemory
+	 *            内存中最多缓存的记录数
+	 */
+	public ExternalSorter(int numCols, InMemoryOrderBy order, boolean distinct, int maxRowsInMemory) {
+		this.numCols = numCols;
+		this.order = order;
+		this.distinct = distinct;
+		this.maxRowsInMemory = maxRowsInMemory;
+		this.buffer = new ColumnarRowStore(numCols);
+
+		int orders = order == null ? 0 : order.size();
+		boolean[] used = new boolean[numCols];
+		List<Integer> cols = new ArrayList<Integer>(numCols);
+		List<Boolean> asc = new ArrayList<Boolean>(numCols);
+		for (int i = 0; i < orders; i++) {
+			int col = order.getOrderFields()[i] - 1;
+			cols.add(col);
+			asc.add(order.getOrderAsc()[i]);
+			used[col] = true;
+		}
+		if (distinct) {
+			for (int i = 0; i < numCols; i++) {
+				if (!used[i]) {
+					cols.add(i);
+					asc.add(true);
+				}
+			}
+		}
+		this.keyCols = new int[cols.size()];
+		this.keyAsc = new boolean[cols.size()];
+		for (int i = 0; i < keyCols.length; i++) {
+			keyCols[i] = cols.get(i);
+			keyAsc[i] = asc.get(i);
+		}
+	}
+
+	/**
+	 * 读取结果集中的全部记录
+	 *
+	 * @param rs
+	 *            结果集
+	 * @throws SQLException
+	 */
+	public void populate(ResultSet rs) throws SQLException {
+		while (buffer.fetch(rs)) {
+			if (buffer.size() >= maxRowsInMemory) {
+				spill();
+			}
+		}
+	}
+
+	/**
+	 * 添加一行记录
+	 *
+	 * @param row
+	 *            记录
+	 * @throws SQLException
+	 */
+	public void add(Row row) throws SQLException {
+		buffer.add(row);
+		if (buffer.size() >= maxRowsInMemory) {
+			spill();
+		}
+	}
+
+	/**
+	 * 是否已经有记录写入磁盘
+	 *
+	 * @return
+	 */
+	public boolean isSpilled() {
+		return !runs.isEmpty();
+	}
+
+	/**
+	 * 结束输入，得到排序和去重后的结果
+	 *
+	 * @return 结果。发生溢出时结果在临时文件中，只能顺序访问
+	 * @throws SQLException
+	 */
+	public List<Row> finish() throws SQLException {
+		if (runs.isEmpty()) {
+			if (distinct) {
+				InMemoryDistinct.instance.process(buffer);
+			}
+			if (order != null) {
+				order.process(buffer);
+			}
+			return buffer.asRows();
+		}
+		if (buffer.size() > 0) {
+			spill();
+		}
+		buffer = null;
+		while (runs.size() > 1) {
+			List<SpillFile> merged = new ArrayList<SpillFile>(runs.size() / MAX_MERGE_WAYS + 1);
+			for (int i = 0; i < runs.size(); i += MAX_MERGE_WAYS) {
+				merged.add(merge(runs.subList(i, Math.min(i + MAX_MERGE_WAYS, runs.size()))));
+			}
+			runs = merged;
+		}
+		return runs.get(0).asRows();
+	}
+
+	public void close() {
+		buffer = null;
+		for (SpillFile run : runs) {
+			run.close();
+		}
+		runs.clear();
+	}
+
+	/*
+	 * 将缓存中的记录排序后写入一个顺串
+	 */
+	private void spill() throws SQLException {
+		if (keyCols.length > 0) {
+			buffer.sort(keyCols, keyAsc);
+		}
+		SpillFile run = new SpillFile(numCols);
+		runs.add(run);
+		for (int i = 0; i < buffer.size(); i++) {
+			if (distinct && i > 0 && buffer.equalsRow(i, i - 1)) {
+				continue;
+			}
+			run.write(buffer.getRow(i));
+		}
+		run.finishWrite();
+		buffer.clear();
+	}
+
+	/*
+	 * 多路归并，相同排序键的记录保持顺串的先后次序
+	 */
+	private SpillFile merge(List<SpillFile> inputs) throws SQLException {
+		if (inputs.size() == 1) {
+			return inputs.get(0);
+		}
+		PriorityQueue<Cursor> queue = new PriorityQueue<Cursor>(inputs.size(), new Comparator<Cursor>() {
+			public int compare(Cursor o1, Cursor o2) {
+				int r = compareKey(o1.row, o2.row);
+				return r != 0 ? r : o1.index - o2.index;
+			}
+		});
+		List<Cursor> cursors = new ArrayList<Cursor>(inputs.size());
+		SpillFile out = new SpillFile(numCols);
+		try {
+			for (int i = 0; i < inputs.size(); i++) {
+				Cursor c = new Cursor(i, inputs.get(i).open());
+				cursors.add(c);
+				if ((c.row = c.reader.next()) != null) {
+					queue.add(c);
+				}
+			}
+			Row last = null;
+			while (!queue.isEmpty()) {
+				Cursor c = queue.poll();
+				if (!distinct || last == null || !c.row.equals(last)) {
+					out.write(c.row);
+					last = c.row;
+				}
+				if ((c.row = c.reader.next()) != null) {
+					queue.add(c);
+				}
+			}
+			out.finishWrite();
+		} catch (SQLException e) {
+			out.close();
+			throw e;
+		} finally {
+			for (Cursor c : cursors) {
+				c.reader.close();
+			}
+			for (SpillFile input : inputs) {
+				input.close();
+			}
+		}
+		return out;
+	}
+
+	private int compareKey(Row a, Row b) {
+		for (int i = 0; i < keyCols.length; i++) {
+			int r = InMemoryOrderBy.compareValue(a.getArrayObject(keyCols[i]), b.getArrayObject(keyCols[i]));
+			if (r != 0)
+				return keyAsc[i] ? r : -r;
+		}
+		return 0;
+	}
+
+	private static final class Cursor {
+		final int index;
+		final SpillFile.Reader reader;
+		Row row;
+
+		Cursor(int index, SpillFile.Reader reader) {
+			this.index = index;
+			this.reader = reader;
+		}
+	}
+}
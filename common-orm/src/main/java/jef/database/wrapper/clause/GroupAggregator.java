@@ -0,0 +1,541 @@
+/*
+ * JEF - Copyright 2009-2010 Jiyi (mr.jiyi@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package jef.database.wrapper.clause;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import jef.database.jdbc.rowset.CachedRowSetImpl;
+import jef.database.jdbc.rowset.Row;
+import jef.database.jdbc.rowset.SpillFile;
+
+import org.apache.commons.lang.ObjectUtils;
+
+/**
+ * 流式分组聚合器。
+ * <p>
+ * 逐行读取各个分库的结果，按分组键将数据折叠到每个分组的累加器中。SUM/COUNT/AVG使用原生类型累加，
+ * 因此内存中只保留每个分组的一行结果和少量累加值，占用和分组数量相关，和记录总数无关。
+ * <p>
+ * 设置了{@link #setSpillGroups(int)}时，分组数达到上限后，属于新分组的记录按分组键的哈希值写入临时文件的各个分区，
+ * 内存中的分组输出后，再用{@link #nextPartition()}逐个分区进行聚合。
+ *
+ * @author jiyi
+ *
+ */
+public final class GroupAggregator {
+	private static final int KIND_UNKNOWN = 0;
+	private static final int KIND_LONG = 1;
+	private static final int KIND_DOUBLE = 2;
+	private static final int KIND_DECIMAL = 3;
+
+	private static final Object NO_GROUP_KEY = new Object();
+
+	/**
+	 * 溢出时的分区数
+	 */
+	private static final int PARTITIONS = 16;
+	/**
+	 * 分区后仍然溢出时最多再分区的次数，超过后不再限制内存中的分组数
+	 */
+	private static final int MAX_SPILL_DEPTH = 3;
+
+	private final GroupByItem[] keys;
+	private final GroupByItem[] values;
+	/**
+	 * 输出的列数，超出部分是为了计算而额外查询的隐藏列
+	 */
+	private final int outputCount;
+	private final int maxGroups;
+	/**
+	 * 每个计算列的数值类别，由第一个非null值决定
+	 */
+	private final int[] kinds;
+	/**
+	 * 每个计算列第一个非null值的类型，输出时还原为该类型
+	 */
+	private final Class<?>[] types;
+
+	private final Map<Object, GroupState> groups = new LinkedHashMap<Object, GroupState>();
+
+	/**
+	 * 内存中最多保留的分组数，0表示不溢出
+	 */
+	private int spillGroups;
+	/**
+	 * 当前是第几次分区
+	 */
+	private int depth;
+	/**
+	 * 输入记录的列数(含隐藏列)
+	 */
+	private int inputColumns;
+	private SpillFile[] partitions;
+	private int nextPartition;
+
+	GroupAggregator(GroupByItem[] keys, GroupByItem[] values, int outputCount, int maxGroups) throws SQLFeatureNotSupportedException {
+		checkSupported(values);
+		this.keys = keys;
+		this.values = values;
+		this.outputCount = outputCount;
+		this.maxGroups = maxGroups > 0 ? maxGroups : Integer.MAX_VALUE;
+		this.kinds = new int[values.length];
+		this.types = new Class<?>[values.length];
+	}
+
+	/**
+	 * 检查聚合函数是否都能在内存中合并
+	 *
+	 * @param values
+	 *            计算列
+	 * @throws SQLFeatureNotSupportedException
+	 *             有不能合并的函数
+	 */
+	static void checkSupported(GroupByItem[] values) throws SQLFeatureNotSupportedException {
+		for (GroupByItem g : values) {
+			switch (g.getType()) {
+			case AVG:
+			case COUNT:
+			case SUM:
+			case MIN:
+			case MAX:
+			case NORMAL:
+				break;
+			default:
+				throw new SQLFeatureNotSupportedException("the " + g.getType() + " function can not be merged across databases in memory.");
+			}
+		}
+	}
+
+	/**
+	 * 读取结果集中的全部记录并进行聚合
+	 *
+	 * @param rs
+	 *            结果集
+	 * @throws SQLException
+	 */
+	public void add(ResultSet rs) throws SQLException {
+		if (inputColumns == 0) {
+			inputColumns = rs.getMetaData().getColumnCount();
+		}
+		while (rs.next()) {
+			Object key;
+			if (keys.length == 1) {
+				key = rs.getObject(keys[0].getIndex() + 1);
+			} else {
+				Object[] keyValue = new Object[keys.length];
+				for (int i = 0; i < keys.length; i++) {
+					keyValue[i] = rs.getObject(keys[i].getIndex() + 1);
+				}
+				key = toKey(keyValue);
+			}
+			GroupState state = groups.get(key);
+			boolean isNew = state == null;
+			if (isNew && isFull()) {
+				Row source = new Row(inputColumns);
+				for (int i = 1; i <= inputColumns; i++) {
+					source.initColumnObject(i, CachedRowSetImpl.readColumnValue(rs, i));
+				}
+				spill(key, source);
+				continue;
+			}
+			if (isNew) {
+				Row row = new Row(outputCount);
+				for (int i = 1; i <= outputCount; i++) {
+					row.initColumnObject(i, CachedRowSetImpl.readColumnValue(rs, i));
+				}
+				state = newGroup(key, row);
+			}
+			for (int j = 0; j < values.length; j++) {
+				GroupByItem item = values[j];
+				if (item.getType() == GroupFunctionType.NORMAL) {
+					continue;
+				}
+				Object value = isNew ? state.row.getArrayObject(item.getIndex()) : rs.getObject(item.getIndex() + 1);
+				Object count = item.getCountIndex() < 0 ? null : rs.getObject(item.getCountIndex() + 1);
+				accumulate(state, j, value, count);
+			}
+		}
+	}
+
+	/**
+	 * 对一行已经缓存的记录进行聚合
+	 *
+	 * @param source
+	 *            记录
+	 * @throws SQLException
+	 */
+	public void add(Row source) throws SQLException {
+		Object key;
+		if (keys.length == 1) {
+			key = source.getArrayObject(keys[0].getIndex());
+		} else {
+			Object[] keyValue = new Object[keys.length];
+			for (int i = 0; i < keys.length; i++) {
+				keyValue[i] = source.getArrayObject(keys[i].getIndex());
+			}
+			key = toKey(keyValue);
+		}
+		GroupState state = groups.get(key);
+		if (state == null && isFull()) {
+			spill(key, source);
+			return;
+		}
+		if (state == null) {
+			Row row = new Row(outputCount);
+			for (int i = 0; i < outputCount; i++) {
+				row.setArrayObject(i, source.getArrayObject(i));
+			}
+			state = newGroup(key, row);
+		}
+		for (int j = 0; j < values.length; j++) {
+			GroupByItem item = values[j];
+			if (item.getType() == GroupFunctionType.NORMAL) {
+				continue;
+			}
+			Object count = item.getCountIndex() < 0 ? null : source.getArrayObject(item.getCountIndex());
+			accumulate(state, j, source.getArrayObject(item.getIndex()), count);
+		}
+	}
+
+	/**
+	 * 得到各个分组的计算结果。按分组第一次出现的顺序排列
+	 *
+	 * @return 结果行
+	 */
+	public List<Row> getResult() {
+		List<Row> result = new ArrayList<Row>(groups.size());
+		for (GroupState state : groups.values()) {
+			for (int j = 0; j < values.length; j++) {
+				GroupByItem item = values[j];
+				switch (item.getType()) {
+				case SUM:
+				case COUNT:
+					state.row.setArrayObject(item.getIndex(), state.counts[j] == 0 ? null : getSum(state, j));
+					break;
+				case AVG:
+					state.row.setArrayObject(item.getIndex(), getAvg(state, j, item.getCountIndex() > -1));
+					break;
+				default:
+					// MIN/MAX的结果已经直接记录在行中
+				}
+			}
+			result.add(state.row);
+		}
+		groups.clear();
+		return result;
+	}
+
+	/**
+	 * 设置内存中最多保留的分组数
+	 *
+	 * @param spillGroups
+	 *            分组数，0表示不溢出到磁盘
+	 */
+	public void setSpillGroups(int spillGroups) {
+		this.spillGroups = spillGroups;
+	}
+
+	/**
+	 * 对下一个溢出到磁盘的分区进行聚合。应当在{@link #getResult()}之后调用
+	 *
+	 * @return 已经读入该分区全部记录的聚合器，没有更多分区时返回null
+	 * @throws SQLException
+	 */
+	public GroupAggregator nextPartition() throws SQLException {
+		while (partitions != null && nextPartition < PARTITIONS) {
+			SpillFile file = partitions[nextPartition];
+			partitions[nextPartition++] = null;
+			if (file == null) {
+				continue;
+			}
+			try {
+				GroupAggregator aggregator = new GroupAggregator(keys, values, outputCount, maxGroups);
+				System.arraycopy(kinds, 0, aggregator.kinds, 0, kinds.length);
+				System.arraycopy(types, 0, aggregator.types, 0, types.length);
+				aggregator.inputColumns = inputColumns;
+				aggregator.depth = depth + 1;
+				aggregator.spillGroups = aggregator.depth < MAX_SPILL_DEPTH ? spillGroups : 0;
+				SpillFile.Reader reader = file.open();
+				try {
+					Row row;
+					while ((row = reader.next()) != null) {
+						aggregator.add(row);
+					}
+				} finally {
+					reader.close();
+				}
+				return aggregator;
+			} finally {
+				file.close();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * 删除尚未处理的分区文件
+	 */
+	public void close() {
+		if (partitions != null) {
+			for (SpillFile file : partitions) {
+				if (file != null)
+					file.close();
+			}
+			partitions = null;
+		}
+	}
+
+	private boolean isFull() {
+		return spillGroups > 0 && groups.size() >= spillGroups;
+	}
+
+	/*
+	 * 将属于新分组的记录写入分区文件
+	 */
+	private void spill(Object key, Row source) throws SQLException {
+		if (partitions == null) {
+			partitions = new SpillFile[PARTITIONS];
+		}
+		int h = key == null ? 0 : key.hashCode();
+		h ^= depth * 0x9E3779B9;
+		h ^= h >>> 16;
+		h *= 0x85EBCA6B;
+		h ^= h >>> 13;
+		int index = h & (PARTITIONS - 1);
+		SpillFile file = partitions[index];
+		if (file == null) {
+			file = partitions[index] = new SpillFile(inputColumns);
+		}
+		file.write(source);
+	}
+
+	/**
+	 * 输出的列数
+	 *
+	 * @return 输出的列数
+	 */
+	public int getOutputColumnCount() {
+		return outputCount;
+	}
+
+	/**
+	 * 当前分组数
+	 *
+	 * @return 分组数
+	 */
+	public int size() {
+		return groups.size();
+	}
+
+	private GroupState newGroup(Object key, Row row) throws SQLException {
+		if (groups.size() >= maxGroups) {
+			throw new SQLException("The Inmemory operate reaches it max limit of " + maxGroups);
+		}
+		GroupState state = new GroupState(row, values.length);
+		groups.put(key, state);
+		return state;
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private void accumulate(GroupState state, int j, Object value, Object count) {
+		GroupByItem item = values[j];
+		switch (item.getType()) {
+		case SUM:
+		case COUNT:
+			if (value != null) {
+				add(state, j, (Number) value);
+				state.counts[j]++;
+			}
+			break;
+		case AVG:
+			if (item.getCountIndex() > -1) {
+				// 分库上已改写为SUM和COUNT
+				if (value != null) {
+					add(state, j, (Number) value);
+				}
+				if (count != null) {
+					state.counts[j] += ((Number) count).longValue();
+				}
+			} else if (value != null) {
+				// 无法得到各库的样本数，只能对各库的平均值再求平均
+				state.doubles[j] += ((Number) value).doubleValue();
+				state.counts[j]++;
+			}
+			break;
+		case MIN:
+			if (value != null) {
+				Object current = state.row.getArrayObject(item.getIndex());
+				if (current == null || ObjectUtils.compare((Comparable) current, (Comparable) value) > 0) {
+					state.row.setArrayObject(item.getIndex(), value);
+				}
+			}
+			break;
+		case MAX:
+			if (value != null) {
+				Object current = state.row.getArrayObject(item.getIndex());
+				if (current == null || ObjectUtils.compare((Comparable) current, (Comparable) value) < 0) {
+					state.row.setArrayObject(item.getIndex(), value);
+				}
+			}
+			break;
+		default:
+		}
+	}
+
+	private void add(GroupState state, int j, Number value) {
+		int kind = kinds[j];
+		if (kind == KIND_UNKNOWN) {
+			kind = kinds[j] = kindOf(value);
+			types[j] = value.getClass();
+		}
+		switch (kind) {
+		case KIND_LONG:
+			state.longs[j] += value.longValue();
+			break;
+		case KIND_DOUBLE:
+			state.doubles[j] += value.doubleValue();
+			break;
+		default:
+			BigDecimal d = value instanceof BigDecimal ? (BigDecimal) value : new BigDecimal(value.toString());
+			state.decimals[j] = state.decimals[j] == null ? d : state.decimals[j].add(d);
+		}
+	}
+
+	private Object getSum(GroupState state, int j) {
+		Class<?> type = types[j];
+		switch (kinds[j]) {
+		case KIND_LONG: {
+			long l = state.longs[j];
+			if (type == Integer.class && l <= Integer.MAX_VALUE && l >= Integer.MIN_VALUE) {
+				return Integer.valueOf((int) l);
+			} else if (type == Short.class && l <= Short.MAX_VALUE && l >= Short.MIN_VALUE) {
+				return Short.valueOf((short) l);
+			} else if (type == Byte.class && l <= Byte.MAX_VALUE && l >= Byte.MIN_VALUE) {
+				return Byte.valueOf((byte) l);
+			}
+			return Long.valueOf(l);
+		}
+		case KIND_DOUBLE:
+			if (type == Float.class) {
+				return Float.valueOf((float) state.doubles[j]);
+			}
+			return Double.valueOf(state.doubles[j]);
+		case KIND_DECIMAL:
+			BigDecimal d = state.decimals[j];
+			if (type == BigInteger.class) {
+				return d.toBigInteger();
+			}
+			return d;
+		default:
+			return null;
+		}
+	}
+
+	private Object getAvg(GroupState state, int j, boolean exact) {
+		long count = state.counts[j];
+		if (count == 0) {
+			return null;
+		}
+		if (!exact) {
+			return state.doubles[j] / count;
+		}
+		switch (kinds[j]) {
+		case KIND_LONG:
+			return (double) state.longs[j] / count;
+		case KIND_DOUBLE:
+			return state.doubles[j] / count;
+		case KIND_DECIMAL:
+			return state.decimals[j].divide(BigDecimal.valueOf(count), MathContext.DECIMAL128);
+		default:
+			return null;
+		}
+	}
+
+	private static int kindOf(Number value) {
+		if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+			return KIND_LONG;
+		} else if (value instanceof Double || value instanceof Float) {
+			return KIND_DOUBLE;
+		}
+		return KIND_DECIMAL;
+	}
+
+	private static Object toKey(Object[] keyValue) {
+		if (keyValue.length == 0) {
+			return NO_GROUP_KEY;
+		}
+		return new GroupKey(keyValue);
+	}
+
+	/*
+	 * 多个字段构成的分组键
+	 */
+	private static final class GroupKey {
+		private final Object[] values;
+		private final int hash;
+
+		GroupKey(Object[] values) {
+			this.values = values;
+			this.hash = Arrays.hashCode(values);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj instanceof GroupKey) {
+				GroupKey o = (GroupKey) obj;
+				return hash == o.hash && Arrays.equals(values, o.values);
+			}
+			return false;
+		}
+	}
+
+	/*
+	 * 一个分组的结果行和累加值
+	 */
+	private static final class GroupState {
+		final Row row;
+		final long[] longs;
+		final double[] doubles;
+		final BigDecimal[] decimals;
+		/**
+		 * SUM/COUNT为非null值的个数；AVG为样本总数
+		 */
+		final long[] counts;
+
+		GroupState(Row row, int size) {
+			this.row = row;
+			this.longs = new long[size];
+			this.doubles = new double[size];
+			this.decimals = new BigDecimal[size];
+			this.counts = new long[size];
+		}
+	}
+}
@@ -4,6 +4,10 @@ public class GroupByItem {
 	private int index;
 	private GroupFunctionType type;
 	private String alias;
+	/**
+	 * 当AVG在各个分库上被改写为SUM时，额外查询的COUNT列的序号(从0开始)，-1表示未改写
+	 */
+	private int countIndex = -1;
 	public GroupByItem(int i, GroupFunctionType type, String alias) {
 		this.index=i;
 		this.type=type;
@@ -27,4 +31,10 @@ public class GroupByItem {
 	public void setAlias(String alias) {
 		this.alias = alias;
 	}
+	public int getCountIndex() {
+		return countIndex;
+	}
+	public void setCountIndex(int countIndex) {
+		this.countIndex = countIndex;
+	}
 }
@@ -2,12 +2,8 @@ package jef.database.wrapper.clause;
 
 import java.sql.SQLException;
 import java.util.Arrays;
-import java.util.LinkedHashSet;
-import java.util.List;
-import java.util.Set;
 
-import jef.database.jdbc.rowset.CachedRowSetImpl;
-import jef.database.jdbc.rowset.Row;
+import jef.database.jdbc.rowset.ColumnarRowStore;
 
 /**
  * 在内存中实现结果集去重
@@ -20,15 +16,35 @@ public class InMemoryDistinct implements InMemoryProcessor{
 	private InMemoryDistinct(){
 	}
 	
-	public void process(CachedRowSetImpl rows) throws SQLException {
-		Set<Row> newRows=new LinkedHashSet<Row>();
-		for(Row row: rows.getRvh()){
-			newRows.add(row);
+	public void process(ColumnarRowStore rows) throws SQLException {
+		int size=rows.size();
+		//以行号为元素的开放寻址哈希表，-1表示空位
+		int[] table=new int[Integer.highestOneBit(Math.max(size, 1)) << 2];
+		Arrays.fill(table, -1);
+		int mask=table.length-1;
+		int[] result=new int[size];
+		int count=0;
+		for(int row=0;row<size;row++){
+			int slot=mix(rows.hashRow(row)) & mask;
+			while(table[slot]>=0 && !rows.equalsRow(table[slot], row)){
+				slot=(slot+1) & mask;
+			}
+			if(table[slot]<0){
+				table[slot]=row;
+				result[count++]=row;
+			}
 		}
-		rows.setRvh(null);//先释放掉
-		List<Row> result=Arrays.asList(newRows.toArray(new Row[newRows.size()]));
-		rows.setRvh(result);
-		rows.refresh();
+		if(count<size){
+			rows.select(result, count);
+		}
+	}
+
+	private static int mix(int h) {
+		h ^= h >>> 16;
+		h *= 0x85EBCA6B;
+		h ^= h >>> 13;
+		h *= 0xC2B2AE35;
+		return h ^ (h >>> 16);
 	}
 
 	public String getName() {
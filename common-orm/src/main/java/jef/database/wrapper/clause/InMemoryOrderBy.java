@@ -15,12 +15,7 @@
  */
 package jef.database.wrapper.clause;
 
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
-
-import jef.database.jdbc.rowset.CachedRowSetImpl;
-import jef.database.jdbc.rowset.Row;
+import jef.database.jdbc.rowset.ColumnarRowStore;
 
 public class InMemoryOrderBy implements InMemoryProcessor {
 	private int[] orderFields;
@@ -47,33 +42,29 @@ public class InMemoryOrderBy implements InMemoryProcessor {
 		this.orderAsc = orderAsc;
 	}
 
-	public void process(CachedRowSetImpl rowset) {
-		List<Row> rows=rowset.getRvh();
-		Collections.sort(rows, new Comparator<Row>() {
-			public int compare(Row o1, Row o2) {
-				for (int i = 0; i < orderFields.length; i++) {
-					int r = compare0(o1.getColumnObject(orderFields[i]), o2.getColumnObject(orderFields[i]));
-					if(r==0)
-						continue; //判断下一个字段
-					
-					if(!orderAsc[i]){
-						r=-r;
-					}
-					return r;
-				}
-				return 0;
-			}
-			@SuppressWarnings({ "unchecked", "rawtypes" })
-			private int compare0(Object object, Object object2) {
-				if (object == object2)
-					return 0;
-				if (object == null)
-					return 1;
-				if (object2 == null)
-					return -1;
-				return ((Comparable) object).compareTo(object2);
-			}
-		});
+	public void process(ColumnarRowStore rows) {
+		int[] cols=new int[orderFields.length];
+		for (int i = 0; i < cols.length; i++) {
+			cols[i]=orderFields[i]-1; //orderFields从1开始
+		}
+		rows.sort(cols, orderAsc);
+	}
+
+	/**
+	 * 比较两个排序字段的值，null值总是排在非null值之后
+	 * @param object
+	 * @param object2
+	 * @return 比较结果
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public static int compareValue(Object object, Object object2) {
+		if (object == object2)
+			return 0;
+		if (object == null)
+			return 1;
+		if (object2 == null)
+			return -1;
+		return ((Comparable) object).compareTo(object2);
 	}
 
 	public String getName() {
@@ -1,11 +1,8 @@
 package jef.database.wrapper.clause;
 
 import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.List;
 
-import jef.database.jdbc.rowset.CachedRowSetImpl;
-import jef.database.jdbc.rowset.Row;
+import jef.database.jdbc.rowset.ColumnarRowStore;
 import jef.tools.PageLimit;
 
 /**
@@ -28,22 +25,20 @@ public class InMemoryPaging{
 		this.limit=data[1];
 	}
 
-	public void process(CachedRowSetImpl rows) throws SQLException {
-		List<Row> list=rows.getRvh();
-
+	public void process(ColumnarRowStore rows) throws SQLException {
+		int size=rows.size();
 		int end=start+limit;
-		if(start==0 && end>=list.size()){//不需要截取的场合
+		if(start==0 && end>=size){//不需要截取的场合
 			return;
 		}
-		if(end>list.size()){ //防止溢出
-			end=list.size();
+		if(end>size){ //防止溢出
+			end=size;
 		}
-		if(end<=start || start>=rows.size()){//防止空结果
-			rows.setRvh(new ArrayList<Row>());
+		if(end<=start || start>=size){//防止空结果
+			rows.slice(0, 0);
 		}else{
-			rows.setRvh(list.subList(start, end));
+			rows.slice(start, end);
 		}
-		rows.refresh();	
 	}
 
 	public String getName() {
@@ -2,10 +2,10 @@ package jef.database.wrapper.clause;
 
 import java.sql.SQLException;
 
-import jef.database.jdbc.rowset.CachedRowSetImpl;
+import jef.database.jdbc.rowset.ColumnarRowStore;
 
 public interface InMemoryProcessor {
-	void process(CachedRowSetImpl rows)throws SQLException;
+	void process(ColumnarRowStore rows)throws SQLException;
 
 	String getName();
 }
@@ -2,15 +2,13 @@ package jef.database.wrapper.clause;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
 import jef.database.Condition.Operator;
-import jef.database.jdbc.rowset.CachedRowSetImpl;
-import jef.database.jdbc.rowset.Row;
+import jef.database.jdbc.rowset.ColumnarRowStore;
 import jef.tools.StringUtils;
 
 import org.apache.commons.lang.ObjectUtils;
@@ -40,27 +38,26 @@ public class InMemoryStartWithConnectBy implements InMemoryProcessor{
 	public Operator startWithOperator;
 	public Object startWithValue;
 	
-	public void process(CachedRowSetImpl rows) throws SQLException {
-		Set<Row> result=new LinkedHashSet<Row>();
-		Multimap<Object,Row> index=index(rows.getRvh(),result);
-		List<Row> newComing=Arrays.asList(result.toArray(new Row[result.size()]));
+	public void process(ColumnarRowStore rows) throws SQLException {
+		Set<Integer> result=new LinkedHashSet<Integer>();
+		Multimap<Object,Integer> index=index(rows,result);
+		List<Integer> newComing=new ArrayList<Integer>(result);
 		while(!newComing.isEmpty()){ //找不到新的孩子就结束循环
-			newComing=appendResults(result,newComing,index);	
+			newComing=appendResults(rows,result,newComing,index);	
 		}
-		if(result.isEmpty()){
-			rows.getRvh().clear();
-			rows.refresh();
-		}else{
-			rows.setRvh(Arrays.asList(result.toArray(new Row[result.size()])));
-			rows.refresh();
+		int[] selected=new int[result.size()];
+		int n=0;
+		for(Integer row:result){
+			selected[n++]=row;
 		}
+		rows.select(selected, n);
 	}
 	
-	private List<Row> appendResults(Set<Row> result, List<Row> toScan,Multimap<Object,Row> index) {
-		List<Row> newComing=new ArrayList<Row>();
-		for(Row row:toScan){
-			Collection<Row> children=index.get(row.getColumnObject(connectPrior));
-			for(Row child:children){
+	private List<Integer> appendResults(ColumnarRowStore rows,Set<Integer> result, List<Integer> toScan,Multimap<Object,Integer> index) {
+		List<Integer> newComing=new ArrayList<Integer>();
+		for(Integer row:toScan){
+			Collection<Integer> children=index.get(rows.getValue(row, connectPrior-1));
+			for(Integer child:children){
 				if(result.add(child)){
 					newComing.add(child);
 				}
@@ -70,11 +67,11 @@ public class InMemoryStartWithConnectBy implements InMemoryProcessor{
 	}
 
 	//根据父ID索引
-	private Multimap<Object, Row> index(List<Row> rvh,Set<Row> result) {
-		Multimap<Object, Row> index=ArrayListMultimap.create();
-		for(Row row:rvh){
-			index.put(row.getColumnObject(connectParent), row);
-			if(matchStart(row)){
+	private Multimap<Object, Integer> index(ColumnarRowStore rows,Set<Integer> result) {
+		Multimap<Object, Integer> index=ArrayListMultimap.create();
+		for(int row=0;row<rows.size();row++){
+			index.put(rows.getValue(row, connectParent-1), row);
+			if(matchStart(rows.getValue(row, startWithColumn-1))){
 				result.add(row);
 			}
 		}
@@ -82,8 +79,7 @@ public class InMemoryStartWithConnectBy implements InMemoryProcessor{
 	}
 
 	@SuppressWarnings({ "unchecked", "rawtypes" })
-	private boolean matchStart(Row row) {
-		Object obj=row.getColumnObject(startWithColumn);
+	private boolean matchStart(Object obj) {
 		if(obj instanceof Integer){
 			obj=Long.valueOf(((Integer) obj).longValue());
 		}
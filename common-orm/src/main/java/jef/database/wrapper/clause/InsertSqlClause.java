@@ -24,10 +24,16 @@ import jef.database.dialect.DatabaseDialect;
 import jef.database.dialect.type.ColumnMapping;
 import jef.database.routing.PartitionResult;
 import jef.database.wrapper.processor.InsertWrapper;
+import jef.tools.StringUtils;
 
 public class InsertSqlClause{
 	private String columnsPart;
 	private String valuesPart;
+	/**
+	 * 插入的各列及其值表达式，生成合并语句时使用
+	 */
+	private List<String> columns;
+	private List<String> values;
 	private PartitionResult table;
 	private final InsertWrapper callback = new InsertWrapper();
 	final List<ColumnMapping> fields;
@@ -78,6 +84,18 @@ public class InsertSqlClause{
 	public void setValuesPart(String valuesPart) {
 		this.valuesPart = valuesPart;
 	}
+	public List<String> getColumns() {
+		return columns;
+	}
+	public List<String> getValues() {
+		return values;
+	}
+	public void setColumns(List<String> columns, List<String> values) {
+		this.columns = columns;
+		this.values = values;
+		this.columnsPart = StringUtils.join(columns, ',');
+		this.valuesPart = StringUtils.join(values, ',');
+	}
 	public PartitionResult getTable() {
 		return table;
 	}
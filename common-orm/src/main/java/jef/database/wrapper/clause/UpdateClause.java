@@ -39,6 +39,18 @@ public class UpdateClause {
 		return sb.toString();
 	}
 
+	/**
+	 * 被更新的列
+	 * @return 列名
+	 */
+	public List<String> getColumns() {
+		List<String> columns = new ArrayList<String>(entries.size());
+		for (PairSS p : entries) {
+			columns.add(p.first);
+		}
+		return columns;
+	}
+
 	public List<Variable> getVariables() {
 		return variables;
 	}
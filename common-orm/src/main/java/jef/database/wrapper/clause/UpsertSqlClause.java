@@ -0,0 +1,203 @@
+package jef.database.wrapper.clause;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import jef.database.DbUtils;
+import jef.database.dialect.handler.UpsertHandler;
+import jef.database.dialect.type.AutoGuidMapping;
+import jef.database.dialect.type.ColumnMapping;
+import jef.database.dialect.type.VersionSupportColumn;
+
+/**
+ * 单条语句的合并（Upsert）。由插入语句加上判断记录是否存在的列构成。
+ * <p>
+ * 记录存在时更新除判断列以外的各列，自动生成的列（如创建时间、版本号）和不允许更新的列除外。
+ */
+public class UpsertSqlClause {
+	private final InsertSqlClause insertPart;
+	private final UpsertHandler handler;
+	private final List<String> columns = new ArrayList<String>();
+	private final List<String> values = new ArrayList<String>();
+	/**
+	 * 各列对应的绑定变量字段，值不是绑定变量时为null
+	 */
+	private final List<ColumnMapping> valueFields = new ArrayList<ColumnMapping>();
+	private final int[] keys;
+	private final int[] updates;
+	private final List<ColumnMapping> keyFields;
+	/**
+	 * 语句中的各个绑定变量对应的字段
+	 */
+	private List<ColumnMapping> fields;
+
+	private UpsertSqlClause(InsertSqlClause insertPart, UpsertHandler handler, int[] keys, int[] updates, List<ColumnMapping> keyFields) {
+		this.insertPart = insertPart;
+		this.handler = handler;
+		this.keys = keys;
+		this.updates = updates;
+		this.keyFields = keyFields;
+	}
+
+	/**
+	 * 根据插入语句生成合并语句
+	 *
+	 * @param insertPart
+	 *            插入语句
+	 * @param keyFields
+	 *            判断记录是否存在的字段
+	 * @param handler
+	 *            数据库的合并语句生成器
+	 * @return 无法生成时返回null。例如数据库不支持，或者判断用的字段不在插入的列中，或者其值由框架自动生成
+	 */
+	public static UpsertSqlClause create(InsertSqlClause insertPart, List<ColumnMapping> keyFields, UpsertHandler handler) {
+		if (handler == null || keyFields.isEmpty() || insertPart.getColumns() == null) {
+			return null;
+		}
+		List<String> allColumns = insertPart.getColumns();
+		List<String> allValues = insertPart.getValues();
+		List<ColumnMapping> bindFields = insertPart.getFields();
+		List<String> columns = new ArrayList<String>(allColumns.size());
+		List<String> values = new ArrayList<String>(allColumns.size());
+		List<ColumnMapping> valueFields = new ArrayList<ColumnMapping>(allColumns.size());
+		int[] keys = new int[keyFields.size()];
+		int keyCount = 0;
+		List<Integer> updates = new ArrayList<Integer>();
+		int bound = 0;
+		for (int i = 0; i < allColumns.size(); i++) {
+			String value = allValues.get(i);
+			ColumnMapping field = null;
+			if ("?".equals(value)) {
+				if (bound >= bindFields.size()) {
+					return null;
+				}
+				field = bindFields.get(bound++);
+			} else if ("DEFAULT".equalsIgnoreCase(value)) {
+				// 由数据库生成的值不能出现在源表或更新部分中
+				continue;
+			}
+			int index = columns.size();
+			int key = field == null ? -1 : keyFields.indexOf(field);
+			if (key > -1) {
+				// 框架生成的主键每次都不同，无法用来判断记录是否存在
+				if (field.isGenerated() || field instanceof AutoGuidMapping) {
+					return null;
+				}
+				keys[key] = index;
+				keyCount++;
+			} else if (field != null && isUpdatable(field)) {
+				updates.add(index);
+			}
+			columns.add(allColumns.get(i));
+			values.add(value);
+			valueFields.add(field);
+		}
+		if (bound != bindFields.size() || keyCount != keys.length) {
+			return null;
+		}
+		int[] updateIndexes = new int[updates.size()];
+		for (int i = 0; i < updateIndexes.length; i++) {
+			updateIndexes[i] = updates.get(i);
+		}
+		UpsertSqlClause result = new UpsertSqlClause(insertPart, handler, keys, updateIndexes, keyFields);
+		result.columns.addAll(columns);
+		result.values.addAll(values);
+		result.valueFields.addAll(valueFields);
+		return result;
+	}
+
+	/*
+	 * 记录存在时是否更新该列
+	 */
+	private static boolean isUpdatable(ColumnMapping field) {
+		if (field.isNotUpdate()) {
+			return false;
+		}
+		if (field.isGenerated() && field instanceof VersionSupportColumn) {
+			// 修改时间每次更新，创建时间和版本号不更新
+			VersionSupportColumn column = (VersionSupportColumn) field;
+			return column.isUpdateAlways() && !column.isVersion();
+		}
+		return true;
+	}
+
+	/**
+	 * 传入表名并返回SQL
+	 *
+	 * @param tablename
+	 * @return
+	 */
+	public String getSql(String tablename) {
+		List<Integer> binds = new ArrayList<Integer>();
+		String sql = handler.toUpsertSql(DbUtils.escapeColumn(insertPart.profile, tablename), columns, values, keys, updates, binds);
+		if (fields == null) {
+			List<ColumnMapping> fields = new ArrayList<ColumnMapping>(binds.size());
+			for (Integer index : binds) {
+				ColumnMapping field = valueFields.get(index);
+				if (field != null) {
+					fields.add(field);
+				}
+			}
+			this.fields = fields;
+		}
+		return sql;
+	}
+
+	public String getSql() {
+		return getSql(insertPart.getTable().getAsOneTable());
+	}
+
+	/**
+	 * 语句中各个绑定变量对应的字段，同一字段可能出现多次。在{@link #getSql(String)}之后有效
+	 *
+	 * @return
+	 */
+	public List<ColumnMapping> getFields() {
+		return fields;
+	}
+
+	/**
+	 * 判断记录是否存在的字段
+	 *
+	 * @return
+	 */
+	public List<ColumnMapping> getKeyFields() {
+		return keyFields;
+	}
+
+	/**
+	 * 判断记录是否存在的条件，如 where ID=? and CODE=?，绑定变量与{@link #getKeyFields()}一一对应
+	 *
+	 * @return
+	 */
+	public String getKeyWhere() {
+		StringBuilder sb = new StringBuilder(" where ");
+		for (int i = 0; i < keys.length; i++) {
+			if (i > 0)
+				sb.append(" and ");
+			sb.append(columns.get(keys[i])).append("=?");
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * 记录存在时更新的列
+	 *
+	 * @return
+	 */
+	public List<String> getUpdateColumns() {
+		if (updates.length == 0) {
+			return Collections.emptyList();
+		}
+		List<String> result = new ArrayList<String>(updates.length);
+		for (int index : updates) {
+			result.add(columns.get(index));
+		}
+		return result;
+	}
+
+	public InsertSqlClause getInsertPart() {
+		return insertPart;
+	}
+}
@@ -1,6 +1,7 @@
 package jef.database.wrapper.executor;
 
 import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
 import java.util.Queue;
 import java.util.concurrent.CountDownLatch;
 
@@ -10,10 +11,32 @@ public abstract class DbTask implements Runnable{
 	private volatile Queue<SQLException> exceptions;
 	private volatile Queue<Throwable> throwables;
 	private volatile CountDownLatch latch;
-	
+	/**
+	 * 任务访问的数据源，决定任务在哪个执行器中排队
+	 */
+	private final String datasource;
+	/**
+	 * 任务的截止时间(System.currentTimeMillis())，0表示不限。排队超过截止时间的任务不再执行
+	 */
+	private volatile long deadline;
+
+	public DbTask() {
+		this(null);
+	}
+
+	/**
+	 * @param datasource 任务访问的数据源
+	 */
+	public DbTask(String datasource) {
+		this.datasource = datasource;
+	}
+
 	@Override
 	public final void run() {
 		try{
+			if (deadline > 0 && System.currentTimeMillis() > deadline) {
+				throw new SQLTimeoutException("The task on datasource [" + datasource + "] was dropped, it has been queued past the deadline.");
+			}
 			execute();
 		}catch(SQLException ex){
 			exceptions.add(ex);
@@ -41,4 +64,20 @@ public abstract class DbTask implements Runnable{
 	public final Queue<Throwable> getThrowables() {
 		return throwables;
 	}
+
+	public final String getDatasource() {
+		return datasource;
+	}
+
+	public final long getDeadline() {
+		return deadline;
+	}
+
+	/**
+	 * 设置截止时间，到时仍在排队的任务不再执行，以SQLTimeoutException结束。已经开始执行的任务不受影响。
+	 * @param deadline System.currentTimeMillis()表示的时间，0表示不限
+	 */
+	public final void setDeadline(long deadline) {
+		this.deadline = deadline;
+	}
 }
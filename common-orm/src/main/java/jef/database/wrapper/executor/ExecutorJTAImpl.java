@@ -9,6 +9,12 @@ import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.persistence.PersistenceException;
 
@@ -35,6 +41,19 @@ import jef.tools.ThreadUtils;
  * 
  */
 public class ExecutorJTAImpl implements Runnable, StatementExecutor {
+	/**
+	 * 运行执行器的线程池。每个执行器在关闭前一直占用一个线程，因此不限制线程数，也不排队，空闲的线程60秒后回收。
+	 * 不能由调用线程执行：构造方法要等待新线程中的连接初始化完成
+	 */
+	private static final ExecutorService THREADS = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new ThreadFactory() {
+		private final AtomicInteger count = new AtomicInteger();
+
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "jef-jta-ddl-" + count.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		}
+	});
 
 	IConnection conn;
 	Statement st;
@@ -58,7 +77,7 @@ public class ExecutorJTAImpl implements Runnable, StatementExecutor {
 		this.txId = txId;
 		this.cl = new CountDownLatch(1); // 初始化检测器
 		this.profile = dialect;
-		DbUtils.es.execute(this);
+		THREADS.execute(this);
 		ThreadUtils.await(cl);// 等待连接在新线程中初始化完成后，构造方法才退出。
 		cl = null;
 		// 构造方法退出后，可以用isReady检测Executor是否处于可用状态
@@ -0,0 +1,158 @@
+package jef.database.wrapper.executor;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import jef.common.log.LogUtil;
+import jef.database.innerpool.IPool;
+import jef.database.support.LimitedExecutor;
+
+/**
+ * 按数据源隔离的执行器（舱壁）。<br>
+ * 并行访问多个库时，每个数据源的任务在各自的{@link LimitedExecutor}中排队，同时执行的任务数不超过该数据源连接池的最大连接数。
+ * 一个库变慢时只有该库的任务积压，不会占满线程而拖慢访问其他库的请求。
+ * 排队中的任务不占用线程。
+ * <p>
+ * 每个{@link jef.database.DbClient}持有自己的实例，见{@link jef.database.DbClient#getExecutorRegistry()}，
+ * 因此不同DbClient中同名的数据源互不影响，DbClient关闭后执行器随之释放。
+ */
+public final class ExecutorRegistry {
+	private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
+	/**
+	 * 默认数据源在表中的键
+	 */
+	private static final String DEFAULT_KEY = "";
+
+	private final ConcurrentMap<String, LimitedExecutor> executors = new ConcurrentHashMap<String, LimitedExecutor>();
+
+	private final Executor threads;
+
+	/**
+	 * 由本对象创建的线程池，关闭时需要一起关闭
+	 */
+	private final ThreadPoolExecutor ownedThreads;
+
+	private final int defaultLimit;
+
+	/**
+	 * 构造，使用自己的线程池
+	 *
+	 * @param maxThreads
+	 *            线程池的最大线程数。线程按需创建，空闲60秒后回收，超出的任务在线程池中排队
+	 * @param defaultLimit
+	 *            未注册的数据源同时执行的最大任务数，小于等于0时不限制
+	 */
+	public ExecutorRegistry(int maxThreads, int defaultLimit) {
+		final String prefix = "jef-db-task-" + POOL_COUNT.incrementAndGet() + "-";
+		int n = Math.max(1, maxThreads);
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(n, n, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, prefix + count.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		pool.allowCoreThreadTimeOut(true);
+		this.threads = pool;
+		this.ownedThreads = pool;
+		this.defaultLimit = defaultLimit;
+	}
+
+	/**
+	 * 构造，任务在指定的执行器中运行
+	 *
+	 * @param executor
+	 *            底层执行器，由调用者负责关闭
+	 * @param defaultLimit
+	 *            未注册的数据源同时执行的最大任务数，小于等于0时不限制
+	 */
+	public ExecutorRegistry(Executor executor, int defaultLimit) {
+		this.threads = executor;
+		this.ownedThreads = null;
+		this.defaultLimit = defaultLimit;
+	}
+
+	/**
+	 * 得到数据源的执行器
+	 *
+	 * @param datasource
+	 *            数据源名称，null表示默认数据源
+	 * @return
+	 */
+	public LimitedExecutor getExecutor(String datasource) {
+		String key = datasource == null ? DEFAULT_KEY : datasource;
+		LimitedExecutor e = executors.get(key);
+		if (e == null) {
+			e = new LimitedExecutor(threads, defaultLimit);
+			LimitedExecutor old = executors.putIfAbsent(key, e);
+			if (old != null) {
+				e = old;
+			}
+		}
+		return e;
+	}
+
+	/**
+	 * 按数据源的连接池大小设置执行器的并发数
+	 *
+	 * @param datasource
+	 *            数据源名称
+	 * @param ds
+	 *            数据源。如果是连接池，并发数取连接池的最大连接数
+	 * @param defaultMax
+	 *            数据源不是连接池时的并发数，即JEF内嵌连接池的最大连接数
+	 */
+	public void register(String datasource, DataSource ds, int defaultMax) {
+		int max = defaultMax;
+		if (ds instanceof IPool) {
+			max = ((IPool<?>) ds).getStatus().getMaxSize();
+		}
+		if (max > 0) {
+			getExecutor(datasource).setLimit(max);
+			LogUtil.debug("Max concurrent tasks of datasource [{}] is {}", datasource, max);
+		}
+	}
+
+	/**
+	 * 设置数据源的执行器同时执行的最大任务数
+	 *
+	 * @param datasource
+	 *            数据源名称
+	 * @param limit
+	 *            最大任务数，小于等于0时不限制
+	 */
+	public void setMaxConcurrency(String datasource, int limit) {
+		getExecutor(datasource).setLimit(limit);
+	}
+
+	/**
+	 * 得到所有数据源的执行器，可以从中获得各执行器的排队数、等待时间和运行时间
+	 *
+	 * @return 数据源名称和执行器。默认数据源的名称为空字符串
+	 */
+	public Map<String, LimitedExecutor> getExecutors() {
+		return Collections.unmodifiableMap(executors);
+	}
+
+	/**
+	 * 关闭。只关闭本对象创建的线程池，构造时传入的执行器不受影响
+	 */
+	public void close() {
+		if (ownedThreads != null) {
+			ownedThreads.shutdown();
+		}
+	}
+}
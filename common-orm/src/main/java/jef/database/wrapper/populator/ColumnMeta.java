@@ -37,9 +37,13 @@ public class ColumnMeta {
 	/**
 	 * 基于多个解析后的schema
 	 */
-	private Map<String, ColumnDescription[]> schemaIndex;
+	private volatile Map<String, ColumnDescription[]> schemaIndex;
 
 	private ResultSetMetaData meta;
+	/**
+	 * 根据本列描述生成的拼装器等，同一个实例被多个查询共用时可以直接复用
+	 */
+	private volatile Object plan;
 
 	/**
 	 * 构造
@@ -58,6 +62,16 @@ public class ColumnMeta {
 
 	}
 
+	/*
+	 * 供PopulatePlanCache使用，缓存的实例会被多个查询共用，因此不持有ResultSetMetaData
+	 */
+	ColumnMeta(ResultSetMetaData meta, boolean cached) {
+		init(meta);
+		if (!cached) {
+			this.meta = meta;
+		}
+	}
+
 	private void init(ResultSetMetaData meta) {
 		try {
 			ColumnDescription[] columns = new ColumnDescription[meta.getColumnCount()];
@@ -169,4 +183,35 @@ public class ColumnMeta {
 	public ResultSetMetaData getMeta() {
 		return meta;
 	}
+
+	/*
+	 * 结果集的列数、各列的类型和名称是否与本列描述一致
+	 */
+	boolean matches(ResultSetMetaData meta) throws SQLException {
+		int count = meta.getColumnCount();
+		if (count != columns.length) {
+			return false;
+		}
+		for (int i = 0; i < count; i++) {
+			ColumnDescription c = columns[i];
+			if (meta.getColumnType(i + 1) != c.getType() || !c.getName().equals(meta.getColumnLabel(i + 1))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 得到已经生成的拼装计划
+	 * 
+	 * @return 拼装计划，尚未生成时为null
+	 * @see PopulatePlanCache
+	 */
+	Object getPlan() {
+		return plan;
+	}
+
+	void setPlan(Object plan) {
+		this.plan = plan;
+	}
 }
@@ -0,0 +1,29 @@
+package jef.database.wrapper.populator;
+
+import java.sql.SQLException;
+
+import jef.database.dialect.type.ResultSetAccessor;
+import jef.database.jdbc.result.IResultSet;
+
+/**
+ * 由{@link PopulatorCompiler}针对某个类和某种列布局动态生成的拼装器的基类。
+ * <p>
+ * 生成的类直接用{@code rs.getString(n)}、{@code rs.getLong(n)}等方法取值并调用对象的setter方法，
+ * 不再经过{@link jef.tools.reflect.BeanWrapper}和按字段名的查找。生成的类没有状态，同一布局的查询共用一个实例。
+ *
+ * @see ObjectPopulator
+ */
+public abstract class CompiledPopulator {
+	/**
+	 * 从结果集的当前行中取值，设置到对象中
+	 *
+	 * @param bean
+	 *            对象，类型必须与生成时的类完全一致
+	 * @param rs
+	 *            结果集
+	 * @param accessors
+	 *            不能直接按类型取值的列所使用的{@link ResultSetAccessor}，顺序与生成时一致
+	 * @throws SQLException
+	 */
+	public abstract void populate(Object bean, IResultSet rs, ResultSetAccessor[] accessors) throws SQLException;
+}
@@ -1,6 +1,9 @@
 package jef.database.wrapper.populator;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 import javax.persistence.PersistenceException;
@@ -9,7 +12,9 @@ import jef.database.DataObject;
 import jef.database.DebugUtil;
 import jef.database.IQueryableEntity;
 import jef.database.LazyLoadProcessor;
+import jef.database.ORMConfig;
 import jef.database.dialect.type.ColumnMappings;
+import jef.database.dialect.type.ResultSetAccessor;
 import jef.database.innerpool.InstancePopulator;
 import jef.database.jdbc.result.IResultSet;
 import jef.database.meta.ITableMetadata;
@@ -20,12 +25,74 @@ public final class ObjectPopulator implements InstancePopulator {
 	Map<String, ColumnDescription> data;
 	int bindRowidForColumn;
 	LazyLoadProcessor processor;
+	/**
+	 * 生成的拼装器，为null时逐个字段设值
+	 */
+	private CompiledPopulator compiled;
+	private Class<?> compiledType;
+	private ResultSetAccessor[] accessors;
 
 	public ObjectPopulator(ITableMetadata meta, Map<String, ColumnDescription> data) {
 		this.meta = meta;
 		this.data = data;
 	}
 
+	/**
+	 * 为指定的类生成拼装器。生成后，拼装该类的对象时直接按类型从结果集取值并调用setter方法。
+	 * 本对象作为拼装计划被{@link PopulatePlanCache}缓存时，生成的拼装器随计划一起复用，相同的查询不再调用此方法。
+	 * 
+	 * @param beanClass
+	 *            对象的类型，必须是用{@link jef.accelerator.bean.FastBeanWrapperImpl}的默认访问器设值的类
+	 * @return 是否生成成功
+	 */
+	boolean compile(Class<?> beanClass) {
+		if (!ORMConfig.getInstance().isCompilePopulator() || data.isEmpty() || Map.class.isAssignableFrom(beanClass)) {
+			return false;
+		}
+		List<String> names = new ArrayList<String>(data.keySet());
+		Collections.sort(names);
+		List<ColumnDescription> columns = new ArrayList<ColumnDescription>(names.size());
+		ResultSetAccessor[] accessors = new ResultSetAccessor[names.size()];
+		for (int i = 0; i < accessors.length; i++) {
+			ColumnDescription c = data.get(names.get(i));
+			columns.add(c);
+			accessors[i] = c.getAccessor();
+		}
+		CompiledPopulator compiled = PopulatorCompiler.get(beanClass, names, columns);
+		if (compiled != null) {
+			this.accessors = accessors;
+			this.compiledType = beanClass;
+			this.compiled = compiled;
+		}
+		return compiled != null;
+	}
+
+	/**
+	 * 是否可以不经过BeanWrapper直接拼装指定类型的对象
+	 * 
+	 * @param beanClass
+	 * @return
+	 */
+	boolean isCompiledFor(Class<?> beanClass) {
+		return compiled != null && compiledType == beanClass;
+	}
+
+	/**
+	 * 用生成的拼装器拼装对象，只能在{@link #isCompiledFor(Class)}为true时使用。
+	 * 
+	 * @param bean
+	 * @param rs
+	 * @throws SQLException
+	 */
+	void process(Object bean, IResultSet rs) throws SQLException {
+		try {
+			compiled.populate(bean, rs, accessors);
+		} catch (SQLException e) {
+			throw new PersistenceException("Error occured while getting value from resultset. class=[" + compiledType.getName() + "], columns=" + data.keySet(), e);
+		}
+		afterProcess(bean, rs);
+	}
+
 	/**
 	 * @param wrapper
 	 * @param rs
@@ -64,6 +131,11 @@ public final class ObjectPopulator implements InstancePopulator {
 	}
 
 	public void process(BeanWrapper wrapper, IResultSet rs) throws SQLException {
+		Object bean = wrapper.getWrapped();
+		if (compiled != null && bean.getClass() == compiledType) {
+			process(bean, rs);
+			return;
+		}
 		for (Map.Entry<String, ColumnDescription> entry : data.entrySet()) {
 			String fieldName = entry.getKey();
 			ColumnDescription c = entry.getValue();
@@ -76,13 +148,16 @@ public final class ObjectPopulator implements InstancePopulator {
 				throw new PersistenceException("Error occured while getting value from resultset. field=[" + fieldName + "], column=[" + c.getName() + "]", e);
 			}
 		}
+		afterProcess(bean, rs);
+	}
+
+	private void afterProcess(Object bean, IResultSet rs) throws SQLException {
 		if (bindRowidForColumn > 0) {
 			String rowid = (String) ColumnMappings.ROWID.jdbcGet(rs, bindRowidForColumn);
-			((IQueryableEntity) wrapper.getWrapped()).bindRowid(rowid);
+			((IQueryableEntity) bean).bindRowid(rowid);
 		}
 		if (processor != null) {
-			DataObject da = (DataObject) wrapper.getWrapped();
-			DebugUtil.addLazy(da, processor);
+			DebugUtil.addLazy((DataObject) bean, processor);
 		}
 	}
 
@@ -0,0 +1,206 @@
+package jef.database.wrapper.populator;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jef.database.ORMConfig;
+import jef.database.Session.PopulateStrategy;
+import jef.database.dialect.DatabaseDialect;
+import jef.database.meta.ITableMetadata;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * 查询结果拼装计划缓存。
+ * <p>
+ * 每次查询都要根据ResultSetMetaData构造{@link ColumnMeta}，按结果类型计算每列的{@link jef.database.dialect.type.ResultSetAccessor}，
+ * 再生成拼装器。对于按主键加载等返回行数很少的查询，这部分开销往往比拼装本身还大。
+ * 此处按SQL语句、方言和结果类型(含拼装策略)缓存{@link ColumnMeta}，其中记录了各列的取值方式和已经生成的拼装器，相同的查询直接复用。
+ * <p>
+ * 复用前检查数据库返回的列数、各列类型和名称是否与缓存时相同，不同时(如表结构发生了变化)重新计算并替换缓存。
+ * 使用了自定义Mapper或排除列的查询不缓存。
+ * <p>
+ * 缓存大小由{@link jef.database.DbCfg#DB_POPULATE_PLAN_CACHE_SIZE}控制，为0时不缓存。
+ *
+ * @see ColumnMeta#getPlan()
+ */
+public final class PopulatePlanCache {
+	private static volatile PopulatePlanCache instance;
+
+	private final Cache<Key, ColumnMeta> cache;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong changes = new AtomicLong();
+
+	private PopulatePlanCache(int size) {
+		this.cache = size > 0 ? CacheBuilder.newBuilder().maximumSize(size).<Key, ColumnMeta> build() : null;
+	}
+
+	/**
+	 * 得到缓存实例，首次使用时按{@link ORMConfig#getPopulatePlanCacheSize()}创建
+	 *
+	 * @return 缓存实例
+	 */
+	public static PopulatePlanCache getInstance() {
+		PopulatePlanCache c = instance;
+		if (c == null) {
+			synchronized (PopulatePlanCache.class) {
+				c = instance;
+				if (c == null) {
+					instance = c = new PopulatePlanCache(ORMConfig.getInstance().getPopulatePlanCacheSize());
+				}
+			}
+		}
+		return c;
+	}
+
+	/**
+	 * 计算缓存键
+	 *
+	 * @param sql
+	 *            SQL语句
+	 * @param profile
+	 *            方言
+	 * @param transformer
+	 *            结果转换器
+	 * @param mapped
+	 *            是否按查询对象中的表拼装(即是否有{@link jef.database.query.EntityMappingProvider})
+	 * @return 缓存键。不能缓存时返回null
+	 */
+	public Key keyOf(String sql, DatabaseDialect profile, Transformer transformer, boolean mapped) {
+		if (cache == null || sql == null || transformer == null || transformer.getResultClazz() == null || !transformer.isBuiltinOnly()) {
+			return null;
+		}
+		return new Key(sql, profile, transformer, mapped, ORMConfig.getInstance().isCompilePopulator());
+	}
+
+	/**
+	 * 得到结果集的列描述。缓存中有相同布局的列描述时直接返回，否则新建
+	 *
+	 * @param key
+	 *            缓存键，为null时不使用缓存
+	 * @param meta
+	 *            结果集的元数据
+	 * @return 列描述。从缓存中得到的实例会被相同的查询共用，{@link ColumnMeta#getMeta()}为null
+	 * @throws SQLException
+	 */
+	public ColumnMeta getColumns(Key key, ResultSetMetaData meta) throws SQLException {
+		if (key == null || cache == null) {
+			return new ColumnMeta(meta);
+		}
+		ColumnMeta cached = cache.getIfPresent(key);
+		if (cached != null) {
+			if (cached.matches(meta)) {
+				hits.incrementAndGet();
+				return cached;
+			}
+			changes.incrementAndGet();
+		}
+		misses.incrementAndGet();
+		cached = new ColumnMeta(meta, true);
+		cache.put(key, cached);
+		return cached;
+	}
+
+	/**
+	 * 清空缓存
+	 */
+	public void clear() {
+		if (cache != null) {
+			cache.invalidateAll();
+		}
+	}
+
+	/**
+	 * 命中次数
+	 *
+	 * @return 命中次数
+	 */
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	/**
+	 * 未命中次数（含列布局变化的次数）
+	 *
+	 * @return 未命中次数
+	 */
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	/**
+	 * 缓存中的列布局与数据库返回的不一致，重新计算的次数
+	 *
+	 * @return 列布局变化的次数
+	 */
+	public long getChangedCount() {
+		return changes.get();
+	}
+
+	/**
+	 * 当前缓存的条目数
+	 *
+	 * @return 条目数
+	 */
+	public long size() {
+		return cache == null ? 0 : cache.size();
+	}
+
+	@Override
+	public String toString() {
+		if (cache == null) {
+			return "PopulatePlanCache disabled";
+		}
+		return "PopulatePlanCache size:" + cache.size() + " hit:" + hits.get() + " miss:" + misses.get() + " changed:" + changes.get();
+	}
+
+	/**
+	 * 缓存键
+	 */
+	public static final class Key {
+		private final String sql;
+		private final DatabaseDialect profile;
+		private final Class<?> type;
+		private final ITableMetadata meta;
+		private final int strategies;
+		private final boolean mapped;
+		private final boolean compile;
+		private final int hash;
+
+		Key(String sql, DatabaseDialect profile, Transformer transformer, boolean mapped, boolean compile) {
+			this.sql = sql;
+			this.profile = profile;
+			this.type = transformer.getResultClazz();
+			this.meta = transformer.getResultMeta();
+			int strategies = 0;
+			PopulateStrategy[] array = transformer.getStrategy();
+			if (array != null) {
+				for (PopulateStrategy s : array) {
+					strategies |= 1 << s.ordinal();
+				}
+			}
+			this.strategies = strategies;
+			this.mapped = mapped;
+			this.compile = compile;
+			this.hash = (sql.hashCode() * 31 + type.hashCode()) * 31 + strategies;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj instanceof Key) {
+				Key o = (Key) obj;
+				return type == o.type && meta == o.meta && profile == o.profile && strategies == o.strategies && mapped == o.mapped && compile == o.compile && sql.equals(o.sql);
+			}
+			return false;
+		}
+	}
+}
@@ -0,0 +1,390 @@
+package jef.database.wrapper.populator;
+
+import static jef.accelerator.asm.ASMUtils.getDesc;
+import static jef.accelerator.asm.ASMUtils.getMethodDesc;
+import static jef.accelerator.asm.ASMUtils.getType;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jef.accelerator.asm.ClassWriter;
+import jef.accelerator.asm.Label;
+import jef.accelerator.asm.MethodVisitor;
+import jef.accelerator.asm.Opcodes;
+import jef.common.log.LogUtil;
+import jef.database.wrapper.CompiledCache;
+import jef.database.dialect.type.AutoIntMapping;
+import jef.database.dialect.type.AutoLongMapping;
+import jef.database.dialect.type.CharStringMapping;
+import jef.database.dialect.type.ColumnMappings;
+import jef.database.dialect.type.NumBigDecimalMapping;
+import jef.database.dialect.type.NumBigIntMapping;
+import jef.database.dialect.type.NumBigLongMapping;
+import jef.database.dialect.type.NumDoubleDoubleMapping;
+import jef.database.dialect.type.NumFloatMapping;
+import jef.database.dialect.type.NumIntIntMapping;
+import jef.database.dialect.type.NumIntLongMapping;
+import jef.database.dialect.type.ResultSetAccessor;
+import jef.database.dialect.type.TimestampTsMapping;
+import jef.database.dialect.type.VarcharStringMapping;
+import jef.database.jdbc.result.IResultSet;
+import jef.tools.reflect.BeanUtils;
+import jef.tools.reflect.ClassEx;
+import jef.tools.reflect.FieldEx;
+import jef.tools.reflect.MethodEx;
+import jef.tools.reflect.UnsafeUtils;
+
+/**
+ * 用ASM为(类, 列布局)生成{@link CompiledPopulator}。
+ * <p>
+ * 列布局指每个字段对应的列序号和取值方式。取值方式和{@link ResultSetAccessor}的结果完全一致的常用类型(字符串、数值、BigDecimal、Timestamp)，
+ * 生成的代码直接调用{@link ResultSet}上对应类型的方法取值，原生类型不装箱；其余的列仍然调用ResultSetAccessor取值。<br>
+ * 生成的类按类和布局签名缓存在{@link CompiledCache}中，查找不加锁。不能生成时(字段没有可访问的setter、类加载器不可见等)返回null，此时仍按原来的方式逐个字段设值。
+ */
+final class PopulatorCompiler implements Opcodes {
+	private static final String ACCESSOR_TYPE = getType(ResultSetAccessor.class);
+	private static final String RS_TYPE = getType(ResultSet.class);
+
+	private static final CompiledCache<CompiledPopulator> CACHE = new CompiledCache<CompiledPopulator>();
+	private static final AtomicInteger SEQ = new AtomicInteger();
+
+	/**
+	 * 和ResultSetAccessor取值方式一致的ResultSet方法
+	 */
+	private static final Map<Class<?>, Getter> MAPPING_GETTERS = new IdentityHashMap<Class<?>, Getter>();
+	private static final Map<ResultSetAccessor, Getter> ACCESSOR_GETTERS = new IdentityHashMap<ResultSetAccessor, Getter>();
+	static {
+		Getter string = new Getter("getString", String.class, false);
+		Getter decimal = new Getter("getBigDecimal", BigDecimal.class, false);
+		Getter nullableInt = new Getter("getInt", Integer.TYPE, true);
+		Getter nullableLong = new Getter("getLong", Long.TYPE, true);
+		Getter nullableDouble = new Getter("getDouble", Double.TYPE, true);
+
+		MAPPING_GETTERS.put(VarcharStringMapping.class, string);
+		MAPPING_GETTERS.put(CharStringMapping.class, string);
+		MAPPING_GETTERS.put(NumBigDecimalMapping.class, decimal);
+		MAPPING_GETTERS.put(TimestampTsMapping.class, new Getter("getTimestamp", Timestamp.class, false));
+		MAPPING_GETTERS.put(NumIntIntMapping.class, nullableInt);
+		MAPPING_GETTERS.put(NumBigIntMapping.class, nullableInt);
+		MAPPING_GETTERS.put(AutoIntMapping.class, nullableInt);
+		MAPPING_GETTERS.put(NumIntLongMapping.class, nullableLong);
+		MAPPING_GETTERS.put(NumBigLongMapping.class, nullableLong);
+		MAPPING_GETTERS.put(AutoLongMapping.class, nullableLong);
+		MAPPING_GETTERS.put(NumDoubleDoubleMapping.class, nullableDouble);
+		MAPPING_GETTERS.put(NumFloatMapping.class, new Getter("getFloat", Float.TYPE, true));
+
+		ACCESSOR_GETTERS.put(ColumnMappings.STRING, string);
+		ACCESSOR_GETTERS.put(ColumnMappings.BIGDECIMAL, decimal);
+		ACCESSOR_GETTERS.put(ColumnMappings.INT, nullableInt);
+		ACCESSOR_GETTERS.put(ColumnMappings.LONG, nullableLong);
+		ACCESSOR_GETTERS.put(ColumnMappings.DOUBLE, nullableDouble);
+		ACCESSOR_GETTERS.put(ColumnMappings.I, new Getter("getInt", Integer.TYPE, false));
+		ACCESSOR_GETTERS.put(ColumnMappings.J, new Getter("getLong", Long.TYPE, false));
+		ACCESSOR_GETTERS.put(ColumnMappings.S, new Getter("getShort", Short.TYPE, false));
+		ACCESSOR_GETTERS.put(ColumnMappings.F, new Getter("getFloat", Float.TYPE, false));
+		ACCESSOR_GETTERS.put(ColumnMappings.D, new Getter("getDouble", Double.TYPE, false));
+		ACCESSOR_GETTERS.put(ColumnMappings.Z, new Getter("getBoolean", Boolean.TYPE, false));
+		ACCESSOR_GETTERS.put(ColumnMappings.B, new Getter("getByte", Byte.TYPE, false));
+	}
+
+	private PopulatorCompiler() {
+	}
+
+	/**
+	 * 得到拼装器
+	 *
+	 * @param beanClass
+	 *            对象类型
+	 * @param fieldNames
+	 *            字段名
+	 * @param columns
+	 *            字段对应的列，顺序和字段名一致，已经设置了ResultSetAccessor
+	 * @return 生成的拼装器，不能生成时返回null
+	 */
+	static CompiledPopulator get(Class<?> beanClass, List<String> fieldNames, List<ColumnDescription> columns) {
+		ClassLoader cl = beanClass.getClassLoader();
+		if (cl == null || beanClass.isInterface() || beanClass.isArray() || beanClass.getName().startsWith("java.")) {
+			return null;
+		}
+		Map<String, FieldEx> fields = null;
+		List<Column> layout = new ArrayList<Column>(fieldNames.size());
+		StringBuilder signature = new StringBuilder(fieldNames.size() * 16);
+		for (int i = 0; i < fieldNames.size(); i++) {
+			if (fields == null) {
+				fields = getFields(beanClass);
+			}
+			Column c = createColumn(beanClass, fields.get(fieldNames.get(i)), columns.get(i), i);
+			if (c == null) {
+				return null;
+			}
+			layout.add(c);
+			signature.append(fieldNames.get(i)).append(':').append(c.n).append(':');
+			if (c.getter == null) {
+				signature.append('*');
+			} else {
+				signature.append(c.getter.method).append(c.getter.nullable ? "?" : "");
+			}
+			signature.append(';');
+		}
+		return CACHE.get(beanClass, signature.toString(), () -> generate(beanClass, cl, layout));
+	}
+
+	private static Map<String, FieldEx> getFields(Class<?> beanClass) {
+		Map<String, FieldEx> result = new HashMap<String, FieldEx>();
+		for (FieldEx f : new ClassEx(beanClass).getFields()) {
+			if (!result.containsKey(f.getName())) {
+				result.put(f.getName(), f);
+			}
+		}
+		return result;
+	}
+
+	private static Column createColumn(Class<?> beanClass, FieldEx field, ColumnDescription desc, int index) {
+		if (field == null || desc.getAccessor() == null) {
+			return null;
+		}
+		MethodEx setterEx = BeanUtils.getSetter(field);
+		if (setterEx == null) {
+			return null;
+		}
+		Method setter = setterEx.getJavaMethod();
+		int mod = setter.getModifiers();
+		if (Modifier.isStatic(mod) || Modifier.isPrivate(mod)) {
+			return null;
+		}
+		if (!Modifier.isPublic(mod) && (setter.getDeclaringClass().getClassLoader() != beanClass.getClassLoader() || setter.getDeclaringClass().getPackage() != beanClass.getPackage())) {
+			return null;
+		}
+		Class<?> param = setter.getParameterTypes()[0];
+		ResultSetAccessor accessor = desc.getAccessor();
+		Getter getter = ACCESSOR_GETTERS.get(accessor);
+		if (getter == null) {
+			getter = MAPPING_GETTERS.get(accessor.getClass());
+		}
+		if (getter != null && !getter.applyFor(param)) {
+			getter = null;
+		}
+		return new Column(desc.getN(), index, setter, param, getter);
+	}
+
+	private static CompiledPopulator generate(Class<?> beanClass, ClassLoader cl, List<Column> layout) {
+		try {
+			// 生成的类引用了框架的类，对象的类加载器必须能看到同一个类
+			if (Class.forName(CompiledPopulator.class.getName(), false, cl) != CompiledPopulator.class) {
+				return null;
+			}
+			String name = beanClass.getName() + "$$Populator" + SEQ.incrementAndGet();
+			byte[] data = generateClass(beanClass, name, layout);
+			Class<?> clz = UnsafeUtils.defineClass(name, data, 0, data.length, cl);
+			return (CompiledPopulator) clz.newInstance();
+		} catch (Throwable e) {
+			LogUtil.warn("Can not generate populator for " + beanClass.getName() + ": " + e);
+			return null;
+		}
+	}
+
+	private static byte[] generateClass(Class<?> beanClass, String name, List<Column> layout) {
+		String type = name.replace('.', '/');
+		String beanType = getType(beanClass);
+		String superType = getType(CompiledPopulator.class);
+		ClassWriter cw = new ClassWriter(0);
+		cw.visit(V1_5, ACC_PUBLIC + ACC_SUPER + ACC_FINAL, type, null, superType, new String[] {});
+		{
+			MethodVisitor mw = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+			mw.visitVarInsn(ALOAD, 0);
+			mw.visitMethodInsn(INVOKESPECIAL, superType, "<init>", "()V");
+			mw.visitInsn(RETURN);
+			mw.visitMaxs(1, 1);
+			mw.visitEnd();
+		}
+		{
+			// L0 this, L1 bean, L2 rs, L3 accessors, L4 强转后的bean, L5-6 取得的值
+			MethodVisitor mw = cw.visitMethod(ACC_PUBLIC, "populate", getMethodDesc(Void.TYPE, Object.class, IResultSet.class, ResultSetAccessor[].class), null, new String[] { getType(java.sql.SQLException.class) });
+			mw.visitVarInsn(ALOAD, 1);
+			mw.visitTypeInsn(CHECKCAST, beanType);
+			mw.visitVarInsn(ASTORE, 4);
+			for (Column c : layout) {
+				if (c.getter == null) {
+					generateDelegate(mw, beanType, c);
+				} else if (c.getter.valueType.isPrimitive()) {
+					generatePrimitive(mw, beanType, c);
+				} else {
+					mw.visitVarInsn(ALOAD, 4);
+					generateGet(mw, c);
+					invokeSetter(mw, beanType, c.setter);
+				}
+			}
+			mw.visitInsn(RETURN);
+			mw.visitMaxs(6, 7);
+			mw.visitEnd();
+		}
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+
+	/*
+	 * 按类型取值，原生类型的值为null时，原生类型的字段不设置，包装类型的字段设为null。这和BeanAccessor设置null值的行为一致。
+	 */
+	private static void generatePrimitive(MethodVisitor mw, String beanType, Column c) {
+		Class<?> valueType = c.getter.valueType;
+		int load = valueType == Long.TYPE ? LLOAD : valueType == Double.TYPE ? DLOAD : valueType == Float.TYPE ? FLOAD : ILOAD;
+		int store = valueType == Long.TYPE ? LSTORE : valueType == Double.TYPE ? DSTORE : valueType == Float.TYPE ? FSTORE : ISTORE;
+		if (!c.getter.nullable) {
+			mw.visitVarInsn(ALOAD, 4);
+			generateGet(mw, c);
+			if (!c.param.isPrimitive()) {
+				doWrap(mw, valueType);
+			}
+			invokeSetter(mw, beanType, c.setter);
+			return;
+		}
+		generateGet(mw, c);
+		mw.visitVarInsn(store, 5);
+		if (c.param.isPrimitive()) {
+			Label skip = new Label();
+			generateWasNull(mw);
+			mw.visitJumpInsn(IFNE, skip);
+			mw.visitVarInsn(ALOAD, 4);
+			mw.visitVarInsn(load, 5);
+			invokeSetter(mw, beanType, c.setter);
+			mw.visitLabel(skip);
+		} else {
+			Label notNull = new Label();
+			Label set = new Label();
+			mw.visitVarInsn(ALOAD, 4);
+			generateWasNull(mw);
+			mw.visitJumpInsn(IFEQ, notNull);
+			mw.visitInsn(ACONST_NULL);
+			mw.visitJumpInsn(GOTO, set);
+			mw.visitLabel(notNull);
+			mw.visitVarInsn(load, 5);
+			doWrap(mw, valueType);
+			mw.visitLabel(set);
+			invokeSetter(mw, beanType, c.setter);
+		}
+	}
+
+	/*
+	 * 调用ResultSetAccessor取值，与ObjectPopulator逐个字段设值时相同
+	 */
+	private static void generateDelegate(MethodVisitor mw, String beanType, Column c) {
+		mw.visitVarInsn(ALOAD, 3);
+		push(mw, c.index);
+		mw.visitInsn(AALOAD);
+		mw.visitVarInsn(ALOAD, 2);
+		push(mw, c.n);
+		mw.visitMethodInsn(INVOKEINTERFACE, ACCESSOR_TYPE, "jdbcGet", getMethodDesc(Object.class, IResultSet.class, Integer.TYPE));
+		mw.visitVarInsn(ASTORE, 5);
+		if (c.param.isPrimitive()) {
+			Label skip = new Label();
+			Class<?> wrapped = BeanUtils.toWrapperClass(c.param);
+			mw.visitVarInsn(ALOAD, 5);
+			mw.visitJumpInsn(IFNULL, skip);
+			mw.visitVarInsn(ALOAD, 4);
+			mw.visitVarInsn(ALOAD, 5);
+			mw.visitTypeInsn(CHECKCAST, getType(wrapped));
+			mw.visitMethodInsn(INVOKEVIRTUAL, getType(wrapped), c.param.getName() + "Value", getMethodDesc(c.param));
+			invokeSetter(mw, beanType, c.setter);
+			mw.visitLabel(skip);
+		} else {
+			mw.visitVarInsn(ALOAD, 4);
+			mw.visitVarInsn(ALOAD, 5);
+			if (c.param != Object.class) {
+				mw.visitTypeInsn(CHECKCAST, getType(c.param));
+			}
+			invokeSetter(mw, beanType, c.setter);
+		}
+	}
+
+	private static void generateGet(MethodVisitor mw, Column c) {
+		mw.visitVarInsn(ALOAD, 2);
+		push(mw, c.n);
+		mw.visitMethodInsn(INVOKEINTERFACE, RS_TYPE, c.getter.method, getMethodDesc(c.getter.valueType, Integer.TYPE));
+	}
+
+	private static void generateWasNull(MethodVisitor mw) {
+		mw.visitVarInsn(ALOAD, 2);
+		mw.visitMethodInsn(INVOKEINTERFACE, RS_TYPE, "wasNull", "()Z");
+	}
+
+	private static void invokeSetter(MethodVisitor mw, String beanType, Method setter) {
+		// 以对象的类为owner调用，setter定义在不可访问的父类中时也能调用
+		mw.visitMethodInsn(INVOKEVIRTUAL, beanType, setter.getName(), getDesc(setter));
+		Class<?> r = setter.getReturnType();
+		if (r == Long.TYPE || r == Double.TYPE) {
+			mw.visitInsn(POP2);
+		} else if (r != Void.TYPE) {
+			mw.visitInsn(POP);
+		}
+	}
+
+	private static void doWrap(MethodVisitor mw, Class<?> primitive) {
+		Class<?> wrapped = BeanUtils.toWrapperClass(primitive);
+		mw.visitMethodInsn(INVOKESTATIC, getType(wrapped), "valueOf", getMethodDesc(wrapped, primitive));
+	}
+
+	private static void push(MethodVisitor mw, int value) {
+		if (value >= -1 && value <= 5) {
+			mw.visitInsn(ICONST_0 + value);
+		} else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+			mw.visitIntInsn(BIPUSH, value);
+		} else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+			mw.visitIntInsn(SIPUSH, value);
+		} else {
+			mw.visitLdcInsn(value);
+		}
+	}
+
+	/**
+	 * 生成时使用的一个字段的信息
+	 */
+	private static final class Column {
+		final int n;
+		final int index;
+		final Method setter;
+		final Class<?> param;
+		final Getter getter;
+
+		Column(int n, int index, Method setter, Class<?> param, Getter getter) {
+			this.n = n;
+			this.index = index;
+			this.setter = setter;
+			this.param = param;
+			this.getter = getter;
+		}
+	}
+
+	/**
+	 * ResultSet上按类型取值的方法
+	 */
+	private static final class Getter {
+		final String method;
+		final Class<?> valueType;
+		/**
+		 * 是否需要用wasNull()区分null值
+		 */
+		final boolean nullable;
+
+		Getter(String method, Class<?> valueType, boolean nullable) {
+			this.method = method;
+			this.valueType = valueType;
+			this.nullable = nullable;
+		}
+
+		boolean applyFor(Class<?> param) {
+			if (valueType.isPrimitive()) {
+				return param == valueType || param == BeanUtils.toWrapperClass(valueType);
+			}
+			return param.isAssignableFrom(valueType);
+		}
+	}
+}
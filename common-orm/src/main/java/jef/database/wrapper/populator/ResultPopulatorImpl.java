@@ -19,6 +19,7 @@ import java.lang.annotation.Annotation;
 import java.lang.reflect.Array;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -242,7 +243,14 @@ public class ResultPopulatorImpl implements ResultSetPopulator{
 			this.rs = rs;
 			hasNext = rs.next();
 			if (hasNext) {
-				this.accessor = initColumnAccessor(clz,rs.getColumns().getN(0));
+				ColumnMeta columns = rs.getColumns();
+				Object plan = columns.getPlan();
+				if (plan instanceof ResultSetAccessor) {
+					this.accessor = (ResultSetAccessor) plan;
+				} else {
+					this.accessor = initColumnAccessor(clz, columns.getN(0));
+					columns.setPlan(accessor);
+				}
 			}
 		}
 
@@ -284,6 +292,10 @@ public class ResultPopulatorImpl implements ResultSetPopulator{
 		private boolean skipAnnataion;
 		private ObjectPopulator populateMeta;
 		private List<Mapper<?>> extendPopulator;
+		/**
+		 * 可以不经过BeanWrapper直接拼装
+		 */
+		private boolean direct;
 		
 		@SuppressWarnings("all")
 		public PlainRsIterator(IResultSet rs, Transformer transformers) {
@@ -319,8 +331,17 @@ public class ResultPopulatorImpl implements ResultSetPopulator{
 
 		private ObjectPopulator initColumnAccessor(ColumnMeta columnMeta,Transformer transformers) {
 			extendPopulator=transformers.getMapper();
-			BeanAccessor ba = FastBeanWrapperImpl.getAccessorFor(clz);
-			return fillPlain(ba,skipAnnataion,columnMeta);
+			Object plan = columnMeta.getPlan();
+			ObjectPopulator op;
+			if (plan instanceof ObjectPopulator) {
+				op = (ObjectPopulator) plan;
+			} else {
+				BeanAccessor ba = FastBeanWrapperImpl.getAccessorFor(clz);
+				op = fillPlain(ba, skipAnnataion, columnMeta);
+				columnMeta.setPlan(op);
+			}
+			direct = extendPopulator.isEmpty() && op.isCompiledFor(clz);
+			return op;
 		}
 
 
@@ -334,10 +355,14 @@ public class ResultPopulatorImpl implements ResultSetPopulator{
 			IResultSet rs=this.rs;
 			try {
 				T retObj = (T) UnsafeUtils.newInstance(clz);
-				BeanWrapper wrapper = BeanWrapper.wrap(retObj);
-				populateMeta.process(wrapper, rs);
-				for(Mapper<?> m:extendPopulator){
-					m.process(wrapper, rs);
+				if (direct) {
+					populateMeta.process(retObj, rs);
+				} else {
+					BeanWrapper wrapper = BeanWrapper.wrap(retObj);
+					populateMeta.process(wrapper, rs);
+					for (Mapper<?> m : extendPopulator) {
+						m.process(wrapper, rs);
+					}
 				}
 				endPopulate(retObj);
 				return retObj;
@@ -486,6 +511,10 @@ public class ResultPopulatorImpl implements ResultSetPopulator{
 
 		private List<ObjectPopulator> directPopulator;
 		private List<IPopulator> extendPopulator;
+		/**
+		 * 全部拼装器都已生成时的对象类型，此时这一类型的对象不经过BeanWrapper直接拼装
+		 */
+		private Class<?> directType;
 
 		private AliasProvider defaultField;
 		private ColumnMeta columnNames;
@@ -535,6 +564,14 @@ public class ResultPopulatorImpl implements ResultSetPopulator{
 		}
 
 		private void initColumnAccessor(Transformer transformers) {
+			boolean noExtend = (subObjects == null || subObjects.length == 0) && transformers.getMapper().isEmpty();
+			Object plan = columnNames.getPlan();
+			if (noExtend && plan instanceof DirectPlan && ((DirectPlan) plan).matches(schemas, defaultField, meta)) {
+				DirectPlan p = (DirectPlan) plan;
+				directPopulator = p.populators;
+				directType = p.directType;
+				return;
+			}
 			boolean skipAnnataion = transformers.hasStrategy(PopulateStrategy.SKIP_COLUMN_ANNOTATION);
 			BeanAccessor ba = FastBeanWrapperImpl.getAccessorFor(retClz);
 			directPopulator = new ArrayList<ObjectPopulator>(schemas.length);
@@ -557,6 +594,18 @@ public class ResultPopulatorImpl implements ResultSetPopulator{
 					extendPopulator.addAll(transformers.getMapper());
 				}
 			}
+			if (extendPopulator == null && !directPopulator.isEmpty()) {
+				directType = meta.getContainerType();
+				for (ObjectPopulator op : directPopulator) {
+					if (!op.isCompiledFor(directType)) {
+						directType = null;
+						break;
+					}
+				}
+			}
+			if (noExtend) {
+				columnNames.setPlan(new DirectPlan(schemas, defaultField, meta, directPopulator, directType));
+			}
 		}
 
 		public boolean hasNext() {
@@ -578,6 +627,13 @@ public class ResultPopulatorImpl implements ResultSetPopulator{
 					IQueryableEntity e=meta.newInstance();
 					e.stopUpdate();
 					retObj=(T) e;
+					if (retObj.getClass() == directType) {
+						for (ObjectPopulator op : directPopulator) {
+							op.process(retObj, rs);
+						}
+						endPopulate(retObj);
+						return retObj;
+					}
 					wrapper = new FastBeanWrapperImpl(retObj,meta.getContainerAccessor());
 				}
 				for (ObjectPopulator op : directPopulator) {
@@ -656,6 +712,29 @@ public class ResultPopulatorImpl implements ResultSetPopulator{
 		}
 	}
 
+	/*
+	 * 标准模式下只拼装主对象时的拼装计划，列描述被多个查询共用时直接复用
+	 */
+	private static final class DirectPlan {
+		final String[] schemas;
+		final AliasProvider defaultField;
+		final ITableMetadata meta;
+		final List<ObjectPopulator> populators;
+		final Class<?> directType;
+
+		DirectPlan(String[] schemas, AliasProvider defaultField, ITableMetadata meta, List<ObjectPopulator> populators, Class<?> directType) {
+			this.schemas = schemas;
+			this.defaultField = defaultField;
+			this.meta = meta;
+			this.populators = populators;
+			this.directType = directType;
+		}
+
+		boolean matches(String[] schemas, AliasProvider defaultField, ITableMetadata meta) {
+			return this.meta == meta && this.defaultField == defaultField && Arrays.equals(this.schemas, schemas);
+		}
+	}
+
 	private static void endPopulate(Object retObj) {
 		if (retObj instanceof IQueryableEntity) {
 			((IQueryableEntity) retObj).startUpdate();
@@ -699,6 +778,9 @@ public class ResultPopulatorImpl implements ResultSetPopulator{
 			}
 		}
 		ObjectPopulator op = new ObjectPopulator(meta, data);
+		if (meta.getContainerAccessor() == FastBeanWrapperImpl.getAccessorFor(meta.getContainerType())) {
+			op.compile(meta.getContainerType());
+		}
 
 		if (schema == "" || schema.length() < 2) {
 			if (profile.has(Feature.SELECT_ROW_NUM)) {
@@ -736,6 +818,8 @@ public class ResultPopulatorImpl implements ResultSetPopulator{
 		if(matched.isEmpty()){
 			throw new PersistenceException("No column match any fields in result class ["+ba.getType().getName()+"]. Columns:"+ columnMeta.toString());
 		}
-		return new ObjectPopulator(null, matched);
+		ObjectPopulator op = new ObjectPopulator(null, matched);
+		op.compile(ba.getType());
+		return op;
 	}
 }
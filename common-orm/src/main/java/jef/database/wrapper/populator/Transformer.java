@@ -326,6 +326,14 @@ public class Transformer {
 		return ignoreColumns == null ? false : ignoreColumns.contains(column);
 	}
 
+	/*
+	 * 内部使用:是否只使用内建映射规则(没有自定义映射器和排除列)，此时拼装方式只由结果类型和策略决定
+	 */
+	boolean isBuiltinOnly() {
+		return !ignoreAll && (mapper == null || mapper.isEmpty()) && (ignoreColumns == null || ignoreColumns.isEmpty())
+				&& (ignoreSchemas == null || ignoreSchemas.isEmpty());
+	}
+
 	/*
 	 * 内部使用:当使用自定义查询需要返回多个结果类的时候，用这个方法来计算数组的长度。
 	 */
@@ -99,7 +99,24 @@ public final class BindVariableContext {
 	 * @throws SQLException
 	 */
 	public List<Object> setVariables(ConditionQuery da, List<Variable> writeFields, List<Variable> whereFiels) throws SQLException {
-		int count = 0;
+		return setVariables(da, writeFields, whereFiels, 0);
+	}
+
+	/**
+	 * 设置绑定变量值，从指定序号之后开始绑定。用于前面的参数已经由{@link CompiledBinder}绑定的场合
+	 * 
+	 * @param da
+	 *            查询对象
+	 * @param writeFields
+	 *            需要写入的字段，Insert或者update
+	 * @param whereFiels
+	 *            条件字段
+	 * @param count
+	 *            已经绑定的参数个数
+	 * @return 如果有where部分，返回where实际使用的参数
+	 * @throws SQLException
+	 */
+	public List<Object> setVariables(ConditionQuery da, List<Variable> writeFields, List<Variable> whereFiels, int count) throws SQLException {
 		// 更新值绑定
 		if (writeFields != null) {
 			for (Variable field : writeFields) {
@@ -0,0 +1,425 @@
+package jef.database.wrapper.variable;
+
+import static jef.accelerator.asm.ASMUtils.getDesc;
+import static jef.accelerator.asm.ASMUtils.getMethodDesc;
+import static jef.accelerator.asm.ASMUtils.getType;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jef.accelerator.asm.ClassWriter;
+import jef.accelerator.asm.Label;
+import jef.accelerator.asm.MethodVisitor;
+import jef.accelerator.asm.Opcodes;
+import jef.common.log.LogUtil;
+import jef.database.dialect.DatabaseDialect;
+import jef.database.dialect.type.AutoIntMapping;
+import jef.database.dialect.type.AutoLongMapping;
+import jef.database.dialect.type.BooleanBoolMapping;
+import jef.database.dialect.type.CharStringMapping;
+import jef.database.dialect.type.ColumnMapping;
+import jef.database.dialect.type.NumBigDecimalMapping;
+import jef.database.dialect.type.NumBigIntMapping;
+import jef.database.dialect.type.NumBigLongMapping;
+import jef.database.dialect.type.NumDoubleDoubleMapping;
+import jef.database.dialect.type.NumFloatMapping;
+import jef.database.dialect.type.NumIntIntMapping;
+import jef.database.dialect.type.NumIntLongMapping;
+import jef.database.dialect.type.TimestampDateMapping;
+import jef.database.dialect.type.TimestampTsMapping;
+import jef.database.dialect.type.VarcharStringMapping;
+import jef.database.wrapper.CompiledCache;
+import jef.tools.reflect.BeanUtils;
+import jef.tools.reflect.ClassEx;
+import jef.tools.reflect.FieldEx;
+import jef.tools.reflect.Property;
+import jef.tools.reflect.UnsafeUtils;
+
+/**
+ * 用ASM为(类, 字段布局)生成{@link CompiledBinder}，用于批量插入和更新时逐行绑定参数。
+ * <p>
+ * 生成的类和对象的类在同一个包中，字段可以从生成的类中访问(非private)时直接读取字段，否则按{@link ColumnMapping#getFieldAccessor()}取值。
+ * 生成的代码不调用getter。<br>
+ * 绑定方式和{@link ColumnMapping#jdbcSet}的结果完全一致的常用类型(字符串、数值、布尔、BigDecimal、Timestamp和映射为Timestamp的Date)，
+ * 取值后直接调用{@link PreparedStatement}上对应类型的方法绑定，直接读取的原生类型字段不装箱；
+ * 其余的字段，以及值为null时，仍然调用ColumnMapping的jdbcSet方法。<br>
+ * 生成的类按类和布局签名缓存在{@link CompiledCache}中，查找不加锁。不能生成时(类加载器不可见等)返回null，此时仍按原来的方式逐个字段绑定。
+ */
+public final class BinderCompiler implements Opcodes {
+	private static final String MAPPING_TYPE = getType(ColumnMapping.class);
+	private static final String PSMT_TYPE = getType(PreparedStatement.class);
+	private static final String NUMBER_TYPE = getType(Number.class);
+
+	private static final CompiledCache<CompiledBinder> CACHE = new CompiledCache<CompiledBinder>();
+	private static final AtomicInteger SEQ = new AtomicInteger();
+
+	/**
+	 * 和jdbcSet绑定方式一致的PreparedStatement方法
+	 */
+	private static final Map<Class<?>, Setter> MAPPING_SETTERS = new IdentityHashMap<Class<?>, Setter>();
+	static {
+		Setter string = new Setter("setString", String.class, true);
+		Setter setInt = new Setter("setInt", Integer.TYPE, false);
+		Setter setLong = new Setter("setLong", Long.TYPE, false);
+
+		MAPPING_SETTERS.put(VarcharStringMapping.class, string);
+		MAPPING_SETTERS.put(CharStringMapping.class, string);
+		MAPPING_SETTERS.put(NumIntIntMapping.class, setInt);
+		MAPPING_SETTERS.put(NumBigIntMapping.class, setInt);
+		MAPPING_SETTERS.put(AutoIntMapping.class, setInt);
+		MAPPING_SETTERS.put(NumIntLongMapping.class, setLong);
+		MAPPING_SETTERS.put(NumBigLongMapping.class, setLong);
+		MAPPING_SETTERS.put(AutoLongMapping.class, setLong);
+		MAPPING_SETTERS.put(NumDoubleDoubleMapping.class, new Setter("setDouble", Double.TYPE, false));
+		MAPPING_SETTERS.put(NumFloatMapping.class, new Setter("setFloat", Float.TYPE, false));
+		MAPPING_SETTERS.put(BooleanBoolMapping.class, new Setter("setBoolean", Boolean.TYPE, false));
+		MAPPING_SETTERS.put(NumBigDecimalMapping.class, new Setter("setBigDecimal", BigDecimal.class, false));
+		MAPPING_SETTERS.put(TimestampTsMapping.class, new Setter("setTimestamp", Timestamp.class, true));
+		MAPPING_SETTERS.put(TimestampDateMapping.class, new Setter("setTimestamp", Date.class, false));
+	}
+
+	private BinderCompiler() {
+	}
+
+	/**
+	 * 得到绑定器
+	 *
+	 * @param beanClass
+	 *            对象类型
+	 * @param columns
+	 *            要绑定的字段，按参数顺序
+	 * @return 生成的绑定器，不能生成时返回null
+	 */
+	public static CompiledBinder get(Class<?> beanClass, List<ColumnMapping> columns) {
+		ClassLoader cl = beanClass.getClassLoader();
+		if (cl == null || beanClass.isInterface() || beanClass.getName().startsWith("java.")) {
+			return null;
+		}
+		Column[] layout = new Column[columns.size()];
+		Map<String, FieldEx> fields = getFields(beanClass);
+		StringBuilder signature = new StringBuilder(columns.size() * 16);
+		for (int i = 0; i < layout.length; i++) {
+			Column c = createColumn(beanClass, fields, columns.get(i), i);
+			layout[i] = c;
+			signature.append(c.field == null ? "*" : c.field.getName()).append(':');
+			signature.append(c.setter == null ? "*" : c.setter.method).append(';');
+		}
+		return CACHE.get(beanClass, signature.toString(), () -> generate(beanClass, cl, layout));
+	}
+
+	private static Map<String, FieldEx> getFields(Class<?> beanClass) {
+		Map<String, FieldEx> result = new HashMap<String, FieldEx>();
+		for (FieldEx f : new ClassEx(beanClass).getFields()) {
+			if (!result.containsKey(f.getName())) {
+				result.put(f.getName(), f);
+			}
+		}
+		return result;
+	}
+
+	private static Column createColumn(Class<?> beanClass, Map<String, FieldEx> fields, ColumnMapping mapping, int index) {
+		Property accessor = mapping.getFieldAccessor();
+		Field field = getField(beanClass, fields.get(mapping.fieldName()), accessor);
+		Class<?> type = field == null ? (accessor == null ? null : accessor.getType()) : field.getType();
+		Setter setter = type == null ? null : MAPPING_SETTERS.get(mapping.getClass());
+		if (setter != null && !setter.applyFor(type)) {
+			setter = null;
+		}
+		return new Column(index, field, setter);
+	}
+
+	/*
+	 * 只使用和字段访问器类型一致、可以从生成的类中读取的字段，否则按字段访问器取值
+	 */
+	private static Field getField(Class<?> beanClass, FieldEx fieldEx, Property accessor) {
+		if (fieldEx == null || accessor == null) {
+			return null;
+		}
+		Field field = fieldEx.getJavaField();
+		int mod = field.getModifiers();
+		if (Modifier.isStatic(mod) || Modifier.isPrivate(mod) || field.getType() != accessor.getType()) {
+			return null;
+		}
+		Class<?> owner = field.getDeclaringClass();
+		if (!Modifier.isPublic(mod) || !Modifier.isPublic(owner.getModifiers())) {
+			if (owner.getClassLoader() != beanClass.getClassLoader() || owner.getPackage() != beanClass.getPackage()) {
+				return null;
+			}
+		}
+		return field;
+	}
+
+	private static CompiledBinder generate(Class<?> beanClass, ClassLoader cl, Column[] layout) {
+		try {
+			// 生成的类引用了框架的类，对象的类加载器必须能看到同一个类
+			if (Class.forName(CompiledBinder.class.getName(), false, cl) != CompiledBinder.class) {
+				return null;
+			}
+			String name = beanClass.getName() + "$$Binder" + SEQ.incrementAndGet();
+			byte[] data = generateClass(beanClass, name, layout);
+			Class<?> clz = UnsafeUtils.defineClass(name, data, 0, data.length, cl);
+			return (CompiledBinder) clz.newInstance();
+		} catch (Throwable e) {
+			LogUtil.warn("Can not generate binder for " + beanClass.getName() + ": " + e);
+			return null;
+		}
+	}
+
+	private static byte[] generateClass(Class<?> beanClass, String name, Column[] layout) {
+		String type = name.replace('.', '/');
+		String beanType = getType(beanClass);
+		String superType = getType(CompiledBinder.class);
+		ClassWriter cw = new ClassWriter(0);
+		cw.visit(V1_5, ACC_PUBLIC + ACC_SUPER + ACC_FINAL, type, null, superType, new String[] {});
+		{
+			MethodVisitor mw = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+			mw.visitVarInsn(ALOAD, 0);
+			mw.visitMethodInsn(INVOKESPECIAL, superType, "<init>", "()V");
+			mw.visitInsn(RETURN);
+			mw.visitMaxs(1, 1);
+			mw.visitEnd();
+		}
+		{
+			// L0 this, L1 bean, L2 st, L3 columns, L4 dialect, L5 强转后的bean, L6 取得的值
+			MethodVisitor mw = cw.visitMethod(ACC_PUBLIC, "bind", getMethodDesc(Void.TYPE, Object.class, PreparedStatement.class, ColumnMapping[].class, DatabaseDialect.class), null, new String[] { getType(java.sql.SQLException.class) });
+			mw.visitVarInsn(ALOAD, 1);
+			mw.visitTypeInsn(CHECKCAST, beanType);
+			mw.visitVarInsn(ASTORE, 5);
+			for (Column c : layout) {
+				if (c.setter == null) {
+					generateDelegate(mw, c);
+				} else if (c.field != null && c.field.getType().isPrimitive()) {
+					generatePrimitive(mw, c);
+				} else {
+					generateObject(mw, c);
+				}
+			}
+			mw.visitInsn(RETURN);
+			mw.visitMaxs(7, 7);
+			mw.visitEnd();
+		}
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+
+	/*
+	 * columns[i].jdbcSet(st, bean.xxx, i+1, dialect)，原生类型装箱
+	 */
+	private static void generateDelegate(MethodVisitor mw, Column c) {
+		loadMapping(mw, c);
+		mw.visitVarInsn(ALOAD, 2);
+		loadValue(mw, c);
+		if (c.field != null && c.field.getType().isPrimitive()) {
+			Class<?> r = c.field.getType();
+			Class<?> wrapped = BeanUtils.toWrapperClass(r);
+			mw.visitMethodInsn(INVOKESTATIC, getType(wrapped), "valueOf", getMethodDesc(wrapped, r));
+		}
+		invokeJdbcSet(mw, c);
+	}
+
+	/*
+	 * st.setXxx(i+1, bean.xxx)，原生类型之间按Number.xxxValue()的规则转换
+	 */
+	private static void generatePrimitive(MethodVisitor mw, Column c) {
+		mw.visitVarInsn(ALOAD, 2);
+		push(mw, c.index + 1);
+		loadValue(mw, c);
+		convert(mw, c.field.getType(), c.setter.valueType);
+		invokeSetter(mw, c.setter);
+	}
+
+	/*
+	 * 包装类型和对象先判断null，null值交给jdbcSet处理(setNull时使用的类型和原来一致)。
+	 * 按字段访问器取得的值先转换为绑定方法需要的类型
+	 */
+	private static void generateObject(MethodVisitor mw, Column c) {
+		Class<?> valueType = c.setter.valueType;
+		loadValue(mw, c);
+		if (c.field == null) {
+			Class<?> castType = valueType == Boolean.TYPE ? Boolean.class : valueType.isPrimitive() ? Number.class : valueType;
+			mw.visitTypeInsn(CHECKCAST, getType(castType));
+		}
+		mw.visitVarInsn(ASTORE, 6);
+		if (c.setter.acceptNull) {
+			mw.visitVarInsn(ALOAD, 2);
+			push(mw, c.index + 1);
+			mw.visitVarInsn(ALOAD, 6);
+			invokeSetter(mw, c.setter);
+			return;
+		}
+		Label notNull = new Label();
+		Label end = new Label();
+		mw.visitVarInsn(ALOAD, 6);
+		mw.visitJumpInsn(IFNONNULL, notNull);
+		loadMapping(mw, c);
+		mw.visitVarInsn(ALOAD, 2);
+		mw.visitInsn(ACONST_NULL);
+		invokeJdbcSet(mw, c);
+		mw.visitJumpInsn(GOTO, end);
+		mw.visitLabel(notNull);
+		mw.visitVarInsn(ALOAD, 2);
+		push(mw, c.index + 1);
+		if (valueType == Date.class) {
+			mw.visitVarInsn(ALOAD, 4);
+			mw.visitVarInsn(ALOAD, 6);
+			mw.visitMethodInsn(INVOKEINTERFACE, getType(DatabaseDialect.class), "toTimestampSqlParam", getMethodDesc(Timestamp.class, Date.class));
+			mw.visitMethodInsn(INVOKEINTERFACE, PSMT_TYPE, c.setter.method, getMethodDesc(Void.TYPE, Integer.TYPE, Timestamp.class));
+		} else if (valueType == Boolean.TYPE) {
+			mw.visitVarInsn(ALOAD, 6);
+			mw.visitMethodInsn(INVOKEVIRTUAL, getType(Boolean.class), "booleanValue", "()Z");
+			invokeSetter(mw, c.setter);
+		} else if (valueType.isPrimitive()) {
+			mw.visitVarInsn(ALOAD, 6);
+			mw.visitMethodInsn(INVOKEVIRTUAL, NUMBER_TYPE, valueType.getName() + "Value", getMethodDesc(valueType));
+			invokeSetter(mw, c.setter);
+		} else {
+			mw.visitVarInsn(ALOAD, 6);
+			invokeSetter(mw, c.setter);
+		}
+		mw.visitLabel(end);
+	}
+
+	private static void loadMapping(MethodVisitor mw, Column c) {
+		mw.visitVarInsn(ALOAD, 3);
+		push(mw, c.index);
+		mw.visitInsn(AALOAD);
+	}
+
+	/*
+	 * 栈上已有mapping, st, value，补上序号和方言后调用jdbcSet，丢弃返回值
+	 */
+	private static void invokeJdbcSet(MethodVisitor mw, Column c) {
+		push(mw, c.index + 1);
+		mw.visitVarInsn(ALOAD, 4);
+		mw.visitMethodInsn(INVOKEINTERFACE, MAPPING_TYPE, "jdbcSet", getMethodDesc(Object.class, PreparedStatement.class, Object.class, Integer.TYPE, DatabaseDialect.class));
+		mw.visitInsn(POP);
+	}
+
+	/*
+	 * 取得字段的值：可以访问的字段直接读取，否则调用columns[i].getFieldAccessor().get(bean)
+	 */
+	private static void loadValue(MethodVisitor mw, Column c) {
+		if (c.field != null) {
+			mw.visitVarInsn(ALOAD, 5);
+			mw.visitFieldInsn(GETFIELD, getType(c.field.getDeclaringClass()), c.field.getName(), getDesc(c.field.getType()));
+		} else {
+			loadMapping(mw, c);
+			mw.visitMethodInsn(INVOKEINTERFACE, MAPPING_TYPE, "getFieldAccessor", getMethodDesc(Property.class));
+			mw.visitVarInsn(ALOAD, 1);
+			mw.visitMethodInsn(INVOKEINTERFACE, getType(Property.class), "get", getMethodDesc(Object.class, Object.class));
+		}
+	}
+
+	private static void invokeSetter(MethodVisitor mw, Setter setter) {
+		mw.visitMethodInsn(INVOKEINTERFACE, PSMT_TYPE, setter.method, getMethodDesc(Void.TYPE, Integer.TYPE, setter.valueType));
+	}
+
+	/*
+	 * 原生数值类型之间的转换，byte、short、char按int处理
+	 */
+	private static void convert(MethodVisitor mw, Class<?> from, Class<?> to) {
+		char f = sort(from);
+		char t = sort(to);
+		if (f == t) {
+			return;
+		}
+		switch (f) {
+		case 'I':
+			mw.visitInsn(t == 'J' ? I2L : t == 'F' ? I2F : I2D);
+			break;
+		case 'J':
+			mw.visitInsn(t == 'I' ? L2I : t == 'F' ? L2F : L2D);
+			break;
+		case 'F':
+			mw.visitInsn(t == 'I' ? F2I : t == 'J' ? F2L : F2D);
+			break;
+		default:
+			mw.visitInsn(t == 'I' ? D2I : t == 'J' ? D2L : D2F);
+		}
+	}
+
+	private static char sort(Class<?> primitive) {
+		if (primitive == Long.TYPE) {
+			return 'J';
+		} else if (primitive == Float.TYPE) {
+			return 'F';
+		} else if (primitive == Double.TYPE) {
+			return 'D';
+		}
+		return 'I';
+	}
+
+	private static void push(MethodVisitor mw, int value) {
+		if (value >= -1 && value <= 5) {
+			mw.visitInsn(ICONST_0 + value);
+		} else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+			mw.visitIntInsn(BIPUSH, value);
+		} else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+			mw.visitIntInsn(SIPUSH, value);
+		} else {
+			mw.visitLdcInsn(value);
+		}
+	}
+
+	/**
+	 * 生成时使用的一个字段的信息
+	 */
+	private static final class Column {
+		final int index;
+		/**
+		 * 直接读取的字段，为null时按字段访问器取值
+		 */
+		final Field field;
+		final Setter setter;
+
+		Column(int index, Field field, Setter setter) {
+			this.index = index;
+			this.field = field;
+			this.setter = setter;
+		}
+	}
+
+	/**
+	 * PreparedStatement上按类型绑定的方法
+	 */
+	private static final class Setter {
+		final String method;
+		/**
+		 * 方法的参数类型。Date表示先用方言转换为Timestamp
+		 */
+		final Class<?> valueType;
+		/**
+		 * jdbcSet是否把null值直接传给此方法
+		 */
+		final boolean acceptNull;
+
+		Setter(String method, Class<?> valueType, boolean acceptNull) {
+			this.method = method;
+			this.valueType = valueType;
+			this.acceptNull = acceptNull;
+		}
+
+		boolean applyFor(Class<?> type) {
+			if (valueType == Boolean.TYPE) {
+				return type == Boolean.TYPE || type == Boolean.class;
+			}
+			if (valueType.isPrimitive()) {
+				// 原生数值类型，或可以调用Number.xxxValue()的包装类型
+				if (type.isPrimitive()) {
+					return type != Boolean.TYPE && type != Character.TYPE;
+				}
+				return Number.class.isAssignableFrom(type);
+			}
+			return valueType.isAssignableFrom(type);
+		}
+	}
+}
@@ -0,0 +1,32 @@
+package jef.database.wrapper.variable;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import jef.database.dialect.DatabaseDialect;
+import jef.database.dialect.type.ColumnMapping;
+
+/**
+ * 由{@link BinderCompiler}针对某个类和某种字段布局动态生成的参数绑定器的基类。
+ * <p>
+ * 生成的类直接调用对象的getter方法取值，再用{@code st.setLong(n)}、{@code st.setString(n)}等方法绑定，
+ * 原生类型不装箱，也不再经过{@link ColumnMapping#jdbcSet}和按字段的查找。生成的类没有状态，同一布局的批量操作共用一个实例。
+ *
+ * @see BindVariableContext#setInsertVariables
+ */
+public abstract class CompiledBinder {
+	/**
+	 * 从对象中取值，按顺序绑定到语句的第1~n个参数上
+	 *
+	 * @param bean
+	 *            对象，类型必须与生成时的类完全一致
+	 * @param st
+	 *            语句
+	 * @param columns
+	 *            字段，顺序与生成时一致。不能直接按类型绑定的字段，以及值为null的字段，调用其jdbcSet方法
+	 * @param dialect
+	 *            方言
+	 * @throws SQLException
+	 */
+	public abstract void bind(Object bean, PreparedStatement st, ColumnMapping[] columns, DatabaseDialect dialect) throws SQLException;
+}
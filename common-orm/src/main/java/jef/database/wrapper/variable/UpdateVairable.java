@@ -5,7 +5,9 @@ import java.util.Map;
 
 import javax.persistence.PersistenceException;
 
+import jef.database.DataObject;
 import jef.database.Field;
+import jef.database.IQueryableEntity;
 import jef.database.dialect.type.ColumnMapping;
 import jef.database.meta.ITableMetadata;
 import jef.database.query.ConditionQuery;
@@ -20,6 +22,10 @@ public class UpdateVairable extends Variable {
 		this.field = field;
 	}
 
+	public Field getField() {
+		return field;
+	}
+
 	@Override
 	String name() {
 		return null;
@@ -31,15 +37,17 @@ public class UpdateVairable extends Variable {
 		try {
 			ITableMetadata meta = query.getMeta();
 			ColumnMapping cType = meta.getColumnDef(field);
-			Map<Field, Object> updateMap = query.getInstance().getUpdateValueMap();
+			IQueryableEntity instance = query.getInstance();
+			// 通过setter修改的字段值仍在对象中，只需查找显式指定的更新值
+			Map<Field, Object> updateMap = instance instanceof DataObject ? ((DataObject) instance).getPreparedValues() : instance.getUpdateValueMap();
 			if (updateMap.containsKey(field)) {
 				Object value = updateMap.get(field);
 				return context.setValueInPsmt(index, value, cType);
 			} else {
-				Object bean = query.getInstance();
+				Object bean = instance;
 				Object value;
 				if (cType != null) {
-					value = cType.getFieldAccessor().get(query.getInstance());
+					value = cType.getFieldAccessor().get(instance);
 				} else {
 					// 虽然每次创建一个BeanWrapper很浪费，不过这个分支应该是非常少走到的，大部分场合会走上面分支。
 					BeanWrapper bw = BeanWrapper.wrap(bean, BeanWrapper.FAST);
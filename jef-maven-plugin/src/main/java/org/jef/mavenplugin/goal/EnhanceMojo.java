@@ -12,6 +12,8 @@ import org.apache.maven.plugin.MojoExecutionException;
 
 /**
  * Goal which touches a timestamp file.
+ * <p>
+ * 增强输出目录下的实体类，同时生成实体索引META-INF/jef-entities.idx，运行时扫描实体和检查增强时不必再逐个读取class文件。
  * 
  * @goal enhance
  * @phase process-classes
@@ -0,0 +1,71 @@
+package jef.database;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import jef.database.benchmark.BenchItem;
+import jef.database.benchmark.DatabaseState;
+import jef.database.cache.CacheImpl;
+import jef.database.cache.CacheKey;
+import jef.database.cache.KeyDimension;
+import jef.database.cache.SqlCacheKey;
+import jef.database.dialect.DatabaseDialect;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 缓存命中和未命中时的查找开销。缓存中预先放入{@link DatabaseState#ROWS}个按主键查询的结果。
+ * <p>
+ * CacheImpl依赖的SQL处理器只能在jef.database包内创建，因此本类放在该包下。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class CacheBenchmark {
+	private CacheImpl cache;
+	private KeyDimension dimension;
+
+	@Setup(Level.Trial)
+	public void setup(DatabaseState state) {
+		DatabaseDialect profile = state.db.getProfile();
+		cache = new CacheImpl(new SqlProcessor.PrepareImpl(profile, state.db), SelectProcessor.get(profile, state.db), 0, "bench");
+		dimension = KeyDimension.forSingleTable("BENCH_ITEM", " where ID=?", null, profile);
+		List<BenchItem> items = DatabaseState.createItems(0, DatabaseState.ROWS);
+		for (BenchItem item : items) {
+			cache.onLoad(key(item.getId()), Collections.singletonList(item), BenchItem.class);
+		}
+	}
+
+	@Benchmark
+	public List<?> hit() {
+		return cache.load(key(ThreadLocalRandom.current().nextInt(DatabaseState.ROWS)));
+	}
+
+	@Benchmark
+	public List<?> miss() {
+		return cache.load(key(DatabaseState.ROWS + ThreadLocalRandom.current().nextInt(DatabaseState.ROWS)));
+	}
+
+	private CacheKey key(int id) {
+		return new SqlCacheKey(dimension, new ArrayList<Object>(Arrays.asList(id)));
+	}
+}
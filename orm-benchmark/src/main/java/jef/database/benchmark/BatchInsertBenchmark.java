@@ -0,0 +1,50 @@
+package jef.database.benchmark;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import jef.database.Batch;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 不同批大小下的批量插入。结果为每批的耗时，每个迭代开始前清空表。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchInsertBenchmark {
+	@Param({ "10", "100", "1000" })
+	public int batchSize;
+
+	private int nextId;
+
+	@Setup(Level.Iteration)
+	public void clear(DatabaseState state) throws SQLException {
+		state.db.truncate(BenchItem.class);
+		nextId = 0;
+	}
+
+	@Benchmark
+	public int insert(DatabaseState state) throws SQLException {
+		List<BenchItem> items = DatabaseState.createItems(nextId, batchSize);
+		nextId += batchSize;
+		Batch<BenchItem> batch = state.db.startBatchInsert(items.get(0), false);
+		return batch.execute(items);
+	}
+}
@@ -0,0 +1,57 @@
+package jef.database.benchmark;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import jef.accelerator.bean.BeanAccessor;
+import jef.accelerator.bean.FastBeanWrapperImpl;
+import jef.tools.reflect.BeanWrapperImpl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 属性读写：ASM生成的{@link BeanAccessor}和基于反射的{@link BeanWrapperImpl}。
+ * 每次调用写入并读出全部4个属性。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BeanAccessorBenchmark {
+	private static final String[] PROPERTIES = { "id", "name", "price", "created" };
+
+	private final BeanAccessor accessor = FastBeanWrapperImpl.getAccessorFor(BenchBean.class);
+	private final BenchBean bean = new BenchBean();
+	private final Object[] values = { 1, "name", 1.5d, new Date() };
+
+	@Benchmark
+	public Object asmAccessor() {
+		Object last = null;
+		for (int i = 0; i < PROPERTIES.length; i++) {
+			accessor.setProperty(bean, PROPERTIES[i], values[i]);
+			last = accessor.getProperty(bean, PROPERTIES[i]);
+		}
+		return last;
+	}
+
+	@Benchmark
+	public Object reflection() {
+		BeanWrapperImpl wrapper = new BeanWrapperImpl(bean);
+		Object last = null;
+		for (int i = 0; i < PROPERTIES.length; i++) {
+			wrapper.setPropertyValue(PROPERTIES[i], values[i]);
+			last = wrapper.getPropertyValue(PROPERTIES[i]);
+		}
+		return last;
+	}
+}
@@ -0,0 +1,45 @@
+package jef.database.benchmark;
+
+import java.util.Date;
+
+/**
+ * 普通的JavaBean，用于属性访问和结果集拼装(PLAIN模式)的基准测试
+ */
+public class BenchBean {
+	private int id;
+	private String name;
+	private double price;
+	private Date created;
+
+	public int getId() {
+		return id;
+	}
+
+	public void setId(int id) {
+		this.id = id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public double getPrice() {
+		return price;
+	}
+
+	public void setPrice(double price) {
+		this.price = price;
+	}
+
+	public Date getCreated() {
+		return created;
+	}
+
+	public void setCreated(Date created) {
+		this.created = created;
+	}
+}
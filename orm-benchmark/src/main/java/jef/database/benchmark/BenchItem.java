@@ -0,0 +1,63 @@
+package jef.database.benchmark;
+
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * 基准测试用的实体
+ */
+@Entity
+@Table(name = "bench_item")
+public class BenchItem extends jef.database.DataObject {
+	private static final long serialVersionUID = 1L;
+
+	@Id
+	private int id;
+
+	@Column(length = 64)
+	private String name;
+
+	private double price;
+
+	private Date created;
+
+	public int getId() {
+		return id;
+	}
+
+	public void setId(int id) {
+		this.id = id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public double getPrice() {
+		return price;
+	}
+
+	public void setPrice(double price) {
+		this.price = price;
+	}
+
+	public Date getCreated() {
+		return created;
+	}
+
+	public void setCreated(Date created) {
+		this.created = created;
+	}
+
+	public enum Field implements jef.database.Field {
+		id, name, price, created
+	}
+}
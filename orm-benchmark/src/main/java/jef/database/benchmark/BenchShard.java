@@ -0,0 +1,56 @@
+package jef.database.benchmark;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import jef.database.annotation.PartitionKey;
+import jef.database.annotation.PartitionTable;
+import jef.database.routing.function.KeyFunction;
+
+/**
+ * 按字段取模分表的实体，用于路由计算的基准测试
+ */
+@PartitionTable(key = { @PartitionKey(field = "shardKey", function = KeyFunction.MODULUS, functionConstructorParams = { "4" }) })
+@Entity
+@Table(name = "bench_shard")
+public class BenchShard extends jef.database.DataObject {
+	private static final long serialVersionUID = 1L;
+
+	@Id
+	private int id;
+
+	@Column(name = "SHARD_KEY")
+	private int shardKey;
+
+	private String name;
+
+	public int getId() {
+		return id;
+	}
+
+	public void setId(int id) {
+		this.id = id;
+	}
+
+	public int getShardKey() {
+		return shardKey;
+	}
+
+	public void setShardKey(int shardKey) {
+		this.shardKey = shardKey;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public enum Field implements jef.database.Field {
+		id, shardKey, name
+	}
+}
@@ -0,0 +1,26 @@
+package jef.database.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 运行全部基准测试，并开启GC分析器输出内存分配速率(gc.alloc.rate.norm即每次操作分配的字节数)。
+ * <p>
+ * 支持JMH的命令行参数，例如只运行Session相关的测试:
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar SessionBenchmark -p database=h2
+ * </pre>
+ */
+public class BenchmarkMain {
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		Options cmd = new CommandLineOptions(args);
+		Options opt = new OptionsBuilder().parent(cmd).addProfiler(GCProfiler.class).build();
+		new Runner(opt).run();
+	}
+}
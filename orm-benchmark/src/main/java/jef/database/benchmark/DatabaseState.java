@@ -0,0 +1,76 @@
+package jef.database.benchmark;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import jef.database.DbClient;
+import jef.database.DbClientBuilder;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * 内嵌数据库和预置数据。每轮测试(Trial)建一个新的内存库，写入{@link #ROWS}条记录。
+ */
+@State(Scope.Benchmark)
+public class DatabaseState {
+	public static final int ROWS = 1000;
+
+	@Param({ "h2", "derby" })
+	public String database;
+
+	public DbClient db;
+
+	/**
+	 * JDBC地址，每轮测试都是新的内存库
+	 */
+	public String url;
+
+	public String user;
+
+	private static int seq;
+
+	@Setup(Level.Trial)
+	public void setup() throws SQLException {
+		String name = "bench" + (++seq);
+		if ("derby".equals(database)) {
+			url = "jdbc:derby:memory:" + name + ";create=true";
+			user = "bench";
+		} else {
+			url = "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1";
+			user = "sa";
+		}
+		db = new DbClientBuilder().setDataSource(url, user, "").build();
+		db.dropTable(BenchItem.class);
+		db.createTable(BenchItem.class);
+		db.batchInsert(createItems(0, ROWS));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		db.close();
+	}
+
+	/**
+	 * 构造一组测试数据
+	 */
+	public static List<BenchItem> createItems(int start, int count) {
+		List<BenchItem> list = new ArrayList<BenchItem>(count);
+		Date now = new Date();
+		for (int i = start; i < start + count; i++) {
+			BenchItem item = new BenchItem();
+			item.setId(i);
+			item.setName("item-" + i);
+			item.setPrice(i * 1.5);
+			item.setCreated(now);
+			list.add(item);
+		}
+		return list;
+	}
+}
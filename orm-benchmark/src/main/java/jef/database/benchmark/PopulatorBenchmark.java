@@ -0,0 +1,102 @@
+package jef.database.benchmark;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import jef.database.QB;
+import jef.database.dialect.DatabaseDialect;
+import jef.database.jdbc.result.ResultSetImpl;
+import jef.database.query.SqlContext;
+import jef.database.wrapper.populator.ResultPopulatorImpl;
+import jef.database.wrapper.populator.Transformer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * 结果集拼装：PLAIN(按列名拼装普通Bean)、NORMAL(拼装实体)、MULTIPLE(每行拼装为对象数组)三种迭代器。
+ * 每次调用遍历全部{@link DatabaseState#ROWS}行。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PopulatorBenchmark {
+	private static final String SQL = "select ID, NAME, PRICE, CREATED from BENCH_ITEM";
+
+	private Connection conn;
+	private PreparedStatement st;
+	private DatabaseDialect profile;
+
+	private final Transformer plain = new Transformer(BenchBean.class);
+	private final Transformer normal = new Transformer(BenchItem.class);
+	private final Transformer multiple = new Transformer(Object[].class);
+	private SqlContext context;
+
+	@Setup(Level.Trial)
+	public void setup(DatabaseState state) throws SQLException {
+		conn = DriverManager.getConnection(state.url, state.user, "");
+		st = conn.prepareStatement(SQL);
+		profile = state.db.getProfile();
+		context = new SqlContext("t", QB.create(BenchItem.class));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws SQLException {
+		st.close();
+		conn.close();
+	}
+
+	@Benchmark
+	public void iteratePlain(Blackhole bh) throws SQLException {
+		ResultSetImpl rs = new ResultSetImpl(st.executeQuery(), profile);
+		try {
+			consume(ResultPopulatorImpl.instance.iteratorPlain(rs, plain), bh);
+		} finally {
+			rs.close();
+		}
+	}
+
+	@Benchmark
+	public void iterateNormal(DatabaseState state, Blackhole bh) throws SQLException {
+		ResultSetImpl rs = new ResultSetImpl(st.executeQuery(), profile);
+		try {
+			consume(ResultPopulatorImpl.instance.iteratorNormal(state.db, rs, context, normal), bh);
+		} finally {
+			rs.close();
+		}
+	}
+
+	@Benchmark
+	public void iterateMultiple(Blackhole bh) throws SQLException {
+		ResultSetImpl rs = new ResultSetImpl(st.executeQuery(), profile);
+		try {
+			consume(ResultPopulatorImpl.instance.iteratorMultipie(rs, context, multiple), bh);
+		} finally {
+			rs.close();
+		}
+	}
+
+	private static void consume(Iterator<?> iter, Blackhole bh) {
+		while (iter.hasNext()) {
+			bh.consume(iter.next());
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package jef.database.benchmark;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import jef.database.dialect.DatabaseDialect;
+import jef.database.dialect.H2Dialect;
+import jef.database.innerpool.PartitionSupport;
+import jef.database.jsqlparser.SqlParseCache;
+import jef.database.jsqlparser.parser.ParseException;
+import jef.database.jsqlparser.visitor.Statement;
+import jef.database.meta.ITableMetadata;
+import jef.database.meta.MetaHolder;
+import jef.database.routing.PartitionResult;
+import jef.database.routing.sql.RoutingTemplate;
+import jef.database.routing.sql.SqlAnalyzer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 分库分表路由计算：逐次分析语法树({@link SqlAnalyzer})和预编译的路由模板({@link RoutingTemplate})。
+ * 不访问数据库，只计算路由结果。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoutingBenchmark {
+	@Param({ "select * from bench_shard where shard_key = ? and name like ?", "update bench_shard set name = ? where shard_key in (?, ?) and id > ?" })
+	public String sql;
+
+	private Statement st;
+	private RoutingTemplate template;
+	private int paramCount;
+
+	private final DatabaseDialect profile = new H2Dialect();
+
+	private final PartitionSupport support = new PartitionSupport() {
+		public Collection<String> getSubTableNames(String dbName, ITableMetadata pTable) throws SQLException {
+			return new ArrayList<String>();
+		}
+
+		public Collection<String> getDdcNames() {
+			return Arrays.asList("db1");
+		}
+
+		public DatabaseDialect getProfile(String dbkey) {
+			return profile;
+		}
+
+		public void ensureTableExists(String db, String table, ITableMetadata meta) {
+		}
+
+		public PartitionResult[] getSubTableNames(ITableMetadata meta) {
+			return new PartitionResult[] { new PartitionResult(meta.getTableName(true)) };
+		}
+
+		public boolean isExist(String dbName, String table, ITableMetadata meta) {
+			return true;
+		}
+	};
+
+	@Setup(Level.Trial)
+	public void setup() throws ParseException {
+		// 注册分表实体，按表名查找元数据
+		MetaHolder.getMeta(BenchShard.class);
+		st = SqlParseCache.getInstance().parse(SqlParseCache.Kind.NATIVE_STATEMENT, sql);
+		template = RoutingTemplate.get(sql, profile, st);
+		paramCount = sql.length() - sql.replace("?", "").length();
+	}
+
+	@Benchmark
+	public PartitionResult[] analyze() {
+		return SqlAnalyzer.getPartitionResultOfSQL(st, params(), support);
+	}
+
+	@Benchmark
+	public PartitionResult[] precompiled() {
+		return template.route(params(), support);
+	}
+
+	private List<Object> params() {
+		List<Object> values = new ArrayList<Object>(paramCount);
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		for (int i = 0; i < paramCount; i++) {
+			values.add(random.nextInt(1000));
+		}
+		return values;
+	}
+}
@@ -0,0 +1,43 @@
+package jef.database.benchmark;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import jef.database.QB;
+import jef.database.query.Query;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Session的按主键加载和条件查询
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SessionBenchmark {
+
+	@Benchmark
+	public BenchItem loadByPrimaryKey(DatabaseState state) throws SQLException {
+		int id = ThreadLocalRandom.current().nextInt(DatabaseState.ROWS);
+		return state.db.load(BenchItem.class, id);
+	}
+
+	@Benchmark
+	public List<BenchItem> selectByCondition(DatabaseState state) throws SQLException {
+		int from = ThreadLocalRandom.current().nextInt(DatabaseState.ROWS - 20);
+		Query<BenchItem> q = QB.create(BenchItem.class);
+		q.addCondition(QB.between(BenchItem.Field.id, from, from + 19));
+		q.orderByAsc(BenchItem.Field.id);
+		return state.db.select(q);
+	}
+}
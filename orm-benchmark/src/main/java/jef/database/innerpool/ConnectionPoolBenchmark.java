@@ -0,0 +1,99 @@
+package jef.database.innerpool;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import jef.database.DbUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * 连接池获取/归还连接的吞吐量对比：原先基于阻塞队列的连接池、高并发连接池和HikariCP。
+ * <p>
+ * 使用内存数据库，只测量连接池本身的开销。默认400个线程争用20个连接，可以用-t参数修改线程数。
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar ConnectionPoolBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(400)
+public class ConnectionPoolBenchmark {
+	private static final int POOL_SIZE = 20;
+
+	@Param({ "concurrent", "single", "hikari" })
+	public String pool;
+
+	@Param({ "0", "1" })
+	public int work;
+
+	private DataSource ds;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		String url = "jdbc:h2:mem:poolbench;DB_CLOSE_DELAY=-1";
+		if ("hikari".equals(pool)) {
+			HikariConfig config = new HikariConfig();
+			config.setJdbcUrl(url);
+			config.setUsername("sa");
+			config.setPassword("");
+			config.setMinimumIdle(POOL_SIZE);
+			config.setMaximumPoolSize(POOL_SIZE);
+			config.setConnectionTimeout(30000);
+			ds = new HikariDataSource(config);
+		} else if ("single".equals(pool)) {
+			ds = new SingleManagedConnectionPool(DbUtils.createSimpleDataSource(url, "sa", ""), POOL_SIZE, POOL_SIZE);
+		} else {
+			ds = new ConcurrentManagedConnectionPool(DbUtils.createSimpleDataSource(url, "sa", ""), POOL_SIZE, POOL_SIZE, 30000, false);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws SQLException {
+		if (ds instanceof HikariDataSource) {
+			((HikariDataSource) ds).close();
+		} else {
+			((IPool<?>) ds).close();
+		}
+	}
+
+	/**
+	 * 获取连接，模拟少量工作后归还
+	 */
+	@Benchmark
+	public boolean borrowAndReturn() throws SQLException {
+		Connection conn = ds.getConnection();
+		try {
+			if (work > 0) {
+				return conn.getAutoCommit();
+			}
+			return true;
+		} finally {
+			conn.close();
+		}
+	}
+}
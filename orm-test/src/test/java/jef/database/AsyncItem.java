@@ -0,0 +1,58 @@
+package jef.database;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * 异步操作测试用的实体
+ */
+@Entity
+@Table(name = "async_item")
+public class AsyncItem extends jef.database.DataObject {
+	private static final long serialVersionUID = 1L;
+
+	@Id
+	private int id;
+
+	private String name;
+
+	private int kind;
+
+	public AsyncItem() {
+	}
+
+	public AsyncItem(int id, String name, int kind) {
+		setId(id);
+		setName(name);
+		setKind(kind);
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public void setId(int id) {
+		this.id = id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public int getKind() {
+		return kind;
+	}
+
+	public void setKind(int kind) {
+		this.kind = kind;
+	}
+
+	public enum Field implements jef.database.Field {
+		id, name, kind
+	}
+}
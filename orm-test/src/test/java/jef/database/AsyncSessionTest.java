@@ -0,0 +1,145 @@
+package jef.database;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jef.codegen.EntityEnhancer;
+import jef.database.query.Query;
+import jef.database.support.LimitedExecutor;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * 异步操作
+ */
+public class AsyncSessionTest {
+	private static ExecutorService executor = Executors.newFixedThreadPool(8);
+	private static DbClient db;
+
+	@BeforeClass
+	public static void setup() throws SQLException {
+		new EntityEnhancer().enhanceClass("jef.database.AsyncItem");
+		db = new DbClientBuilder().setDataSource("jdbc:hsqldb:mem:async", "SA", "").setAsyncExecutor(executor).build();
+		db.createTable(AsyncItem.class);
+	}
+
+	@AfterClass
+	public static void close() throws SQLException {
+		db.dropTable(AsyncItem.class);
+		db.shutdown();
+		executor.shutdown();
+	}
+
+	@Test
+	public void testOperations() throws Exception {
+		AsyncSession async = db.async();
+		async.insert(new AsyncItem(1, "a", 1)).get();
+		async.batchInsert(Arrays.asList(new AsyncItem(2, "b", 1), new AsyncItem(3, "c", 2))).get();
+
+		Query<AsyncItem> q = QB.create(AsyncItem.class);
+		q.addCondition(AsyncItem.Field.kind, 1);
+		CompletableFuture<List<AsyncItem>> byKind = async.select(q);
+		CompletableFuture<AsyncItem> one = async.load(AsyncItem.class, 3);
+		CompletableFuture<List<AsyncItem>> some = async.batchLoad(AsyncItem.class, Arrays.asList(1, 3));
+		CompletableFuture<List<Integer>> ids = async.getResultList(db.createNativeQuery("select id from async_item order by id", Integer.class));
+		CompletableFuture.allOf(byKind, one, some, ids).join();
+		Assert.assertEquals(2, byKind.get().size());
+		Assert.assertEquals("c", one.get().getName());
+		Assert.assertEquals(2, some.get().size());
+		Assert.assertEquals(Arrays.asList(1, 2, 3), ids.get());
+
+		AsyncItem item = new AsyncItem();
+		item.setId(2);
+		item.setName("bb");
+		Assert.assertEquals(Integer.valueOf(1), async.update(item).get());
+		Assert.assertEquals("bb", db.load(AsyncItem.class, 2).getName());
+		Assert.assertEquals(Integer.valueOf(3), async.executeUpdate(db.createNativeQuery("update async_item set kind=0")).get());
+	}
+
+	/**
+	 * 操作异常通过CompletableFuture返回
+	 */
+	@Test
+	public void testException() throws InterruptedException {
+		try {
+			db.async().getResultList(db.createNativeQuery("select * from no_such_table", Integer.class)).get();
+			Assert.fail();
+		} catch (ExecutionException e) {
+			Assert.assertNotNull(e.getCause());
+		}
+	}
+
+	/**
+	 * 未指定执行器时使用DbClient自己的线程池，操作数超过线程数时排队，不会由调用线程执行
+	 */
+	@Test(timeout = 20000)
+	public void testDefaultExecutor() throws Exception {
+		DbClient client = new DbClientBuilder().setDataSource("jdbc:hsqldb:mem:asyncdefault", "SA", "").build();
+		try {
+			final Thread caller = Thread.currentThread();
+			final CountDownLatch release = new CountDownLatch(1);
+			List<CompletableFuture<Boolean>> futures = new ArrayList<CompletableFuture<Boolean>>();
+			for (int i = 0; i < 500; i++) {
+				futures.add(client.async().submit(null, () -> {
+					release.await();
+					return Thread.currentThread() != caller;
+				}));
+			}
+			// 调用线程执行了任何一个操作都会在上面等待release而无法到达这里
+			release.countDown();
+			for (CompletableFuture<Boolean> f : futures) {
+				Assert.assertTrue(f.get());
+			}
+		} finally {
+			client.shutdown();
+		}
+	}
+
+	/**
+	 * 同一数据源同时执行的操作数不超过上限
+	 */
+	@Test
+	public void testLimit() throws Exception {
+		// 底层执行器在任务连同LimitedExecutor的收尾（释放计数）都结束后才计数，以此确定所有任务已退出
+		final CountDownLatch exited = new CountDownLatch(20);
+		LimitedExecutor limited = new LimitedExecutor(command -> executor.execute(() -> {
+			try {
+				command.run();
+			} finally {
+				exited.countDown();
+			}
+		}), 2);
+		final AtomicInteger running = new AtomicInteger();
+		final AtomicInteger max = new AtomicInteger();
+		List<CompletableFuture<Void>> futures = new ArrayList<CompletableFuture<Void>>();
+		for (int i = 0; i < 20; i++) {
+			futures.add(CompletableFuture.runAsync(() -> {
+				int n = running.incrementAndGet();
+				max.accumulateAndGet(n, Math::max);
+				try {
+					Thread.sleep(5);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				running.decrementAndGet();
+			}, limited));
+		}
+		CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()])).get();
+		Assert.assertTrue(exited.await(10, TimeUnit.SECONDS));
+		Assert.assertTrue(max.get() <= 2);
+		Assert.assertEquals(0, limited.getRunning());
+		Assert.assertEquals(0, limited.getQueued());
+	}
+}
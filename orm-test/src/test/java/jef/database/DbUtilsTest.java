@@ -1,15 +1,28 @@
 package jef.database;
 
 import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import jef.database.support.LimitedExecutor;
 import jef.database.wrapper.executor.DbTask;
+import jef.database.wrapper.executor.ExecutorRegistry;
 import jef.tools.ThreadUtils;
 
+import org.junit.After;
+import org.junit.Assert;
 import org.junit.Test;
 
 public class DbUtilsTest {
+	private final ExecutorRegistry executors = new ExecutorRegistry(8, 0);
+
+	@After
+	public void close() {
+		executors.close();
+	}
+
 	@Test
 	public void testFinal() throws SQLException {
 		List<DbTask> tasks=new ArrayList<DbTask>();
@@ -22,7 +35,81 @@ public class DbUtilsTest {
 				}
 			});
 		}
-		DbUtils.parallelExecute(tasks);
+		DbUtils.parallelExecute(executors, tasks);
+	}
+
+	/**
+	 * 同一数据源的任务同时执行数不超过上限，其他数据源不受影响
+	 */
+	@Test
+	public void testBulkhead() throws SQLException {
+		executors.setMaxConcurrency("bulkhead1", 2);
+		final AtomicInteger running = new AtomicInteger();
+		final AtomicInteger max = new AtomicInteger();
+		List<DbTask> tasks = new ArrayList<DbTask>();
+		for (int i = 0; i < 10; i++) {
+			tasks.add(new DbTask("bulkhead1") {
+				public void execute() throws SQLException {
+					int n = running.incrementAndGet();
+					max.accumulateAndGet(n, Math::max);
+					ThreadUtils.doSleep(20);
+					running.decrementAndGet();
+				}
+			});
+		}
+		final AtomicInteger other = new AtomicInteger();
+		for (int i = 0; i < 4; i++) {
+			tasks.add(new DbTask("bulkhead2") {
+				public void execute() throws SQLException {
+					other.incrementAndGet();
+				}
+			});
+		}
+		DbUtils.parallelExecute(executors, tasks);
+		Assert.assertTrue(max.get() <= 2);
+		Assert.assertEquals(4, other.get());
+
+		LimitedExecutor executor = executors.getExecutors().get("bulkhead1");
+		Assert.assertEquals(0, executor.getQueued());
+		Assert.assertTrue(executor.getMaxWaitMillis() > 0);
 	}
 
+	/**
+	 * 排队超过截止时间的任务不再执行
+	 */
+	@Test
+	public void testDeadline() {
+		final AtomicInteger executed = new AtomicInteger();
+		List<DbTask> tasks = new ArrayList<DbTask>();
+		DbTask task = new DbTask("deadline") {
+			public void execute() throws SQLException {
+				executed.incrementAndGet();
+			}
+		};
+		task.setDeadline(System.currentTimeMillis() - 1);
+		tasks.add(task);
+		try {
+			DbUtils.parallelExecute(executors, tasks);
+			Assert.fail();
+		} catch (SQLException e) {
+			Assert.assertTrue(e instanceof SQLTimeoutException);
+		}
+		Assert.assertEquals(0, executed.get());
+	}
+
+	/**
+	 * 各DbClient使用各自的执行器，同名数据源的并发数互不影响
+	 */
+	@Test
+	public void testRegistryPerClient() {
+		ExecutorRegistry other = new ExecutorRegistry(2, 0);
+		try {
+			executors.setMaxConcurrency("shared", 1);
+			other.setMaxConcurrency("shared", 3);
+			Assert.assertEquals(1, executors.getExecutor("shared").getLimit());
+			Assert.assertEquals(3, other.getExecutor("shared").getLimit());
+		} finally {
+			other.close();
+		}
+	}
 }
@@ -0,0 +1,58 @@
+package jef.database;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * 记录修改字段的测试用的实体
+ */
+@Entity
+@Table(name = "dirty_item")
+public class DirtyItem extends jef.database.DataObject {
+	private static final long serialVersionUID = 1L;
+
+	@Id
+	private int id;
+
+	private String name;
+
+	private int kind;
+
+	public DirtyItem() {
+	}
+
+	public DirtyItem(int id, String name, int kind) {
+		setId(id);
+		setName(name);
+		setKind(kind);
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public void setId(int id) {
+		this.id = id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public int getKind() {
+		return kind;
+	}
+
+	public void setKind(int kind) {
+		this.kind = kind;
+	}
+
+	public enum Field implements jef.database.Field {
+		id, name, kind
+	}
+}
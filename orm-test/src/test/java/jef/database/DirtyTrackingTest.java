@@ -0,0 +1,130 @@
+package jef.database;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import jef.codegen.EntityEnhancer;
+import jef.database.query.JpqlExpression;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class DirtyTrackingTest {
+	private static DbClient db;
+
+	@BeforeClass
+	public static void setup() throws SQLException {
+		new EntityEnhancer().enhanceClass("jef.database.DirtyItem");
+		db = new DbClientBuilder().setDataSource("jdbc:hsqldb:mem:dirtytracking", "SA", "").build();
+		db.createTable(DirtyItem.class);
+		List<DirtyItem> items = new ArrayList<DirtyItem>();
+		for (int i = 1; i <= 5; i++) {
+			items.add(new DirtyItem(i, "n" + i, i));
+		}
+		db.batchInsert(items);
+	}
+
+	@AfterClass
+	public static void close() throws SQLException {
+		db.dropTable(DirtyItem.class);
+		db.shutdown();
+	}
+
+	/**
+	 * setter修改的字段记录在位图中，更新Map按字段名排序，值从对象中读取
+	 */
+	@Test
+	public void testUpdateMap() {
+		DirtyItem item = new DirtyItem(1, "a", 2);
+		Assert.assertTrue(item.needUpdate());
+		Assert.assertTrue(item.getPreparedValues().isEmpty());
+		Map<jef.database.Field, Object> map = item.getUpdateValueMap();
+		Assert.assertEquals(Arrays.<jef.database.Field> asList(DirtyItem.Field.id, DirtyItem.Field.kind, DirtyItem.Field.name), new ArrayList<jef.database.Field>(map.keySet()));
+		item.setName("b");
+		Assert.assertEquals("b", map.get(DirtyItem.Field.name));
+		Assert.assertEquals(2, map.get(DirtyItem.Field.kind));
+
+		// 显式指定的值和setter后赋的值，以后发生的为准
+		JpqlExpression exp = new JpqlExpression("kind+1");
+		item.prepareUpdate(DirtyItem.Field.kind, exp);
+		Assert.assertSame(exp, map.get(DirtyItem.Field.kind));
+		Assert.assertEquals(1, item.getPreparedValues().size());
+		Assert.assertEquals(3, map.size());
+		item.setKind(5);
+		Assert.assertEquals(5, map.get(DirtyItem.Field.kind));
+		Assert.assertTrue(item.getPreparedValues().isEmpty());
+
+		// 通过Map和迭代器移除
+		map.remove(DirtyItem.Field.id);
+		Assert.assertFalse(item.isUsed(DirtyItem.Field.id));
+		item.prepareUpdate(DirtyItem.Field.kind, exp);
+		for (Iterator<Map.Entry<jef.database.Field, Object>> iter = map.entrySet().iterator(); iter.hasNext();) {
+			iter.next();
+			iter.remove();
+		}
+		Assert.assertFalse(item.needUpdate());
+		Assert.assertTrue(item.getUpdateValueMap().isEmpty());
+
+		item.touchUsedFlag(DirtyItem.Field.name, true);
+		Assert.assertEquals("b", item.getUpdateValueMap().get(DirtyItem.Field.name));
+		item.clearUpdate();
+		Assert.assertFalse(item.isUsed(DirtyItem.Field.name));
+	}
+
+	/**
+	 * 在next()和remove()之间调用hasNext()，移除的仍是上次返回的条目
+	 */
+	@Test
+	public void testRemoveAfterHasNext() {
+		DirtyItem item = new DirtyItem(1, "a", 2);
+		item.prepareUpdate(DirtyItem.Field.kind, new JpqlExpression("kind+1"));
+		item.prepareUpdate(DirtyItem.Field.name, new JpqlExpression("upper(name)"));
+		Map<jef.database.Field, Object> map = item.getUpdateValueMap();
+		Iterator<Map.Entry<jef.database.Field, Object>> iter = map.entrySet().iterator();
+		Assert.assertEquals(DirtyItem.Field.id, iter.next().getKey());
+		Assert.assertEquals(DirtyItem.Field.kind, iter.next().getKey());
+		Assert.assertTrue(iter.hasNext());
+		iter.remove();
+		Assert.assertEquals(Arrays.<jef.database.Field> asList(DirtyItem.Field.id, DirtyItem.Field.name), new ArrayList<jef.database.Field>(map.keySet()));
+
+		Assert.assertTrue(iter.hasNext());
+		Assert.assertEquals(DirtyItem.Field.name, iter.next().getKey());
+		Assert.assertFalse(iter.hasNext());
+		iter.remove();
+		Assert.assertEquals(Arrays.<jef.database.Field> asList(DirtyItem.Field.id), new ArrayList<jef.database.Field>(map.keySet()));
+	}
+
+	/**
+	 * 单条和批量更新使用位图中的字段生成SQL
+	 */
+	@Test
+	public void testUpdate() throws SQLException {
+		DirtyItem item = db.load(DirtyItem.class, 1);
+		Assert.assertFalse(item.needUpdate());
+		item.setName("u1");
+		item.prepareUpdate(DirtyItem.Field.kind, new JpqlExpression("kind+10"));
+		Assert.assertEquals(1, db.update(item));
+		DirtyItem loaded = db.load(DirtyItem.class, 1);
+		Assert.assertEquals("u1", loaded.getName());
+		Assert.assertEquals(11, loaded.getKind());
+
+		List<DirtyItem> list = new ArrayList<DirtyItem>();
+		for (int i = 2; i <= 5; i++) {
+			DirtyItem c = db.load(DirtyItem.class, i);
+			c.setName("b" + i);
+			list.add(c);
+		}
+		db.batchUpdate(list);
+		for (int i = 2; i <= 5; i++) {
+			DirtyItem c = db.load(DirtyItem.class, i);
+			Assert.assertEquals("b" + i, c.getName());
+			Assert.assertEquals(i, c.getKind());
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package jef.database;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import jef.codegen.EntityEnhancer;
+import jef.database.jsqlparser.statement.select.Select;
+import jef.database.query.Query;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * 键集（Seek）分页
+ */
+public class KeysetPagingTest {
+	private static DbClient db;
+
+	@BeforeClass
+	public static void setup() throws SQLException {
+		new EntityEnhancer().enhanceClass("jef.database.KeysetItem");
+		db = new DbClientBuilder().setDataSource("jdbc:hsqldb:mem:keyset", "SA", "").build();
+		db.createTable(KeysetItem.class);
+		List<KeysetItem> items = new ArrayList<KeysetItem>();
+		for (int i = 1; i <= 25; i++) {
+			items.add(new KeysetItem(i, "n" + i, i % 3));
+		}
+		db.batchInsert(items);
+	}
+
+	@AfterClass
+	public static void close() throws SQLException {
+		db.dropTable(KeysetItem.class);
+		db.shutdown();
+	}
+
+	/**
+	 * 按排序字段加主键定位，结果与OFFSET分页一致
+	 */
+	@Test
+	public void testQuery() throws SQLException {
+		Query<KeysetItem> q = QB.create(KeysetItem.class);
+		q.addCondition(QB.gt(KeysetItem.Field.id, 1));
+		q.orderByDesc(KeysetItem.Field.kind);
+		PagingIterator<KeysetItem> iter = db.pageSelect(q, 10);
+		iter.setKeyset(true);
+		List<Integer> ids = new ArrayList<Integer>();
+		int pages = 0;
+		while (iter.hasNext()) {
+			for (KeysetItem item : iter.next()) {
+				ids.add(item.getId());
+			}
+			pages++;
+		}
+		Assert.assertEquals(3, pages);
+		Assert.assertEquals(24, ids.size());
+		// kind降序，相同kind时按主键升序
+		Assert.assertEquals(Integer.valueOf(2), ids.get(0));
+		Assert.assertEquals(Integer.valueOf(5), ids.get(1));
+		Assert.assertEquals(Integer.valueOf(24), ids.get(23));
+		Assert.assertEquals(1, q.getConditions().size());
+	}
+
+	/**
+	 * 原生SQL和NativeQuery的键集分页
+	 */
+	@Test
+	public void testSql() throws SQLException {
+		String sql = "select id, name as item_name, kind from keyset_item order by kind, item_name desc";
+		List<PagingIterator<Map>> iters = new ArrayList<PagingIterator<Map>>();
+		iters.add(db.getSqlTemplate(null).pageSelectBySql(sql, Map.class, 7));
+		iters.add(db.pageSelect(sql, Map.class, 7));
+		for (PagingIterator<Map> iter : iters) {
+			iter.setKeyset(true);
+			List<String> names = new ArrayList<String>();
+			while (iter.hasNext()) {
+				for (Map row : iter.next()) {
+					names.add(String.valueOf(row.get("item_name")));
+				}
+			}
+			Assert.assertEquals(25, names.size());
+			Assert.assertEquals("n9", names.get(0));
+			Assert.assertEquals("n6", names.get(1));
+			Assert.assertEquals("n12", names.get(7));
+			Assert.assertEquals("n11", names.get(24));
+			Assert.assertEquals(4, iter.getCurrentPage() - 1);
+		}
+	}
+
+	/**
+	 * 定位条件加在原查询的WHERE中，排序用的别名换成对应的列；无法放进WHERE时在外层定位
+	 */
+	@Test
+	public void testSeekSql() throws Exception {
+		String[] placeholders = { "?", "?" };
+		KeysetQuery query = KeysetQuery.create(DbUtils.parseNativeSelect("select id, name as item_name from keyset_item where kind > 0 order by kind, item_name desc"));
+		Assert.assertEquals("select id,name AS item_name from keyset_item where (kind > 0) and (kind > ? or (kind = ? and name < ?)) order by kind,item_name DESC", query.getSql(placeholders));
+		Assert.assertArrayEquals(new int[] { 0, 0, 1 }, query.getBindOrder());
+
+		Select select = DbUtils.parseNativeSelect("select kind, count(*) as cnt from keyset_item group by kind order by kind");
+		query = KeysetQuery.create(select);
+		Assert.assertEquals("select * from (select kind,count(*) AS cnt from keyset_item group by kind) t where (t.kind > ?) order by t.kind asc", query.getSql(new String[] { "?" }));
+	}
+
+	/**
+	 * 排序不唯一时，页末出现相同的排序列值即报错，而不是跳过记录
+	 */
+	@Test
+	public void testNotUnique() throws SQLException {
+		String sql = "select id, name, kind from keyset_item order by kind";
+		List<PagingIterator<Map>> iters = new ArrayList<PagingIterator<Map>>();
+		iters.add(db.getSqlTemplate(null).pageSelectBySql(sql, Map.class, 7));
+		iters.add(db.pageSelect(sql, Map.class, 7));
+		for (PagingIterator<Map> iter : iters) {
+			iter.setKeyset(true);
+			try {
+				iter.next();
+				Assert.fail("The ORDER BY is not unique.");
+			} catch (IllegalStateException e) {
+				Assert.assertTrue(e.getMessage(), e.getMessage().contains("not unique"));
+			}
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package jef.database.cache;
+
+import javax.persistence.Cacheable;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * 二级缓存测试用的实体
+ */
+@Cacheable
+@Entity
+@Table(name = "cache_item")
+public class CacheItem extends jef.database.DataObject {
+	private static final long serialVersionUID = 1L;
+
+	@Id
+	private int id;
+
+	private String name;
+
+	public CacheItem() {
+	}
+
+	public CacheItem(int id, String name) {
+		setId(id);
+		setName(name);
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public void setId(int id) {
+		this.id = id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public enum Field implements jef.database.Field {
+		id, name
+	}
+}
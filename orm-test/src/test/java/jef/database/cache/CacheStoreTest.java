@@ -0,0 +1,131 @@
+package jef.database.cache;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import jef.codegen.EntityEnhancer;
+import jef.database.DbClient;
+import jef.database.DbClientBuilder;
+import jef.database.ORMConfig;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CacheStoreTest {
+
+	/**
+	 * 所有维度共享容量，超出时淘汰最近最少使用的结果
+	 */
+	@Test
+	public void testBoundedByRows() {
+		CacheStore store = new CacheStore(0, 80, false);
+		DimCache a = store.newDimCache();
+		DimCache b = store.newDimCache();
+		for (int i = 0; i < 10; i++) {
+			a.put(Arrays.asList(i), rows(5));
+			b.put(Arrays.asList(i), rows(5));
+		}
+		Assert.assertTrue(store.getWeight() <= 80);
+		Assert.assertTrue(store.getEvictionCount() > 0);
+		Assert.assertEquals(store.size() * 5, store.getWeight());
+
+		// 单个结果超过容量的1/8时不缓存
+		a.put(Arrays.asList("big"), rows(11));
+		Assert.assertNull(a.load(Arrays.asList("big")));
+	}
+
+	/**
+	 * 清空一个维度不影响其他维度，清空后的结果不可见且不再占用容量
+	 */
+	@Test
+	public void testClear() {
+		CacheStore store = new CacheStore(0, 0, false);
+		DimCache a = store.newDimCache();
+		DimCache b = store.newDimCache();
+		a.put(Arrays.asList(1), rows(3));
+		b.put(Arrays.asList(1), rows(2));
+		Assert.assertEquals(5, store.getWeight());
+
+		a.clear();
+		Assert.assertNull(a.load(Arrays.asList(1)));
+		Assert.assertNotNull(b.load(Arrays.asList(1)));
+		Assert.assertEquals(2, store.getWeight());
+
+		a.put(Arrays.asList(1), rows(4));
+		Assert.assertEquals(4, a.load(Arrays.asList(1)).size());
+		a.remove(Arrays.asList(1));
+		Assert.assertNull(a.load(Arrays.asList(1)));
+		Assert.assertEquals(2, store.getWeight());
+	}
+
+	/**
+	 * 按估算字节数计算容量
+	 */
+	@Test
+	public void testWeighBytes() {
+		CacheStore store = new CacheStore(0, 0, true);
+		DimCache dc = store.newDimCache();
+		dc.put(Arrays.asList(1), Collections.singletonList("short"));
+		long small = store.getWeight();
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			sb.append('x');
+		}
+		dc.put(Arrays.asList(2), Collections.singletonList(sb.toString()));
+		Assert.assertTrue(store.getWeight() - small > 2000);
+		Assert.assertTrue(SizeEstimator.estimate(Arrays.asList(new CacheItem(1, "a"), new CacheItem(2, "b"))) > 0);
+	}
+
+	/**
+	 * 二级缓存的命中、未命中和加载次数统计
+	 */
+	@Test
+	public void testStatistics() throws SQLException {
+		new EntityEnhancer().enhance("jef.database.cache");
+		ORMConfig config = ORMConfig.getInstance();
+		int old = config.getCacheLevel2();
+		config.setCacheLevel2(60);
+		DbClient db;
+		try {
+			db = new DbClientBuilder().setDataSource("jdbc:hsqldb:mem:l2cache", "SA", "").build();
+		} finally {
+			config.setCacheLevel2(old);
+		}
+		try {
+			db.createTable(CacheItem.class);
+			db.insert(new CacheItem(1, "a"));
+			CacheImpl cache = (CacheImpl) db.getGlobalCache();
+			long miss = cache.getMissCount();
+			long hit = cache.getHitCount();
+
+			Assert.assertEquals("a", db.load(CacheItem.class, 1).getName());
+			Assert.assertEquals("a", db.load(CacheItem.class, 1).getName());
+			Assert.assertEquals(miss + 1, cache.getMissCount());
+			Assert.assertEquals(hit + 1, cache.getHitCount());
+			Assert.assertEquals(1, cache.getLoadCount());
+			Assert.assertTrue(cache.getTotalLoadTime() > 0);
+			Assert.assertEquals(1, cache.getWeight());
+
+			CacheItem update = new CacheItem();
+			update.setId(1);
+			update.setName("b");
+			db.update(update);
+			Assert.assertEquals("b", db.load(CacheItem.class, 1).getName());
+			Assert.assertTrue(cache.toString().startsWith("GLOBAL-Cache"));
+		} finally {
+			db.dropTable(CacheItem.class);
+			db.close();
+		}
+	}
+
+	private static List<Object> rows(int n) {
+		List<Object> list = new ArrayList<Object>();
+		for (int i = 0; i < n; i++) {
+			list.add(i);
+		}
+		return list;
+	}
+}
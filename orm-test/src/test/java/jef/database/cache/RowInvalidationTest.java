@@ -0,0 +1,158 @@
+package jef.database.cache;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jef.codegen.EntityEnhancer;
+import jef.database.DbClient;
+import jef.database.DbClientBuilder;
+import jef.database.ORMConfig;
+import jef.database.QB;
+import jef.database.query.Query;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class RowInvalidationTest {
+
+	@BeforeClass
+	public static void enhance() {
+		new EntityEnhancer().enhanceClass("jef.database.cache.RowItem");
+	}
+
+	/**
+	 * 等值、范围、in条件的判断，无法分析的条件视为可能成立
+	 */
+	@Test
+	public void testPredicate() {
+		RowPredicate p = RowPredicate.parse("T.KIND = ? AND ID BETWEEN ? AND ? AND NAME LIKE ?");
+		Assert.assertTrue(p.mayMatch(Arrays.asList(1, 1, 10, "x%"), row(5, 1, "y")));
+		Assert.assertFalse(p.mayMatch(Arrays.asList(1, 1, 10, "x%"), row(5, 2, "y")));
+		Assert.assertFalse(p.mayMatch(Arrays.asList(1L, 1, 10, "x%"), row(11, 1, "y")));
+		// 参数个数不符时无法判断
+		Assert.assertTrue(p.mayMatch(Arrays.asList(1), row(11, 2, "y")));
+
+		RowPredicate in = RowPredicate.parse("NAME IN (?, 'b')");
+		Assert.assertTrue(in.mayMatch(Arrays.asList("A "), row(1, 1, "a")));
+		Assert.assertTrue(in.mayMatch(Arrays.asList("x"), row(1, 1, "B")));
+		Assert.assertFalse(in.mayMatch(Arrays.asList("x"), row(1, 1, "c")));
+		Assert.assertFalse(in.mayMatch(Arrays.asList("x"), row(1, 1, null)));
+
+		RowPredicate or = RowPredicate.parse("ID = ? OR KIND = ?");
+		Assert.assertTrue(or.mayMatch(Arrays.asList(1, 1), row(2, 2, "a")));
+		Assert.assertTrue(RowPredicate.parse("ID = ? AND").mayMatch(Arrays.asList(1), row(2, 2, "a")));
+
+		RowPredicate lt = RowPredicate.parse("ID < ?");
+		RowPredicate ge = RowPredicate.parse("ID >= ?");
+		Assert.assertFalse(lt.mayIntersect(Arrays.asList(5), ge, Arrays.asList(5), Collections.<String> emptyList()));
+		Assert.assertTrue(lt.mayIntersect(Arrays.asList(6), ge, Arrays.asList(5), Collections.<String> emptyList()));
+		Assert.assertTrue(lt.mayIntersect(Arrays.asList(5), ge, Arrays.asList(5), null));
+		Assert.assertFalse(lt.references(Arrays.asList("NAME")));
+
+		Assert.assertEquals(RowPredicate.parse("ID = ?").pinnedKey(Arrays.asList(3L), Arrays.asList("ID")),
+				RowPredicate.parse("ID IN (?)").pinnedKey(Arrays.asList(3), Arrays.asList("ID")));
+		Assert.assertNull(lt.pinnedKey(Arrays.asList(3), Arrays.asList("ID")));
+	}
+
+	/**
+	 * 插入、更新和删除只清除可能受影响的缓存结果
+	 */
+	@Test
+	public void testInvalidation() throws SQLException {
+		ORMConfig config = ORMConfig.getInstance();
+		int old = config.getCacheLevel2();
+		config.setCacheLevel2(60);
+		DbClient db;
+		try {
+			db = new DbClientBuilder().setDataSource("jdbc:hsqldb:mem:l2rows", "SA", "").build();
+		} finally {
+			config.setCacheLevel2(old);
+		}
+		try {
+			db.createTable(RowItem.class);
+			db.insert(new RowItem(1, "a", 1));
+			db.insert(new RowItem(2, "b", 2));
+			db.insert(new RowItem(20, "c", 2));
+			CacheImpl cache = (CacheImpl) db.getGlobalCache();
+
+			// 加载到缓存
+			db.load(RowItem.class, 1);
+			db.load(RowItem.class, 2);
+			Assert.assertEquals(1, byKind(db, 1).size());
+			Assert.assertEquals(2, byKind(db, 2).size());
+			Assert.assertEquals(2, below(db, 10).size());
+
+			// 按主键更新第1行的name：只清除包含第1行的结果
+			RowItem update = new RowItem();
+			update.setId(1);
+			update.setName("x");
+			db.update(update);
+			long hit = cache.getHitCount();
+			Assert.assertEquals("b", db.load(RowItem.class, 2).getName());
+			Assert.assertEquals(2, byKind(db, 2).size());
+			Assert.assertEquals(hit + 2, cache.getHitCount());
+			Assert.assertEquals("x", db.load(RowItem.class, 1).getName());
+			Assert.assertEquals("x", byKind(db, 1).get(0).getName());
+			Assert.assertEquals(2, below(db, 10).size());
+			Assert.assertEquals(hit + 2, cache.getHitCount());
+
+			// 更新kind：条件中引用了kind的结果都可能受影响
+			update = new RowItem();
+			update.setId(2);
+			update.setKind(1);
+			db.update(update);
+			Assert.assertEquals(2, byKind(db, 1).size());
+			Assert.assertEquals(1, byKind(db, 2).size());
+
+			// 插入一行：只清除插入的行可能满足条件的结果
+			db.load(RowItem.class, 1);
+			below(db, 10);
+			hit = cache.getHitCount();
+			db.insert(new RowItem(30, "d", 1));
+			Assert.assertEquals(2, below(db, 10).size());
+			db.load(RowItem.class, 1);
+			Assert.assertEquals(hit + 2, cache.getHitCount());
+			Assert.assertEquals(3, byKind(db, 1).size());
+			Assert.assertEquals(hit + 2, cache.getHitCount());
+
+			// 按范围删除：条件与缓存结果中的行不相交时不清除
+			byKind(db, 1);
+			hit = cache.getHitCount();
+			Query<RowItem> q = QB.create(RowItem.class);
+			q.addCondition(QB.ge(RowItem.Field.id, 25));
+			Assert.assertEquals(1, db.delete(q));
+			Assert.assertEquals(2, below(db, 10).size());
+			Assert.assertEquals(hit + 1, cache.getHitCount());
+			Assert.assertEquals(2, byKind(db, 1).size());
+			Assert.assertEquals(hit + 1, cache.getHitCount());
+		} finally {
+			db.dropTable(RowItem.class);
+			db.shutdown();
+		}
+	}
+
+	private static List<RowItem> byKind(DbClient db, int kind) throws SQLException {
+		Query<RowItem> q = QB.create(RowItem.class);
+		q.addCondition(RowItem.Field.kind, kind);
+		return db.select(q);
+	}
+
+	private static List<RowItem> below(DbClient db, int id) throws SQLException {
+		Query<RowItem> q = QB.create(RowItem.class);
+		q.addCondition(QB.lt(RowItem.Field.id, id));
+		return db.select(q);
+	}
+
+	private static RowPredicate.Row row(int id, int kind, String name) {
+		Map<String, Object> values = new HashMap<String, Object>();
+		values.put("ID", id);
+		values.put("KIND", kind);
+		values.put("NAME", name);
+		return RowPredicate.mapRow(values);
+	}
+}
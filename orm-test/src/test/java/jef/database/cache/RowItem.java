@@ -0,0 +1,60 @@
+package jef.database.cache;
+
+import javax.persistence.Cacheable;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * 二级缓存按行失效的测试用的实体，kind列用于构造不同的查询条件
+ */
+@Cacheable
+@Entity
+@Table(name = "row_item")
+public class RowItem extends jef.database.DataObject {
+	private static final long serialVersionUID = 1L;
+
+	@Id
+	private int id;
+
+	private String name;
+
+	private int kind;
+
+	public RowItem() {
+	}
+
+	public RowItem(int id, String name, int kind) {
+		setId(id);
+		setName(name);
+		setKind(kind);
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public void setId(int id) {
+		this.id = id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public int getKind() {
+		return kind;
+	}
+
+	public void setKind(int kind) {
+		this.kind = kind;
+	}
+
+	public enum Field implements jef.database.Field {
+		id, name, kind
+	}
+}
@@ -0,0 +1,196 @@
+package jef.database.cache.cluster;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.net.DatagramSocket;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jef.codegen.EntityEnhancer;
+import jef.database.DbClient;
+import jef.database.DbClientBuilder;
+import jef.database.ORMConfig;
+import jef.database.cache.CacheImpl;
+import jef.database.cache.CacheItem;
+import jef.database.cache.KeyDimension;
+import jef.database.dialect.DatabaseDialect;
+import jef.database.dialect.HsqlDbMemDialect;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class InvalidationBusTest {
+	private static final DatabaseDialect DIALECT = new HsqlDbMemDialect();
+
+	/**
+	 * 一个周期内同一表空间的失效操作合并为一个事件
+	 */
+	@Test
+	public void testCoalesce() throws IOException {
+		RecordingTransport transport = new RecordingTransport();
+		InvalidationBus bus = new InvalidationBus(null, transport, 10000);
+		KeyDimension pk = KeyDimension.forSingleTable("T1", " where ID=?", null, DIALECT);
+		KeyDimension other = KeyDimension.forSingleTable("T1", " where NAME=?", null, DIALECT);
+
+		bus.publishRefresh("T1", pk, Arrays.asList(1));
+		bus.publishRefresh("T1", pk, Arrays.asList(2));
+		bus.publishRemove("T1", other, Arrays.asList("a"));
+		bus.publishRefresh("T2", pk, Arrays.asList(1));
+		bus.publishRefresh("T2", other, Arrays.asList("b"));
+		bus.flush();
+
+		Assert.assertEquals(1, transport.messages.size());
+		List<InvalidationEvent> events = transport.messages.get(0).getEvents();
+		Assert.assertEquals(2, events.size());
+		InvalidationEvent t1 = events.get(0);
+		Assert.assertEquals("T1", t1.getSpace());
+		Assert.assertFalse(t1.isClearAll());
+		Assert.assertTrue(t1.isClearOthers());
+		Assert.assertEquals(pk, t1.getKeep());
+		Assert.assertEquals(1, t1.getRemovals().size());
+		Assert.assertEquals(2, t1.getRemovals().get(pk).size());
+		// 两个不同维度都要求清除其他维度，合并为清除整个表空间
+		Assert.assertTrue(events.get(1).isClearAll());
+
+		bus.publishRefresh("T1", pk, Arrays.asList(3));
+		bus.publishClearAll();
+		bus.flush();
+		Assert.assertEquals(2, transport.messages.size());
+		Assert.assertNull(transport.messages.get(1).getEvents().get(0).getSpace());
+
+		// 参数不能发送时扩大为清除整个表空间
+		bus.publishRemove("T1", pk, Arrays.<Object> asList(new Object()));
+		bus.close();
+		Assert.assertTrue(transport.messages.get(2).getEvents().get(0).isClearAll());
+	}
+
+	/**
+	 * 两个节点连接同一数据库，一个节点更新后另一个节点的缓存失效
+	 */
+	@Test
+	public void testLoopback() throws SQLException, IOException {
+		new EntityEnhancer().enhance("jef.database.cache");
+		DbClient db1 = createClient();
+		DbClient db2 = createClient();
+		InvalidationBus bus1 = join(db1);
+		InvalidationBus bus2 = join(db2);
+		try {
+			db1.createTable(CacheItem.class);
+			db1.insert(new CacheItem(1, "a"));
+			Assert.assertEquals("a", db1.load(CacheItem.class, 1).getName());
+			Assert.assertEquals("a", db2.load(CacheItem.class, 1).getName());
+			long hit = db2.getGlobalCache().getHitCount();
+			Assert.assertEquals("a", db2.load(CacheItem.class, 1).getName());
+			Assert.assertEquals(hit + 1, db2.getGlobalCache().getHitCount());
+
+			CacheItem update = new CacheItem();
+			update.setId(1);
+			update.setName("b");
+			db1.update(update);
+			Assert.assertEquals("b", db2.load(CacheItem.class, 1).getName());
+			Assert.assertTrue(bus2.getReceivedCount() > 0);
+			Assert.assertEquals(0, bus1.getErrorCount());
+		} finally {
+			db1.dropTable(CacheItem.class);
+			db1.shutdown();
+			db2.shutdown();
+		}
+	}
+
+	/**
+	 * UDP单播，在一台机器上的两个端口之间发送
+	 */
+	@Test
+	public void testUdp() throws Exception {
+		int port1 = freePort();
+		int port2 = freePort();
+		UdpTransport t1 = new UdpTransport("127.0.0.1:" + port1 + ",127.0.0.1:" + port2);
+		UdpTransport t2 = new UdpTransport("127.0.0.1:" + port2 + ",127.0.0.1:" + port1);
+		final CountDownLatch latch = new CountDownLatch(1);
+		final List<InvalidationMessage> received = new ArrayList<InvalidationMessage>();
+		t1.start(new InvalidationTransport.Receiver() {
+			public void onMessage(InvalidationMessage message) {
+			}
+		});
+		t2.start(new InvalidationTransport.Receiver() {
+			public void onMessage(InvalidationMessage message) {
+				received.add(message);
+				latch.countDown();
+			}
+		});
+		try {
+			InvalidationEvent event = new InvalidationEvent("T1");
+			event.clearExcept(KeyDimension.forSingleTable("T1", " where ID=?", null, DIALECT));
+			event.remove(KeyDimension.forSingleTable("T1", " where ID=?", null, DIALECT), Arrays.asList(1, "x"));
+			t1.send(new InvalidationMessage("node1", Arrays.asList(event)));
+			Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+			InvalidationEvent got = received.get(0).getEvents().get(0);
+			Assert.assertEquals("node1", received.get(0).getSender());
+			Assert.assertEquals(event.getKeep(), got.getKeep());
+			Assert.assertEquals(Arrays.asList(1, "x"), got.getRemovals().get(event.getKeep()).iterator().next());
+		} finally {
+			t1.close();
+			t2.close();
+		}
+	}
+
+	/**
+	 * 接收时拒绝反序列化其他类
+	 */
+	@Test(expected = IOException.class)
+	public void testRejectUnknownClass() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		InvalidationEvent event = new InvalidationEvent("T1");
+		event.remove(KeyDimension.forSingleTable("T1", " where ID=?", null, DIALECT), Arrays.asList(new AtomicInteger(1)));
+		out.writeObject(new InvalidationMessage("x", Arrays.asList(event)));
+		out.close();
+		byte[] data = bytes.toByteArray();
+		UdpTransport.decode(data, 0, data.length);
+	}
+
+	private static DbClient createClient() throws SQLException {
+		ORMConfig config = ORMConfig.getInstance();
+		int old = config.getCacheLevel2();
+		config.setCacheLevel2(60);
+		try {
+			return new DbClientBuilder().setDataSource("jdbc:hsqldb:mem:l2cluster", "SA", "").build();
+		} finally {
+			config.setCacheLevel2(old);
+		}
+	}
+
+	private static InvalidationBus join(DbClient db) throws IOException {
+		CacheImpl cache = (CacheImpl) db.getGlobalCache();
+		InvalidationBus bus = new InvalidationBus(cache, new LoopbackTransport("l2cluster"), 0);
+		cache.setInvalidationPublisher(bus);
+		return bus;
+	}
+
+	private static int freePort() throws IOException {
+		DatagramSocket s = new DatagramSocket(0);
+		int port = s.getLocalPort();
+		s.close();
+		return port;
+	}
+
+	private static class RecordingTransport implements InvalidationTransport {
+		private final List<InvalidationMessage> messages = new ArrayList<InvalidationMessage>();
+
+		public void start(Receiver receiver) {
+		}
+
+		public void send(InvalidationMessage message) {
+			messages.add(message);
+		}
+
+		public void close() {
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package jef.database.dialect;
+
+import java.util.Date;
+
+import javax.persistence.Cacheable;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * 合并语句测试用的实体
+ */
+@Cacheable
+@Entity
+@Table(name = "upsert_item")
+public class UpsertItem extends jef.database.DataObject {
+	private static final long serialVersionUID = 1L;
+
+	@Id
+	private int id;
+
+	private String name;
+
+	private int kind;
+
+	@Column(name = "create_time", columnDefinition = "TimeStamp")
+	@GeneratedValue(generator = "created")
+	private Date createTime;
+
+	public UpsertItem() {
+	}
+
+	public UpsertItem(int id, String name, int kind) {
+		setId(id);
+		setName(name);
+		setKind(kind);
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public void setId(int id) {
+		this.id = id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public int getKind() {
+		return kind;
+	}
+
+	public void setKind(int kind) {
+		this.kind = kind;
+	}
+
+	public Date getCreateTime() {
+		return createTime;
+	}
+
+	public void setCreateTime(Date createTime) {
+		this.createTime = createTime;
+	}
+
+	public enum Field implements jef.database.Field {
+		id, name, kind, createTime
+	}
+}
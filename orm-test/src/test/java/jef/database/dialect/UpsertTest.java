@@ -0,0 +1,161 @@
+package jef.database.dialect;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import jef.codegen.EntityEnhancer;
+import jef.database.DbClient;
+import jef.database.DbClientBuilder;
+import jef.database.ORMConfig;
+import jef.database.QB;
+import jef.database.dialect.handler.DerbyUpsertHandler;
+import jef.database.dialect.handler.H2UpsertHandler;
+import jef.database.dialect.handler.MergeUpsertHandler;
+import jef.database.dialect.handler.MySqlUpsertHandler;
+import jef.database.dialect.handler.OnConflictUpsertHandler;
+import jef.database.dialect.handler.OracleUpsertHandler;
+import jef.database.query.Query;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class UpsertTest {
+	private static final List<String> COLUMNS = Arrays.asList("ID", "NAME", "KIND");
+	private static final List<String> VALUES = Arrays.asList("?", "?", "?");
+
+	@BeforeClass
+	public static void enhance() {
+		new EntityEnhancer().enhanceClass("jef.database.dialect.UpsertItem");
+	}
+
+	/**
+	 * 各数据库的合并语句及绑定变量顺序
+	 */
+	@Test
+	public void testHandlers() {
+		List<Integer> binds = new ArrayList<Integer>();
+		Assert.assertEquals("insert into T(ID,NAME,KIND) values(?,?,?) on duplicate key update NAME=values(NAME),KIND=values(KIND)",
+				new MySqlUpsertHandler().toUpsertSql("T", COLUMNS, VALUES, new int[] { 0 }, new int[] { 1, 2 }, binds));
+		Assert.assertEquals(Arrays.asList(0, 1, 2), binds);
+
+		binds.clear();
+		Assert.assertEquals("insert into T(ID,NAME,KIND) values(?,?,?) on conflict (ID) do nothing",
+				new OnConflictUpsertHandler().toUpsertSql("T", COLUMNS, VALUES, new int[] { 0 }, new int[0], binds));
+
+		binds.clear();
+		Assert.assertEquals("merge into T T using (values (?,?,?)) as S (ID,NAME,KIND) on (T.ID=S.ID) when matched then update set NAME=S.NAME"
+				+ " when not matched then insert (ID,NAME,KIND) values (S.ID,S.NAME,S.KIND);",
+				new MergeUpsertHandler(true).toUpsertSql("T", COLUMNS, VALUES, new int[] { 0 }, new int[] { 1 }, binds));
+
+		// H2不在更新范围内的列，记录存在时取回原值
+		binds.clear();
+		Assert.assertEquals("merge into T(ID,NAME,KIND) key(ID) values(?,?,case when exists(select 1 from T where ID=?) then (select KIND from T where ID=?) else ? end)",
+				new H2UpsertHandler().toUpsertSql("T", COLUMNS, VALUES, new int[] { 0 }, new int[] { 1 }, binds));
+		Assert.assertEquals(Arrays.asList(0, 1, 0, 0, 2), binds);
+
+		binds.clear();
+		Assert.assertTrue(new OracleUpsertHandler().toUpsertSql("T", COLUMNS, VALUES, new int[] { 0 }, new int[] { 1 }, binds)
+				.startsWith("merge into T T using (select ? ID,? NAME,? KIND from dual) S on (T.ID=S.ID)"));
+
+		// Derby的值直接写在各部分中，绑定变量按出现顺序重复
+		binds.clear();
+		new DerbyUpsertHandler().toUpsertSql("T", COLUMNS, VALUES, new int[] { 0 }, new int[] { 2 }, binds);
+		Assert.assertEquals(Arrays.asList(0, 2, 0, 1, 2), binds);
+	}
+
+	/**
+	 * 合并后记录被插入或更新，缓存中包含该记录的结果失效
+	 */
+	@Test
+	public void testUpsert() throws SQLException {
+		ORMConfig config = ORMConfig.getInstance();
+		int old = config.getCacheLevel2();
+		config.setCacheLevel2(60);
+		DbClient db;
+		try {
+			db = new DbClientBuilder().setDataSource("jdbc:hsqldb:mem:upsert", "SA", "").build();
+		} finally {
+			config.setCacheLevel2(old);
+		}
+		try {
+			db.createTable(UpsertItem.class);
+			Assert.assertEquals(1, db.upsert(new UpsertItem(1, "a", 1)));
+			Assert.assertEquals("a", db.load(UpsertItem.class, 1).getName());
+			Assert.assertEquals(1, byKind(db, 1).size());
+
+			Assert.assertEquals(1, db.upsert(new UpsertItem(1, "b", 2)));
+			Assert.assertEquals("b", db.load(UpsertItem.class, 1).getName());
+			Assert.assertEquals(0, byKind(db, 1).size());
+			Assert.assertEquals(1, byKind(db, 2).size());
+
+			Assert.assertEquals(3, db.batchUpsert(Arrays.asList(new UpsertItem(1, "c", 2), new UpsertItem(2, "d", 2), new UpsertItem(3, "e", 3))));
+			Assert.assertEquals("c", db.load(UpsertItem.class, 1).getName());
+			Assert.assertEquals(2, byKind(db, 2).size());
+			Assert.assertEquals(3, db.count(QB.create(UpsertItem.class)));
+		} finally {
+			db.dropTable(UpsertItem.class);
+			db.shutdown();
+		}
+	}
+
+	/**
+	 * H2和Derby上的合并语句
+	 */
+	@Test
+	public void testOtherDatabases() throws SQLException {
+		String[][] urls = { { "jdbc:h2:mem:upsert", "sa" }, { "jdbc:derby:memory:upsert;create=true", "" } };
+		for (String[] url : urls) {
+			DbClient db = new DbClientBuilder().setDataSource(url[0], url[1], "").build();
+			try {
+				db.createTable(UpsertItem.class);
+				db.upsert(new UpsertItem(1, "a", 1));
+				db.upsert(new UpsertItem(1, "b", 1));
+				db.batchUpsert(Arrays.asList(new UpsertItem(1, "c", 1), new UpsertItem(2, "d", 1)));
+				Assert.assertEquals(url[0], "c", db.load(UpsertItem.class, 1).getName());
+				Assert.assertEquals(url[0], 2, db.count(QB.create(UpsertItem.class)));
+			} finally {
+				db.dropTable(UpsertItem.class);
+				db.shutdown();
+			}
+		}
+	}
+
+	/**
+	 * 记录存在时，创建时间等不在更新范围内的列保持原值
+	 */
+	@Test
+	public void testKeepCreateTime() throws SQLException {
+		String[][] urls = { { "jdbc:hsqldb:mem:upsert", "SA" }, { "jdbc:h2:mem:upsert", "sa" }, { "jdbc:derby:memory:upsert;create=true", "" } };
+		for (String[] url : urls) {
+			DbClient db = new DbClientBuilder().setDataSource(url[0], url[1], "").build();
+			try {
+				db.createTable(UpsertItem.class);
+				db.upsert(new UpsertItem(1, "a", 1));
+				Date created = db.load(UpsertItem.class, 1).getCreateTime();
+				Assert.assertNotNull(url[0], created);
+
+				UpsertItem item = new UpsertItem(1, "b", 2);
+				item.setCreateTime(new Date(0));
+				db.upsert(item);
+				db.batchUpsert(Arrays.asList(item, new UpsertItem(2, "c", 2)));
+				UpsertItem loaded = db.load(UpsertItem.class, 1);
+				Assert.assertEquals(url[0], "b", loaded.getName());
+				Assert.assertEquals(url[0], 2, loaded.getKind());
+				Assert.assertEquals(url[0], created.getTime(), loaded.getCreateTime().getTime());
+			} finally {
+				db.dropTable(UpsertItem.class);
+				db.shutdown();
+			}
+		}
+	}
+
+	private static List<UpsertItem> byKind(DbClient db, int kind) throws SQLException {
+		Query<UpsertItem> q = QB.create(UpsertItem.class);
+		q.addCondition(UpsertItem.Field.kind, kind);
+		return db.select(q);
+	}
+}
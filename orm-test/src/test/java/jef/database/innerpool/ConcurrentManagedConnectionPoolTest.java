@@ -0,0 +1,155 @@
+package jef.database.innerpool;
+
+import java.lang.reflect.Field;
+import java.sql.SQLException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import jef.common.pool.PoolStatus;
+import jef.database.DbUtils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ConcurrentManagedConnectionPoolTest {
+	private DataSource ds = DbUtils.createSimpleDataSource("jdbc:hsqldb:mem:cpool", "SA", "");
+
+	/**
+	 * 同一占用者重入时得到相同的连接，全部归还后才真正放回池中
+	 */
+	@Test
+	public void testReentrant() throws SQLException {
+		ConcurrentManagedConnectionPool pool = new ConcurrentManagedConnectionPool(ds, 1, 2, 100, false);
+		try {
+			ReentrantConnection c1 = pool.poll();
+			ReentrantConnection c2 = pool.poll();
+			Assert.assertSame(c1, c2);
+			Object tx = new Object();
+			ReentrantConnection c3 = pool.getConnection(tx);
+			Assert.assertNotSame(c1, c3);
+			Assert.assertSame(c3, pool.getConnection(tx));
+			Assert.assertEquals(2, pool.getStatus().getUsedCount());
+
+			c2.close();
+			Assert.assertEquals(2, pool.getStatus().getUsedCount());
+			c1.close();
+			c3.close();
+			c3.close();
+			PoolStatus status = pool.getStatus();
+			Assert.assertEquals(0, status.getUsedCount());
+			Assert.assertEquals(2, status.getCurrentSize());
+
+			// 优先取得本线程上次归还的连接
+			ReentrantConnection c4 = pool.poll();
+			Assert.assertSame(c3, c4);
+			c4.close();
+
+			pool.closeConnectionTillMin();
+			Assert.assertEquals(1, pool.getStatus().getCurrentSize());
+		} finally {
+			pool.close();
+		}
+	}
+
+	/**
+	 * 连接用尽时等待超时
+	 */
+	@Test
+	public void testTimeout() throws SQLException {
+		ConcurrentManagedConnectionPool pool = new ConcurrentManagedConnectionPool(ds, 1, 1, 100, false);
+		try {
+			ReentrantConnection conn = pool.getConnection(new Object());
+			long start = System.currentTimeMillis();
+			try {
+				pool.getConnection(new Object());
+				Assert.fail();
+			} catch (SQLException e) {
+				Assert.assertTrue(System.currentTimeMillis() - start >= 90);
+			}
+			conn.close();
+			pool.getConnection(new Object()).close();
+		} finally {
+			pool.close();
+		}
+	}
+
+	/**
+	 * 计为等待的线程不在移交队列上(正在创建连接或已经超时)时，归还连接只尝试有限次移交，连接留在池中。
+	 * 检查中的连接既不算使用中也不算空闲
+	 */
+	@Test(timeout = 5000)
+	public void testReleaseWithoutTaker() throws Exception {
+		ConcurrentManagedConnectionPool pool = new ConcurrentManagedConnectionPool(ds, 1, 2, 100, false);
+		try {
+			SingleConnection conn = (SingleConnection) pool.poll();
+			Field field = ConcurrentManagedConnectionPool.class.getDeclaredField("waiters");
+			field.setAccessible(true);
+			AtomicInteger waiters = (AtomicInteger) field.get(pool);
+			waiters.incrementAndGet();
+			try {
+				conn.close();
+			} finally {
+				waiters.decrementAndGet();
+			}
+			PoolStatus status = pool.getStatus();
+			Assert.assertEquals(0, status.getUsedCount());
+			Assert.assertEquals(1, status.getFreeCount());
+
+			Assert.assertTrue(conn.compareAndSetState(ConcurrentManagedConnectionPool.STATE_FREE, ConcurrentManagedConnectionPool.STATE_RESERVED));
+			status = pool.getStatus();
+			Assert.assertEquals(1, status.getCurrentSize());
+			Assert.assertEquals(0, status.getUsedCount());
+			Assert.assertEquals(0, status.getFreeCount());
+			conn.setState(ConcurrentManagedConnectionPool.STATE_FREE);
+		} finally {
+			pool.close();
+		}
+	}
+
+	/**
+	 * 大量线程争用少量连接，归还的连接移交给等待的线程
+	 */
+	@Test
+	public void testContention() throws Exception {
+		testContention(false);
+		testContention(true);
+	}
+
+	private void testContention(boolean fair) throws Exception {
+		final ConcurrentManagedConnectionPool pool = new ConcurrentManagedConnectionPool(ds, 1, 4, 10000, fair);
+		final int threads = 40;
+		final int loops = 500;
+		final AtomicInteger errors = new AtomicInteger();
+		final CountDownLatch latch = new CountDownLatch(threads);
+		for (int i = 0; i < threads; i++) {
+			new Thread() {
+				public void run() {
+					try {
+						for (int j = 0; j < loops; j++) {
+							ReentrantConnection conn = pool.poll();
+							Thread.yield();
+							conn.close();
+						}
+					} catch (SQLException e) {
+						errors.incrementAndGet();
+					} finally {
+						latch.countDown();
+					}
+				}
+			}.start();
+		}
+		latch.await();
+		try {
+			Assert.assertEquals(0, errors.get());
+			PoolStatus status = pool.getStatus();
+			Assert.assertEquals(0, status.getUsedCount());
+			Assert.assertTrue(status.getCurrentSize() <= 4);
+			Assert.assertTrue(status.getPollCount() >= threads * loops);
+			Assert.assertEquals(status.getPollCount(), status.getOfferCount());
+		} finally {
+			pool.close();
+		}
+	}
+}
@@ -0,0 +1,104 @@
+package jef.database.innerpool;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import jef.database.jdbc.statement.DelegatingStatement;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class StatementCacheTest {
+	private static Connection conn;
+
+	@BeforeClass
+	public static void setUp() throws SQLException {
+		conn = DriverManager.getConnection("jdbc:hsqldb:mem:stcache", "SA", "");
+		Statement st = conn.createStatement();
+		st.execute("create table st_cache (id int primary key, name varchar(20))");
+		st.execute("insert into st_cache values (1, 'a')");
+		st.execute("insert into st_cache values (2, 'b')");
+		st.close();
+	}
+
+	@AfterClass
+	public static void tearDown() throws SQLException {
+		conn.close();
+	}
+
+	/**
+	 * 关闭后的语句放回缓存，再次使用时恢复为初始状态
+	 */
+	@Test
+	public void testReuse() throws SQLException {
+		StatementCache cache = new StatementCache(10);
+		String sql = "select name from st_cache where id > ?";
+		PreparedStatement st = cache.prepareStatement(conn, sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+		Statement raw = ((DelegatingStatement) st).getDelegate();
+		st.setMaxRows(1);
+		st.setInt(1, 0);
+		Assert.assertEquals(1, count(st.executeQuery()));
+		st.close();
+		Assert.assertTrue(st.isClosed());
+		Assert.assertFalse(raw.isClosed());
+		Assert.assertEquals(1, cache.size());
+
+		PreparedStatement again = cache.prepareStatement(conn, sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+		Assert.assertSame(raw, ((DelegatingStatement) again).getDelegate());
+		Assert.assertEquals(0, again.getMaxRows());
+		Assert.assertEquals(1, cache.getHitCount());
+
+		// 使用中的语句不会被重复取出
+		PreparedStatement nested = cache.prepareStatement(conn, sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+		Assert.assertNotSame(raw, ((DelegatingStatement) nested).getDelegate());
+		again.setInt(1, 0);
+		Assert.assertEquals(2, count(again.executeQuery()));
+		nested.close();
+		again.close();
+		Assert.assertEquals(1, cache.size());
+
+		// 不同的结果集类型使用不同的语句
+		PreparedStatement scroll = cache.prepareStatement(conn, sql, ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
+		Assert.assertNotSame(raw, ((DelegatingStatement) scroll).getDelegate());
+		scroll.close();
+		Assert.assertEquals(2, cache.size());
+
+		cache.clear();
+		Assert.assertEquals(0, cache.size());
+		Assert.assertTrue(raw.isClosed());
+	}
+
+	/**
+	 * 超过容量时淘汰最近最少使用的语句
+	 */
+	@Test
+	public void testEvict() throws SQLException {
+		StatementCache cache = new StatementCache(2);
+		Statement[] raws = new Statement[3];
+		for (int i = 0; i < 3; i++) {
+			PreparedStatement st = cache.prepareStatement(conn, "select " + i + " from st_cache", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			raws[i] = ((DelegatingStatement) st).getDelegate();
+			st.close();
+		}
+		Assert.assertEquals(2, cache.size());
+		Assert.assertTrue(raws[0].isClosed());
+		Assert.assertFalse(raws[1].isClosed());
+		Assert.assertFalse(raws[2].isClosed());
+		cache.clear();
+	}
+
+	private int count(ResultSet rs) throws SQLException {
+		int n = 0;
+		while (rs.next()) {
+			n++;
+		}
+		rs.close();
+		return n;
+	}
+}
@@ -0,0 +1,112 @@
+package jef.database.jdbc.result;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import jef.database.DbUtils;
+import jef.database.wrapper.clause.InMemoryOrderBy;
+import jef.database.wrapper.populator.ColumnMeta;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MergeSortResultSetTest {
+	private List<Connection> conns = new ArrayList<Connection>();
+
+	@Before
+	public void setup() throws SQLException {
+		int[][] data = { { 1, 4, 7, 10 }, { 2, 5, 8 }, { 3, 6, 9, 11, 12 } };
+		for (int i = 0; i < data.length; i++) {
+			Connection conn = DriverManager.getConnection("jdbc:h2:mem:merge" + i);
+			Statement st = conn.createStatement();
+			st.execute("create table t(id int, shard int)");
+			for (int v : data[i]) {
+				st.execute("insert into t values(" + v + "," + i + ")");
+			}
+			st.close();
+			conns.add(conn);
+		}
+	}
+
+	@After
+	public void close() {
+		for (Connection conn : conns) {
+			DbUtils.closeConnection(conn);
+		}
+	}
+
+	@Test
+	public void testMerge() throws SQLException {
+		MergeSortResultSet rs = open();
+		List<Integer> result = new ArrayList<Integer>();
+		while (rs.next()) {
+			result.add(rs.getInt(1));
+		}
+		rs.close();
+		Assert.assertEquals(12, result.size());
+		List<Integer> sorted = new ArrayList<Integer>(result);
+		Collections.sort(sorted);
+		Assert.assertEquals(sorted, result);
+	}
+
+	@Test
+	public void testMergeWithLimit() throws SQLException {
+		LimitOffsetResultSet rs = new LimitOffsetResultSet((ResultSet) open(), 0L, 5);
+		List<Integer> result = new ArrayList<Integer>();
+		while (rs.next()) {
+			result.add(rs.getInt(1));
+		}
+		rs.close();
+		Assert.assertEquals(5, result.size());
+		Assert.assertEquals(Integer.valueOf(5), result.get(4));
+
+		rs = new LimitOffsetResultSet((ResultSet) open(), 3L, 4);
+		result.clear();
+		while (rs.next()) {
+			result.add(rs.getInt(1));
+		}
+		rs.close();
+		Assert.assertEquals(Arrays.asList(4, 5, 6, 7), result);
+	}
+
+	/**
+	 * 排序键值相等时，按分库的顺序输出，同一分库内保持原有顺序
+	 */
+	@Test
+	public void testStableOnEqualKeys() throws SQLException {
+		MergeSortResultSet rs = open("select id, shard, id/100 as k from t order by k, id", 3);
+		List<Integer> result = new ArrayList<Integer>();
+		while (rs.next()) {
+			result.add(rs.getInt(1));
+		}
+		rs.close();
+		Assert.assertEquals(Arrays.asList(1, 4, 7, 10, 2, 5, 8, 3, 6, 9, 11, 12), result);
+	}
+
+	private MergeSortResultSet open() throws SQLException {
+		return open("select id,shard from t order by id", 1);
+	}
+
+	private MergeSortResultSet open(String sql, int orderField) throws SQLException {
+		List<ResultSetHolder> holders = new ArrayList<ResultSetHolder>();
+		ColumnMeta meta = null;
+		for (Connection conn : conns) {
+			Statement st = conn.createStatement();
+			ResultSetHolder holder = new ResultSetHolder(null, st, st.executeQuery(sql));
+			if (meta == null) {
+				meta = new ColumnMeta(holder.getMetaData());
+			}
+			holders.add(holder);
+		}
+		return new MergeSortResultSet(holders, new InMemoryOrderBy(new int[] { orderField }, new boolean[] { true }), meta, null);
+	}
+}
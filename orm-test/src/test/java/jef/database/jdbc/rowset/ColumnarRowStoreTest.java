@@ -0,0 +1,66 @@
+package jef.database.jdbc.rowset;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.List;
+
+import jef.database.wrapper.clause.InMemoryDistinct;
+import jef.database.wrapper.clause.InMemoryOrderBy;
+import jef.database.wrapper.clause.InMemoryPaging;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ColumnarRowStoreTest {
+	private static void add(ColumnarRowStore store, Object... values) {
+		store.add(new Row(values.length, values));
+	}
+
+	@Test
+	public void testTypes() {
+		ColumnarRowStore store = new ColumnarRowStore(4);
+		add(store, 1, 1.5d, "a", new BigDecimal("1.0"));
+		add(store, null, null, null, null);
+		add(store, 3, 2.5d, "a", new BigDecimal("2.0"));
+		Assert.assertEquals(3, store.size());
+		Assert.assertEquals(Integer.valueOf(3), store.getValue(2, 0));
+		Assert.assertEquals(Double.valueOf(2.5d), store.getValue(2, 1));
+		Assert.assertEquals("a", store.getValue(2, 2));
+		Assert.assertEquals(new BigDecimal("2.0"), store.getValue(2, 3));
+		for (int i = 0; i < 4; i++) {
+			Assert.assertNull(store.getValue(1, i));
+		}
+
+		// 类型不一致的列改为按对象存储
+		add(store, 4L, 1, "b", null);
+		Assert.assertEquals(Integer.valueOf(1), store.getValue(0, 0));
+		Assert.assertEquals(Long.valueOf(4L), store.getValue(3, 0));
+		Assert.assertEquals(Integer.valueOf(1), store.getValue(3, 1));
+		Assert.assertNull(store.getValue(1, 0));
+	}
+
+	@Test
+	public void testProcess() throws SQLException {
+		ColumnarRowStore store = new ColumnarRowStore(2);
+		add(store, "b", 2);
+		add(store, "a", null);
+		add(store, "b", 2);
+		add(store, "c", 1);
+		add(store, "a", 3);
+		InMemoryDistinct.instance.process(store);
+		Assert.assertEquals(4, store.size());
+
+		// 与InMemoryOrderBy.compareValue相同，null视为最大值
+		new InMemoryOrderBy(new int[] { 2, 1 }, new boolean[] { false, true }).process(store);
+		Assert.assertEquals("a", store.getValue(0, 0));
+		Assert.assertNull(store.getValue(0, 1));
+		Assert.assertEquals(Integer.valueOf(3), store.getValue(1, 1));
+		Assert.assertEquals("c", store.getValue(3, 0));
+
+		new InMemoryPaging(1, 2).process(store);
+		List<Row> rows = store.asRows();
+		Assert.assertEquals(2, rows.size());
+		Assert.assertEquals("a", rows.get(0).getColumnObject(1));
+		Assert.assertEquals("b", rows.get(1).getColumnObject(1));
+	}
+}
@@ -0,0 +1,31 @@
+package jef.database.jdbc.rowset;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SpillFileTest {
+
+	/**
+	 * 关闭后视图中打开的读取器也被关闭，不能再读取
+	 */
+	@Test
+	public void testCloseView() throws SQLException {
+		SpillFile file = new SpillFile(2);
+		for (int i = 0; i < 3; i++) {
+			file.write(new Row(2, new Object[] { i, "n" + i }));
+		}
+		List<Row> rows = file.asRows();
+		Assert.assertEquals(3, rows.size());
+		Assert.assertEquals("n0", rows.get(0).getArrayObject(1));
+		file.close();
+		try {
+			rows.get(1);
+			Assert.fail();
+		} catch (RuntimeException e) {
+			// 文件已关闭
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package jef.database.jsqlparser;
+
+import java.io.StringReader;
+
+import jef.database.jsqlparser.expression.Table;
+import jef.database.jsqlparser.parser.ParseException;
+import jef.database.jsqlparser.parser.StSqlParser;
+import jef.database.jsqlparser.statement.select.PlainSelect;
+import jef.database.jsqlparser.statement.select.Select;
+import jef.database.jsqlparser.statement.update.Update;
+import jef.database.jsqlparser.visitor.Statement;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SqlParseCacheTest {
+	private static final String[] SQLS = {
+			"select t.id, count(*) as c, nvl(max(t.name), 'x') from ad.ca_account t left join b on t.id = b.aid where t.id in (?, ?) and t.name like ? group by t.id having count(*) > 1 order by t.id desc",
+			"update t set name = ?, age = age + 1 where id between ? and ?",
+			"insert into t (id, name) values (?, 'a')",
+			"delete from t where exists (select 1 from b where b.id = t.id)",
+			"select case when a is null then 1 else 2 end from t union all select 3 from dual" };
+
+	/**
+	 * 缓存得到的语法树应当和直接解析的结果一致
+	 */
+	@Test
+	public void testCopy() throws ParseException {
+		SqlParseCache cache = SqlParseCache.getInstance();
+		for (String sql : SQLS) {
+			Statement expect = new StSqlParser(new StringReader(sql)).Statement();
+			Statement first = cache.parse(SqlParseCache.Kind.NATIVE_STATEMENT, sql);
+			Statement second = cache.parse(SqlParseCache.Kind.NATIVE_STATEMENT, sql);
+			Assert.assertNotSame(first, second);
+			Assert.assertEquals(expect.toString(), first.toString());
+			Assert.assertEquals(expect.toString(), second.toString());
+		}
+	}
+
+	/**
+	 * 修改得到的语法树不影响缓存中的语法树
+	 */
+	@Test
+	public void testModifyCopy() throws ParseException {
+		SqlParseCache cache = SqlParseCache.getInstance();
+		String sql = "select a,b from t where id = ?";
+		Select select = cache.parse(SqlParseCache.Kind.NATIVE_SELECT, sql);
+		PlainSelect ps = (PlainSelect) select.getSelectBody();
+		ps.getSelectItems().remove(0);
+		Table table = (Table) ps.getFromItem();
+		table.setReplace("t_1");
+		Assert.assertEquals("select b from t_1 where id = ?", select.toString());
+		table.removeReplace();
+
+		long hit = cache.getHitCount();
+		Select again = cache.parse(SqlParseCache.Kind.NATIVE_SELECT, sql);
+		Assert.assertEquals(hit + 1, cache.getHitCount());
+		Assert.assertEquals(sql, again.toString());
+
+		Update update = cache.parse(SqlParseCache.Kind.NATIVE_STATEMENT, SQLS[1]);
+		update.getSets().clear();
+		Update update2 = cache.parse(SqlParseCache.Kind.NATIVE_STATEMENT, SQLS[1]);
+		Assert.assertEquals(2, update2.getSets().size());
+	}
+}
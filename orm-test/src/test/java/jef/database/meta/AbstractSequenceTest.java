@@ -0,0 +1,121 @@
+package jef.database.meta;
+
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jef.database.DbClient;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AbstractSequenceTest {
+	private static final Executor PREFETCH = Executors.newCachedThreadPool();
+
+	/**
+	 * 模拟每次获取一个区间的Sequence
+	 */
+	static class RangeSequence extends AbstractSequence {
+		final AtomicInteger fetchCount = new AtomicInteger();
+		private long last;
+
+		RangeSequence(int cacheSize) {
+			super(null, null);
+			setCacheSize(cacheSize);
+		}
+
+		@Override
+		protected boolean doInit(DbClient session, String dbKey) throws SQLException {
+			return true;
+		}
+
+		@Override
+		protected Executor getPrefetchExecutor() {
+			return PREFETCH;
+		}
+
+		@Override
+		protected void fetchRanges(int size, DbClient client, String dbKey) throws SQLException {
+			fetchCount.incrementAndGet();
+			pushRange(last + 1, last + size);
+			last += size;
+		}
+
+		public boolean isTable() {
+			return true;
+		}
+
+		public boolean isRawNative() {
+			return false;
+		}
+
+		public String getName() {
+			return "test";
+		}
+	}
+
+	/**
+	 * 多线程取值不重复，且每批只访问一次数据库
+	 */
+	@Test
+	public void testConcurrentNext() throws InterruptedException {
+		final RangeSequence seq = new RangeSequence(100);
+		final int threads = 8;
+		final int count = 10000;
+		final ConcurrentHashMap<Long, Boolean> values = new ConcurrentHashMap<Long, Boolean>();
+		final CountDownLatch latch = new CountDownLatch(threads);
+		for (int i = 0; i < threads; i++) {
+			new Thread() {
+				public void run() {
+					try {
+						for (int j = 0; j < count; j++) {
+							Assert.assertNull(values.put(seq.next(), Boolean.TRUE));
+						}
+					} finally {
+						latch.countDown();
+					}
+				}
+			}.start();
+		}
+		latch.await();
+		Assert.assertEquals(threads * count, values.size());
+		Assert.assertEquals(threads * count / 100, seq.fetchCount.get());
+		Assert.assertEquals(threads * count + 1, seq.next());
+	}
+
+	@Test
+	public void testPushBack() {
+		RangeSequence seq = new RangeSequence(10);
+		Assert.assertEquals(1, seq.next());
+		Assert.assertEquals(2, seq.next());
+		seq.pushBack(1);
+		Assert.assertEquals(1, seq.next());
+		Assert.assertEquals(3, seq.next());
+		seq.clear();
+		Assert.assertEquals(11, seq.next());
+	}
+
+	/**
+	 * 剩余值低于阈值时提前获取下一批
+	 */
+	@Test
+	public void testPrefetch() throws InterruptedException {
+		RangeSequence seq = new RangeSequence(10);
+		seq.setPrefetchThreshold(3);
+		for (int i = 1; i <= 7; i++) {
+			Assert.assertEquals(i, seq.next());
+		}
+		Assert.assertEquals(1, seq.fetchCount.get());
+		Assert.assertEquals(8, seq.next());
+		for (int i = 0; i < 100 && seq.fetchCount.get() < 2; i++) {
+			Thread.sleep(10);
+		}
+		Assert.assertEquals(2, seq.fetchCount.get());
+		for (int i = 9; i <= 20; i++) {
+			Assert.assertEquals(i, seq.next());
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package jef.database.meta;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collections;
+
+import jef.codegen.EntityEnhancer;
+import jef.tools.IOUtils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class EntityIndexTest {
+
+	/**
+	 * 增强时在classpath根目录下写入索引，记录父类和增强状态
+	 */
+	@Test
+	public void testEnhanceWritesIndex() {
+		new EntityEnhancer().enhance("jef.database.cache");
+		EntityIndex.clear();
+		ClassLoader cl = getClass().getClassLoader();
+		EntityIndex index = EntityIndex.get(cl);
+		Assert.assertSame(index, EntityIndex.get(cl));
+
+		EntityIndex.Entry entity = index.lookup(cl.getResource("jef/database/cache/CacheItem.class"));
+		Assert.assertNotNull(entity);
+		Assert.assertEquals("jef/database/cache/CacheItem", entity.getName());
+		Assert.assertEquals("jef/database/DataObject", entity.getSuperName());
+		Assert.assertTrue(entity.isEnhanced());
+
+		EntityIndex.Entry field = index.lookup(cl.getResource("jef/database/cache/CacheItem$Field.class"));
+		Assert.assertNotNull(field);
+		Assert.assertEquals("java/lang/Enum", field.getSuperName());
+		Assert.assertFalse(field.isEnhanced());
+	}
+
+	/**
+	 * 每个ClassLoader各自缓存索引，交替使用不同的ClassLoader时不会重新加载
+	 */
+	@Test
+	public void testPerLoader() throws IOException {
+		ClassLoader cl = getClass().getClassLoader();
+		URLClassLoader other = new URLClassLoader(new URL[0], null);
+		try {
+			EntityIndex index = EntityIndex.get(cl);
+			EntityIndex otherIndex = EntityIndex.get(other);
+			Assert.assertNotSame(index, otherIndex);
+			Assert.assertSame(index, EntityIndex.get(cl));
+			Assert.assertSame(otherIndex, EntityIndex.get(other));
+			Assert.assertEquals(0, otherIndex.size());
+		} finally {
+			IOUtils.closeQuietly(other);
+		}
+	}
+
+	/**
+	 * 生成索引后class文件发生了变化的，不再使用索引中的记录
+	 */
+	@Test
+	public void testModifiedClass() throws IOException {
+		File root = new File(System.getProperty("java.io.tmpdir"), "entity-index-" + System.nanoTime());
+		File clz = new File(root, "a/B.class");
+		IOUtils.saveAsFile(clz, new byte[] { 1, 2, 3 });
+		EntityIndex.write(root, Collections.singletonMap("a/B", new EntityIndex.Entry("a/B", "a/C", 3, true)));
+		URLClassLoader cl = new URLClassLoader(new URL[] { root.toURI().toURL() }, null);
+		try {
+			URL url = cl.getResource("a/B.class");
+			EntityIndex.Entry entry = EntityIndex.get(cl).lookup(url);
+			Assert.assertNotNull(entry);
+			Assert.assertEquals("a/C", entry.getSuperName());
+
+			IOUtils.saveAsFile(clz, new byte[] { 1, 2, 3, 4 });
+			Assert.assertNull(EntityIndex.get(cl).lookup(url));
+		} finally {
+			EntityIndex.clear();
+			IOUtils.closeQuietly(cl);
+			IOUtils.deleteTree(root, true);
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package jef.database.meta;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import jef.codegen.EntityEnhancer;
+import jef.orm.multitable.model.Person;
+import jef.orm.multitable.model.PersonFriends;
+import jef.orm.multitable.model.School;
+import jef.orm.multitable.model.Score;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MetaHolderInitTest {
+
+	/**
+	 * 多个线程按不同的顺序同时初始化互相引用的实体，不会死锁，每个类只得到一份元数据
+	 */
+	@Test(timeout = 20000)
+	public void testConcurrentInit() throws Exception {
+		new EntityEnhancer().enhance("jef.orm.multitable.model");
+		final Class<?>[] classes = { Person.class, PersonFriends.class, School.class, Score.class };
+		final int threads = 8;
+		final CyclicBarrier barrier = new CyclicBarrier(threads);
+		ExecutorService es = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<AbstractMetadata[]>> results = new ArrayList<Future<AbstractMetadata[]>>();
+			for (int i = 0; i < threads; i++) {
+				final int offset = i;
+				results.add(es.submit(() -> {
+					barrier.await();
+					AbstractMetadata[] metas = new AbstractMetadata[classes.length];
+					for (int j = 0; j < classes.length; j++) {
+						int n = (j + offset) % classes.length;
+						metas[n] = MetaHolder.getMeta(classes[n]);
+					}
+					return metas;
+				}));
+			}
+			AbstractMetadata[] first = results.get(0).get();
+			for (Future<AbstractMetadata[]> f : results) {
+				Assert.assertArrayEquals(first, f.get());
+			}
+		} finally {
+			es.shutdown();
+		}
+		Assert.assertFalse(MetaHolder.getMeta(Person.class).getRefFieldsByName().isEmpty());
+		Assert.assertFalse(MetaHolder.getMeta(PersonFriends.class).getRefFieldsByName().isEmpty());
+	}
+}
@@ -0,0 +1,112 @@
+package jef.database.routing.sql;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import jef.codegen.EntityEnhancer;
+import jef.database.dialect.DatabaseDialect;
+import jef.database.dialect.MySqlDialect;
+import jef.database.innerpool.PartitionSupport;
+import jef.database.jsqlparser.SqlParseCache;
+import jef.database.jsqlparser.expression.Table;
+import jef.database.jsqlparser.parser.ParseException;
+import jef.database.jsqlparser.visitor.Statement;
+import jef.database.meta.AbstractMetadata;
+import jef.database.meta.ITableMetadata;
+import jef.database.meta.MetaHolder;
+import jef.database.routing.PartitionResult;
+import jef.orm.partition.ShardEntity;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class RoutingTemplateTest {
+	@BeforeClass
+	public static void setUp() {
+		new EntityEnhancer().enhance("jef.orm.partition");
+	}
+
+	private PartitionSupport support = new PartitionSupport() {
+		public Collection<String> getSubTableNames(String dbName, ITableMetadata pTable) throws SQLException {
+			return new ArrayList<String>();
+		}
+
+		public Collection<String> getDdcNames() {
+			return Arrays.asList("db1");
+		}
+
+		public DatabaseDialect getProfile(String dbkey) {
+			return new MySqlDialect();
+		}
+
+		public void ensureTableExists(String db, String table, ITableMetadata meta) {
+		}
+
+		public PartitionResult[] getSubTableNames(ITableMetadata meta) {
+			return new PartitionResult[] { new PartitionResult(meta.getTableName(true)) };
+		}
+
+		public boolean isExist(String dbName, String table, ITableMetadata meta) {
+			return true;
+		}
+	};
+
+	/**
+	 * 路由模板的计算结果应当和逐次分析语法树的结果一致
+	 */
+	@Test
+	public void testSameAsAnalyzer() throws ParseException {
+		AbstractMetadata meta = (AbstractMetadata) MetaHolder.getMeta(ShardEntity.class);
+		String[] sqls = { "delete from shard_entity where name = ? and int_field = ?", "update shard_entity set name = ? where int_field in (?, 4) and id > ?",
+				"insert into shard_entity (id, name, int_field) values (?, ?, ?)" };
+		Object[][] params = { { "a", 4L }, { "a", 7L, 1 }, { 1, "a", 8L } };
+		for (int i = 0; i < sqls.length; i++) {
+			Statement st = SqlParseCache.getInstance().parse(SqlParseCache.Kind.NATIVE_STATEMENT, sqls[i]);
+			RoutingTemplate template = RoutingTemplate.compile(st);
+			Assert.assertNotNull(template);
+			Assert.assertTrue(template.isPartitioned());
+			List<Object> values = Arrays.asList(params[i]);
+			PartitionResult expect = SqlAnalyzer.getPartitionResult(st, meta, SqlAnalyzer.reverse(st, values), support);
+			PartitionResult actual = template.routeOne(values, support);
+			Assert.assertEquals(expect.toString(), actual.toString());
+		}
+	}
+
+	/**
+	 * 模板保存语法树和需要替换表名的位置，命中缓存时直接使用，不再分析语法树
+	 */
+	@Test
+	public void testModificationPoints() throws ParseException {
+		MetaHolder.getMeta(ShardEntity.class);
+		String sql = "update shard_entity set name = ? where int_field = ?";
+		DatabaseDialect profile = new MySqlDialect();
+		Statement st = SqlParseCache.getInstance().parse(SqlParseCache.Kind.NATIVE_STATEMENT, sql);
+		RoutingTemplate template = RoutingTemplate.get(sql, profile, st, null);
+		Assert.assertSame(template, RoutingTemplate.lookup(sql, profile));
+		Assert.assertSame(st, template.getStatement());
+		Assert.assertEquals(1, template.getModifications().size());
+
+		Table table = template.getModifications().get(0);
+		table.setReplace("shard_entity_4");
+		try {
+			Assert.assertEquals("update shard_entity_4 set name = ? where int_field = ?", template.getStatement().toString());
+		} finally {
+			table.removeReplace();
+		}
+		Assert.assertNull(RoutingTemplate.lookup(sql, new MySqlDialect()));
+	}
+
+	/**
+	 * JPQL参数的个数和绑定值有关，不能编译成模板
+	 */
+	@Test
+	public void testJpqlParameter() throws ParseException {
+		MetaHolder.getMeta(ShardEntity.class);
+		Statement st = SqlParseCache.getInstance().parse(SqlParseCache.Kind.JPQL_STATEMENT, "delete from shard_entity where int_field = :value");
+		Assert.assertNull(RoutingTemplate.compile(st));
+	}
+}
@@ -0,0 +1,56 @@
+package jef.database.wrapper.clause;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Random;
+
+import jef.database.jdbc.rowset.Row;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ExternalSorterTest {
+	/**
+	 * 溢出到磁盘后的排序去重结果与在内存中处理的结果相同
+	 */
+	@Test
+	public void testSpill() throws SQLException {
+		InMemoryOrderBy order = new InMemoryOrderBy(new int[] { 2 }, new boolean[] { false });
+		ExternalSorter memory = new ExternalSorter(4, order, true, Integer.MAX_VALUE);
+		ExternalSorter disk = new ExternalSorter(4, order, true, 37);
+		Random random = new Random(1);
+		for (int i = 0; i < 1000; i++) {
+			int k = random.nextInt(300);
+			Object[] values = { k, k % 7 == 0 ? null : "v" + (k % 50), new BigDecimal(k).movePointLeft(2), new Timestamp(1000000L * k) };
+			memory.add(new Row(4, values));
+			disk.add(new Row(4, values));
+		}
+		Assert.assertFalse(memory.isSpilled());
+		Assert.assertTrue(disk.isSpilled());
+		try {
+			List<Row> expected = memory.finish();
+			List<Row> actual = disk.finish();
+			Assert.assertEquals(expected.size(), actual.size());
+			String last = null;
+			for (int i = 0; i < actual.size(); i++) {
+				Row row = actual.get(i);
+				String v = (String) row.getArrayObject(1);
+				// 按第二列倒序，null在最前
+				if (last != null) {
+					Assert.assertTrue(v.compareTo(last) <= 0);
+				}
+				if (v != null) {
+					last = v;
+				}
+				Assert.assertEquals(expected.get(i).getArrayObject(1), v);
+			}
+			// 可以回到开头重新读取
+			Assert.assertEquals(expected.get(0).getArrayObject(1), actual.get(0).getArrayObject(1));
+		} finally {
+			memory.close();
+			disk.close();
+		}
+	}
+}
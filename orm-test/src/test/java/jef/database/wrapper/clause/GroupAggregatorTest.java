@@ -0,0 +1,134 @@
+package jef.database.wrapper.clause;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import jef.database.DbUtils;
+import jef.database.jdbc.rowset.Row;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class GroupAggregatorTest {
+	private List<Connection> conns = new ArrayList<Connection>();
+
+	@Before
+	public void setup() throws SQLException {
+		// 分库0上 a组有三条记录，分库1上a组只有一条记录，用于验证AVG的加权计算
+		String[][] data = { { "'a',1", "'a',2", "'a',3", "'b',10" }, { "'a',10", "'b',20", "'c',5" } };
+		for (int i = 0; i < data.length; i++) {
+			Connection conn = DriverManager.getConnection("jdbc:h2:mem:group" + i);
+			Statement st = conn.createStatement();
+			st.execute("create table t(k varchar(10), v int)");
+			for (String v : data[i]) {
+				st.execute("insert into t values(" + v + ")");
+			}
+			st.close();
+			conns.add(conn);
+		}
+	}
+
+	@After
+	public void close() {
+		for (Connection conn : conns) {
+			DbUtils.closeConnection(conn);
+		}
+	}
+
+	@Test
+	public void testAggregate() throws SQLException {
+		GroupByItem avg = new GroupByItem(5, GroupFunctionType.AVG, "a");
+		avg.setCountIndex(6);
+		InMemoryGroupByHaving group = new InMemoryGroupByHaving(Arrays.asList(new GroupByItem(0, GroupFunctionType.GROUP, "k")), Arrays.asList(
+				new GroupByItem(1, GroupFunctionType.SUM, "s"), new GroupByItem(2, GroupFunctionType.COUNT, "c"), new GroupByItem(3, GroupFunctionType.MIN, "mi"),
+				new GroupByItem(4, GroupFunctionType.MAX, "ma"), avg));
+		group.setHiddenColumns(1);
+		GroupAggregator aggregator = group.newAggregator(7, 0);
+		for (Connection conn : conns) {
+			Statement st = conn.createStatement();
+			ResultSet rs = st.executeQuery("select k,sum(v),count(v),min(v),max(v),sum(v),count(v) from t group by k");
+			aggregator.add(rs);
+			rs.close();
+			st.close();
+		}
+		Assert.assertEquals(6, aggregator.getOutputColumnCount());
+		List<Row> rows = group.finish(aggregator);
+		Assert.assertEquals(3, rows.size());
+		for (Row row : rows) {
+			if ("a".equals(row.getArrayObject(0))) {
+				Assert.assertEquals(16L, ((Number) row.getArrayObject(1)).longValue());
+				Assert.assertEquals(4L, ((Number) row.getArrayObject(2)).longValue());
+				Assert.assertEquals(1, ((Number) row.getArrayObject(3)).intValue());
+				Assert.assertEquals(10, ((Number) row.getArrayObject(4)).intValue());
+				Assert.assertEquals(4.0d, ((Number) row.getArrayObject(5)).doubleValue(), 0.0001);
+			}
+		}
+	}
+
+	/**
+	 * 分组数超过上限时写入临时文件，逐个分区聚合的结果与全部在内存中聚合相同
+	 */
+	@Test
+	public void testSpill() throws SQLException {
+		InMemoryGroupByHaving group = new InMemoryGroupByHaving(Arrays.asList(new GroupByItem(0, GroupFunctionType.GROUP, "k")), Arrays.asList(
+				new GroupByItem(1, GroupFunctionType.SUM, "s"), new GroupByItem(2, GroupFunctionType.MAX, "ma")));
+		GroupAggregator aggregator = group.newAggregator(3, 0);
+		aggregator.setSpillGroups(1);
+		for (Connection conn : conns) {
+			Statement st = conn.createStatement();
+			ResultSet rs = st.executeQuery("select k,sum(v),max(v) from t group by k");
+			aggregator.add(rs);
+			rs.close();
+			st.close();
+		}
+		List<Row> rows = new ArrayList<Row>();
+		collect(group, aggregator, rows);
+		Assert.assertEquals(3, rows.size());
+		for (Row row : rows) {
+			Object k = row.getArrayObject(0);
+			long sum = ((Number) row.getArrayObject(1)).longValue();
+			int max = ((Number) row.getArrayObject(2)).intValue();
+			if ("a".equals(k)) {
+				Assert.assertEquals(16L, sum);
+				Assert.assertEquals(10, max);
+			} else if ("b".equals(k)) {
+				Assert.assertEquals(30L, sum);
+				Assert.assertEquals(20, max);
+			} else {
+				Assert.assertEquals(5L, sum);
+			}
+		}
+	}
+
+	/**
+	 * 不能在内存中合并的函数在查询各库之前拒绝
+	 */
+	@Test
+	public void testUnsupportedFunction() {
+		InMemoryGroupByHaving group = new InMemoryGroupByHaving(Arrays.asList(new GroupByItem(0, GroupFunctionType.GROUP, "k")), Arrays.asList(
+				new GroupByItem(1, GroupFunctionType.SUM, "s"), new GroupByItem(2, GroupFunctionType.ARRAY_TO_STRING, "names")));
+		try {
+			group.checkSupported();
+			Assert.fail();
+		} catch (SQLFeatureNotSupportedException e) {
+			Assert.assertTrue(e.getMessage().contains("ARRAY_TO_STRING"));
+		}
+	}
+
+	private void collect(InMemoryGroupByHaving group, GroupAggregator aggregator, List<Row> rows) throws SQLException {
+		rows.addAll(group.finish(aggregator));
+		GroupAggregator partition;
+		while ((partition = aggregator.nextPartition()) != null) {
+			collect(group, partition, rows);
+		}
+	}
+}
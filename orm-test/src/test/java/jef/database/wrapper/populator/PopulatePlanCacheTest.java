@@ -0,0 +1,115 @@
+package jef.database.wrapper.populator;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import jef.codegen.EntityEnhancer;
+import jef.database.DbClient;
+import jef.database.DbClientBuilder;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class PopulatePlanCacheTest {
+	private static DbClient db;
+
+	public static class PlainItem {
+		private int id;
+		private String name;
+		private Integer kind;
+
+		public int getId() {
+			return id;
+		}
+
+		public void setId(int id) {
+			this.id = id;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public Integer getKind() {
+			return kind;
+		}
+
+		public void setKind(Integer kind) {
+			this.kind = kind;
+		}
+	}
+
+	@BeforeClass
+	public static void setup() throws SQLException {
+		new EntityEnhancer().enhanceClass("jef.database.wrapper.populator.PlanItem");
+		db = new DbClientBuilder().setDataSource("jdbc:hsqldb:mem:populateplan", "SA", "").build();
+		db.createTable(PlanItem.class);
+		List<PlanItem> items = new ArrayList<PlanItem>();
+		for (int i = 1; i <= 10; i++) {
+			items.add(new PlanItem(i, "n" + i, i % 3));
+		}
+		db.batchInsert(items);
+	}
+
+	@AfterClass
+	public static void close() throws SQLException {
+		db.dropTable(PlanItem.class);
+		db.shutdown();
+	}
+
+	/**
+	 * 相同的查询复用列描述和拼装器
+	 */
+	@Test
+	public void testReuse() throws SQLException {
+		PopulatePlanCache cache = PopulatePlanCache.getInstance();
+		db.load(PlanItem.class, 1);
+		long hits = cache.getHitCount();
+		for (int i = 2; i <= 5; i++) {
+			PlanItem item = db.load(PlanItem.class, i);
+			Assert.assertEquals("n" + i, item.getName());
+			Assert.assertEquals(i % 3, item.getKind());
+			Assert.assertTrue(item.getUpdateValueMap().isEmpty());
+		}
+		Assert.assertEquals(hits + 4, cache.getHitCount());
+
+		// 同一SQL拼装为不同类型时各自缓存
+		String sql = "select id, name, kind from plan_item where id = ?";
+		for (int i = 1; i <= 3; i++) {
+			PlainItem p = db.loadBySql(sql, PlainItem.class, i);
+			Assert.assertEquals("n" + i, p.getName());
+			Assert.assertEquals(Integer.valueOf(i % 3), p.getKind());
+			Map<String, Object> m = db.loadBySql(sql, Map.class, i);
+			Assert.assertEquals("n" + i, m.get("name"));
+			Assert.assertEquals(Integer.valueOf(i), db.loadBySql("select id from plan_item where id = ?", Integer.class, i));
+		}
+	}
+
+	/**
+	 * 表结构变化后列布局不同，重新计算拼装计划
+	 */
+	@Test
+	public void testLayoutChanged() throws SQLException {
+		PopulatePlanCache cache = PopulatePlanCache.getInstance();
+		String sql = "select * from plan_item where id = ?";
+		Assert.assertEquals("n1", db.loadBySql(sql, PlainItem.class, 1).getName());
+		long changed = cache.getChangedCount();
+		db.executeSql("alter table plan_item add column extra varchar(10) default 'x' before name");
+		try {
+			PlainItem p = db.loadBySql(sql, PlainItem.class, 2);
+			Assert.assertEquals("n2", p.getName());
+			Assert.assertEquals(Integer.valueOf(2), p.getKind());
+			Assert.assertEquals(changed + 1, cache.getChangedCount());
+		} finally {
+			db.executeSql("alter table plan_item drop column extra");
+		}
+	}
+}
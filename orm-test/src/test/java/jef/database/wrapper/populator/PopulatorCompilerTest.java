@@ -0,0 +1,175 @@
+package jef.database.wrapper.populator;
+
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import jef.codegen.EntityEnhancer;
+import jef.database.DbClient;
+import jef.database.DbClientBuilder;
+import jef.database.ORMConfig;
+import jef.database.QB;
+import jef.database.dialect.type.ColumnMappings;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class PopulatorCompilerTest {
+	private static DbClient db;
+
+	public static class PlainItem {
+		private int id;
+		private String name;
+		private Integer kind;
+
+		public int getId() {
+			return id;
+		}
+
+		public void setId(int id) {
+			this.id = id;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public Integer getKind() {
+			return kind;
+		}
+
+		public void setKind(Integer kind) {
+			this.kind = kind;
+		}
+	}
+
+	@BeforeClass
+	public static void setup() throws SQLException {
+		new EntityEnhancer().enhanceClass("jef.database.wrapper.populator.CompiledItem");
+		db = new DbClientBuilder().setDataSource("jdbc:hsqldb:mem:populator", "SA", "").build();
+		db.createTable(CompiledItem.class);
+		List<CompiledItem> items = new ArrayList<CompiledItem>();
+		for (int i = 1; i <= 20; i++) {
+			items.add(new CompiledItem(i, i % 4 == 0 ? null : "n" + i, i % 3));
+		}
+		db.batchInsert(items);
+	}
+
+	@AfterClass
+	public static void close() throws SQLException {
+		db.dropTable(CompiledItem.class);
+		db.shutdown();
+	}
+
+	/**
+	 * 常用类型按类型取值，其余列仍使用ResultSetAccessor
+	 */
+	@Test
+	public void testCompile() {
+		Map<String, ColumnDescription> data = new HashMap<String, ColumnDescription>();
+		ColumnDescription id = new ColumnDescription(1, Types.INTEGER, "ID", null, null);
+		id.setAccessor(ColumnMappings.I);
+		ColumnDescription name = new ColumnDescription(2, Types.VARCHAR, "NAME", null, null);
+		name.setAccessor(ColumnMappings.RAW);
+		data.put("id", id);
+		data.put("name", name);
+		ObjectPopulator op = new ObjectPopulator(null, data);
+		Assert.assertTrue(op.compile(PlainItem.class));
+		Assert.assertTrue(op.isCompiledFor(PlainItem.class));
+		Assert.assertFalse(op.isCompiledFor(CompiledItem.class));
+
+		// 相同布局共用生成的类
+		ObjectPopulator op2 = new ObjectPopulator(null, data);
+		op2.compile(PlainItem.class);
+		List<String> names = new ArrayList<String>();
+		names.add("id");
+		List<ColumnDescription> columns = new ArrayList<ColumnDescription>();
+		columns.add(id);
+		Assert.assertSame(PopulatorCompiler.get(PlainItem.class, names, columns), PopulatorCompiler.get(PlainItem.class, names, columns));
+
+		// 没有setter的字段不生成
+		data.clear();
+		data.put("notExist", id);
+		Assert.assertFalse(new ObjectPopulator(null, data).compile(PlainItem.class));
+	}
+
+	/**
+	 * 多个线程同时生成同一布局时得到同一个拼装器
+	 */
+	@Test
+	public void testConcurrentGet() throws Exception {
+		ColumnDescription kind = new ColumnDescription(3, Types.INTEGER, "KIND", null, null);
+		kind.setAccessor(ColumnMappings.INT);
+		final List<String> names = Collections.singletonList("kind");
+		final List<ColumnDescription> columns = Collections.singletonList(kind);
+		ExecutorService es = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<CompiledPopulator>> results = new ArrayList<Future<CompiledPopulator>>();
+			for (int i = 0; i < 32; i++) {
+				results.add(es.submit(() -> PopulatorCompiler.get(PlainItem.class, names, columns)));
+			}
+			CompiledPopulator first = results.get(0).get();
+			Assert.assertNotNull(first);
+			for (Future<CompiledPopulator> f : results) {
+				Assert.assertSame(first, f.get());
+			}
+		} finally {
+			es.shutdown();
+		}
+	}
+
+	/**
+	 * 生成的拼装类和逐个字段设值的结果一致，包括null值
+	 */
+	@Test
+	public void testSameResult() throws SQLException {
+		String sql = "select id, name, case when id = 3 then null else kind end as kind from compiled_item order by id";
+		ORMConfig config = ORMConfig.getInstance();
+		boolean old = config.isCompilePopulator();
+		try {
+			config.setCompilePopulator(true);
+			List<CompiledItem> compiled = db.select(QB.create(CompiledItem.class));
+			List<PlainItem> compiledPlain = db.selectBySql(sql, PlainItem.class);
+			config.setCompilePopulator(false);
+			List<CompiledItem> reflected = db.select(QB.create(CompiledItem.class));
+			List<PlainItem> reflectedPlain = db.selectBySql(sql, PlainItem.class);
+
+			Assert.assertEquals(20, compiled.size());
+			Assert.assertEquals(reflected.size(), compiled.size());
+			for (int i = 0; i < compiled.size(); i++) {
+				CompiledItem a = compiled.get(i);
+				CompiledItem b = reflected.get(i);
+				Assert.assertEquals(b.getId(), a.getId());
+				Assert.assertEquals(b.getName(), a.getName());
+				Assert.assertEquals(b.getKind(), a.getKind());
+				// 拼装时不记录更新
+				Assert.assertTrue(a.getUpdateValueMap().isEmpty());
+			}
+			Assert.assertEquals(20, compiledPlain.size());
+			for (int i = 0; i < compiledPlain.size(); i++) {
+				PlainItem a = compiledPlain.get(i);
+				PlainItem b = reflectedPlain.get(i);
+				Assert.assertEquals(b.getId(), a.getId());
+				Assert.assertEquals(b.getName(), a.getName());
+				Assert.assertEquals(b.getKind(), a.getKind());
+			}
+			Assert.assertNull(compiledPlain.get(3).getName());
+			Assert.assertNull(compiledPlain.get(2).getKind());
+		} finally {
+			config.setCompilePopulator(old);
+		}
+	}
+}
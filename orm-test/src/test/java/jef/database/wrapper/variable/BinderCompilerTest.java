@@ -0,0 +1,145 @@
+package jef.database.wrapper.variable;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import jef.codegen.EntityEnhancer;
+import jef.database.DbClient;
+import jef.database.DbClientBuilder;
+import jef.database.ORMConfig;
+import jef.database.QB;
+import jef.database.dialect.type.ColumnMapping;
+import jef.database.meta.ITableMetadata;
+import jef.database.meta.MetaHolder;
+import jef.database.query.JpqlExpression;
+import jef.database.query.Query;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class BinderCompilerTest {
+	private static DbClient db;
+
+	@BeforeClass
+	public static void setup() throws SQLException {
+		new EntityEnhancer().enhance("jef.database.wrapper.variable");
+		db = new DbClientBuilder().setDataSource("jdbc:hsqldb:mem:binder", "SA", "").build();
+		db.createTable(BinderItem.class);
+	}
+
+	@AfterClass
+	public static void close() throws SQLException {
+		db.dropTable(BinderItem.class);
+		db.shutdown();
+	}
+
+	/**
+	 * 相同布局共用生成的类
+	 */
+	@Test
+	public void testCompile() {
+		ITableMetadata meta = MetaHolder.getMeta(BinderItem.class);
+		List<ColumnMapping> columns = new ArrayList<ColumnMapping>(meta.getColumns());
+		CompiledBinder binder = BinderCompiler.get(BinderItem.class, columns);
+		Assert.assertNotNull(binder);
+		Assert.assertSame(binder, BinderCompiler.get(BinderItem.class, new ArrayList<ColumnMapping>(meta.getColumns())));
+		Assert.assertNotSame(binder, BinderCompiler.get(BinderItem.class, columns.subList(0, 2)));
+	}
+
+	/**
+	 * 生成的绑定类插入和更新的结果与逐个字段绑定一致，包括null值
+	 */
+	@Test
+	public void testBatch() throws SQLException {
+		ORMConfig config = ORMConfig.getInstance();
+		boolean debug = config.isDebugMode();
+		Date now = new Date(System.currentTimeMillis() / 1000 * 1000);
+		try {
+			// 输出日志时逐个字段绑定，关闭后使用生成的类
+			config.setDebugMode(false);
+			db.batchInsert(create(1, 10, now));
+			config.setDebugMode(true);
+			db.batchInsert(create(11, 20, now));
+
+			List<BinderItem> loaded = db.select(byId());
+			Assert.assertEquals(20, loaded.size());
+			assertLoaded(create(1, 20, now), loaded);
+
+			// 批量更新，第一个对象显式指定了更新值时整批按字段逐个绑定
+			config.setDebugMode(false);
+			for (BinderItem item : loaded) {
+				item.setName("u" + item.getId());
+				item.setAmount(item.getId() % 2 == 0 ? null : Long.valueOf(item.getId() * 10L));
+				item.setPrice(item.getPrice() + 1);
+			}
+			db.batchUpdate(loaded.subList(0, 10));
+			loaded.get(10).prepareUpdate(BinderItem.Field.price, new JpqlExpression("price+1"));
+			db.batchUpdate(loaded.subList(10, 20));
+
+			for (BinderItem item : db.select(byId())) {
+				int i = item.getId();
+				Assert.assertEquals("u" + i, item.getName());
+				Assert.assertEquals(i % 2 == 0 ? null : Long.valueOf(i * 10L), item.getAmount());
+				Assert.assertEquals(i * 1.5 + 1, item.getPrice(), 0.0001);
+				Assert.assertEquals(i % 3 == 0 ? null : Float.valueOf(i), item.getRate());
+			}
+		} finally {
+			config.setDebugMode(debug);
+		}
+	}
+
+	private static Query<BinderItem> byId() {
+		Query<BinderItem> q = QB.create(BinderItem.class);
+		q.orderByAsc(BinderItem.Field.id);
+		return q;
+	}
+
+	/*
+	 * 辅助方法的签名中不能出现BinderItem，否则JUnit反射测试类的方法时会在增强之前加载实体
+	 */
+	private static List<BinderItem> create(int from, int to, Date now) {
+		List<BinderItem> items = new ArrayList<BinderItem>();
+		for (int i = from; i <= to; i++) {
+			BinderItem item = new BinderItem();
+			item.setId(i);
+			item.setName(i % 4 == 0 ? null : "n" + i);
+			item.setAmount(i % 2 == 0 ? null : Long.valueOf(i * 100L));
+			item.setPrice(i * 1.5);
+			item.setRate(i % 3 == 0 ? null : Float.valueOf(i));
+			item.setFlag(i % 2 == 0);
+			item.setFlag2(i % 5 == 0 ? null : Boolean.valueOf(i % 2 == 1));
+			item.setCreated(i % 6 == 0 ? null : new Date(now.getTime() + i * 1000L));
+			item.setMoney(i % 7 == 0 ? null : new BigDecimal(i + ".25"));
+			item.setKind(i % 3 == 0 ? null : i % 2 == 0 ? BinderItem.Kind.A : BinderItem.Kind.B);
+			items.add(item);
+		}
+		return items;
+	}
+
+	private static void assertLoaded(List<BinderItem> expectedList, List<BinderItem> actualList) {
+		Assert.assertEquals(expectedList.size(), actualList.size());
+		for (int i = 0; i < expectedList.size(); i++) {
+			BinderItem expected = expectedList.get(i);
+			BinderItem actual = actualList.get(i);
+			Assert.assertEquals(expected.getId(), actual.getId());
+			Assert.assertEquals(expected.getName(), actual.getName());
+			Assert.assertEquals(expected.getAmount(), actual.getAmount());
+			Assert.assertEquals(expected.getPrice(), actual.getPrice(), 0.0001);
+			Assert.assertEquals(expected.getRate(), actual.getRate());
+			Assert.assertEquals(expected.isFlag(), actual.isFlag());
+			Assert.assertEquals(expected.getFlag2(), actual.getFlag2());
+			Assert.assertEquals(expected.getCreated() == null ? null : expected.getCreated().getTime(), actual.getCreated() == null ? null : actual.getCreated().getTime());
+			if (expected.getMoney() == null) {
+				Assert.assertNull(actual.getMoney());
+			} else {
+				Assert.assertEquals(0, expected.getMoney().compareTo(actual.getMoney()));
+			}
+			Assert.assertEquals(expected.getKind(), actual.getKind());
+		}
+	}
+}
@@ -0,0 +1,134 @@
+package jef.database.wrapper.variable;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * 批量绑定测试用的实体，包含常用的原生类型、包装类型和其他类型的字段
+ */
+@Entity
+@Table(name = "binder_item")
+public class BinderItem extends jef.database.DataObject {
+	private static final long serialVersionUID = 1L;
+
+	public enum Kind {
+		A, B
+	}
+
+	// 非private的字段由生成的绑定类直接读取，private的字段按字段访问器取值
+	@Id
+	int id;
+
+	String name;
+
+	private Long amount;
+
+	double price;
+
+	private Float rate;
+
+	private boolean flag;
+
+	Boolean flag2;
+
+	@Column(columnDefinition = "TimeStamp")
+	private Date created;
+
+	@Column(precision = 12, scale = 2)
+	private BigDecimal money;
+
+	@Enumerated(EnumType.STRING)
+	@Column(length = 8)
+	private Kind kind;
+
+	public int getId() {
+		return id;
+	}
+
+	public void setId(int id) {
+		this.id = id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public Long getAmount() {
+		return amount;
+	}
+
+	public void setAmount(Long amount) {
+		this.amount = amount;
+	}
+
+	public double getPrice() {
+		return price;
+	}
+
+	public void setPrice(double price) {
+		this.price = price;
+	}
+
+	public Float getRate() {
+		return rate;
+	}
+
+	public void setRate(Float rate) {
+		this.rate = rate;
+	}
+
+	public boolean isFlag() {
+		return flag;
+	}
+
+	public void setFlag(boolean flag) {
+		this.flag = flag;
+	}
+
+	public Boolean getFlag2() {
+		return flag2;
+	}
+
+	public void setFlag2(Boolean flag2) {
+		this.flag2 = flag2;
+	}
+
+	public Date getCreated() {
+		return created;
+	}
+
+	public void setCreated(Date created) {
+		this.created = created;
+	}
+
+	public BigDecimal getMoney() {
+		return money;
+	}
+
+	public void setMoney(BigDecimal money) {
+		this.money = money;
+	}
+
+	public Kind getKind() {
+		return kind;
+	}
+
+	public void setKind(Kind kind) {
+		this.kind = kind;
+	}
+
+	public enum Field implements jef.database.Field {
+		id, name, amount, price, rate, flag, flag2, created, money, kind
+	}
+}
@@ -0,0 +1,126 @@
+package jef.orm.batchload;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import jef.codegen.EntityEnhancer;
+import jef.database.DataObject;
+import jef.database.DbClient;
+import jef.database.DbClientBuilder;
+import jef.database.DebugUtil;
+import jef.database.ILazyLoadContext;
+import jef.database.ORMConfig;
+import jef.database.QB;
+import jef.database.query.Query;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * 级联对多关系的批量加载
+ */
+public class CascadeBatchLoadTest {
+	private static DbClient db;
+
+	@BeforeClass
+	public static void setUp() throws SQLException {
+		new EntityEnhancer().enhance("jef.orm.batchload");
+		db = new DbClientBuilder().setDataSource("jdbc:hsqldb:mem:batchload", "SA", "").build();
+		db.createTable(Shop.class, Goods.class);
+		int goodsId = 0;
+		for (int i = 0; i < 8; i++) {
+			db.insert(new Shop(i, "shop" + i));
+			// 第0个商店没有商品
+			for (int j = i; j > 0; j--) {
+				db.insert(new Goods(++goodsId, i, "goods" + j));
+			}
+		}
+	}
+
+	@AfterClass
+	public static void tearDown() throws SQLException {
+		db.dropTable(Shop.class, Goods.class);
+		db.close();
+	}
+
+	/**
+	 * 延迟加载时，访问一个对象的级联字段会同时加载同一批的其他对象
+	 */
+	@Test
+	public void testLazyBatch() throws SQLException {
+		int old = ORMConfig.getInstance().getCascadeBatchSize();
+		ORMConfig.getInstance().setCascadeBatchSize(3);
+		try {
+			List<Shop> shops = selectShops();
+			Assert.assertEquals(8, shops.size());
+			for (Shop shop : shops) {
+				Assert.assertNotNull(lazy(shop));
+			}
+			shops.get(1).getGoods();
+			// 一次加载3个对象
+			Assert.assertNull(lazy(shops.get(0)));
+			Assert.assertNull(lazy(shops.get(1)));
+			Assert.assertNull(lazy(shops.get(2)));
+			Assert.assertNotNull(lazy(shops.get(3)));
+			check(shops);
+		} finally {
+			ORMConfig.getInstance().setCascadeBatchSize(old);
+		}
+	}
+
+	/**
+	 * 非延迟加载时，批量加载和逐个加载的结果一致
+	 */
+	@Test
+	public void testEagerBatch() throws SQLException {
+		int old = ORMConfig.getInstance().getCascadeBatchSize();
+		ORMConfig.getInstance().setEnableLazyLoad(false);
+		try {
+			ORMConfig.getInstance().setCascadeBatchSize(0);
+			List<Shop> one = selectShops();
+			check(one);
+			ORMConfig.getInstance().setCascadeBatchSize(5);
+			List<Shop> batch = selectShops();
+			check(batch);
+			for (int i = 0; i < one.size(); i++) {
+				Assert.assertEquals(names(one.get(i).getGoods()), names(batch.get(i).getGoods()));
+			}
+		} finally {
+			ORMConfig.getInstance().setEnableLazyLoad(true);
+			ORMConfig.getInstance().setCascadeBatchSize(old);
+		}
+	}
+
+	// 参数使用Object类型，避免测试类校验时提前加载尚未增强的实体类
+	private ILazyLoadContext lazy(Object obj) {
+		return DebugUtil.getLazy((DataObject) obj);
+	}
+
+	private List<Shop> selectShops() throws SQLException {
+		Query<Shop> query = QB.create(Shop.class);
+		query.orderByAsc(Shop.Field.id);
+		return db.select(query);
+	}
+
+	private void check(List<Shop> shops) {
+		for (Shop shop : shops) {
+			List<Goods> goods = shop.getGoods();
+			Assert.assertEquals(shop.getId(), goods.size());
+			for (int j = 0; j < goods.size(); j++) {
+				Assert.assertEquals("goods" + (j + 1), goods.get(j).getName());
+				Assert.assertSame(shop, goods.get(j).getShop());
+			}
+		}
+	}
+
+	private List<String> names(List<Goods> goods) {
+		List<String> names = new ArrayList<String>();
+		for (Goods g : goods) {
+			names.add(g.getName());
+		}
+		return names;
+	}
+}
@@ -0,0 +1,67 @@
+package jef.orm.batchload;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+
+@Entity
+public class Goods extends jef.database.DataObject {
+	private static final long serialVersionUID = 1L;
+
+	@Id
+	private int id;
+
+	private long shopId;
+
+	private String name;
+
+	@ManyToOne(targetEntity = Shop.class)
+	@JoinColumn(name = "shopId", referencedColumnName = "id")
+	private Shop shop;
+
+	public Goods() {
+	}
+
+	public Goods(int id, long shopId, String name) {
+		this.id = id;
+		this.shopId = shopId;
+		this.name = name;
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public void setId(int id) {
+		this.id = id;
+	}
+
+	public long getShopId() {
+		return shopId;
+	}
+
+	public void setShopId(long shopId) {
+		this.shopId = shopId;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public Shop getShop() {
+		return shop;
+	}
+
+	public void setShop(Shop shop) {
+		this.shop = shop;
+	}
+
+	public enum Field implements jef.database.Field {
+		id, shopId, name
+	}
+}
@@ -0,0 +1,72 @@
+package jef.orm.partition;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import jef.codegen.EntityEnhancer;
+import jef.database.Batch;
+import jef.database.DbClient;
+import jef.database.DbClientBuilder;
+import jef.database.DbUtils;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * 分库后的批量操作：按库并行执行、按批大小分次提交、记录每组的执行结果
+ */
+public class BatchGroupTest {
+	private static DbClient db;
+
+	@BeforeClass
+	public static void setUp() throws SQLException {
+		new EntityEnhancer().enhance("jef.orm.partition");
+		Map<String, DataSource> datasources = new HashMap<String, DataSource>();
+		for (int i = 0; i < 3; i++) {
+			datasources.put(String.valueOf(i), DbUtils.createSimpleDataSource("jdbc:hsqldb:mem:batchgroup" + i, "SA", ""));
+		}
+		db = new DbClientBuilder().setDataSources(datasources).setDefaultDatasource("0").build();
+	}
+
+	@AfterClass
+	public static void tearDown() {
+		db.close();
+	}
+
+	@Test
+	public void testParallelInsert() throws SQLException {
+		List<SiteEntity> list = new ArrayList<SiteEntity>();
+		for (int i = 0; i < 30; i++) {
+			list.add(new SiteEntity(i, i, "name" + i));
+		}
+		Batch<SiteEntity> batch = db.startBatchInsert(list.get(0), false);
+		batch.setBatchSize(4);
+		Assert.assertEquals(30, batch.execute(list));
+
+		List<Batch.GroupResult<SiteEntity>> groups = batch.getGroupResults();
+		Assert.assertEquals(3, groups.size());
+		for (Batch.GroupResult<SiteEntity> group : groups) {
+			Assert.assertTrue(group.isSuccess());
+			Assert.assertEquals(10, group.getAffected());
+			Assert.assertEquals(10, group.getObjects().size());
+		}
+
+		List<SiteEntity> keys = new ArrayList<SiteEntity>();
+		for (int i = 0; i < 30; i++) {
+			SiteEntity key = new SiteEntity();
+			key.setSiteId(i);
+			keys.add(key);
+		}
+		Batch<SiteEntity> delete = db.startBatchDelete(keys.get(0), null);
+		delete.setParallel(false);
+		Assert.assertEquals(30, delete.execute(keys));
+		Assert.assertEquals(3, delete.getGroupResults().size());
+	}
+}
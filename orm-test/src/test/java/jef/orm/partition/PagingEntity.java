@@ -0,0 +1,66 @@
+package jef.orm.partition;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import jef.database.annotation.PartitionKey;
+import jef.database.annotation.PartitionTable;
+import jef.database.routing.function.KeyFunction;
+
+/**
+ * 同时分库分表的实体，用于多库分页查询测试
+ */
+@PartitionTable(key = { @PartitionKey(field = "siteId", function = KeyFunction.MODULUS, functionConstructorParams = { "3" }, isDbName = true),
+		@PartitionKey(field = "id", function = KeyFunction.MODULUS, functionConstructorParams = { "2" }) })
+@Entity
+@Table(name = "paging_entity")
+public class PagingEntity extends jef.database.DataObject {
+	private static final long serialVersionUID = 1L;
+
+	@Id
+	private int id;
+
+	@Column(name = "SITE_ID")
+	private int siteId;
+
+	private String name;
+
+	public PagingEntity() {
+	}
+
+	public PagingEntity(int id, int siteId, String name) {
+		setId(id);
+		setSiteId(siteId);
+		setName(name);
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public void setId(int id) {
+		this.id = id;
+	}
+
+	public int getSiteId() {
+		return siteId;
+	}
+
+	public void setSiteId(int siteId) {
+		this.siteId = siteId;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public enum Field implements jef.database.Field {
+		id, siteId, name
+	}
+}
@@ -0,0 +1,103 @@
+package jef.orm.partition;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.sql.DataSource;
+
+import jef.codegen.EntityEnhancer;
+import jef.database.DbClient;
+import jef.database.DbClientBuilder;
+import jef.database.DbUtils;
+import jef.database.routing.jdbc.JDataSource;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * 通过JDataSource并发执行同一条多库分组求平均值的语句。各次执行共享路由模板中的语法树，AVG的改写不能互相影响
+ */
+public class RoutedAvgTest {
+	private static final String SQL = "select grp, avg(score) as avg_score, count(*) as cnt from score_entity where score >= ? group by grp order by grp";
+
+	private static DbClient db;
+
+	private static JDataSource ds;
+
+	@BeforeClass
+	public static void setUp() throws SQLException {
+		new EntityEnhancer().enhance("jef.orm.partition");
+		Map<String, DataSource> datasources = new HashMap<String, DataSource>();
+		for (int i = 0; i < 2; i++) {
+			datasources.put(String.valueOf(i), DbUtils.createSimpleDataSource("jdbc:hsqldb:mem:routedavg" + i, "SA", ""));
+		}
+		db = new DbClientBuilder().setDataSources(datasources).setDefaultDatasource("0").build();
+		db.createTable(ScoreEntity.class);
+		List<ScoreEntity> list = new ArrayList<ScoreEntity>();
+		for (int i = 0; i < 30; i++) {
+			list.add(new ScoreEntity(i, i % 4, i % 3, i));
+		}
+		db.batchInsert(list);
+		ds = new JDataSource(db);
+	}
+
+	@AfterClass
+	public static void tearDown() {
+		db.close();
+	}
+
+	@Test
+	public void testConcurrentAvg() throws Exception {
+		final String expect = query(0);
+		// 每组的平均值按全部库的总和除以总数计算，不是各库平均值的平均
+		Assert.assertEquals("0:13.5:10,1:14.5:10,2:15.5:10,", expect);
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<String>> results = new ArrayList<Future<String>>();
+			for (int i = 0; i < 200; i++) {
+				results.add(pool.submit(new Callable<String>() {
+					public String call() throws Exception {
+						return query(0);
+					}
+				}));
+			}
+			for (Future<String> f : results) {
+				Assert.assertEquals(expect, f.get());
+			}
+		} finally {
+			pool.shutdown();
+		}
+		Assert.assertEquals("0:19.5:6,1:20.5:6,2:21.5:6,", query(12));
+	}
+
+	private static String query(int min) throws SQLException {
+		Connection conn = ds.getConnection();
+		try {
+			PreparedStatement ps = conn.prepareStatement(SQL);
+			ps.setInt(1, min);
+			ResultSet rs = ps.executeQuery();
+			StringBuilder sb = new StringBuilder();
+			Assert.assertEquals(3, rs.getMetaData().getColumnCount());
+			while (rs.next()) {
+				sb.append(rs.getInt(1)).append(':').append(rs.getDouble(2)).append(':').append(rs.getInt(3)).append(',');
+			}
+			rs.close();
+			ps.close();
+			return sb.toString();
+		} finally {
+			conn.close();
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package jef.orm.partition;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import jef.database.annotation.PartitionKey;
+import jef.database.annotation.PartitionTable;
+import jef.database.routing.function.KeyFunction;
+
+/**
+ * 同时分库分表的实体，用于多库分组求平均值的测试
+ */
+@PartitionTable(key = { @PartitionKey(field = "siteId", function = KeyFunction.MODULUS, functionConstructorParams = { "2" }, isDbName = true),
+		@PartitionKey(field = "id", function = KeyFunction.MODULUS, functionConstructorParams = { "2" }) })
+@Entity
+@Table(name = "score_entity")
+public class ScoreEntity extends jef.database.DataObject {
+	private static final long serialVersionUID = 1L;
+
+	@Id
+	private int id;
+
+	@Column(name = "SITE_ID")
+	private int siteId;
+
+	private int grp;
+
+	private double score;
+
+	public ScoreEntity() {
+	}
+
+	public ScoreEntity(int id, int siteId, int grp, double score) {
+		setId(id);
+		setSiteId(siteId);
+		setGrp(grp);
+		setScore(score);
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public void setId(int id) {
+		this.id = id;
+	}
+
+	public int getSiteId() {
+		return siteId;
+	}
+
+	public void setSiteId(int siteId) {
+		this.siteId = siteId;
+	}
+
+	public int getGrp() {
+		return grp;
+	}
+
+	public void setGrp(int grp) {
+		this.grp = grp;
+	}
+
+	public double getScore() {
+		return score;
+	}
+
+	public void setScore(double score) {
+		this.score = score;
+	}
+
+	public enum Field implements jef.database.Field {
+		id, siteId, grp, score
+	}
+}
@@ -0,0 +1,56 @@
+package jef.orm.partition;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import jef.database.annotation.PartitionKey;
+import jef.database.annotation.PartitionTable;
+import jef.database.routing.function.KeyFunction;
+
+/**
+ * 只按普通字段分表的实体，用于SQL路由测试
+ */
+@PartitionTable(key = { @PartitionKey(field = "intField", function = KeyFunction.MODULUS, functionConstructorParams = { "3" }) })
+@Entity
+@Table(name = "shard_entity")
+public class ShardEntity extends jef.database.DataObject {
+	private static final long serialVersionUID = 1L;
+
+	@Id
+	private int id;
+
+	@Column(name = "INT_FIELD")
+	private int intField;
+
+	private String name;
+
+	public int getId() {
+		return id;
+	}
+
+	public void setId(int id) {
+		this.id = id;
+	}
+
+	public int getIntField() {
+		return intField;
+	}
+
+	public void setIntField(int intField) {
+		this.intField = intField;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public enum Field implements jef.database.Field {
+		id, intField, name
+	}
+}
@@ -0,0 +1,115 @@
+package jef.orm.partition;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import jef.codegen.EntityEnhancer;
+import jef.database.DbClient;
+import jef.database.DbClientBuilder;
+import jef.database.DbUtils;
+import jef.database.NativeQuery;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * 多库分页查询：各库只查出前offset+rows条记录时，结果应当和在一张不分库的表上查询相同
+ */
+public class ShardPagingTest {
+	private static DbClient db;
+
+	@BeforeClass
+	public static void setUp() throws SQLException {
+		new EntityEnhancer().enhance("jef.orm.partition");
+		Map<String, DataSource> datasources = new HashMap<String, DataSource>();
+		for (int i = 0; i < 3; i++) {
+			datasources.put(String.valueOf(i), DbUtils.createSimpleDataSource("jdbc:hsqldb:mem:shardpaging" + i, "SA", ""));
+		}
+		db = new DbClientBuilder().setDataSources(datasources).setDefaultDatasource("0").build();
+		db.createTable(PagingEntity.class);
+		db.executeSql("create table paging_copy (id int primary key, site_id int, name varchar(64))");
+		List<PagingEntity> list = new ArrayList<PagingEntity>();
+		for (int i = 0; i < 40; i++) {
+			// 名称在各库间重复，且和分库字段的顺序不一致
+			String name = "name" + (i * 7 % 11);
+			list.add(new PagingEntity(i, i, name));
+			db.executeSql("insert into paging_copy (id, site_id, name) values (?, ?, ?)", i, i, name);
+		}
+		db.batchInsert(list);
+	}
+
+	@AfterClass
+	public static void tearDown() {
+		db.close();
+	}
+
+	/**
+	 * 跨库排序后跳过offset条
+	 */
+	@Test
+	public void testOrderWithOffset() {
+		String sql = "select id, site_id, name from %s order by name desc, id";
+		assertSameResult(sql, 0, 5);
+		assertSameResult(sql, 7, 6);
+		assertSameResult(sql, 36, 10);
+	}
+
+	/**
+	 * DISTINCT需要在内存中跨库去重，不能下推
+	 */
+	@Test
+	public void testDistinct() {
+		assertSameResult("select distinct name from %s order by name", 2, 4);
+	}
+
+	/**
+	 * 分组需要全部记录参与计算，不能下推
+	 */
+	@Test
+	public void testGroupBy() {
+		assertSameResult("select name, count(*) as cnt from %s group by name order by name", 1, 5);
+	}
+
+	/**
+	 * 指定了上限的COUNT，累计达到上限后不再查询其余的库，结果和不分库时相同
+	 */
+	@Test
+	public void testCountWithMaxSize() {
+		assertSameCount("select id from %s order by id limit 12", 12);
+		assertSameCount("select id from %s order by id limit 5, 7", 7);
+		assertSameCount("select id from %s order by id limit 100", 40);
+		assertSameCount("select id from %s where site_id > 30 order by id limit 100", 9);
+		assertSameCount("select id from %s where site_id > 30 order by id limit 3", 3);
+	}
+
+	private static void assertSameCount(String sql, long expect) {
+		Assert.assertEquals(expect, db.createNativeQuery(String.format(sql, "paging_copy")).getResultCount());
+		Assert.assertEquals(expect, db.createNativeQuery(String.format(sql, "paging_entity")).setRouting(true).getResultCount());
+	}
+
+	private static void assertSameResult(String sql, int offset, int rows) {
+		NativeQuery<Object[]> sharded = db.createNativeQuery(String.format(sql, "paging_entity"), Object[].class).setRouting(true);
+		sharded.setRange(offset, rows);
+		NativeQuery<Object[]> plain = db.createNativeQuery(String.format(sql, "paging_copy"), Object[].class);
+		plain.setRange(offset, rows);
+		List<String> expect = toStrings(plain.getResultList());
+		Assert.assertFalse(expect.isEmpty());
+		Assert.assertEquals(expect, toStrings(sharded.getResultList()));
+	}
+
+	private static List<String> toStrings(List<Object[]> rows) {
+		List<String> result = new ArrayList<String>(rows.size());
+		for (Object[] row : rows) {
+			result.add(Arrays.toString(row));
+		}
+		return result;
+	}
+}
@@ -0,0 +1,65 @@
+package jef.orm.partition;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import jef.database.annotation.PartitionKey;
+import jef.database.annotation.PartitionTable;
+import jef.database.routing.function.KeyFunction;
+
+/**
+ * 按普通字段分库的实体，用于批量操作测试
+ */
+@PartitionTable(key = { @PartitionKey(field = "siteId", function = KeyFunction.MODULUS, functionConstructorParams = { "3" }, isDbName = true) })
+@Entity
+@Table(name = "site_entity")
+public class SiteEntity extends jef.database.DataObject {
+	private static final long serialVersionUID = 1L;
+
+	@Id
+	private int id;
+
+	@Column(name = "SITE_ID")
+	private int siteId;
+
+	private String name;
+
+	public SiteEntity() {
+	}
+
+	public SiteEntity(int id, int siteId, String name) {
+		setId(id);
+		setSiteId(siteId);
+		setName(name);
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public void setId(int id) {
+		this.id = id;
+	}
+
+	public int getSiteId() {
+		return siteId;
+	}
+
+	public void setSiteId(int siteId) {
+		this.siteId = siteId;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public enum Field implements jef.database.Field {
+		id, siteId, name
+	}
+}